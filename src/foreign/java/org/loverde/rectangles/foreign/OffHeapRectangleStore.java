@@ -0,0 +1,352 @@
+package org.loverde.rectangles.foreign;
+
+import java.io.IOException;
+import java.util.function.LongConsumer;
+
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemoryLayout;
+import jdk.incubator.foreign.MemoryLayouts;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import org.loverde.rectangles.Boundaries;
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+import org.loverde.rectangles.Relationship;
+import org.loverde.rectangles.join.RectangleSource;
+
+/**
+ * <p>A fixed-capacity store of rectangles held outside the Java heap, in one native {@link MemorySegment}.  However many
+ * rectangles it holds, the store is a handful of objects to the garbage collector.</p>
+ *
+ * <p>Rectangle <em>i</em> is stored at byte offset <code>i * 32</code> as four doubles in native byte order:  left,
+ * bottom, right and top (see {@link #RECTANGLE}).  The predicates read the boundaries straight from the segment and
+ * give the same answers as {@link Rectangle}, via {@link Boundaries}.  Rectangles are validated as they're added, with
+ * the same rules and messages as {@link Rectangle}.</p>
+ *
+ * <p>The memory belongs to a {@link ResourceScope}.  A store made by {@link #allocate(long)} owns its scope, and
+ * {@link #close} frees the memory.  A store made by {@link #allocate(long, ResourceScope)} lives as long as the given
+ * scope, which the caller closes; that lets several stores be freed together.  Once the memory is freed, every method
+ * which reads or writes it throws {@link IllegalStateException}.</p>
+ *
+ * <p>The JVM must be started with <code>--add-modules jdk.incubator.foreign</code>.  Reads may come from any thread
+ * the scope allows; adding rectangles while other threads read requires outside synchronization.</p>
+ */
+public final class OffHeapRectangleStore implements RectangleSource, AutoCloseable {
+
+    /** The layout of one rectangle in the segment */
+    public static final MemoryLayout RECTANGLE = MemoryLayout.structLayout(
+        MemoryLayouts.JAVA_DOUBLE.withName("left"),
+        MemoryLayouts.JAVA_DOUBLE.withName("bottom"),
+        MemoryLayouts.JAVA_DOUBLE.withName("right"),
+        MemoryLayouts.JAVA_DOUBLE.withName("top"));
+
+    static final long RECTANGLE_BYTES = RECTANGLE.byteSize();
+    static final long LEFT = 0, BOTTOM = 8, RIGHT = 16, TOP = 24;
+
+    private final ResourceScope scope;
+    private final boolean ownsScope;
+    private final MemorySegment segment;
+    private final long capacity;
+    private long size;
+
+    private OffHeapRectangleStore(final ResourceScope scope, final boolean ownsScope, final long capacity) {
+        this.scope = scope;
+        this.ownsScope = ownsScope;
+        this.capacity = capacity;
+        this.segment = MemorySegment.allocateNative(Math.max(1, capacity) * RECTANGLE_BYTES, RECTANGLE.byteAlignment(), scope);
+    }
+
+    /**
+     * Allocates a store for up to <em>capacity</em> rectangles in a new shared scope, which {@link #close} closes
+     *
+     * @throws IllegalArgumentException If <em>capacity</em> is negative
+     */
+    public static OffHeapRectangleStore allocate(final long capacity) {
+        checkCapacity(capacity);
+
+        return new OffHeapRectangleStore(ResourceScope.newSharedScope(), true, capacity);
+    }
+
+    /**
+     * Allocates a store for up to <em>capacity</em> rectangles in <em>scope</em>.  The memory is freed when the scope
+     * is closed; {@link #close} has no effect.
+     *
+     * @throws IllegalArgumentException If <em>capacity</em> is negative or <em>scope</em> is null
+     */
+    public static OffHeapRectangleStore allocate(final long capacity, final ResourceScope scope) {
+        checkCapacity(capacity);
+        if(scope == null) throw new IllegalArgumentException("allocate:  scope cannot be null");
+
+        return new OffHeapRectangleStore(scope, false, capacity);
+    }
+
+    private static void checkCapacity(final long capacity) {
+        if(capacity < 0) throw new IllegalArgumentException("allocate:  capacity cannot be negative");
+        if(capacity > Long.MAX_VALUE / RECTANGLE_BYTES) throw new IllegalArgumentException("allocate:  capacity is too large");
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return <em>false</em> once the memory has been freed
+     */
+    public boolean isAlive() {
+        return scope.isAlive();
+    }
+
+    public ResourceScope scope() {
+        return scope;
+    }
+
+    /**
+     * @return A read-only view of the part of the segment holding rectangles, <code>size() * 32</code> bytes long
+     */
+    public MemorySegment segment() {
+        return segment.asSlice(0, size * RECTANGLE_BYTES).asReadOnly();
+    }
+
+    /**
+     * Adds a rectangle
+     *
+     * @return The index of the new rectangle
+     *
+     * @throws IllegalArgumentException If the boundaries don't describe a valid rectangle
+     * @throws IllegalStateException If the store is full, or its memory has been freed
+     */
+    public long add(final double left, final double bottom, final double right, final double top) {
+        Boundaries.validate(left, bottom, right, top);
+
+        if(size == capacity) throw new IllegalStateException("add:  store is full");
+
+        final long offset = size * RECTANGLE_BYTES;
+
+        MemoryAccess.setDoubleAtOffset(segment, offset + LEFT, left);
+        MemoryAccess.setDoubleAtOffset(segment, offset + BOTTOM, bottom);
+        MemoryAccess.setDoubleAtOffset(segment, offset + RIGHT, right);
+        MemoryAccess.setDoubleAtOffset(segment, offset + TOP, top);
+
+        return size++;
+    }
+
+    /**
+     * @see #add(double, double, double, double)
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null
+     */
+    public long add(final Rectangle r) {
+        if(r == null) throw new IllegalArgumentException("add:  rectangle cannot be null");
+
+        return add(r.getLeftX(), r.getBottomY(), r.getRightX(), r.getTopY());
+    }
+
+    /**
+     * Adds every rectangle of <em>batch</em>, in order
+     *
+     * @throws IllegalArgumentException If <em>batch</em> is null
+     * @throws IllegalStateException If the rectangles don't fit, in which case none are added, or the memory has been
+     *                               freed
+     */
+    public void addAll(final RectangleBatch batch) {
+        if(batch == null) throw new IllegalArgumentException("addAll:  batch cannot be null");
+        if(capacity - size < batch.size()) throw new IllegalStateException("addAll:  store is full");
+
+        final double[] l = batch.getLeftColumn(), b = batch.getBottomColumn(), r = batch.getRightColumn(), t = batch.getTopColumn();
+
+        for(int i = 0; i < batch.size(); i++) {
+            add(l[i], b[i], r[i], t[i]);
+        }
+    }
+
+    /**
+     * @return The byte offset of rectangle <em>index</em> in the segment
+     *
+     * @throws IndexOutOfBoundsException If <em>index</em> is out of range
+     */
+    public long offsetOf(final long index) {
+        if(index < 0 || index >= size) throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+
+        return index * RECTANGLE_BYTES;
+    }
+
+    public double getLeftX(final long index) {
+        return MemoryAccess.getDoubleAtOffset(segment, offsetOf(index) + LEFT);
+    }
+
+    public double getBottomY(final long index) {
+        return MemoryAccess.getDoubleAtOffset(segment, offsetOf(index) + BOTTOM);
+    }
+
+    public double getRightX(final long index) {
+        return MemoryAccess.getDoubleAtOffset(segment, offsetOf(index) + RIGHT);
+    }
+
+    public double getTopY(final long index) {
+        return MemoryAccess.getDoubleAtOffset(segment, offsetOf(index) + TOP);
+    }
+
+    /**
+     * @return A new rectangle with the boundaries of rectangle <em>index</em>
+     */
+    public Rectangle get(final long index) {
+        final long offset = offsetOf(index);
+
+        return new Rectangle(new Point(MemoryAccess.getDoubleAtOffset(segment, offset + LEFT), MemoryAccess.getDoubleAtOffset(segment, offset + BOTTOM)),
+                             new Point(MemoryAccess.getDoubleAtOffset(segment, offset + RIGHT), MemoryAccess.getDoubleAtOffset(segment, offset + TOP)));
+    }
+
+    /**
+     * @return <em>true</em> if rectangle <em>index</em> intersects <em>r</em>; see {@link Rectangle#intersects}
+     */
+    public boolean intersects(final long index, final Rectangle r) {
+        checkRectangle("intersects", r);
+
+        final long o = offsetOf(index);
+
+        return Boundaries.intersects(left(o), bottom(o), right(o), top(o), r.getLeftX(), r.getBottomY(), r.getRightX(), r.getTopY());
+    }
+
+    /**
+     * @return <em>true</em> if rectangles <em>first</em> and <em>second</em> intersect
+     */
+    public boolean intersects(final long first, final long second) {
+        final long o1 = offsetOf(first), o2 = offsetOf(second);
+
+        return Boundaries.intersects(left(o1), bottom(o1), right(o1), top(o1), left(o2), bottom(o2), right(o2), top(o2));
+    }
+
+    /**
+     * @return <em>true</em> if rectangle <em>index</em> contains <em>r</em>; see {@link Rectangle#contains}
+     */
+    public boolean contains(final long index, final Rectangle r) {
+        checkRectangle("contains", r);
+
+        final long o = offsetOf(index);
+
+        return Boundaries.contains(left(o), bottom(o), right(o), top(o), r.getLeftX(), r.getBottomY(), r.getRightX(), r.getTopY());
+    }
+
+    /**
+     * @return <em>true</em> if rectangle <em>first</em> contains rectangle <em>second</em>
+     */
+    public boolean contains(final long first, final long second) {
+        final long o1 = offsetOf(first), o2 = offsetOf(second);
+
+        return Boundaries.contains(left(o1), bottom(o1), right(o1), top(o1), left(o2), bottom(o2), right(o2), top(o2));
+    }
+
+    /**
+     * @return <em>true</em> if rectangle <em>index</em> is contained by <em>r</em>; see {@link Rectangle#isContainedBy}
+     */
+    public boolean isContainedBy(final long index, final Rectangle r) {
+        checkRectangle("isContainedBy", r);
+
+        final long o = offsetOf(index);
+
+        return Boundaries.contains(r.getLeftX(), r.getBottomY(), r.getRightX(), r.getTopY(), left(o), bottom(o), right(o), top(o));
+    }
+
+    /**
+     * @return <em>true</em> if rectangle <em>index</em> is adjacent to <em>r</em>; see {@link Rectangle#isAdjacentTo}
+     */
+    public boolean isAdjacentTo(final long index, final Rectangle r) {
+        checkRectangle("isAdjacentTo", r);
+
+        final long o = offsetOf(index);
+
+        return Boundaries.isAdjacent(left(o), bottom(o), right(o), top(o), r.getLeftX(), r.getBottomY(), r.getRightX(), r.getTopY());
+    }
+
+    /**
+     * @return <em>true</em> if rectangles <em>first</em> and <em>second</em> are adjacent
+     */
+    public boolean isAdjacentTo(final long first, final long second) {
+        final long o1 = offsetOf(first), o2 = offsetOf(second);
+
+        return Boundaries.isAdjacent(left(o1), bottom(o1), right(o1), top(o1), left(o2), bottom(o2), right(o2), top(o2));
+    }
+
+    /**
+     * @return The relationship of rectangle <em>index</em> to <em>r</em>; see {@link Rectangle#relate}
+     */
+    public Relationship relate(final long index, final Rectangle r) {
+        checkRectangle("relate", r);
+
+        final long o = offsetOf(index);
+
+        return Boundaries.relate(left(o), bottom(o), right(o), top(o), r.getLeftX(), r.getBottomY(), r.getRightX(), r.getTopY());
+    }
+
+    /**
+     * Passes the index of every rectangle which intersects <em>query</em> to <em>consumer</em>, in index order
+     *
+     * @return The number of rectangles passed
+     *
+     * @throws IllegalArgumentException If either argument is null
+     */
+    public long forEachIntersecting(final Rectangle query, final LongConsumer consumer) {
+        checkRectangle("forEachIntersecting", query);
+        if(consumer == null) throw new IllegalArgumentException("forEachIntersecting:  consumer cannot be null");
+
+        final double ql = query.getLeftX(), qb = query.getBottomY(), qr = query.getRightX(), qt = query.getTopY();
+        final long end = size * RECTANGLE_BYTES;
+        long count = 0;
+
+        for(long o = 0; o < end; o += RECTANGLE_BYTES) {
+            if(Boundaries.intersects(left(o), bottom(o), right(o), top(o), ql, qb, qr, qt)) {
+                consumer.accept(o / RECTANGLE_BYTES);
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Passes every rectangle to <em>sink</em> with its index as its id, so a store can be joined directly
+     */
+    @Override
+    public void forEach(final Sink sink) throws IOException {
+        if(sink == null) throw new IllegalArgumentException("forEach:  sink cannot be null");
+
+        final long end = size * RECTANGLE_BYTES;
+
+        for(long o = 0; o < end; o += RECTANGLE_BYTES) {
+            sink.accept(o / RECTANGLE_BYTES, left(o), bottom(o), right(o), top(o));
+        }
+    }
+
+    /**
+     * Frees the memory if the store owns its scope; otherwise has no effect.  Closing a closed store has no effect.
+     */
+    @Override
+    public void close() {
+        if(ownsScope && scope.isAlive()) scope.close();
+    }
+
+    private double left(final long offset) {
+        return MemoryAccess.getDoubleAtOffset(segment, offset + LEFT);
+    }
+
+    private double bottom(final long offset) {
+        return MemoryAccess.getDoubleAtOffset(segment, offset + BOTTOM);
+    }
+
+    private double right(final long offset) {
+        return MemoryAccess.getDoubleAtOffset(segment, offset + RIGHT);
+    }
+
+    private double top(final long offset) {
+        return MemoryAccess.getDoubleAtOffset(segment, offset + TOP);
+    }
+
+    private static void checkRectangle(final String method, final Rectangle r) {
+        if(r == null) throw new IllegalArgumentException(method + ":  rectangle cannot be null");
+    }
+}
@@ -0,0 +1,189 @@
+package org.loverde.rectangles.foreign;
+
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import org.junit.jupiter.api.Test;
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class OffHeapRectangleStoreTest {
+
+    @Test
+    public void allocateArguments() {
+        Exception e = assertThrows(IllegalArgumentException.class, () -> OffHeapRectangleStore.allocate(-1));
+        assertEquals("allocate:  capacity cannot be negative", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> OffHeapRectangleStore.allocate(1, null));
+        assertEquals("allocate:  scope cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void add() {
+        try(final OffHeapRectangleStore store = OffHeapRectangleStore.allocate(2)) {
+            assertEquals(0, store.add(1, 2, 3, 4));
+            assertEquals(1, store.add(new Rectangle(new Point(5, 6), new Point(7, 8))));
+
+            assertEquals(2, store.size());
+            assertEquals(2, store.capacity());
+            assertEquals(new Rectangle(new Point(1, 2), new Point(3, 4)), store.get(0));
+            assertEquals(5, store.getLeftX(1));
+            assertEquals(6, store.getBottomY(1));
+            assertEquals(7, store.getRightX(1));
+            assertEquals(8, store.getTopY(1));
+
+            final Exception e = assertThrows(IllegalStateException.class, () -> store.add(0, 0, 1, 1));
+            assertEquals("add:  store is full", e.getMessage());
+        }
+    }
+
+    @Test
+    public void validatesLikeRectangle() {
+        try(final OffHeapRectangleStore store = OffHeapRectangleStore.allocate(4)) {
+            Exception e = assertThrows(IllegalArgumentException.class, () -> store.add(0, -1, 1, 1));
+            assertEquals("y must be greater than or equal to 0", e.getMessage());
+
+            e = assertThrows(IllegalArgumentException.class, () -> store.add(1, 0, 1, 1));
+            assertEquals("upperRight.x must be greater than lowerLeft.x", e.getMessage());
+
+            e = assertThrows(IllegalArgumentException.class, () -> store.add(null));
+            assertEquals("add:  rectangle cannot be null", e.getMessage());
+
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    public void indexOutOfRange() {
+        try(final OffHeapRectangleStore store = OffHeapRectangleStore.allocate(4)) {
+            store.add(0, 0, 1, 1);
+
+            assertThrows(IndexOutOfBoundsException.class, () -> store.getLeftX(1));
+            assertThrows(IndexOutOfBoundsException.class, () -> store.intersects(-1, 0));
+        }
+    }
+
+    @Test
+    public void layout() {
+        try(final OffHeapRectangleStore store = OffHeapRectangleStore.allocate(4)) {
+            store.add(1, 2, 3, 4);
+            store.add(5, 6, 7, 8);
+
+            final MemorySegment segment = store.segment();
+
+            assertEquals(64, segment.byteSize());
+            assertTrue(segment.isReadOnly());
+            assertEquals(32, store.offsetOf(1));
+
+            for(int i = 0; i < 8; i++) {
+                assertEquals(i + 1, MemoryAccess.getDoubleAtOffset(segment, i * 8L));
+            }
+        }
+    }
+
+    @Test
+    public void predicatesMatchRectangle() {
+        final Random random = new Random(15);
+        final List<Rectangle> rectangles = new ArrayList<>();
+
+        try(final OffHeapRectangleStore store = OffHeapRectangleStore.allocate(200)) {
+            // Integer coordinates on a small grid, so shared edges, shared corners and duplicates are common
+            for(int i = 0; i < 200; i++) {
+                final int x = random.nextInt(10), y = random.nextInt(10);
+                final Rectangle r = new Rectangle(new Point(x, y), new Point(x + 1 + random.nextInt(4), y + 1 + random.nextInt(4)));
+
+                rectangles.add(r);
+                store.add(r);
+            }
+
+            for(int i = 0; i < rectangles.size(); i++) {
+                for(int j = 0; j < rectangles.size(); j++) {
+                    final Rectangle a = rectangles.get(i), b = rectangles.get(j);
+
+                    assertEquals(a.intersects(b), store.intersects(i, b));
+                    assertEquals(a.intersects(b), store.intersects(i, j));
+                    assertEquals(a.contains(b), store.contains(i, b));
+                    assertEquals(a.contains(b), store.contains(i, j));
+                    assertEquals(a.isContainedBy(b), store.isContainedBy(i, b));
+                    assertEquals(a.isAdjacentTo(b), store.isAdjacentTo(i, b));
+                    assertEquals(a.isAdjacentTo(b), store.isAdjacentTo(i, j));
+                    assertEquals(a.relate(b), store.relate(i, b));
+                }
+            }
+
+            final Rectangle query = new Rectangle(new Point(3, 3), new Point(6, 5));
+            final List<Long> expected = new ArrayList<>(), actual = new ArrayList<>();
+
+            for(int i = 0; i < rectangles.size(); i++) {
+                if(rectangles.get(i).intersects(query)) expected.add((long) i);
+            }
+
+            assertEquals(expected.size(), store.forEachIntersecting(query, actual::add));
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void addAll() throws IOException {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(0, 0, 1, 1);
+        batch.add(2, 2, 4, 5);
+
+        try(final OffHeapRectangleStore store = OffHeapRectangleStore.allocate(3)) {
+            store.addAll(batch);
+
+            final List<String> seen = new ArrayList<>();
+            store.forEach((id, l, b, r, t) -> seen.add(id + ":" + l + "," + b + "," + r + "," + t));
+            assertEquals(List.of("0:0.0,0.0,1.0,1.0", "1:2.0,2.0,4.0,5.0"), seen);
+
+            final Exception e = assertThrows(IllegalStateException.class, () -> store.addAll(batch));
+            assertEquals("addAll:  store is full", e.getMessage());
+            assertEquals(2, store.size());
+        }
+    }
+
+    @Test
+    public void closeFreesOwnedMemory() {
+        final OffHeapRectangleStore store = OffHeapRectangleStore.allocate(4);
+        store.add(0, 0, 1, 1);
+        store.close();
+        store.close();
+
+        assertFalse(store.isAlive());
+        assertThrows(IllegalStateException.class, () -> store.getLeftX(0));
+        assertThrows(IllegalStateException.class, () -> store.add(0, 0, 1, 1));
+    }
+
+    @Test
+    public void callerOwnedScope() {
+        final OffHeapRectangleStore first, second;
+
+        try(final ResourceScope scope = ResourceScope.newConfinedScope()) {
+            first = OffHeapRectangleStore.allocate(4, scope);
+            second = OffHeapRectangleStore.allocate(4, scope);
+            first.add(0, 0, 1, 1);
+            second.add(0, 0, 2, 2);
+
+            first.close();  // The scope isn't the store's to close
+
+            assertTrue(first.isAlive());
+            assertTrue(first.intersects(0, second.get(0)));
+        }
+
+        assertFalse(first.isAlive());
+        assertFalse(second.isAlive());
+        assertThrows(IllegalStateException.class, () -> second.getTopY(0));
+    }
+}
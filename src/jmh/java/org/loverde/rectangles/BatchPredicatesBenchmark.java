@@ -0,0 +1,89 @@
+package org.loverde.rectangles;
+
+import org.loverde.rectangles.vector.VectorBatchPredicates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and Vector API implementations of {@link BatchPredicates}.  The vector lane count is whatever
+ * the host prefers:  4 doubles on AVX2, 8 on AVX-512.  Add <code>-jvmArgsAppend -XX:UseAVX=2</code> to see the AVX2
+ * numbers on an AVX-512 host.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchPredicatesBenchmark {
+
+    public enum Implementation {
+        SCALAR(BatchPredicates.scalar()),
+        VECTOR(new VectorBatchPredicates());
+
+        private final BatchPredicates predicates;
+
+        Implementation(final BatchPredicates predicates) {
+            this.predicates = predicates;
+        }
+    }
+
+    @Param
+    private Implementation implementation;
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private BatchPredicates predicates;
+    private RectangleBatch batch;
+    private Rectangle query;
+    private boolean[] result;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+
+        predicates = implementation.predicates;
+        batch = new RectangleBatch(size);
+        result = new boolean[size];
+
+        for(int i = 0; i < size; i++) {
+            final double x = random.nextInt(10_000);
+            final double y = random.nextInt(10_000);
+
+            batch.add(x, y, x + 1 + random.nextInt(100), y + 1 + random.nextInt(100));
+        }
+
+        query = new Rectangle(new Point(4000, 4000), new Point(6000, 6000));
+    }
+
+    @Benchmark
+    public boolean[] intersects() {
+        predicates.intersects(batch, query, result);
+        return result;
+    }
+
+    @Benchmark
+    public boolean[] contains() {
+        predicates.isContainedBy(batch, query, result);
+        return result;
+    }
+
+    @Benchmark
+    public boolean[] isAdjacentTo() {
+        predicates.isAdjacentTo(batch, query, result);
+        return result;
+    }
+}
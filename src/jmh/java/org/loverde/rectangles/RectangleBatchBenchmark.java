@@ -0,0 +1,92 @@
+package org.loverde.rectangles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares testing one query rectangle against many, first as an array of {@link Rectangle} objects and then as a
+ * {@link RectangleBatch}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RectangleBatchBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private Rectangle[] rectangles;
+    private RectangleBatch batch;
+    private Rectangle query;
+    private boolean[] result;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+
+        rectangles = new Rectangle[size];
+        batch = new RectangleBatch(size);
+        result = new boolean[size];
+
+        for(int i = 0; i < size; i++) {
+            final double x = random.nextInt(10_000);
+            final double y = random.nextInt(10_000);
+
+            rectangles[i] = new Rectangle(new Point(x, y), new Point(x + 1 + random.nextInt(100), y + 1 + random.nextInt(100)));
+            batch.add(rectangles[i]);
+        }
+
+        query = new Rectangle(new Point(4000, 4000), new Point(6000, 6000));
+    }
+
+    @Benchmark
+    public boolean[] intersects_objects() {
+        for(int i = 0; i < size; i++) result[i] = rectangles[i].intersects(query);
+        return result;
+    }
+
+    @Benchmark
+    public boolean[] intersects_batch() {
+        batch.intersects(query, result);
+        return result;
+    }
+
+    @Benchmark
+    public boolean[] contains_objects() {
+        for(int i = 0; i < size; i++) result[i] = rectangles[i].isContainedBy(query);
+        return result;
+    }
+
+    @Benchmark
+    public boolean[] contains_batch() {
+        batch.isContainedBy(query, result);
+        return result;
+    }
+
+    @Benchmark
+    public boolean[] isAdjacentTo_objects() {
+        for(int i = 0; i < size; i++) result[i] = rectangles[i].isAdjacentTo(query);
+        return result;
+    }
+
+    @Benchmark
+    public boolean[] isAdjacentTo_batch() {
+        batch.isAdjacentTo(query, result);
+        return result;
+    }
+}
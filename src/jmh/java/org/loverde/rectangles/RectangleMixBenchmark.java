@@ -0,0 +1,104 @@
+package org.loverde.rectangles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the pairwise {@link Rectangle} operations over a pool of randomly generated pairs, of which a configurable
+ * fraction overlap.  Unlike {@link RectanglePairBenchmark}, the branch predictor can't learn a single outcome here, so
+ * this is closer to what a caller scanning a large data set sees.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(RectangleMixBenchmark.PAIRS)
+public class RectangleMixBenchmark {
+
+    static final int PAIRS = 1024;
+
+    /** Fraction of the generated pairs which overlap */
+    @Param({"0.0", "0.1", "0.5", "0.9"})
+    private double hitRatio;
+
+    private final Rectangle[] a = new Rectangle[PAIRS];
+    private final Rectangle[] b = new Rectangle[PAIRS];
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+
+        for(int i = 0; i < PAIRS; i++) {
+            final double x = 100 + random.nextInt(1000);
+            final double y = 100 + random.nextInt(1000);
+            final double w = 1 + random.nextInt(50);
+            final double h = 1 + random.nextInt(50);
+
+            a[i] = new Rectangle(new Point(x, y), new Point(x + w, y + h));
+
+            if(random.nextDouble() < hitRatio) {
+                // Shift by less than the size of the first rectangle so that the two always overlap
+                final double dx = random.nextDouble() * w * 0.9;
+                final double dy = random.nextDouble() * h * 0.9;
+                b[i] = new Rectangle(new Point(x + dx, y + dy), new Point(x + dx + w, y + dy + h));
+            } else {
+                // Place the second rectangle clear of the first, either to the right or above it
+                final double gap = 1 + random.nextInt(10);
+                b[i] = random.nextBoolean()
+                    ? new Rectangle(new Point(x + w + gap, y), new Point(x + 2 * w + gap, y + h))
+                    : new Rectangle(new Point(x, y + h + gap), new Point(x + w, y + 2 * h + gap));
+            }
+        }
+    }
+
+    @Benchmark
+    public void getIntersection(final Blackhole bh) {
+        for(int i = 0; i < PAIRS; i++) bh.consume(a[i].getIntersection(b[i]));
+    }
+
+    @Benchmark
+    public void intersects(final Blackhole bh) {
+        for(int i = 0; i < PAIRS; i++) bh.consume(a[i].intersects(b[i]));
+    }
+
+    @Benchmark
+    public void getIntersectingPoints(final Blackhole bh) {
+        for(int i = 0; i < PAIRS; i++) bh.consume(a[i].getIntersectingPoints(b[i]));
+    }
+
+    @Benchmark
+    public void computeIntersectingPoints(final Blackhole bh) {
+        for(int i = 0; i < PAIRS; i++) bh.consume(a[i].computeIntersectingPoints(b[i]));
+    }
+
+    @Benchmark
+    public void hasContainmentWith(final Blackhole bh) {
+        for(int i = 0; i < PAIRS; i++) bh.consume(a[i].hasContainmentWith(b[i]));
+    }
+
+    @Benchmark
+    public void isAdjacentTo(final Blackhole bh) {
+        for(int i = 0; i < PAIRS; i++) bh.consume(a[i].isAdjacentTo(b[i]));
+    }
+
+    @Benchmark
+    public void relate(final Blackhole bh) {
+        for(int i = 0; i < PAIRS; i++) bh.consume(a[i].relate(b[i]));
+    }
+}
@@ -0,0 +1,112 @@
+package org.loverde.rectangles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every pairwise {@link Rectangle} operation against a single, fixed pair of rectangles.  The pairs are
+ * taken from the scenarios drawn in intersection.png, containment.png and adjacency.png so that each path through
+ * the implementation (overlap, no overlap, identical, shared edge, containment) can be measured in isolation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RectanglePairBenchmark {
+
+    public enum Scenario {
+        /** intersection.png #1:  the lower right corner of the second rectangle overlaps the first */
+        HIT(new Rectangle(new Point(4, 2), new Point(17, 14)), new Rectangle(new Point(1, 11), new Point(7, 17))),
+
+        /** adjacency.png #13:  no overlap and no shared edge */
+        MISS(new Rectangle(new Point(0, 9), new Point(2, 13)), new Rectangle(new Point(3, 10), new Point(4, 12))),
+
+        /** containment.png #2:  equal rectangles which are distinct instances */
+        IDENTICAL(new Rectangle(new Point(12, 17), new Point(18, 22)), new Rectangle(new Point(12, 17), new Point(18, 22))),
+
+        /** adjacency.png #1:  a sub-line share on a vertical edge */
+        ADJACENT(new Rectangle(new Point(0, 19), new Point(3, 23)), new Rectangle(new Point(3, 20), new Point(4, 22))),
+
+        /** containment.png #1:  the second rectangle is wholly contained by the first */
+        CONTAINED(new Rectangle(new Point(2, 17), new Point(10, 22)), new Rectangle(new Point(3, 18), new Point(9, 21)));
+
+        private final Rectangle a;
+        private final Rectangle b;
+
+        Scenario(final Rectangle a, final Rectangle b) {
+            this.a = a;
+            this.b = b;
+        }
+    }
+
+    @Param
+    private Scenario scenario;
+
+    private Rectangle a;
+    private Rectangle b;
+
+    @Setup
+    public void setUp() {
+        a = scenario.a;
+        b = scenario.b;
+    }
+
+    @Benchmark
+    public Rectangle getIntersection() {
+        return a.getIntersection(b);
+    }
+
+    @Benchmark
+    public boolean intersects() {
+        return a.intersects(b);
+    }
+
+    @Benchmark
+    public Set<Point> getIntersectingPoints() {
+        return a.getIntersectingPoints(b);
+    }
+
+    @Benchmark
+    public IntersectionPoints computeIntersectingPoints() {
+        return a.computeIntersectingPoints(b);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return a.contains(b);
+    }
+
+    @Benchmark
+    public boolean isContainedBy() {
+        return b.isContainedBy(a);
+    }
+
+    @Benchmark
+    public boolean hasContainmentWith() {
+        return a.hasContainmentWith(b);
+    }
+
+    @Benchmark
+    public boolean isAdjacentTo() {
+        return a.isAdjacentTo(b);
+    }
+
+    @Benchmark
+    public Relationship relate() {
+        return a.relate(b);
+    }
+}
@@ -0,0 +1,81 @@
+package org.loverde.rectangles.foreign;
+
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures scanning an {@link OffHeapRectangleStore} for the rectangles intersecting a query, against a list of
+ * {@link Rectangle}s on the heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class OffHeapRectangleStoreBenchmark {
+
+    @Param({"1000000"})
+    private int size;
+
+    private OffHeapRectangleStore store;
+    private List<Rectangle> list;
+    private Rectangle query;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        final double extent = Math.sqrt(size) * 50;
+
+        store = OffHeapRectangleStore.allocate(size);
+        list = new ArrayList<>(size);
+
+        for(int i = 0; i < size; i++) {
+            final double x = random.nextDouble() * extent, y = random.nextDouble() * extent;
+            final Rectangle r = new Rectangle(new Point(x, y), new Point(x + 1 + random.nextDouble() * 50, y + 1 + random.nextDouble() * 50));
+
+            store.add(r);
+            list.add(r);
+        }
+
+        query = new Rectangle(new Point(extent / 4, extent / 4), new Point(extent / 2, extent / 2));
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public long offHeap() {
+        return store.forEachIntersecting(query, i -> {});
+    }
+
+    @Benchmark
+    public long heap() {
+        long count = 0;
+
+        for(final Rectangle r : list) {
+            if(r.intersects(query)) count++;
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,52 @@
+package org.loverde.rectangles.graph;
+
+import org.loverde.rectangles.RectangleBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the {@link AdjacencyGraph} of a floor plan:  a grid of rooms whose widths vary from row to row,
+ * so that neighbouring rooms share whole sides, parts of sides and corners.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class AdjacencyGraphBenchmark {
+
+    @Param({"100", "1000"})
+    private int gridSize;
+
+    private RectangleBatch batch;
+
+    @Setup
+    public void setUp() {
+        batch = new RectangleBatch(gridSize * gridSize);
+
+        for(int row = 0; row < gridSize; row++) {
+            final double width = 2 + row % 3;
+
+            for(int col = 0; col < gridSize; col++) {
+                batch.add(col * width, row * 2, (col + 1) * width, row * 2 + 2);
+            }
+        }
+    }
+
+    @Benchmark
+    public AdjacencyGraph build() {
+        return AdjacencyGraph.build(batch);
+    }
+}
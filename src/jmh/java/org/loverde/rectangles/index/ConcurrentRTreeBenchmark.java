@@ -0,0 +1,169 @@
+package org.loverde.rectangles.index;
+
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures query throughput with 1 to 64 reader threads while a background writer keeps moving rectangles, with
+ * {@link ConcurrentRTree} and with an {@link RTree} behind a single lock, which readers and the writer share.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ConcurrentRTreeBenchmark {
+
+    private static final int SIZE = 100_000;
+    private static final int MOVES_PER_BATCH = 64;
+    private static final double SIDE = 10;
+
+    private double extent;
+    private Rectangle[] current;
+    private ConcurrentRTree concurrent;
+    private RTree locked;
+    private Thread writer;
+    private volatile boolean stopping;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        final RectangleBatch batch = new RectangleBatch(SIZE);
+
+        extent = Math.sqrt(SIZE) * 20;
+        current = new Rectangle[SIZE];
+
+        for(int i = 0; i < SIZE; i++) {
+            current[i] = square(random.nextDouble() * extent, random.nextDouble() * extent);
+            batch.add(current[i]);
+        }
+
+        concurrent = ConcurrentRTree.bulkLoad(batch);
+        locked = RTree.bulkLoad(batch);
+
+        // The writer moves a few rectangles to new places, in both indexes, and pauses briefly between batches
+        writer = new Thread(() -> {
+            while(!stopping) {
+                final int[] ids = new int[MOVES_PER_BATCH];
+                final Rectangle[] moved = new Rectangle[MOVES_PER_BATCH];
+
+                for(int k = 0; k < MOVES_PER_BATCH; k++) {
+                    ids[k] = random.nextInt(SIZE);
+                    moved[k] = square(random.nextDouble() * extent, random.nextDouble() * extent);
+                }
+
+                concurrent.batch(changes -> {
+                    for(int k = 0; k < MOVES_PER_BATCH; k++) {
+                        if(changes.delete(current[ids[k]], ids[k])) changes.insert(moved[k], ids[k]);
+                    }
+                });
+
+                synchronized(locked) {
+                    for(int k = 0; k < MOVES_PER_BATCH; k++) {
+                        if(locked.delete(current[ids[k]], ids[k])) locked.insert(moved[k], ids[k]);
+                    }
+                }
+
+                for(int k = 0; k < MOVES_PER_BATCH; k++) current[ids[k]] = moved[k];
+
+                LockSupport.parkNanos(100_000);
+            }
+        });
+
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        stopping = true;
+        writer.join();
+    }
+
+    private static Rectangle square(final double x, final double y) {
+        return new Rectangle(new Point(x, y), new Point(x + SIDE, y + SIDE));
+    }
+
+    private Rectangle randomQuery() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final double x = random.nextDouble() * extent, y = random.nextDouble() * extent;
+
+        return new Rectangle(new Point(x, y), new Point(x + 50, y + 50));
+    }
+
+    private int queryConcurrent() {
+        final int[] found = { 0 };
+        concurrent.searchIntersecting(randomQuery(), id -> found[0]++);
+        return found[0];
+    }
+
+    private int queryLocked() {
+        final Rectangle query = randomQuery();
+        final int[] found = { 0 };
+
+        synchronized(locked) {
+            locked.searchIntersecting(query, id -> found[0]++);
+        }
+
+        return found[0];
+    }
+
+    @Benchmark @Threads(1)
+    public int concurrent01() {
+        return queryConcurrent();
+    }
+
+    @Benchmark @Threads(4)
+    public int concurrent04() {
+        return queryConcurrent();
+    }
+
+    @Benchmark @Threads(16)
+    public int concurrent16() {
+        return queryConcurrent();
+    }
+
+    @Benchmark @Threads(64)
+    public int concurrent64() {
+        return queryConcurrent();
+    }
+
+    @Benchmark @Threads(1)
+    public int locked01() {
+        return queryLocked();
+    }
+
+    @Benchmark @Threads(4)
+    public int locked04() {
+        return queryLocked();
+    }
+
+    @Benchmark @Threads(16)
+    public int locked16() {
+        return queryLocked();
+    }
+
+    @Benchmark @Threads(64)
+    public int locked64() {
+        return queryLocked();
+    }
+}
@@ -0,0 +1,102 @@
+package org.loverde.rectangles.index;
+
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one simulation tick, in which every rectangle moves a little and a query is made around each one, with
+ * {@link GridIndex} and with {@link RTree}, which has to delete and insert each entry to move it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class GridIndexBenchmark {
+
+    private static final double SIDE = 10;
+
+    @Param({"10000", "50000"})
+    private int size;
+
+    private double extent;
+    private double[] x, y;
+    private Rectangle[] current;
+    private Random random;
+    private GridIndex grid;
+    private RTree tree;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        extent = Math.sqrt(size) * 20;
+        x = new double[size];
+        y = new double[size];
+        current = new Rectangle[size];
+        grid = new GridIndex(2 * SIDE);
+        tree = new RTree();
+
+        for(int i = 0; i < size; i++) {
+            x[i] = random.nextDouble() * extent;
+            y[i] = random.nextDouble() * extent;
+            current[i] = rectangle(i);
+            grid.insert(current[i], i);
+            tree.insert(current[i], i);
+        }
+    }
+
+    /** Moves each rectangle up to one unit in each direction, staying within the area */
+    private void move() {
+        for(int i = 0; i < size; i++) {
+            x[i] = Math.min(extent, Math.max(0, x[i] + random.nextDouble() * 2 - 1));
+            y[i] = Math.min(extent, Math.max(0, y[i] + random.nextDouble() * 2 - 1));
+        }
+    }
+
+    private Rectangle rectangle(final int i) {
+        return new Rectangle(new Point(x[i], y[i]), new Point(x[i] + SIDE, y[i] + SIDE));
+    }
+
+    @Benchmark
+    public long gridIndex() {
+        move();
+
+        for(int i = 0; i < size; i++) grid.update(i, x[i], y[i], x[i] + SIDE, y[i] + SIDE);
+
+        final long[] found = { 0 };
+        for(int i = 0; i < size; i++) grid.searchIntersecting(rectangle(i), id -> found[0]++);
+
+        return found[0];
+    }
+
+    @Benchmark
+    public long rTree() {
+        move();
+
+        for(int i = 0; i < size; i++) {
+            tree.delete(current[i], i);
+            current[i] = rectangle(i);
+            tree.insert(current[i], i);
+        }
+
+        final long[] found = { 0 };
+        for(int i = 0; i < size; i++) tree.searchIntersecting(current[i], id -> found[0]++);
+
+        return found[0];
+    }
+}
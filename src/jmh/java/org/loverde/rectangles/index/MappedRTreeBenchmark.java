@@ -0,0 +1,99 @@
+package org.loverde.rectangles.index;
+
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures getting an index ready at startup, by rebuilding it against opening a {@link MappedRTree} snapshot, and
+ * compares queries against the snapshot with queries against an {@link RTree} on the heap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappedRTreeBenchmark {
+
+    @Param({"1000000"})
+    private int size;
+
+    private RectangleBatch batch;
+    private RTree tree;
+    private Path file;
+    private MappedRTree mapped;
+    private Rectangle[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Random random = new Random(42);
+
+        batch = new RectangleBatch(size);
+
+        for(int i = 0; i < size; i++) {
+            final double x = random.nextDouble() * 100_000, y = random.nextDouble() * 100_000;
+            batch.add(x, y, x + 1 + random.nextDouble() * 100, y + 1 + random.nextDouble() * 100);
+        }
+
+        tree = RTree.bulkLoad(batch);
+        file = Files.createTempFile("index", ".ridx");
+        MappedRTree.write(tree, file);
+        mapped = MappedRTree.open(file);
+        queries = new Rectangle[1024];
+
+        for(int i = 0; i < queries.length; i++) {
+            final double x = random.nextDouble() * 99_000, y = random.nextDouble() * 99_000;
+            queries[i] = new Rectangle(new Point(x, y), new Point(x + 1000, y + 1000));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public RTree startup_rebuild() {
+        return RTree.bulkLoad(batch);
+    }
+
+    @Benchmark
+    public MappedRTree startup_open() throws IOException {
+        return MappedRTree.open(file);
+    }
+
+    @Benchmark
+    public void searchIntersecting_heap(final Blackhole bh) {
+        tree.searchIntersecting(nextQuery(), bh::consume);
+    }
+
+    @Benchmark
+    public void searchIntersecting_mapped(final Blackhole bh) {
+        mapped.searchIntersecting(nextQuery(), bh::consume);
+    }
+
+    private Rectangle nextQuery() {
+        return queries[next++ & (queries.length - 1)];
+    }
+}
@@ -0,0 +1,86 @@
+package org.loverde.rectangles.index;
+
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares window queries against an {@link RTree} with testing every rectangle, and measures building the tree.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RTreeBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    private RectangleBatch batch;
+    private Rectangle[] rectangles;
+    private RTree tree;
+    private Rectangle[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+
+        batch = new RectangleBatch(size);
+        rectangles = new Rectangle[size];
+
+        for(int i = 0; i < size; i++) {
+            final double x = random.nextDouble() * 100_000, y = random.nextDouble() * 100_000;
+            rectangles[i] = new Rectangle(new Point(x, y), new Point(x + 1 + random.nextDouble() * 100, y + 1 + random.nextDouble() * 100));
+            batch.add(rectangles[i]);
+        }
+
+        tree = RTree.bulkLoad(batch);
+        queries = new Rectangle[1024];
+
+        for(int i = 0; i < queries.length; i++) {
+            final double x = random.nextDouble() * 99_000, y = random.nextDouble() * 99_000;
+            queries[i] = new Rectangle(new Point(x, y), new Point(x + 1000, y + 1000));
+        }
+    }
+
+    @Benchmark
+    public void searchIntersecting_tree(final Blackhole bh) {
+        tree.searchIntersecting(nextQuery(), bh::consume);
+    }
+
+    @Benchmark
+    public void searchIntersecting_scan(final Blackhole bh) {
+        final Rectangle query = nextQuery();
+
+        for(int i = 0; i < size; i++) {
+            if(rectangles[i].intersects(query)) bh.consume(i);
+        }
+    }
+
+    @Benchmark
+    public RTree bulkLoad() {
+        return RTree.bulkLoad(batch);
+    }
+
+    private Rectangle nextQuery() {
+        return queries[next++ & (queries.length - 1)];
+    }
+}
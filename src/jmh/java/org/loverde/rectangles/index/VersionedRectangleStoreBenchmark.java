@@ -0,0 +1,100 @@
+package org.loverde.rectangles.index;
+
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures 1,000 updates to a store of 100,000 rectangles while snapshots are opened every so often, each staying
+ * open until the next is opened, against the same updates made to a plain {@link RTree}.  With
+ * <em>snapshotEvery</em> at 0 no snapshot is opened.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class VersionedRectangleStoreBenchmark {
+
+    private static final int SIZE = 100_000;
+    private static final int UPDATES = 1000;
+    private static final double SIDE = 10;
+
+    @Param({"0", "1000", "100", "1"})
+    private int snapshotEvery;
+
+    private double extent;
+    private Random random;
+    private Rectangle[] current;
+    private VersionedRectangleStore store;
+    private RTree tree;
+    private VersionedRectangleStore.Snapshot open;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        extent = Math.sqrt(SIZE) * 20;
+        current = new Rectangle[SIZE];
+        store = new VersionedRectangleStore();
+        tree = new RTree();
+
+        for(int i = 0; i < SIZE; i++) {
+            current[i] = randomSquare();
+            store.insert(i, current[i]);
+            tree.insert(current[i], i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if(open != null) open.close();
+    }
+
+    private Rectangle randomSquare() {
+        final double x = random.nextDouble() * extent, y = random.nextDouble() * extent;
+        return new Rectangle(new Point(x, y), new Point(x + SIDE, y + SIDE));
+    }
+
+    @Benchmark
+    public long store() {
+        for(int k = 0; k < UPDATES; k++) {
+            if(snapshotEvery > 0 && k % snapshotEvery == 0) {
+                if(open != null) open.close();
+                open = store.openSnapshot();
+            }
+
+            store.update(random.nextInt(SIZE), randomSquare());
+        }
+
+        return store.getVersion();
+    }
+
+    @Benchmark
+    public int rTree() {
+        for(int k = 0; k < UPDATES; k++) {
+            final int id = random.nextInt(SIZE);
+            final Rectangle moved = randomSquare();
+
+            tree.delete(current[id], id);
+            tree.insert(moved, id);
+            current[id] = moved;
+        }
+
+        return tree.size();
+    }
+}
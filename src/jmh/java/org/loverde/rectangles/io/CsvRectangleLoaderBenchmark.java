@@ -0,0 +1,95 @@
+package org.loverde.rectangles.io;
+
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading a CSV file with {@link CsvRectangleLoader} at several levels of parallelism, against reading it line
+ * by line into {@link Rectangle}s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class CsvRectangleLoaderBenchmark {
+
+    @Param({"1000000"})
+    private int size;
+
+    @Param({"1", "4", "16"})
+    private int parallelism;
+
+    private Path file;
+    private ForkJoinPool pool;
+    private CsvRectangleLoader loader;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Random random = new Random(42);
+
+        file = Files.createTempFile("rectangles", ".csv");
+
+        try(final BufferedWriter out = Files.newBufferedWriter(file)) {
+            for(int i = 0; i < size; i++) {
+                final double x = random.nextDouble() * 10000, y = random.nextDouble() * 10000;
+                out.write(x + "," + y + "," + (x + 1 + random.nextDouble() * 50) + "," + (y + 1 + random.nextDouble() * 50) + "\n");
+            }
+        }
+
+        pool = new ForkJoinPool(parallelism);
+        loader = new CsvRectangleLoader(pool, 4 << 20);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public RectangleBatch loader() throws IOException {
+        return loader.load(file).getRectangles();
+    }
+
+    @Benchmark
+    public List<Rectangle> lineByLine() throws IOException {
+        final List<Rectangle> rectangles = new ArrayList<>(size);
+
+        try(final BufferedReader in = Files.newBufferedReader(file)) {
+            for(String line; (line = in.readLine()) != null; ) {
+                final String[] fields = line.split(",");
+
+                rectangles.add(new Rectangle(new Point(Double.parseDouble(fields[0]), Double.parseDouble(fields[1])),
+                                             new Point(Double.parseDouble(fields[2]), Double.parseDouble(fields[3]))));
+            }
+        }
+
+        return rectangles;
+    }
+}
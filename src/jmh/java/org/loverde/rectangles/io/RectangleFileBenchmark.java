@@ -0,0 +1,118 @@
+package org.loverde.rectangles.io;
+
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading a dataset and reading every rectangle from it:  parsing a text file into {@link Rectangle}s, against
+ * mapping a rectangle file and scanning its columns or a cursor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class RectangleFileBenchmark {
+
+    @Param({"1000000"})
+    private int size;
+
+    private Path text, binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Random random = new Random(42);
+
+        text = Files.createTempFile("rectangles", ".csv");
+        binary = Files.createTempFile("rectangles", ".bin");
+
+        try(final BufferedWriter out = Files.newBufferedWriter(text);
+            final RectangleFileWriter writer = new RectangleFileWriter(binary)) {
+            for(int i = 0; i < size; i++) {
+                final double x = random.nextDouble() * 10000, y = random.nextDouble() * 10000;
+                final double r = x + 1 + random.nextDouble() * 50, t = y + 1 + random.nextDouble() * 50;
+
+                out.write(x + "," + y + "," + r + "," + t + "\n");
+                writer.write(x, y, r, t);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(text);
+        Files.deleteIfExists(binary);
+    }
+
+    @Benchmark
+    public double parseText() throws IOException {
+        double area = 0;
+
+        try(final BufferedReader in = Files.newBufferedReader(text)) {
+            for(String line; (line = in.readLine()) != null; ) {
+                final String[] fields = line.split(",");
+                final Rectangle r = new Rectangle(new Point(Double.parseDouble(fields[0]), Double.parseDouble(fields[1])),
+                                                  new Point(Double.parseDouble(fields[2]), Double.parseDouble(fields[3])));
+                area += r.getWidth() * r.getHeight();
+            }
+        }
+
+        return area;
+    }
+
+    @Benchmark
+    public double mappedColumns() throws IOException {
+        final RectangleFileReader reader = RectangleFileReader.open(binary);
+        double area = 0;
+
+        for(int block = 0; block < reader.getBlockCount(); block++) {
+            final DoubleBuffer l = reader.getLeftColumn(block), b = reader.getBottomColumn(block);
+            final DoubleBuffer r = reader.getRightColumn(block), t = reader.getTopColumn(block);
+
+            for(int i = 0; i < l.limit(); i++) {
+                area += (r.get(i) - l.get(i)) * (t.get(i) - b.get(i));
+            }
+        }
+
+        return area;
+    }
+
+    @Benchmark
+    public double mappedCursor() throws IOException {
+        final RectangleFileReader reader = RectangleFileReader.open(binary);
+        double area = 0;
+
+        for(final RectangleFileReader.Cursor c = reader.cursor(); c.isValid(); c.next()) {
+            area += (c.getRightX() - c.getLeftX()) * (c.getTopY() - c.getBottomY());
+        }
+
+        return area;
+    }
+
+    @Benchmark
+    public int mappedToBatch() throws IOException {
+        return RectangleFileReader.open(binary).toBatch().size();
+    }
+}
@@ -0,0 +1,67 @@
+package org.loverde.rectangles.join;
+
+import org.loverde.rectangles.RectangleBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ExternalSpatialJoin} with a memory limit which holds both inputs, against limits which force it to
+ * partition to disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ExternalSpatialJoinBenchmark {
+
+    @Param({"500000"})
+    private int size;
+
+    @Param({"1048576", "8388608", "1073741824"})
+    private long memoryLimit;
+
+    private RectangleSource first, second;
+    private ExternalSpatialJoin join;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        final double extent = Math.sqrt(size) * 50;
+
+        first = RectangleSource.of(randomBatch(random, extent));
+        second = RectangleSource.of(randomBatch(random, extent));
+        join = new ExternalSpatialJoin(Paths.get(System.getProperty("java.io.tmpdir")), memoryLimit);
+    }
+
+    private RectangleBatch randomBatch(final Random random, final double extent) {
+        final RectangleBatch batch = new RectangleBatch(size);
+
+        for(int i = 0; i < size; i++) {
+            final double x = random.nextDouble() * extent, y = random.nextDouble() * extent;
+            batch.add(x, y, x + 1 + random.nextDouble() * 50, y + 1 + random.nextDouble() * 50);
+        }
+
+        return batch;
+    }
+
+    @Benchmark
+    public long join() throws IOException {
+        return join.join(first, second, (i, j) -> {});
+    }
+}
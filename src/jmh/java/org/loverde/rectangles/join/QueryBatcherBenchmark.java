@@ -0,0 +1,127 @@
+package org.loverde.rectangles.join;
+
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+import org.loverde.rectangles.index.RTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures 1,024 intersection queries against 100,000 rectangles, made at once as if by that many concurrent callers,
+ * through a {@link QueryBatcher} and one at a time.  The rectangles are either a plain {@link RectangleBatch}, which
+ * the batcher sweeps and the direct queries scan, or an {@link RTree}.  The batcher's delay is 50 microseconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class QueryBatcherBenchmark {
+
+    private static final int SIZE = 100_000;
+    private static final int QUERIES = 1024;
+    private static final double SIDE = 10;
+
+    @Param({"16", "256"})
+    private int maxBatchSize;
+
+    private RectangleBatch data;
+    private RTree tree;
+    private Rectangle[] queries;
+    private QueryBatcher columnarBatcher, treeBatcher;
+    private boolean[] scratch;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        final double extent = Math.sqrt(SIZE) * 20;
+
+        data = new RectangleBatch(SIZE);
+
+        for(int i = 0; i < SIZE; i++) {
+            final double x = random.nextDouble() * extent, y = random.nextDouble() * extent;
+            data.add(x, y, x + SIDE, y + SIDE);
+        }
+
+        queries = new Rectangle[QUERIES];
+
+        for(int q = 0; q < QUERIES; q++) {
+            final double x = random.nextDouble() * extent, y = random.nextDouble() * extent;
+            queries[q] = new Rectangle(new Point(x, y), new Point(x + 50, y + 50));
+        }
+
+        tree = RTree.bulkLoad(data);
+        scratch = new boolean[SIZE];
+
+        columnarBatcher = new QueryBatcher(QueryBatcher.probeOf(data), maxBatchSize, 50, TimeUnit.MICROSECONDS);
+        treeBatcher = new QueryBatcher(QueryBatcher.probeOf(tree), maxBatchSize, 50, TimeUnit.MICROSECONDS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        columnarBatcher.close();
+        treeBatcher.close();
+    }
+
+    private static int await(final QueryBatcher batcher, final Rectangle[] queries) {
+        final List<CompletableFuture<int[]>> futures = new ArrayList<>(queries.length);
+        int found = 0;
+
+        for(final Rectangle query : queries) futures.add(batcher.searchIntersecting(query));
+        for(final CompletableFuture<int[]> future : futures) found += future.join().length;
+
+        return found;
+    }
+
+    @Benchmark
+    public int columnarBatched() {
+        return await(columnarBatcher, queries);
+    }
+
+    @Benchmark
+    public int columnarDirect() {
+        int found = 0;
+
+        for(final Rectangle query : queries) {
+            data.intersects(query, scratch);
+
+            for(final boolean hit : scratch) {
+                if(hit) found++;
+            }
+        }
+
+        return found;
+    }
+
+    @Benchmark
+    public int rTreeBatched() {
+        return await(treeBatcher, queries);
+    }
+
+    @Benchmark
+    public int rTreeDirect() {
+        final int[] found = { 0 };
+
+        for(final Rectangle query : queries) tree.searchIntersecting(query, id -> found[0]++);
+
+        return found[0];
+    }
+}
@@ -0,0 +1,74 @@
+package org.loverde.rectangles.join;
+
+import org.loverde.rectangles.RectangleBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures joining two sets of rectangles with {@link SpatialJoin} as the parallelism grows.  Compare the result at
+ * <code>parallelism=1</code> against the others to see how it scales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class SpatialJoinBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    private int parallelism;
+
+    private RectangleBatch first, second;
+    private ForkJoinPool pool;
+    private SpatialJoin join;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        final double extent = Math.sqrt(size) * 50;
+
+        first = randomBatch(random, extent);
+        second = randomBatch(random, extent);
+        pool = new ForkJoinPool(parallelism);
+        join = new SpatialJoin(pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    private RectangleBatch randomBatch(final Random random, final double extent) {
+        final RectangleBatch batch = new RectangleBatch(size);
+
+        for(int i = 0; i < size; i++) {
+            final double x = random.nextDouble() * extent, y = random.nextDouble() * extent;
+            batch.add(x, y, x + 1 + random.nextDouble() * 50, y + 1 + random.nextDouble() * 50);
+        }
+
+        return batch;
+    }
+
+    @Benchmark
+    public long join() {
+        return join.count(first, second);
+    }
+}
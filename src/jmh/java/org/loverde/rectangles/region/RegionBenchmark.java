@@ -0,0 +1,92 @@
+package org.loverde.rectangles.region;
+
+import org.loverde.rectangles.RectangleBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures subtracting a set of rectangles from a set of damaged areas with {@link Region}, against splitting each
+ * damaged rectangle around each rectangle subtracted from it, which is what it replaces.  Each returns the number of
+ * rectangles left, so the two can be compared for how much work they leave downstream too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class RegionBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private RectangleBatch damage, covered;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        final double extent = Math.sqrt(size) * 50;
+
+        damage = randomBatch(random, extent);
+        covered = randomBatch(random, extent);
+    }
+
+    private RectangleBatch randomBatch(final Random random, final double extent) {
+        final RectangleBatch batch = new RectangleBatch(size);
+
+        // Whole numbers, as screen coordinates would be, so edges often line up
+        for(int i = 0; i < size; i++) {
+            final double x = Math.floor(random.nextDouble() * extent), y = Math.floor(random.nextDouble() * extent);
+            batch.add(x, y, x + 1 + Math.floor(random.nextDouble() * 80), y + 1 + Math.floor(random.nextDouble() * 80));
+        }
+
+        return batch;
+    }
+
+    @Benchmark
+    public int region() {
+        return Region.of(damage).subtract(Region.of(covered)).toBatch().size();
+    }
+
+    @Benchmark
+    public int splitEachRectangle() {
+        RectangleBatch pieces = new RectangleBatch();
+        pieces.addAll(damage);
+
+        for(int c = 0; c < covered.size(); c++) {
+            final double cl = covered.getLeftX(c), cb = covered.getBottomY(c), cr = covered.getRightX(c), ct = covered.getTopY(c);
+            final RectangleBatch next = new RectangleBatch(pieces.size());
+
+            for(int i = 0; i < pieces.size(); i++) {
+                final double l = pieces.getLeftX(i), b = pieces.getBottomY(i), r = pieces.getRightX(i), t = pieces.getTopY(i);
+
+                if(cl >= r || cr <= l || cb >= t || ct <= b) {
+                    next.add(l, b, r, t);
+                    continue;
+                }
+
+                // Up to four pieces around the part covered:  below, above, then left and right between them
+                if(b < cb) next.add(l, b, r, cb);
+                if(ct < t) next.add(l, ct, r, t);
+                if(l < cl) next.add(l, Math.max(b, cb), cl, Math.min(t, ct));
+                if(cr < r) next.add(cr, Math.max(b, cb), r, Math.min(t, ct));
+            }
+
+            pieces = next;
+        }
+
+        return pieces.size();
+    }
+}
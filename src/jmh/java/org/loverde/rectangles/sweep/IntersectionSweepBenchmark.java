@@ -0,0 +1,66 @@
+package org.loverde.rectangles.sweep;
+
+import org.loverde.rectangles.RectangleBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding all intersecting pairs with {@link IntersectionSweep}, against testing every pair.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class IntersectionSweepBenchmark {
+
+    @Param({"10000", "100000"})
+    private int size;
+
+    private RectangleBatch batch;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        final double extent = Math.sqrt(size) * 50;
+
+        batch = new RectangleBatch(size);
+
+        for(int i = 0; i < size; i++) {
+            final double x = random.nextDouble() * extent, y = random.nextDouble() * extent;
+            batch.add(x, y, x + 1 + random.nextDouble() * 50, y + 1 + random.nextDouble() * 50);
+        }
+    }
+
+    @Benchmark
+    public long sweep() {
+        return IntersectionSweep.countIntersectingPairs(batch);
+    }
+
+    @Benchmark
+    public long allPairs() {
+        final double[] l = batch.getLeftColumn(), b = batch.getBottomColumn(), r = batch.getRightColumn(), t = batch.getTopColumn();
+        long count = 0;
+
+        for(int i = 0; i < size; i++) {
+            for(int j = i + 1; j < size; j++) {
+                if(l[i] < r[j] && l[j] < r[i] && b[i] < t[j] && b[j] < t[i]) count++;
+            }
+        }
+
+        return count;
+    }
+}
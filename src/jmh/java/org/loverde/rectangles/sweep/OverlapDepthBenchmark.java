@@ -0,0 +1,83 @@
+package org.loverde.rectangles.sweep;
+
+import org.loverde.rectangles.RectangleBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding the deepest overlap with {@link OverlapDepth}, against counting the rectangles covering a point in
+ * each cell of the coordinate grid, which is what it replaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class OverlapDepthBenchmark {
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    private RectangleBatch batch;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        final double extent = Math.sqrt(size) * 50;
+
+        batch = new RectangleBatch(size);
+
+        for(int i = 0; i < size; i++) {
+            final double x = random.nextDouble() * extent, y = random.nextDouble() * extent;
+            batch.add(x, y, x + 1 + random.nextDouble() * 50, y + 1 + random.nextDouble() * 50);
+        }
+    }
+
+    @Benchmark
+    public int maxDepth() {
+        return OverlapDepth.maxDepth(batch);
+    }
+
+    @Benchmark
+    public OverlapDepth.Hotspot find() {
+        return OverlapDepth.find(batch);
+    }
+
+    /** Every overlap region has a corner at a rectangle's lower left corner, so it's enough to count at those */
+    @Benchmark
+    public int allCorners() {
+        final double[] l = batch.getLeftColumn(), b = batch.getBottomColumn(), r = batch.getRightColumn(), t = batch.getTopColumn();
+        int best = 0;
+
+        for(int i = 0; i < size; i++) {
+            for(int j = 0; j < size; j++) {
+                final double x = Math.max(l[i], l[j]), y = Math.max(b[i], b[j]);
+
+                if(x >= Math.min(r[i], r[j]) || y >= Math.min(t[i], t[j])) continue;
+
+                int depth = 0;
+
+                for(int k = 0; k < size; k++) {
+                    if(l[k] <= x && x < r[k] && b[k] <= y && y < t[k]) depth++;
+                }
+
+                best = Math.max(best, depth);
+            }
+        }
+
+        return best;
+    }
+}
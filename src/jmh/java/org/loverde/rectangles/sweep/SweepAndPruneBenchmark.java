@@ -0,0 +1,107 @@
+package org.loverde.rectangles.sweep;
+
+import org.loverde.rectangles.RectangleBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one simulation tick, in which some of the rectangles move a little and the overlapping pairs are brought up
+ * to date, with {@link SweepAndPrune} and by finding every pair again with {@link IntersectionSweep}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class SweepAndPruneBenchmark {
+
+    private static final double SIDE = 10;
+
+    @Param({"10000", "50000"})
+    private int size;
+
+    @Param({"10", "100"})
+    private int movingPercent;
+
+    private int moving;
+
+    private double extent;
+    private double[] x, y;
+    private Random random;
+    private SweepAndPrune sweepAndPrune;
+    private RectangleBatch batch;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        moving = size * movingPercent / 100;
+        extent = Math.sqrt(size) * 20;
+        x = new double[size];
+        y = new double[size];
+        sweepAndPrune = new SweepAndPrune();
+        batch = new RectangleBatch(size);
+
+        for(int i = 0; i < size; i++) {
+            x[i] = random.nextDouble() * extent;
+            y[i] = random.nextDouble() * extent;
+            sweepAndPrune.insert(i, x[i], y[i], x[i] + SIDE, y[i] + SIDE);
+        }
+    }
+
+    /** Moves each of the first <em>moving</em> rectangles up to one unit in each direction, staying within the area */
+    private void move() {
+        for(int i = 0; i < moving; i++) {
+            x[i] = Math.min(extent, Math.max(0, x[i] + random.nextDouble() * 2 - 1));
+            y[i] = Math.min(extent, Math.max(0, y[i] + random.nextDouble() * 2 - 1));
+        }
+    }
+
+    @Benchmark
+    public long sweepAndPrune() {
+        move();
+
+        for(int i = 0; i < moving; i++) sweepAndPrune.update(i, x[i], y[i], x[i] + SIDE, y[i] + SIDE);
+
+        final long[] changes = { 0 };
+
+        sweepAndPrune.flush(new SweepAndPrune.PairListener() {
+            @Override
+            public void began(final int first, final int second) {
+                changes[0]++;
+            }
+
+            @Override
+            public void ended(final int first, final int second) {
+                changes[0]++;
+            }
+        });
+
+        return changes[0];
+    }
+
+    @Benchmark
+    public long fullSweep() {
+        move();
+
+        batch.clear();
+        for(int i = 0; i < size; i++) batch.add(x[i], y[i], x[i] + SIDE, y[i] + SIDE);
+
+        final long[] found = { 0 };
+        IntersectionSweep.forEachIntersectingPair(batch, (first, second) -> found[0]++);
+
+        return found[0];
+    }
+}
@@ -0,0 +1,76 @@
+package org.loverde.rectangles.sweep;
+
+import org.loverde.rectangles.RectangleBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the union area and perimeter with {@link UnionMeasure}, sequentially and in parallel.  Compare
+ * <code>parallelArea</code> at <code>parallelism=1</code> against the others to see how it scales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class UnionMeasureBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    @Param({"1", "4", "16"})
+    private int parallelism;
+
+    private RectangleBatch batch;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        final double extent = Math.sqrt(size) * 50;
+
+        batch = new RectangleBatch(size);
+
+        for(int i = 0; i < size; i++) {
+            final double x = random.nextDouble() * extent, y = random.nextDouble() * extent;
+            batch.add(x, y, x + 1 + random.nextDouble() * 50, y + 1 + random.nextDouble() * 50);
+        }
+
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public double area() {
+        return UnionMeasure.area(batch);
+    }
+
+    @Benchmark
+    public double perimeter() {
+        return UnionMeasure.perimeter(batch);
+    }
+
+    @Benchmark
+    public double parallelArea() {
+        return UnionMeasure.area(batch, pool);
+    }
+}
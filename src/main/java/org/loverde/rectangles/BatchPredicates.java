@@ -0,0 +1,39 @@
+package org.loverde.rectangles;
+
+/**
+ * <p>Tests one query rectangle against every rectangle in a {@link RectangleBatch}.  The answers are the same as
+ * those from the bulk methods on {@link RectangleBatch}:  <code>result[i] = batch.get(i).intersects(query)</code>
+ * and so on.</p>
+ *
+ * <p>There are two implementations.  {@link #scalar()} is always available.  An implementation using the incubating
+ * Java Vector API is provided by the separate <em>vector</em> jar; {@link #fastest()} returns it when that jar is on
+ * the class path and the JVM was started with <code>--add-modules jdk.incubator.vector</code>, and otherwise falls
+ * back to the scalar one.</p>
+ */
+public interface BatchPredicates {
+
+    /** @see RectangleBatch#intersects(Rectangle, boolean[]) */
+    void intersects(RectangleBatch batch, Rectangle query, boolean[] result);
+
+    /** @see RectangleBatch#contains(Rectangle, boolean[]) */
+    void contains(RectangleBatch batch, Rectangle query, boolean[] result);
+
+    /** @see RectangleBatch#isContainedBy(Rectangle, boolean[]) */
+    void isContainedBy(RectangleBatch batch, Rectangle query, boolean[] result);
+
+    /** @see RectangleBatch#isAdjacentTo(Rectangle, boolean[]) */
+    void isAdjacentTo(RectangleBatch batch, Rectangle query, boolean[] result);
+
+    /** @return The implementation which uses the loops in {@link RectangleBatch} */
+    static BatchPredicates scalar() {
+        return ScalarBatchPredicates.INSTANCE;
+    }
+
+    /**
+     * @return The vectorized implementation if it's available, otherwise {@link #scalar()}.  The choice is made once,
+     *         on first use.
+     */
+    static BatchPredicates fastest() {
+        return ScalarBatchPredicates.FASTEST;
+    }
+}
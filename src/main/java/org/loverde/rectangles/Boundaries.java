@@ -0,0 +1,122 @@
+package org.loverde.rectangles;
+
+/**
+ * <p>The {@link Rectangle} predicates, for rectangles given as their four boundaries rather than as objects.  Code
+ * which stores rectangles as columns of coordinates (batches, indexes, off-heap and file-backed stores) uses these so
+ * that it gives exactly the same answers as {@link Rectangle}.</p>
+ *
+ * <p>The boundaries are assumed to describe valid rectangles (see {@link #validate}); these methods don't check.
+ * The predicates avoid short-circuit evaluation so that loops over many rectangles compile to straight-line code.</p>
+ */
+public final class Boundaries {
+
+    private Boundaries() {
+    }
+
+    /**
+     * Checks that the boundaries describe a rectangle which {@link Rectangle}'s constructor would accept, with the
+     * same rules and messages as {@link Point} and {@link Rectangle}.
+     *
+     * @throws IllegalArgumentException If the boundaries don't describe a valid rectangle
+     */
+    public static void validate(final double left, final double bottom, final double right, final double top) {
+        final String error = validationError(left, bottom, right, top);
+
+        if(error != null) throw new IllegalArgumentException(error);
+    }
+
+    /**
+     * Applies the same rules as {@link #validate}, but reports a failure by returning the message instead of throwing.
+     *
+     * @return The reason the boundaries don't describe a valid rectangle, or <em>null</em> if they do
+     */
+    public static String validationError(final double left, final double bottom, final double right, final double top) {
+        // Same order as the checks made when building the lower left Point, then the upper right Point, then the Rectangle
+        if(left < 0) return "x must be greater than or equal to 0";
+        if(bottom < 0) return "y must be greater than or equal to 0";
+        if(right < 0) return "x must be greater than or equal to 0";
+        if(top < 0) return "y must be greater than or equal to 0";
+        if(left >= right) return "upperRight.x must be greater than lowerLeft.x";
+        if(bottom >= top) return "upperRight.y must be greater than lowerLeft.y";
+
+        return null;
+    }
+
+    /**
+     * @return <em>true</em> if the rectangles have a region of overlap; see {@link Rectangle#intersects}
+     */
+    public static boolean intersects(final double l1, final double b1, final double r1, final double t1,
+                                     final double l2, final double b2, final double r2, final double t2) {
+        // The overlap is [max(l1, l2), min(r1, r2)].  Since l1 < r1 and l2 < r2, it has a positive width exactly when
+        // each left boundary is less than the other rectangle's right boundary.  The same goes for y.
+        return (l1 < r2) & (l2 < r1) & (b1 < t2) & (b2 < t1);
+    }
+
+    /**
+     * @return <em>true</em> if the first rectangle contains the second, with no shared edges; see {@link Rectangle#contains}
+     */
+    public static boolean contains(final double l1, final double b1, final double r1, final double t1,
+                                   final double l2, final double b2, final double r2, final double t2) {
+        return (l1 < l2) & (r2 < r1) & (b1 < b2) & (t2 < t1);
+    }
+
+    /**
+     * @return <em>true</em> if the rectangles share some part of a side; see {@link Rectangle#isAdjacentTo}
+     */
+    public static boolean isAdjacent(final double l1, final double b1, final double r1, final double t1,
+                                     final double l2, final double b2, final double r2, final double t2) {
+        // A horizontal side is shared if one rectangle's top is the other's bottom and the x ranges meet, and
+        // likewise for a vertical side.  Rectangles which only meet at a corner satisfy both.
+        final boolean xRangesMeet = (l1 <= r2) & (l2 <= r1);
+        final boolean yRangesMeet = (b1 <= t2) & (b2 <= t1);
+        final boolean xTouch = (l1 == r2) | (r1 == l2);
+        final boolean yTouch = (t1 == b2) | (b1 == t2);
+
+        return (yTouch & xRangesMeet) | (xTouch & yRangesMeet);
+    }
+
+    /**
+     * @return The relationship of the first rectangle to the second; see {@link Rectangle#relate}
+     */
+    public static Relationship relate(final double l1, final double b1, final double r1, final double t1,
+                                      final double l2, final double b2, final double r2, final double t2) {
+        // These are the bounds of the overlap region, as in getIntersection.  If the overlap has a positive width and
+        // height, the rectangles intersect.  If it has a zero width or height, the rectangles touch along that line.
+        final double iLeft   = Math.max(l1, l2);
+        final double iBottom = Math.max(b1, b2);
+        final double iRight  = Math.min(r1, r2);
+        final double iTop    = Math.min(t1, t2);
+
+        if(iLeft < iRight && iBottom < iTop) {
+            if(Double.compare(l1, l2) == 0 && Double.compare(b1, b2) == 0 &&
+               Double.compare(r1, r2) == 0 && Double.compare(t1, t2) == 0) return Relationship.EQUAL;
+
+            if(contains(l1, b1, r1, t1, l2, b2, r2, t2)) return Relationship.CONTAINS;
+            if(contains(l2, b2, r2, t2, l1, b1, r1, t1)) return Relationship.CONTAINED_BY;
+
+            return Relationship.INTERSECTS;
+        }
+
+        if(iLeft > iRight || iBottom > iTop) return Relationship.DISJOINT;
+
+        if(iLeft == iRight && iBottom == iTop) return Relationship.ADJACENT_PARTIAL;  // Only a corner is shared
+
+        // Either the x or the y boundaries touch.  Compare the touching sides, which lie along the other axis.
+        return iLeft == iRight
+            ? classifySharedSide(b1, t1, b2, t2)
+            : classifySharedSide(l1, r1, l2, r2);
+    }
+
+    /**
+     * Classifies two collinear sides which are known to share at least one point.
+     *
+     * @return {@link Relationship#ADJACENT_PROPER}, {@link Relationship#ADJACENT_SUB_LINE} or {@link Relationship#ADJACENT_PARTIAL}
+     */
+    public static Relationship classifySharedSide(final double start1, final double end1, final double start2, final double end2) {
+        if(start1 == start2 && end1 == end2) return Relationship.ADJACENT_PROPER;
+
+        if((start1 <= start2 && end2 <= end1) || (start2 <= start1 && end1 <= end2)) return Relationship.ADJACENT_SUB_LINE;
+
+        return Relationship.ADJACENT_PARTIAL;
+    }
+}
@@ -0,0 +1,126 @@
+package org.loverde.rectangles;
+
+/**
+ * Sorts arrays of indices by a primitive key, without boxing.  Algorithms which work on columns of coordinates use
+ * this to get an ordering of the rows (by left edge, by centre and so on) while leaving the columns where they are.
+ */
+public final class IndexSort {
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private IndexSort() {
+    }
+
+    /**
+     * Sorts <code>indices[from, to)</code> so that <code>keys[indices[i]]</code> is ascending.  The sort isn't stable.
+     *
+     * @throws IllegalArgumentException If <em>indices</em> or <em>keys</em> is null, or the range is invalid
+     */
+    public static void sort(final int[] indices, final int from, final int to, final double[] keys) {
+        if(indices == null) throw new IllegalArgumentException("indices cannot be null");
+        if(keys == null) throw new IllegalArgumentException("keys cannot be null");
+        if(from < 0 || to > indices.length || from > to) throw new IllegalArgumentException("invalid range [" + from + ", " + to + ")");
+
+        // Introsort:  quicksort, falling back to heapsort if the recursion gets too deep for the input to be random
+        introSort(indices, from, to - 1, keys, 2 * (32 - Integer.numberOfLeadingZeros(to - from)));
+    }
+
+    /**
+     * @return An array of the indices 0 to <em>n</em>-1
+     */
+    public static int[] identity(final int n) {
+        final int[] indices = new int[n];
+
+        for(int i = 0; i < n; i++) indices[i] = i;
+
+        return indices;
+    }
+
+    private static void introSort(final int[] a, int lo, int hi, final double[] keys, int depth) {
+        while(hi - lo >= INSERTION_SORT_THRESHOLD) {
+            if(depth-- == 0) {
+                heapSort(a, lo, hi, keys);
+                return;
+            }
+
+            final int p = partition(a, lo, hi, keys);
+
+            // Recurse into the smaller half and loop on the larger one to bound the stack depth
+            if(p - lo < hi - p) {
+                introSort(a, lo, p - 1, keys, depth);
+                lo = p + 1;
+            } else {
+                introSort(a, p + 1, hi, keys, depth);
+                hi = p - 1;
+            }
+        }
+
+        insertionSort(a, lo, hi, keys);
+    }
+
+    private static int partition(final int[] a, final int lo, final int hi, final double[] keys) {
+        final int mid = (lo + hi) >>> 1;
+
+        // Median of three, leaving the median at hi as the pivot
+        if(keys[a[mid]] < keys[a[lo]]) swap(a, mid, lo);
+        if(keys[a[hi]] < keys[a[lo]]) swap(a, hi, lo);
+        if(keys[a[mid]] < keys[a[hi]]) swap(a, mid, hi);
+
+        final double pivot = keys[a[hi]];
+        int store = lo;
+
+        for(int i = lo; i < hi; i++) {
+            if(keys[a[i]] < pivot) swap(a, i, store++);
+        }
+
+        swap(a, store, hi);
+
+        return store;
+    }
+
+    private static void insertionSort(final int[] a, final int lo, final int hi, final double[] keys) {
+        for(int i = lo + 1; i <= hi; i++) {
+            final int value = a[i];
+            final double key = keys[value];
+            int j = i - 1;
+
+            while(j >= lo && keys[a[j]] > key) {
+                a[j + 1] = a[j];
+                j--;
+            }
+
+            a[j + 1] = value;
+        }
+    }
+
+    private static void heapSort(final int[] a, final int lo, final int hi, final double[] keys) {
+        final int n = hi - lo + 1;
+
+        for(int i = n / 2 - 1; i >= 0; i--) siftDown(a, lo, i, n, keys);
+
+        for(int end = n - 1; end > 0; end--) {
+            swap(a, lo, lo + end);
+            siftDown(a, lo, 0, end, keys);
+        }
+    }
+
+    private static void siftDown(final int[] a, final int lo, int i, final int n, final double[] keys) {
+        while(true) {
+            int largest = i;
+            final int l = 2 * i + 1, r = l + 1;
+
+            if(l < n && keys[a[lo + l]] > keys[a[lo + largest]]) largest = l;
+            if(r < n && keys[a[lo + r]] > keys[a[lo + largest]]) largest = r;
+            if(largest == i) return;
+
+            swap(a, lo + i, lo + largest);
+            i = largest;
+        }
+    }
+
+    private static void swap(final int[] a, final int i, final int j) {
+        final int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+}
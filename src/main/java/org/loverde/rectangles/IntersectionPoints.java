@@ -0,0 +1,176 @@
+package org.loverde.rectangles;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * <p>The points of intersection between two rectangles, as returned by {@link Rectangle#computeIntersectingPoints}.
+ * The points of intersection are always vertices of the region of overlap, so rather than holding a collection of
+ * {@link Point}s, this holds the bounds of the overlap region plus a 4-bit mask saying which of its vertices are
+ * points of intersection.</p>
+ *
+ * <p>Instances are immutable.  Points are only created if you ask for them through {@link #asSet()}.</p>
+ */
+public final class IntersectionPoints {
+
+    public static final int LOWER_LEFT  = 1;
+    public static final int UPPER_LEFT  = 1 << 1;
+    public static final int UPPER_RIGHT = 1 << 2;
+    public static final int LOWER_RIGHT = 1 << 3;
+
+    /** The result for rectangles which don't intersect */
+    static final IntersectionPoints NONE = new IntersectionPoints(0, 0, 0, 0, 0);
+
+    private final double left;
+    private final double bottom;
+    private final double right;
+    private final double top;
+    private final int mask;
+
+    private IntersectionPoints(final double left, final double bottom, final double right, final double top, final int mask) {
+        this.left = left;
+        this.bottom = bottom;
+        this.right = right;
+        this.top = top;
+        this.mask = mask;
+    }
+
+    /**
+     * Creates the result for two rectangles whose region of overlap has the given bounds.  The caller must already
+     * have established that the bounds form a valid rectangle.
+     */
+    static IntersectionPoints of(final double left, final double bottom, final double right, final double top,
+                                 final Rectangle r1, final Rectangle r2) {
+        final int mask = cornerMask(left, bottom, right, top,
+                                    r1.getLeftX(), r1.getBottomY(), r1.getRightX(), r1.getTopY(),
+                                    r2.getLeftX(), r2.getBottomY(), r2.getRightX(), r2.getTopY());
+
+        return new IntersectionPoints(left, bottom, right, top, mask);
+    }
+
+    /**
+     * Works out which vertices of an overlap region are points of intersection.  A vertex is a point of intersection
+     * if it lies on an edge of both rectangles.  This is public so that code working with raw coordinates can produce
+     * the same result as {@link Rectangle#computeIntersectingPoints} without creating any objects.  <em>left</em> to
+     * <em>top</em> are the bounds of the overlap region, as calculated by {@link Rectangle#getIntersection};  the
+     * other arguments are the bounds of the two rectangles.
+     *
+     * @return A combination of {@link #LOWER_LEFT}, {@link #UPPER_LEFT}, {@link #UPPER_RIGHT} and {@link #LOWER_RIGHT}
+     */
+    public static int cornerMask(final double left, final double bottom, final double right, final double top,
+                          final double l1, final double b1, final double r1, final double t1,
+                          final double l2, final double b2, final double r2, final double t2) {
+        // Each flag says whether one of the overlap's boundaries coincides with a boundary of both rectangles
+        final boolean left1   = left == l1 || left == r1,     left2   = left == l2 || left == r2;
+        final boolean right1  = right == l1 || right == r1,   right2  = right == l2 || right == r2;
+        final boolean bottom1 = bottom == b1 || bottom == t1, bottom2 = bottom == b2 || bottom == t2;
+        final boolean top1    = top == b1 || top == t1,       top2    = top == b2 || top == t2;
+
+        int mask = 0;
+
+        if((left1 || bottom1) && (left2 || bottom2))   mask |= LOWER_LEFT;
+        if((left1 || top1) && (left2 || top2))         mask |= UPPER_LEFT;
+        if((right1 || top1) && (right2 || top2))       mask |= UPPER_RIGHT;
+        if((right1 || bottom1) && (right2 || bottom2)) mask |= LOWER_RIGHT;
+
+        return mask;
+    }
+
+    /**
+     * @return A combination of {@link #LOWER_LEFT}, {@link #UPPER_LEFT}, {@link #UPPER_RIGHT} and {@link #LOWER_RIGHT}
+     *         identifying which vertices of the overlap region are points of intersection
+     */
+    public int getMask() {
+        return mask;
+    }
+
+    /** @return The number of points of intersection:  0, 2 or 4 */
+    public int size() {
+        return Integer.bitCount(mask);
+    }
+
+    /** @return <em>true</em> if there are no points of intersection */
+    public boolean isEmpty() {
+        return mask == 0;
+    }
+
+    /**
+     * @param corner One of {@link #LOWER_LEFT}, {@link #UPPER_LEFT}, {@link #UPPER_RIGHT} or {@link #LOWER_RIGHT}
+     *
+     * @return <em>true</em> if that vertex of the overlap region is a point of intersection
+     */
+    public boolean has(final int corner) {
+        return (mask & corner) != 0;
+    }
+
+    /**
+     * @return The region of overlap, or <em>null</em> if the rectangles don't intersect.  This is the same rectangle
+     *         {@link Rectangle#getIntersection} returns.
+     */
+    public Rectangle getOverlap() {
+        return this == NONE ? null : new Rectangle(new Point(left, bottom), new Point(right, top));
+    }
+
+    /**
+     * @return An unmodifiable set view of the points of intersection.  The points are created as the set is iterated.
+     */
+    public Set<Point> asSet() {
+        return mask == 0 ? Collections.emptySet() : new PointSet();
+    }
+
+    private Point corner(final int corner) {
+        switch(corner) {
+            case LOWER_LEFT:  return new Point(left, bottom);
+            case UPPER_LEFT:  return new Point(left, top);
+            case UPPER_RIGHT: return new Point(right, top);
+            case LOWER_RIGHT: return new Point(right, bottom);
+            default:          throw new IllegalArgumentException("unknown corner:  " + corner);
+        }
+    }
+
+    private final class PointSet extends AbstractSet<Point> {
+        @Override
+        public Iterator<Point> iterator() {
+            return new Iterator<Point>() {
+                private int remaining = mask;
+
+                @Override
+                public boolean hasNext() {
+                    return remaining != 0;
+                }
+
+                @Override
+                public Point next() {
+                    if(remaining == 0) throw new NoSuchElementException();
+
+                    final int corner = Integer.lowestOneBit(remaining);
+                    remaining &= ~corner;
+
+                    return corner(corner);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return IntersectionPoints.this.size();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            if(!(o instanceof Point)) return false;
+
+            final Point p = (Point) o;
+            final boolean isLeft   = Double.compare(p.getX(), left) == 0;
+            final boolean isRight  = Double.compare(p.getX(), right) == 0;
+            final boolean isBottom = Double.compare(p.getY(), bottom) == 0;
+            final boolean isTop    = Double.compare(p.getY(), top) == 0;
+
+            return (has(LOWER_LEFT) && isLeft && isBottom) || (has(UPPER_LEFT) && isLeft && isTop) ||
+                   (has(UPPER_RIGHT) && isRight && isTop) || (has(LOWER_RIGHT) && isRight && isBottom);
+        }
+    }
+}
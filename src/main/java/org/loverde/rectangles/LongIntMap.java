@@ -0,0 +1,146 @@
+package org.loverde.rectangles;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from <code>long</code> keys to non-negative <code>int</code> values, stored in primitive arrays so that
+ * neither keys nor values are boxed.  It uses open addressing with linear probing, and deletes by shifting the entries
+ * after the deleted one back rather than leaving markers, so lookups don't slow down as entries come and go.
+ */
+public final class LongIntMap {
+
+    /** Receives the entries of a map */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+
+    private static final int MISSING = -1;
+
+    private long[] keys;
+    private int[] values;  // MISSING marks an empty slot
+    private int mask;
+    private int size;
+
+    public LongIntMap(final int expectedSize) {
+        final int capacity = Integer.highestOneBit(Math.max(8, expectedSize * 2 - 1)) << 1;
+
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(values, MISSING);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** @return The value of <em>key</em>, or -1 if it isn't in the map */
+    public int get(final long key) {
+        for(int i = slot(key); ; i = (i + 1) & mask) {
+            if(values[i] == MISSING) return MISSING;
+            if(keys[i] == key) return values[i];
+        }
+    }
+
+    /**
+     * @param value A value which isn't negative
+     *
+     * @return The key's previous value, or -1 if it wasn't in the map
+     */
+    public int put(final long key, final int value) {
+        int i = slot(key);
+
+        for(; values[i] != MISSING; i = (i + 1) & mask) {
+            if(keys[i] == key) {
+                final int previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+
+        keys[i] = key;
+        values[i] = value;
+
+        // Keep the table at most half full, so probe sequences stay short
+        if(++size * 2 > keys.length) grow();
+
+        return MISSING;
+    }
+
+    /** @return The key's value, or -1 if it wasn't in the map */
+    public int remove(final long key) {
+        int i = slot(key);
+
+        for(; values[i] != MISSING; i = (i + 1) & mask) {
+            if(keys[i] == key) break;
+        }
+
+        if(values[i] == MISSING) return MISSING;
+
+        final int removed = values[i];
+        size--;
+
+        // Move back any later entry of the same run which can't be reached from its home slot once this one is empty
+        for(int gap = i, j = (i + 1) & mask; ; j = (j + 1) & mask) {
+            if(values[j] == MISSING) {
+                values[gap] = MISSING;
+                return removed;
+            }
+
+            final int home = slot(keys[j]);
+
+            // The entry at j may fill the gap unless its home lies cyclically in (gap, j]
+            if(((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+    }
+
+    /**
+     * Passes every entry to <em>consumer</em>, in no particular order.  The map mustn't be changed while this runs.
+     */
+    public void forEach(final EntryConsumer consumer) {
+        for(int i = 0; i < keys.length; i++) {
+            if(values[i] != MISSING) consumer.accept(keys[i], values[i]);
+        }
+    }
+
+    /** Removes every entry, keeping the table's current capacity */
+    public void clear() {
+        if(size == 0) return;
+
+        Arrays.fill(values, MISSING);
+        size = 0;
+    }
+
+    private void grow() {
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        Arrays.fill(values, MISSING);
+
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldValues[i] == MISSING) continue;
+
+            int j = slot(oldKeys[i]);
+            while(values[j] != MISSING) j = (j + 1) & mask;
+
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+
+    private int slot(final long key) {
+        // Mix the bits, since keys such as packed cell coordinates differ mostly in a few bits
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+
+        return (int) h & mask;
+    }
+}
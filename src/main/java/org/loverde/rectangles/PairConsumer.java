@@ -0,0 +1,11 @@
+package org.loverde.rectangles;
+
+/**
+ * Receives pairs of rectangles, identified by their ids or indices, from algorithms which find related pairs in a set
+ * of rectangles.
+ */
+@FunctionalInterface
+public interface PairConsumer {
+
+    void accept(int first, int second);
+}
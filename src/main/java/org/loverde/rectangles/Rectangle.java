@@ -1,16 +1,16 @@
 package org.loverde.rectangles;
 
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
-import java.util.Objects;
 
 public class Rectangle {
 
-    private final Point lowerLeft;
-    private final Point upperLeft;
-    private final Point upperRight;
-    private final Point lowerRight;
+    // A rectangle is fully described by its two x and two y boundaries.  These are stored as primitives rather
+    // than as four vertex Points, which keeps an instance down to a single small object; the vertices are created
+    // on demand by the getters.
+    private final double left;
+    private final double bottom;
+    private final double right;
+    private final double top;
 
     /**
      * Create a rectangle based on a coordinate system where the lower left corner of the screen is the origin (0,0).
@@ -33,36 +33,46 @@ public class Rectangle {
             throw new IllegalArgumentException("upperRight.y must be greater than lowerLeft.y");
         }
 
-        this.lowerLeft = new Point(lowerLeft.getX(), lowerLeft.getY());
-        this.upperLeft = new Point(lowerLeft.getX(), upperRight.getY());
-        this.upperRight = new Point(upperRight.getX(), upperRight.getY());
-        this.lowerRight = new Point(upperRight.getX(), lowerLeft.getY());
+        this.left = lowerLeft.getX();
+        this.bottom = lowerLeft.getY();
+        this.right = upperRight.getX();
+        this.top = upperRight.getY();
     }
 
     /**
-     * @return The lower left vertex
+     * Creates a rectangle from boundaries which the caller has already validated.
+     */
+    private Rectangle(final double left, final double bottom, final double right, final double top) {
+        this.left = left;
+        this.bottom = bottom;
+        this.right = right;
+        this.top = top;
+    }
+
+    /**
+     * @return The lower left vertex.  A new Point is created on each call.
      */
     public Point getLowerLeft() {
-        return lowerLeft;
+        return new Point(left, bottom);
     }
 
-    /** @return The upper left vertex */
+    /** @return The upper left vertex.  A new Point is created on each call. */
     public Point getUpperLeft() {
-        return upperLeft;
+        return new Point(left, top);
     }
 
     /**
-     * @return The upper right vertex
+     * @return The upper right vertex.  A new Point is created on each call.
      */
     public Point getUpperRight() {
-        return upperRight;
+        return new Point(right, top);
     }
 
     /**
-     * @return The lower right vertex
+     * @return The lower right vertex.  A new Point is created on each call.
      */
     public Point getLowerRight() {
-        return lowerRight;
+        return new Point(right, bottom);
     }
 
     /**
@@ -112,25 +122,35 @@ public class Rectangle {
         //   into the black rectangle.
         //
         //   Conclusion:  use min() of the y values
-        final Point iRectLowerLeft = new Point(
-            Math.max(lowerLeft.getX(), r.lowerLeft.getX()),
-            Math.max(lowerLeft.getY(), r.lowerLeft.getY())
-        );
-
-        final Point iRectUpperRight = new Point(
-            Math.min(upperRight.getX(), r.upperRight.getX()),
-            Math.min(upperRight.getY(), r.upperRight.getY())
-        );
-
-        Rectangle intersection = null;
-
-        try {
-            intersection = new Rectangle(iRectLowerLeft, iRectUpperRight);
-        } catch(IllegalArgumentException e) {
-            // Attempt to create an invalid rectangle means there's no intersection.  Allow null to be returned.
-        }
+        final double iLeft   = Math.max(left, r.left);
+        final double iBottom = Math.max(bottom, r.bottom);
+        final double iRight  = Math.min(right, r.right);
+        final double iTop    = Math.min(top, r.top);
+
+        // If the result wouldn't be a valid rectangle, there's no intersection.  These are the same checks the
+        // constructor makes, done up front so that a miss doesn't allocate anything or throw.
+        if(iLeft >= iRight || iBottom >= iTop) return null;
+
+        return new Rectangle(iLeft, iBottom, iRight, iTop);
+    }
+
+    /**
+     * Tests whether this rectangle intersects rectangle <em>r</em>, that is, whether they have a region of overlap.
+     * Adjacent edges are not considered intersecting.  This is equivalent to <code>getIntersection(r) != null</code>,
+     * but doesn't create the overlap rectangle.
+     *
+     * @param r The rectangle to test intersection with
+     *
+     * @return <em>true</em> if the rectangles overlap; <em>false</em> if not
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null
+     *
+     * @see #getIntersection(Rectangle)
+     */
+    public boolean intersects(final Rectangle r) {
+        if(r == null) throw new IllegalArgumentException("intersects:  rectangle cannot be null");
 
-        return intersection;
+        return Boundaries.intersects(left, bottom, right, top, r.left, r.bottom, r.right, r.top);
     }
 
     /**
@@ -141,34 +161,40 @@ public class Rectangle {
      * @return An unmodifiable set containing 0, 2 or 4 points of intersection.  This method never returns null.
      *
      * @throws IllegalArgumentException If <em>potentialIntersector</em> is null
+     *
+     * @see #computeIntersectingPoints(Rectangle)
      */
     public Set<Point> getIntersectingPoints(final Rectangle potentialIntersector) {
         if(potentialIntersector == null) throw new IllegalArgumentException("getIntersectingPoints:  rectangle cannot be null");
 
-        final Set<Point> intersections = new HashSet<>();
-        final Rectangle overlap = getIntersection(potentialIntersector);
-
-        if(overlap != null) {
-            // Okay, we have the overlap region, but which vertices are intersecting 'this'?  It could be 2 or all 4.
+        return computeIntersectingPoints(potentialIntersector).asSet();
+    }
 
-            if(isPointOnAnEdgeOf(overlap.getLowerLeft(), this) && isPointOnAnEdgeOf(overlap.getLowerLeft(), potentialIntersector)) {
-                intersections.add(overlap.getLowerLeft());
-            }
+    /**
+     * Gets the points of intersection between this rectangle and another, in a compact form which doesn't create
+     * {@link Point} objects unless they're asked for.  The points are the same ones returned by
+     * {@link #getIntersectingPoints}.
+     *
+     * @param potentialIntersector The rectangle to get intersections with
+     *
+     * @return The points of intersection.  This method never returns null.
+     *
+     * @throws IllegalArgumentException If <em>potentialIntersector</em> is null
+     */
+    public IntersectionPoints computeIntersectingPoints(final Rectangle potentialIntersector) {
+        if(potentialIntersector == null) throw new IllegalArgumentException("computeIntersectingPoints:  rectangle cannot be null");
 
-            if(isPointOnAnEdgeOf(overlap.getUpperLeft(), this) && isPointOnAnEdgeOf(overlap.getUpperLeft(), potentialIntersector)) {
-                intersections.add(overlap.getUpperLeft());
-            }
+        final Rectangle r = potentialIntersector;
 
-            if(isPointOnAnEdgeOf(overlap.getUpperRight(), this) && isPointOnAnEdgeOf(overlap.getUpperRight(), potentialIntersector)) {
-                intersections.add(overlap.getUpperRight());
-            }
+        final double iLeft   = Math.max(left, r.left);
+        final double iBottom = Math.max(bottom, r.bottom);
+        final double iRight  = Math.min(right, r.right);
+        final double iTop    = Math.min(top, r.top);
 
-            if(isPointOnAnEdgeOf(overlap.getLowerRight(), this) && isPointOnAnEdgeOf(overlap.getLowerRight(), potentialIntersector)) {
-                intersections.add(overlap.getLowerRight());
-            }
-        }
+        if(iLeft >= iRight || iBottom >= iTop) return IntersectionPoints.NONE;
 
-        return Collections.unmodifiableSet(intersections);
+        // We have the overlap region, but which of its vertices are intersecting 'this'?  It could be 0, 2 or all 4.
+        return IntersectionPoints.of(iLeft, iBottom, iRight, iTop, this, r);
     }
 
     /**
@@ -249,16 +275,33 @@ public class Rectangle {
             r1.getBottomY() < r2.getBottomY() &&
             r1.getTopY()    > r2.getTopY();
 
+        if(r1ContainsR2) return r1;  // Containment is only possible in one direction, so there's no need to check r2
+
         final boolean r2ContainsR1 =
             (r2.getLeftX()  < r1.getLeftX()   && r1.getLeftX() < r2.getRightX())  &&
             r2.getRightX()  > r1.getRightX()  &&
             r2.getBottomY() < r1.getBottomY() &&
             r2.getTopY()    > r1.getTopY();
 
-        if(r1ContainsR2) return r1;
-        if(r2ContainsR1) return r2;
+        return r2ContainsR1 ? r2 : null;
+    }
 
-        return null;
+    /**
+     * Determines how this rectangle relates to rectangle <em>r</em>:  whether they're equal, one contains the other,
+     * they intersect, they're adjacent (and how), or they're disjoint.  This gives the same answers as calling
+     * {@link #equals}, {@link #contains}, {@link #isContainedBy}, {@link #intersects} and {@link #isAdjacentTo}
+     * individually, but compares the coordinates only once.
+     *
+     * @param r The rectangle to compare with
+     *
+     * @return The relationship of this rectangle to <em>r</em>.  This method never returns null.
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null
+     */
+    public Relationship relate(final Rectangle r) {
+        if(r == null) throw new IllegalArgumentException("relate:  rectangle cannot be null");
+
+        return Boundaries.relate(left, bottom, right, top, r.left, r.bottom, r.right, r.top);
     }
 
     public boolean isAdjacentTo(final Rectangle r) {
@@ -283,24 +326,24 @@ public class Rectangle {
             // Horizontal edges have same y:  check x for overlap
 
             final Rectangle widerOne = getWidth() >= r.getWidth() ? this : r;
-            final double wideLeftX = widerOne.getLowerLeft().getX();
-            final double wideRightX = widerOne.getLowerRight().getX();
+            final double wideLeftX = widerOne.left;
+            final double wideRightX = widerOne.right;
 
             final Rectangle shorterOne = widerOne == this ? r : this;
-            final double shortLeftX = shorterOne.getLowerLeft().getX();
-            final double shortRightX = shorterOne.getLowerRight().getX();
+            final double shortLeftX = shorterOne.left;
+            final double shortRightX = shorterOne.right;
 
             return (wideLeftX <= shortLeftX && shortLeftX <= wideRightX) || (wideLeftX <= shortRightX && shortRightX <= wideRightX);
         } else if(getLeftX() == r.getRightX() || getRightX() == r.getLeftX()) {
             // Vertical edges have same x:  check y for overlap
 
             final Rectangle tallerOne = getHeight() >= r.getHeight() ? this : r;
-            final double tallBottomY = tallerOne.getLowerLeft().getY();
-            final double tallTopY = tallerOne.getUpperLeft().getY();
+            final double tallBottomY = tallerOne.bottom;
+            final double tallTopY = tallerOne.top;
 
             final Rectangle shorterOne = tallerOne == this ? r : this;
-            final double shortBottomY = shorterOne.getLowerLeft().getY();
-            final double shortTopY = shorterOne.getUpperLeft().getY();
+            final double shortBottomY = shorterOne.bottom;
+            final double shortTopY = shorterOne.top;
 
             return (tallBottomY <= shortBottomY && shortBottomY <= tallTopY) || (tallBottomY <= shortTopY && shortTopY <= tallTopY);
         }
@@ -310,37 +353,32 @@ public class Rectangle {
 
     /** @return The width of the rectangle */
     public double getWidth() {
-        return getLowerRight().getX() - getLowerLeft().getX();
+        return right - left;
     }
 
     /** The height of the rectangle */
     public double getHeight() {
-        return getUpperLeft().getY() - getLowerRight().getY();
+        return top - bottom;
     }
 
     /** @return The left <em>x</em> boundary */
     public double getLeftX() {
-        return lowerLeft.getX();
+        return left;
     }
 
     /** @return The right <em>x</em> boundary */
     public double getRightX() {
-        return getLowerRight().getX();
+        return right;
     }
 
     /** @return The lower <em>y</em> boundary */
     public double getBottomY() {
-        return getLowerLeft().getY();
+        return bottom;
     }
 
     /** @return The upper <em>y</em> boundary */
     public double getTopY() {
-        return getUpperLeft().getY();
-    }
-
-    private static boolean isPointOnAnEdgeOf(final Point p, final Rectangle r) {
-        return p.getX() == r.getLowerLeft().getX() || p.getX() == r.getLowerRight().getX() ||
-               p.getY() == r.getUpperLeft().getY() || p.getY() == r.getLowerLeft().getY();
+        return top;
     }
 
     @Override
@@ -350,11 +388,16 @@ public class Rectangle {
 
         final Rectangle rectangle = (Rectangle) o;
 
-        return getLowerLeft().equals(rectangle.getLowerLeft()) && getUpperRight().equals(rectangle.getUpperRight());
+        return Double.compare(rectangle.left, left) == 0 && Double.compare(rectangle.bottom, bottom) == 0 &&
+               Double.compare(rectangle.right, right) == 0 && Double.compare(rectangle.top, top) == 0;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getLowerLeft(), getUpperRight());
+        // Same value as Objects.hash(getLowerLeft(), getUpperRight()), without creating the Points
+        final int lowerLeftHash = 31 * (31 + Double.hashCode(left)) + Double.hashCode(bottom);
+        final int upperRightHash = 31 * (31 + Double.hashCode(right)) + Double.hashCode(top);
+
+        return 31 * (31 + lowerLeftHash) + upperRightHash;
     }
 }
@@ -0,0 +1,345 @@
+package org.loverde.rectangles;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>A growable collection of rectangles stored as four parallel columns of boundaries (left, bottom, right, top)
+ * instead of as {@link Rectangle} objects.  This keeps the coordinates of a large set of rectangles contiguous in
+ * memory and lets one query rectangle be tested against all of them in a tight loop.</p>
+ *
+ * <p>The bulk operations give the same answers as the corresponding {@link Rectangle} methods, with the rectangle at
+ * each index as the receiver:  <code>result[i] = get(i).intersects(query)</code> and so on.  Results are written to
+ * arrays supplied by the caller so that repeated queries don't allocate.  The loops are written without branches so
+ * that the JIT can compile them to vector instructions.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+public class RectangleBatch {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private double[] left;
+    private double[] bottom;
+    private double[] right;
+    private double[] top;
+    private int size;
+
+    public RectangleBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity The number of rectangles the batch can hold before it needs to grow
+     *
+     * @throws IllegalArgumentException If <em>initialCapacity</em> is negative
+     */
+    public RectangleBatch(final int initialCapacity) {
+        if(initialCapacity < 0) throw new IllegalArgumentException("initialCapacity cannot be negative");
+
+        left = new double[initialCapacity];
+        bottom = new double[initialCapacity];
+        right = new double[initialCapacity];
+        top = new double[initialCapacity];
+    }
+
+    /**
+     * Adds a rectangle.
+     *
+     * @return The index of the new rectangle
+     *
+     * @throws IllegalArgumentException If the boundaries don't describe a valid rectangle (see {@link Boundaries#validate})
+     */
+    public int add(final double left, final double bottom, final double right, final double top) {
+        Boundaries.validate(left, bottom, right, top);
+        addUnchecked(left, bottom, right, top);
+
+        return size - 1;
+    }
+
+    /**
+     * Adds a rectangle.
+     *
+     * @return The index of the new rectangle
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null
+     */
+    public int add(final Rectangle r) {
+        if(r == null) throw new IllegalArgumentException("add:  rectangle cannot be null");
+
+        return add(r.getLeftX(), r.getBottomY(), r.getRightX(), r.getTopY());
+    }
+
+    /**
+     * Adds every rectangle of <em>other</em>, in order.  They were validated when they were added to <em>other</em>, so
+     * they're copied without being checked again.
+     *
+     * @throws IllegalArgumentException If <em>other</em> is null
+     */
+    public void addAll(final RectangleBatch other) {
+        if(other == null) throw new IllegalArgumentException("addAll:  batch cannot be null");
+
+        final int n = other.size;
+        ensureCapacity(size + n);
+
+        System.arraycopy(other.left, 0, left, size, n);
+        System.arraycopy(other.bottom, 0, bottom, size, n);
+        System.arraycopy(other.right, 0, right, size, n);
+        System.arraycopy(other.top, 0, top, size, n);
+
+        size += n;
+    }
+
+    /**
+     * Adds the remaining values of four columns of boundaries, in order, advancing each buffer's position past them.
+     * The columns are copied in bulk and then checked in one pass; if any row isn't a valid rectangle, none of them
+     * are added.
+     *
+     * @throws IllegalArgumentException If any column is null, the columns have different numbers of values remaining,
+     *                                  or a row doesn't describe a valid rectangle (see {@link Boundaries#validate})
+     */
+    public void addColumns(final DoubleBuffer left, final DoubleBuffer bottom, final DoubleBuffer right, final DoubleBuffer top) {
+        if(left == null || bottom == null || right == null || top == null) throw new IllegalArgumentException("addColumns:  columns cannot be null");
+
+        final int n = left.remaining();
+
+        if(bottom.remaining() != n || right.remaining() != n || top.remaining() != n) {
+            throw new IllegalArgumentException("addColumns:  columns must be the same length");
+        }
+
+        ensureCapacity(size + n);
+
+        left.get(this.left, size, n);
+        bottom.get(this.bottom, size, n);
+        right.get(this.right, size, n);
+        top.get(this.top, size, n);
+
+        // The rows past size aren't part of the batch until size is moved, so a bad row leaves the batch as it was
+        for(int i = size; i < size + n; i++) {
+            final String invalid = Boundaries.validationError(this.left[i], this.bottom[i], this.right[i], this.top[i]);
+
+            if(invalid != null) throw new IllegalArgumentException("addColumns:  row " + (i - size) + " is invalid:  " + invalid);
+        }
+
+        size += n;
+    }
+
+    /** Removes all rectangles, keeping the current capacity */
+    public void clear() {
+        size = 0;
+    }
+
+    /** @return The number of rectangles in the batch */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The rectangle at <em>index</em>, as a new {@link Rectangle}
+     *
+     * @throws IndexOutOfBoundsException If <em>index</em> is out of range
+     */
+    public Rectangle get(final int index) {
+        checkIndex(index);
+
+        return new Rectangle(new Point(left[index], bottom[index]), new Point(right[index], top[index]));
+    }
+
+    /** @return The left <em>x</em> boundary of the rectangle at <em>index</em> */
+    public double getLeftX(final int index) {
+        checkIndex(index);
+        return left[index];
+    }
+
+    /** @return The lower <em>y</em> boundary of the rectangle at <em>index</em> */
+    public double getBottomY(final int index) {
+        checkIndex(index);
+        return bottom[index];
+    }
+
+    /** @return The right <em>x</em> boundary of the rectangle at <em>index</em> */
+    public double getRightX(final int index) {
+        checkIndex(index);
+        return right[index];
+    }
+
+    /** @return The upper <em>y</em> boundary of the rectangle at <em>index</em> */
+    public double getTopY(final int index) {
+        checkIndex(index);
+        return top[index];
+    }
+
+    /**
+     * Gives direct access to the left boundary column.  The array is the batch's own storage, is only valid up to
+     * {@link #size()}, and is replaced when the batch grows.  It must not be modified.
+     */
+    public double[] getLeftColumn() {
+        return left;
+    }
+
+    /** @see #getLeftColumn() */
+    public double[] getBottomColumn() {
+        return bottom;
+    }
+
+    /** @see #getLeftColumn() */
+    public double[] getRightColumn() {
+        return right;
+    }
+
+    /** @see #getLeftColumn() */
+    public double[] getTopColumn() {
+        return top;
+    }
+
+    /**
+     * Tests every rectangle in the batch for intersection with <em>query</em>.
+     *
+     * @param query The rectangle to test against
+     * @param result Receives <code>get(i).intersects(query)</code> at index <em>i</em>.  Must hold at least
+     *               {@link #size()} elements.
+     *
+     * @throws IllegalArgumentException If <em>query</em> or <em>result</em> is null, or <em>result</em> is too small
+     */
+    public void intersects(final Rectangle query, final boolean[] result) {
+        checkArguments("intersects", query, result);
+
+        final double ql = query.getLeftX(), qb = query.getBottomY(), qr = query.getRightX(), qt = query.getTopY();
+        final double[] left = this.left, bottom = this.bottom, right = this.right, top = this.top;
+
+        for(int i = 0; i < size; i++) {
+            result[i] = Boundaries.intersects(left[i], bottom[i], right[i], top[i], ql, qb, qr, qt);
+        }
+    }
+
+    /**
+     * Tests whether each rectangle in the batch contains <em>query</em>.
+     *
+     * @param query The rectangle to test against
+     * @param result Receives <code>get(i).contains(query)</code> at index <em>i</em>.  Must hold at least
+     *               {@link #size()} elements.
+     *
+     * @throws IllegalArgumentException If <em>query</em> or <em>result</em> is null, or <em>result</em> is too small
+     */
+    public void contains(final Rectangle query, final boolean[] result) {
+        checkArguments("contains", query, result);
+
+        final double ql = query.getLeftX(), qb = query.getBottomY(), qr = query.getRightX(), qt = query.getTopY();
+        final double[] left = this.left, bottom = this.bottom, right = this.right, top = this.top;
+
+        for(int i = 0; i < size; i++) {
+            result[i] = Boundaries.contains(left[i], bottom[i], right[i], top[i], ql, qb, qr, qt);
+        }
+    }
+
+    /**
+     * Tests whether each rectangle in the batch is contained by <em>query</em>.
+     *
+     * @param query The rectangle to test against
+     * @param result Receives <code>get(i).isContainedBy(query)</code> at index <em>i</em>.  Must hold at least
+     *               {@link #size()} elements.
+     *
+     * @throws IllegalArgumentException If <em>query</em> or <em>result</em> is null, or <em>result</em> is too small
+     */
+    public void isContainedBy(final Rectangle query, final boolean[] result) {
+        checkArguments("isContainedBy", query, result);
+
+        final double ql = query.getLeftX(), qb = query.getBottomY(), qr = query.getRightX(), qt = query.getTopY();
+        final double[] left = this.left, bottom = this.bottom, right = this.right, top = this.top;
+
+        for(int i = 0; i < size; i++) {
+            result[i] = Boundaries.contains(ql, qb, qr, qt, left[i], bottom[i], right[i], top[i]);
+        }
+    }
+
+    /**
+     * Tests every rectangle in the batch for adjacency with <em>query</em>.
+     *
+     * @param query The rectangle to test against
+     * @param result Receives <code>get(i).isAdjacentTo(query)</code> at index <em>i</em>.  Must hold at least
+     *               {@link #size()} elements.
+     *
+     * @throws IllegalArgumentException If <em>query</em> or <em>result</em> is null, or <em>result</em> is too small
+     */
+    public void isAdjacentTo(final Rectangle query, final boolean[] result) {
+        checkArguments("isAdjacentTo", query, result);
+
+        final double ql = query.getLeftX(), qb = query.getBottomY(), qr = query.getRightX(), qt = query.getTopY();
+        final double[] left = this.left, bottom = this.bottom, right = this.right, top = this.top;
+
+        for(int i = 0; i < size; i++) {
+            result[i] = Boundaries.isAdjacent(left[i], bottom[i], right[i], top[i], ql, qb, qr, qt);
+        }
+    }
+
+    /**
+     * Computes the region of overlap between <em>query</em> and every rectangle in the batch which it intersects.
+     *
+     * @param query The rectangle to intersect with
+     * @param indices Receives the index of each intersecting rectangle, in ascending order.  Must hold at least
+     *                {@link #size()} elements.
+     * @param overlaps Receives the overlap regions, appended in the same order as <em>indices</em>.  This is the same
+     *                 region {@link Rectangle#getIntersection} returns.
+     *
+     * @return The number of intersecting rectangles
+     *
+     * @throws IllegalArgumentException If any argument is null, or <em>indices</em> is too small
+     */
+    public int getIntersection(final Rectangle query, final int[] indices, final RectangleBatch overlaps) {
+        if(query == null) throw new IllegalArgumentException("getIntersection:  rectangle cannot be null");
+        if(indices == null) throw new IllegalArgumentException("getIntersection:  indices cannot be null");
+        if(overlaps == null) throw new IllegalArgumentException("getIntersection:  overlaps cannot be null");
+        if(indices.length < size) throw new IllegalArgumentException("getIntersection:  indices must hold at least " + size + " elements");
+
+        final double ql = query.getLeftX(), qb = query.getBottomY(), qr = query.getRightX(), qt = query.getTopY();
+        final double[] left = this.left, bottom = this.bottom, right = this.right, top = this.top;
+        int count = 0;
+
+        for(int i = 0; i < size; i++) {
+            final double iLeft   = Math.max(left[i], ql);
+            final double iBottom = Math.max(bottom[i], qb);
+            final double iRight  = Math.min(right[i], qr);
+            final double iTop    = Math.min(top[i], qt);
+
+            if(iLeft < iRight && iBottom < iTop) {
+                indices[count++] = i;
+                overlaps.addUnchecked(iLeft, iBottom, iRight, iTop);
+            }
+        }
+
+        return count;
+    }
+
+    /** Adds boundaries which are already known to be valid */
+    void addUnchecked(final double left, final double bottom, final double right, final double top) {
+        ensureCapacity(size + 1);
+
+        this.left[size] = left;
+        this.bottom[size] = bottom;
+        this.right[size] = right;
+        this.top[size] = top;
+
+        size++;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if(capacity <= left.length) return;
+
+        final int newCapacity = Math.max(capacity, Math.max(DEFAULT_CAPACITY, left.length + (left.length >> 1)));
+
+        left = Arrays.copyOf(left, newCapacity);
+        bottom = Arrays.copyOf(bottom, newCapacity);
+        right = Arrays.copyOf(right, newCapacity);
+        top = Arrays.copyOf(top, newCapacity);
+    }
+
+    private void checkIndex(final int index) {
+        if(index < 0 || index >= size) throw new IndexOutOfBoundsException("index " + index + " is out of range for size " + size);
+    }
+
+    private void checkArguments(final String method, final Rectangle query, final boolean[] result) {
+        if(query == null) throw new IllegalArgumentException(method + ":  rectangle cannot be null");
+        if(result == null) throw new IllegalArgumentException(method + ":  result cannot be null");
+        if(result.length < size) throw new IllegalArgumentException(method + ":  result must hold at least " + size + " elements");
+    }
+}
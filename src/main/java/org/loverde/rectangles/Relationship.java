@@ -0,0 +1,50 @@
+package org.loverde.rectangles;
+
+/**
+ * The ways in which two rectangles can relate to one another, as returned by {@link Rectangle#relate(Rectangle)}.
+ * Exactly one of these applies to any pair of rectangles.  The definitions are the same ones used by
+ * {@link Rectangle#getIntersection}, {@link Rectangle#contains} and {@link Rectangle#isAdjacentTo}.
+ */
+public enum Relationship {
+    /** The rectangles neither overlap nor touch */
+    DISJOINT,
+
+    /** The rectangles share an entire side:  the touching sides have the same endpoints */
+    ADJACENT_PROPER,
+
+    /** One rectangle's side lies wholly on a longer side of the other */
+    ADJACENT_SUB_LINE,
+
+    /**
+     * Part of one rectangle's side lies on part of a side of the other.  Rectangles which touch only at a corner are
+     * also reported as partial, as {@link Rectangle#isAdjacentTo} regards them as adjacent.
+     */
+    ADJACENT_PARTIAL,
+
+    /** The rectangles have a region of overlap, but neither contains the other and they aren't equal */
+    INTERSECTS,
+
+    /** The first rectangle contains the second, with no shared edges */
+    CONTAINS,
+
+    /** The first rectangle is contained by the second, with no shared edges */
+    CONTAINED_BY,
+
+    /** The rectangles are identical */
+    EQUAL;
+
+    /** @return <em>true</em> if this is one of the adjacency relationships; equivalent to {@link Rectangle#isAdjacentTo} */
+    public boolean isAdjacent() {
+        return this == ADJACENT_PROPER || this == ADJACENT_SUB_LINE || this == ADJACENT_PARTIAL;
+    }
+
+    /** @return <em>true</em> if the rectangles have a region of overlap; equivalent to {@link Rectangle#intersects} */
+    public boolean isIntersecting() {
+        return this == INTERSECTS || this == CONTAINS || this == CONTAINED_BY || this == EQUAL;
+    }
+
+    /** @return <em>true</em> if one rectangle contains the other; equivalent to {@link Rectangle#hasContainmentWith} */
+    public boolean hasContainment() {
+        return this == CONTAINS || this == CONTAINED_BY;
+    }
+}
@@ -0,0 +1,57 @@
+package org.loverde.rectangles;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * The {@link BatchPredicates} implementation which uses the loops in {@link RectangleBatch}.
+ */
+final class ScalarBatchPredicates implements BatchPredicates {
+
+    static final BatchPredicates INSTANCE = new ScalarBatchPredicates();
+
+    /** The vectorized implementation if one can be loaded, otherwise {@link #INSTANCE} */
+    static final BatchPredicates FASTEST = loadFastest();
+
+    private ScalarBatchPredicates() {
+    }
+
+    private static BatchPredicates loadFastest() {
+        try {
+            final Iterator<BatchPredicates> providers = ServiceLoader.load(BatchPredicates.class).iterator();
+
+            if(providers.hasNext()) return providers.next();
+        } catch(ServiceConfigurationError | LinkageError e) {
+            // The provider is on the class path, but the JVM wasn't started with the incubator module.  Use the scalar loops.
+        }
+
+        return INSTANCE;
+    }
+
+    @Override
+    public void intersects(final RectangleBatch batch, final Rectangle query, final boolean[] result) {
+        checkBatch("intersects", batch).intersects(query, result);
+    }
+
+    @Override
+    public void contains(final RectangleBatch batch, final Rectangle query, final boolean[] result) {
+        checkBatch("contains", batch).contains(query, result);
+    }
+
+    @Override
+    public void isContainedBy(final RectangleBatch batch, final Rectangle query, final boolean[] result) {
+        checkBatch("isContainedBy", batch).isContainedBy(query, result);
+    }
+
+    @Override
+    public void isAdjacentTo(final RectangleBatch batch, final Rectangle query, final boolean[] result) {
+        checkBatch("isAdjacentTo", batch).isAdjacentTo(query, result);
+    }
+
+    private static RectangleBatch checkBatch(final String method, final RectangleBatch batch) {
+        if(batch == null) throw new IllegalArgumentException(method + ":  batch cannot be null");
+
+        return batch;
+    }
+}
@@ -0,0 +1,300 @@
+package org.loverde.rectangles.graph;
+
+import org.loverde.rectangles.Boundaries;
+import org.loverde.rectangles.IndexSort;
+import org.loverde.rectangles.PairConsumer;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+import org.loverde.rectangles.Relationship;
+
+import java.util.Arrays;
+
+/**
+ * <p>The adjacency graph of a set of rectangles:  one vertex per rectangle, and an edge between each pair for which
+ * {@link Rectangle#isAdjacentTo} is true.  Each edge is tagged with the kind of side sharing, as
+ * {@link Rectangle#relate} would report it:  {@link Relationship#ADJACENT_PROPER},
+ * {@link Relationship#ADJACENT_SUB_LINE} or {@link Relationship#ADJACENT_PARTIAL}.</p>
+ *
+ * <p>The graph is stored in compressed sparse row form:  the neighbours of vertex <em>v</em> are
+ * <code>neighbor(v, 0)</code> to <code>neighbor(v, degree(v) - 1)</code>, held in one shared array.  Each edge appears
+ * in the neighbour lists of both of its vertices.</p>
+ */
+public final class AdjacencyGraph {
+
+    private static final Relationship[] KINDS = Relationship.values();
+
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final byte[] kinds;
+
+    private AdjacencyGraph(final int[] offsets, final int[] neighbors, final byte[] kinds) {
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.kinds = kinds;
+    }
+
+    /**
+     * <p>Builds the adjacency graph of the rectangles in <em>batch</em>.  Vertex <em>i</em> is the rectangle at index
+     * <em>i</em>.</p>
+     *
+     * <p>Rather than testing every pair, the rectangles' vertical sides are grouped by x value and their horizontal
+     * sides by y value, and each group is swept for touching right/left (or top/bottom) sides.  This takes
+     * O(N log N + E) time for N rectangles and E adjacent pairs.</p>
+     *
+     * @throws IllegalArgumentException If <em>batch</em> is null
+     */
+    public static AdjacencyGraph build(final RectangleBatch batch) {
+        if(batch == null) throw new IllegalArgumentException("build:  batch cannot be null");
+
+        final double[] left = batch.getLeftColumn(), bottom = batch.getBottomColumn(), right = batch.getRightColumn(), top = batch.getTopColumn();
+        final int n = batch.size();
+        final EdgeList edges = new EdgeList();
+
+        // Right sides meeting left sides.  This pass also finds rectangles which touch only at a corner, so the
+        // horizontal pass only reports sides which share a segment of positive length, so that no pair is found twice.
+        new SideSweep(right, left, bottom, top, n, false).run((a, b) ->
+            edges.add(a, b, Boundaries.classifySharedSide(bottom[a], top[a], bottom[b], top[b])));
+
+        // Top sides meeting bottom sides
+        new SideSweep(top, bottom, left, right, n, true).run((a, b) ->
+            edges.add(a, b, Boundaries.classifySharedSide(left[a], right[a], left[b], right[b])));
+
+        return edges.toGraph(n);
+    }
+
+    /** @return The number of vertices, which is the number of rectangles the graph was built from */
+    public int vertexCount() {
+        return offsets.length - 1;
+    }
+
+    /** @return The number of adjacent pairs */
+    public int edgeCount() {
+        return neighbors.length / 2;
+    }
+
+    /** @return The number of rectangles adjacent to rectangle <em>v</em> */
+    public int degree(final int v) {
+        checkVertex(v);
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /** @return The <em>k</em>th rectangle adjacent to rectangle <em>v</em> */
+    public int neighbor(final int v, final int k) {
+        return neighbors[slot(v, k)];
+    }
+
+    /** @return How rectangle <em>v</em> shares a side with its <em>k</em>th neighbour */
+    public Relationship kind(final int v, final int k) {
+        return KINDS[kinds[slot(v, k)]];
+    }
+
+    /** Passes each neighbour of rectangle <em>v</em> to <em>consumer</em>, as <code>(v, neighbour)</code> */
+    public void forEachNeighbor(final int v, final PairConsumer consumer) {
+        checkVertex(v);
+
+        for(int i = offsets[v]; i < offsets[v + 1]; i++) consumer.accept(v, neighbors[i]);
+    }
+
+    /** Passes each adjacent pair to <em>consumer</em> once, as <code>(a, b)</code> with <code>a &lt; b</code> */
+    public void forEachEdge(final PairConsumer consumer) {
+        for(int v = 0; v < vertexCount(); v++) {
+            for(int i = offsets[v]; i < offsets[v + 1]; i++) {
+                if(v < neighbors[i]) consumer.accept(v, neighbors[i]);
+            }
+        }
+    }
+
+    /**
+     * Gives direct access to the row offsets:  the neighbours of <em>v</em> are at indices <code>offsets[v]</code> to
+     * <code>offsets[v + 1] - 1</code> of {@link #getNeighborArray()}.  The array must not be modified.
+     */
+    public int[] getOffsetArray() {
+        return offsets;
+    }
+
+    /** @see #getOffsetArray() */
+    public int[] getNeighborArray() {
+        return neighbors;
+    }
+
+    private int slot(final int v, final int k) {
+        checkVertex(v);
+
+        if(k < 0 || k >= offsets[v + 1] - offsets[v]) throw new IndexOutOfBoundsException("vertex " + v + " has no neighbor " + k);
+
+        return offsets[v] + k;
+    }
+
+    private void checkVertex(final int v) {
+        if(v < 0 || v >= vertexCount()) throw new IndexOutOfBoundsException("vertex " + v + " is out of range for " + vertexCount() + " vertices");
+    }
+
+    /**
+     * Finds the rectangles whose "closing" side (right or top) lies on the same line as another rectangle's "opening"
+     * side (left or bottom), and whose extents along that line meet.
+     */
+    private static final class SideSweep {
+        private final double[] closing, opening, start, end;
+        private final int n;
+        private final boolean positiveLengthOnly;
+
+        /**
+         * @param closing The coordinate of each rectangle's right (or top) side
+         * @param opening The coordinate of each rectangle's left (or bottom) side
+         * @param start The lower end of each rectangle's extent along the sides
+         * @param end The upper end of each rectangle's extent along the sides
+         * @param positiveLengthOnly <em>true</em> to ignore sides which meet at a single point
+         */
+        SideSweep(final double[] closing, final double[] opening, final double[] start, final double[] end, final int n,
+                  final boolean positiveLengthOnly) {
+            this.closing = closing;
+            this.opening = opening;
+            this.start = start;
+            this.end = end;
+            this.n = n;
+            this.positiveLengthOnly = positiveLengthOnly;
+        }
+
+        void run(final PairConsumer consumer) {
+            final int[] closers = sortedSides(closing);
+            final int[] openers = sortedSides(opening);
+
+            // Walk both lists one line at a time
+            int c = 0, o = 0;
+
+            while(c < n && o < n) {
+                final double lineC = closing[closers[c]], lineO = opening[openers[o]];
+
+                if(lineC < lineO) {
+                    c = endOfLine(closers, c, closing);
+                } else if(lineO < lineC) {
+                    o = endOfLine(openers, o, opening);
+                } else {
+                    final int cEnd = endOfLine(closers, c, closing), oEnd = endOfLine(openers, o, opening);
+
+                    matchLine(closers, c, cEnd, openers, o, oEnd, consumer);
+
+                    c = cEnd;
+                    o = oEnd;
+                }
+            }
+        }
+
+        /**
+         * Reports the pairs whose extents meet, for sides on one line.  Both ranges are sorted by start; they're merged
+         * in that order, and each side is matched against the still-open sides of the other kind.
+         */
+        private void matchLine(final int[] closers, int c, final int cEnd, final int[] openers, int o, final int oEnd,
+                               final PairConsumer consumer) {
+            final ActiveList activeClosers = new ActiveList(), activeOpeners = new ActiveList();
+
+            while(c < cEnd || o < oEnd) {
+                final boolean takeCloser = o == oEnd || (c < cEnd && start[closers[c]] <= start[openers[o]]);
+                final int side = takeCloser ? closers[c++] : openers[o++];
+                final ActiveList others = takeCloser ? activeOpeners : activeClosers;
+
+                others.prune(start[side], end, positiveLengthOnly);
+
+                for(int k = 0; k < others.size; k++) {
+                    final int other = others.rows[k];
+
+                    if(takeCloser) consumer.accept(side, other);
+                    else consumer.accept(other, side);
+                }
+
+                (takeCloser ? activeClosers : activeOpeners).add(side);
+            }
+        }
+
+        /** @return The rows sorted by the given side coordinate, and by start within each line */
+        private int[] sortedSides(final double[] line) {
+            final int[] rows = IndexSort.identity(n);
+
+            IndexSort.sort(rows, 0, n, line);
+
+            for(int i = 0; i < n; ) {
+                final int lineEnd = endOfLine(rows, i, line);
+                IndexSort.sort(rows, i, lineEnd, start);
+                i = lineEnd;
+            }
+
+            return rows;
+        }
+
+        private int endOfLine(final int[] rows, int i, final double[] line) {
+            final double value = line[rows[i]];
+
+            while(i < n && line[rows[i]] == value) i++;
+
+            return i;
+        }
+    }
+
+    /** The sides on the current line whose extent may still reach the sides yet to come */
+    private static final class ActiveList {
+        int[] rows = new int[8];
+        int size;
+
+        void add(final int row) {
+            if(size == rows.length) rows = Arrays.copyOf(rows, size * 2);
+            rows[size++] = row;
+        }
+
+        /** Drops the sides which end before <em>position</em> (or at it, if meeting at a single point doesn't count) */
+        void prune(final double position, final double[] end, final boolean positiveLengthOnly) {
+            int kept = 0;
+
+            for(int k = 0; k < size; k++) {
+                final double e = end[rows[k]];
+
+                if(positiveLengthOnly ? e > position : e >= position) rows[kept++] = rows[k];
+            }
+
+            size = kept;
+        }
+    }
+
+    /** Adjacent pairs collected during the build, before they're arranged into rows */
+    private static final class EdgeList {
+        int[] first = new int[16], second = new int[16];
+        byte[] kind = new byte[16];
+        int size;
+
+        void add(final int a, final int b, final Relationship relationship) {
+            if(size == first.length) {
+                first = Arrays.copyOf(first, size * 2);
+                second = Arrays.copyOf(second, size * 2);
+                kind = Arrays.copyOf(kind, size * 2);
+            }
+
+            first[size] = a;
+            second[size] = b;
+            kind[size++] = (byte) relationship.ordinal();
+        }
+
+        AdjacencyGraph toGraph(final int n) {
+            final int[] offsets = new int[n + 1];
+
+            for(int i = 0; i < size; i++) {
+                offsets[first[i] + 1]++;
+                offsets[second[i] + 1]++;
+            }
+
+            for(int v = 0; v < n; v++) offsets[v + 1] += offsets[v];
+
+            final int[] next = Arrays.copyOf(offsets, n);
+            final int[] neighbors = new int[size * 2];
+            final byte[] kinds = new byte[size * 2];
+
+            for(int i = 0; i < size; i++) {
+                neighbors[next[first[i]]] = second[i];
+                kinds[next[first[i]]++] = kind[i];
+
+                neighbors[next[second[i]]] = first[i];
+                kinds[next[second[i]]++] = kind[i];
+            }
+
+            return new AdjacencyGraph(offsets, neighbors, kinds);
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package org.loverde.rectangles.graph;
+
+import org.loverde.rectangles.Boundaries;
+import org.loverde.rectangles.IndexSort;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>The nesting of a set of rectangles under {@link Rectangle#contains}:  each rectangle's parent is its tightest
+ * container, which is the smallest rectangle (by area) that contains it, with ties going to the lowest index.
+ * Rectangles which nothing contains are roots.  Since a container is always strictly larger than what it contains,
+ * following parents always ends at a root.</p>
+ *
+ * <p>Everything is held in primitive arrays.  The rectangles are also numbered in depth-first order, so that the
+ * members of any subtree are a contiguous range of that order, which makes ancestor tests O(1).</p>
+ */
+public final class ContainmentForest {
+
+    private static final int NONE = -1;
+
+    private final int[] parent;
+    private final int[] depth;
+    private final int[] childOffsets;
+    private final int[] children;
+    private final int[] roots;
+
+    // order lists the rectangles depth-first; position[v] is v's place in it, and v's subtree occupies
+    // order[position[v]] to order[subtreeEnd[v] - 1]
+    private final int[] order;
+    private final int[] position;
+    private final int[] subtreeEnd;
+
+    private ContainmentForest(final int[] parent) {
+        final int n = parent.length;
+
+        this.parent = parent;
+
+        // Arrange the children of each rectangle into rows, and collect the roots
+        childOffsets = new int[n + 1];
+        int rootCount = 0;
+
+        for(int v = 0; v < n; v++) {
+            if(parent[v] == NONE) rootCount++;
+            else childOffsets[parent[v] + 1]++;
+        }
+
+        for(int v = 0; v < n; v++) childOffsets[v + 1] += childOffsets[v];
+
+        children = new int[n - rootCount];
+        roots = new int[rootCount];
+
+        final int[] next = Arrays.copyOf(childOffsets, n);
+
+        for(int v = 0, r = 0; v < n; v++) {
+            if(parent[v] == NONE) roots[r++] = v;
+            else children[next[parent[v]]++] = v;
+        }
+
+        // Number the rectangles depth-first, without recursion since nesting can be deep
+        depth = new int[n];
+        order = new int[n];
+        position = new int[n];
+        subtreeEnd = new int[n];
+
+        final int[] stack = new int[n];
+        final int[] nextChild = new int[n];
+        int visited = 0;
+
+        for(final int root : roots) {
+            int top = 0;
+            stack[top++] = root;
+            position[root] = visited;
+            order[visited++] = root;
+            nextChild[root] = childOffsets[root];
+
+            while(top > 0) {
+                final int v = stack[top - 1];
+
+                if(nextChild[v] < childOffsets[v + 1]) {
+                    final int child = children[nextChild[v]++];
+
+                    depth[child] = depth[v] + 1;
+                    position[child] = visited;
+                    order[visited++] = child;
+                    nextChild[child] = childOffsets[child];
+                    stack[top++] = child;
+                } else {
+                    subtreeEnd[v] = visited;
+                    top--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the containment forest of the rectangles in <em>batch</em>.  Rectangle <em>i</em> is the one at index
+     * <em>i</em>.
+     *
+     * <p>A container is always larger than what it contains, so the rectangles are visited from the largest area down,
+     * and each one is made visible in a packed R-tree once it has been visited.  Every container of a rectangle is then
+     * already visible when the rectangle is reached, and its tightest container is the one made visible most recently.
+     * The tree keeps the latest time in each node, so the search goes to the most recent candidates first and stops
+     * looking in any node which has nothing newer than the best container found so far, rather than listing every
+     * container.  Nested data, where one search would otherwise list a whole chain of containers, takes
+     * O(N log N) time.</p>
+     *
+     * @throws IllegalArgumentException If <em>batch</em> is null
+     */
+    public static ContainmentForest build(final RectangleBatch batch) {
+        if(batch == null) throw new IllegalArgumentException("build:  batch cannot be null");
+
+        final int n = batch.size();
+        final double[] left = batch.getLeftColumn(), bottom = batch.getBottomColumn(), right = batch.getRightColumn(), top = batch.getTopColumn();
+        final double[] area = new double[n];
+        final int[] parent = new int[n];
+
+        if(n == 0) return new ContainmentForest(parent);
+
+        for(int v = 0; v < n; v++) area[v] = area(left, bottom, right, top, v);
+
+        // Ascending by area, and by index among equal areas.  Visiting this backwards makes the lower index of two
+        // equal containers visible last, so it wins the tie.
+        final int[] byArea = IndexSort.identity(n);
+
+        IndexSort.sort(byArea, 0, n, area);
+
+        for(int i = 0; i < n; ) {
+            int j = i + 1;
+            while(j < n && area[byArea[j]] == area[byArea[i]]) j++;
+
+            Arrays.sort(byArea, i, j);
+            i = j;
+        }
+
+        final VisibilityTree tree = new VisibilityTree(left, bottom, right, top, n);
+
+        for(int time = 0; time < n; time++) {
+            final int v = byArea[n - 1 - time];
+
+            parent[v] = tree.latestContaining(v);
+            tree.show(v, time);
+        }
+
+        return new ContainmentForest(parent);
+    }
+
+    /** @return The number of rectangles in the forest */
+    public int size() {
+        return parent.length;
+    }
+
+    /** @return The tightest container of rectangle <em>v</em>, or -1 if nothing contains it */
+    public int parent(final int v) {
+        checkVertex(v);
+        return parent[v];
+    }
+
+    /** @return The number of rectangles containing rectangle <em>v</em> along its chain of parents; 0 for a root */
+    public int depth(final int v) {
+        checkVertex(v);
+        return depth[v];
+    }
+
+    /** @return The number of rectangles whose tightest container is rectangle <em>v</em> */
+    public int childCount(final int v) {
+        checkVertex(v);
+        return childOffsets[v + 1] - childOffsets[v];
+    }
+
+    /** @return The <em>k</em>th rectangle whose tightest container is rectangle <em>v</em> */
+    public int child(final int v, final int k) {
+        if(k < 0 || k >= childCount(v)) throw new IndexOutOfBoundsException("rectangle " + v + " has no child " + k);
+        return children[childOffsets[v] + k];
+    }
+
+    /** @return The rectangles which nothing contains.  The array must not be modified. */
+    public int[] getRoots() {
+        return roots;
+    }
+
+    /** @return Each rectangle's parent, or -1 for a root.  The array must not be modified. */
+    public int[] getParentArray() {
+        return parent;
+    }
+
+    /**
+     * @return <em>true</em> if <em>ancestor</em> is on the chain of parents of <em>v</em>.  A rectangle is not its own
+     *         ancestor.
+     */
+    public boolean isAncestor(final int ancestor, final int v) {
+        checkVertex(ancestor);
+        checkVertex(v);
+
+        return position[ancestor] < position[v] && position[v] < subtreeEnd[ancestor];
+    }
+
+    /** Passes each ancestor of rectangle <em>v</em> to <em>consumer</em>, starting with its parent */
+    public void forEachAncestor(final int v, final IntConsumer consumer) {
+        checkVertex(v);
+
+        for(int a = parent[v]; a != NONE; a = parent[a]) consumer.accept(a);
+    }
+
+    /** @return The number of rectangles in the subtree rooted at <em>v</em>, including <em>v</em> */
+    public int subtreeSize(final int v) {
+        checkVertex(v);
+        return subtreeEnd[v] - position[v];
+    }
+
+    /** Passes <em>v</em> and every rectangle below it to <em>consumer</em>, in depth-first order */
+    public void forEachInSubtree(final int v, final IntConsumer consumer) {
+        checkVertex(v);
+
+        for(int i = position[v]; i < subtreeEnd[v]; i++) consumer.accept(order[i]);
+    }
+
+    private void checkVertex(final int v) {
+        if(v < 0 || v >= parent.length) throw new IndexOutOfBoundsException("rectangle " + v + " is out of range for " + parent.length + " rectangles");
+    }
+
+    private static double area(final double[] left, final double[] bottom, final double[] right, final double[] top, final int i) {
+        return (right[i] - left[i]) * (top[i] - bottom[i]);
+    }
+
+    /**
+     * A packed R-tree over every rectangle, in which rectangles are made visible one at a time, and which finds the
+     * visible rectangle made visible last among those containing a given one.  Each node holds the latest time at which
+     * anything below it was made visible, or -1.
+     */
+    private static final class VisibilityTree {
+
+        private static final int FANOUT = 16;
+
+        private final double[] left, bottom, right, top;
+        private final int n;
+
+        // The rectangles in leaf order, where each is in that order, and when each place was made visible
+        private final int[] entries;
+        private final int[] placeOf;
+        private final int[] entryTime;
+        private final int[] shownAt;
+
+        // The nodes of each level, from the leaves (level 0) up to the root, which is the only node of the last level
+        private final int[] nodeCount;
+        private final double[][] nodeLeft, nodeBottom, nodeRight, nodeTop;
+        private final int[][] nodeTime;
+        private final int[][] candidates;
+
+        // The rectangle being searched for, and the latest time of a container found so far
+        private double qLeft, qBottom, qRight, qTop;
+        private int best;
+
+        VisibilityTree(final double[] left, final double[] bottom, final double[] right, final double[] top, final int n) {
+            this.left = left;
+            this.bottom = bottom;
+            this.right = right;
+            this.top = top;
+            this.n = n;
+
+            entries = sortTileRecursive();
+            placeOf = new int[n];
+            entryTime = new int[n];
+            shownAt = new int[n];
+
+            for(int p = 0; p < n; p++) placeOf[entries[p]] = p;
+            Arrays.fill(entryTime, -1);
+
+            int levels = 1;
+            for(int count = ceilDiv(n, FANOUT); count > 1; count = ceilDiv(count, FANOUT)) levels++;
+
+            nodeCount = new int[levels];
+            nodeLeft = new double[levels][];
+            nodeBottom = new double[levels][];
+            nodeRight = new double[levels][];
+            nodeTop = new double[levels][];
+            nodeTime = new int[levels][];
+            candidates = new int[levels][FANOUT];
+
+            for(int level = 0; level < levels; level++) {
+                final int childCount = level == 0 ? n : nodeCount[level - 1];
+                final int count = ceilDiv(childCount, FANOUT);
+
+                nodeCount[level] = count;
+                nodeLeft[level] = new double[count];
+                nodeBottom[level] = new double[count];
+                nodeRight[level] = new double[count];
+                nodeTop[level] = new double[count];
+                nodeTime[level] = new int[count];
+
+                Arrays.fill(nodeLeft[level], Double.POSITIVE_INFINITY);
+                Arrays.fill(nodeBottom[level], Double.POSITIVE_INFINITY);
+                Arrays.fill(nodeRight[level], Double.NEGATIVE_INFINITY);
+                Arrays.fill(nodeTop[level], Double.NEGATIVE_INFINITY);
+                Arrays.fill(nodeTime[level], -1);
+
+                for(int c = 0; c < childCount; c++) {
+                    final int node = c / FANOUT;
+
+                    if(level == 0) {
+                        final int r = entries[c];
+                        grow(level, node, left[r], bottom[r], right[r], top[r]);
+                    } else {
+                        grow(level, node, nodeLeft[level - 1][c], nodeBottom[level - 1][c], nodeRight[level - 1][c], nodeTop[level - 1][c]);
+                    }
+                }
+            }
+        }
+
+        /** Orders the rectangles into vertical slabs by centre x, and each slab by centre y */
+        private int[] sortTileRecursive() {
+            final double[] centreX = new double[n], centreY = new double[n];
+
+            for(int r = 0; r < n; r++) {
+                centreX[r] = left[r] / 2 + right[r] / 2;
+                centreY[r] = bottom[r] / 2 + top[r] / 2;
+            }
+
+            final int[] rows = IndexSort.identity(n);
+            final int slabSize = FANOUT * (int) Math.ceil(Math.sqrt(ceilDiv(n, FANOUT)));
+
+            IndexSort.sort(rows, 0, n, centreX);
+
+            for(int from = 0; from < n; from += slabSize) IndexSort.sort(rows, from, Math.min(from + slabSize, n), centreY);
+
+            return rows;
+        }
+
+        private void grow(final int level, final int node, final double l, final double b, final double r, final double t) {
+            nodeLeft[level][node] = Math.min(nodeLeft[level][node], l);
+            nodeBottom[level][node] = Math.min(nodeBottom[level][node], b);
+            nodeRight[level][node] = Math.max(nodeRight[level][node], r);
+            nodeTop[level][node] = Math.max(nodeTop[level][node], t);
+        }
+
+        /** Makes rectangle <em>v</em> visible; <em>time</em> must be greater than any time given before */
+        void show(final int v, final int time) {
+            int place = placeOf[v];
+
+            entryTime[place] = time;
+            shownAt[time] = v;
+
+            for(int level = 0; level < nodeCount.length; level++) {
+                place /= FANOUT;
+                nodeTime[level][place] = time;
+            }
+        }
+
+        /** @return The visible rectangle made visible last among those containing rectangle <em>v</em>, or -1 */
+        int latestContaining(final int v) {
+            final int root = nodeCount.length - 1;
+
+            qLeft = left[v];
+            qBottom = bottom[v];
+            qRight = right[v];
+            qTop = top[v];
+            best = -1;
+
+            if(mayContain(root, 0)) search(root, 0);
+
+            return best < 0 ? NONE : shownAt[best];
+        }
+
+        private boolean mayContain(final int level, final int node) {
+            return nodeTime[level][node] > best &&
+                   Boundaries.contains(nodeLeft[level][node], nodeBottom[level][node], nodeRight[level][node], nodeTop[level][node],
+                                       qLeft, qBottom, qRight, qTop);
+        }
+
+        private void search(final int level, final int node) {
+            final int from = node * FANOUT;
+
+            if(level == 0) {
+                final int to = Math.min(from + FANOUT, n);
+
+                for(int p = from; p < to; p++) {
+                    final int r = entries[p];
+
+                    if(entryTime[p] > best && Boundaries.contains(left[r], bottom[r], right[r], top[r], qLeft, qBottom, qRight, qTop)) best = entryTime[p];
+                }
+
+                return;
+            }
+
+            // Search the children made visible most recently first.  The first container found is then usually the
+            // answer, and the other children are passed over without being searched.
+            final int to = Math.min(from + FANOUT, nodeCount[level - 1]);
+            final int[] order = candidates[level];
+            final int[] times = nodeTime[level - 1];
+            int count = 0;
+
+            for(int c = from; c < to; c++) {
+                if(!mayContain(level - 1, c)) continue;
+
+                int k = count++;
+
+                for(; k > 0 && times[order[k - 1]] < times[c]; k--) order[k] = order[k - 1];
+
+                order[k] = c;
+            }
+
+            for(int k = 0; k < count; k++) {
+                if(times[order[k]] > best) search(level - 1, order[k]);
+            }
+        }
+
+        private static int ceilDiv(final int a, final int b) {
+            return (a + b - 1) / b;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.loverde.rectangles.index;
+
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>An {@link RTree} which any number of threads may query while others change it.  Queries never wait:  each one
+ * reads the most recently published version of the tree from a volatile field and searches it, and a published
+ * version is never changed.  Writers take turns, change a private version of the tree and then publish it.</p>
+ *
+ * <p>The private version is made with {@link RTree#snapshot}, so publishing takes constant time, and a change copies
+ * only the nodes on the paths it touches; the rest are shared with the published versions.  A single insert or
+ * delete is published as soon as it's made.  {@link #batch} makes several changes and publishes them together, which
+ * copies each touched node once rather than once per change, and lets readers see the changes all at once or not at
+ * all.</p>
+ *
+ * <p>A query sees the version which was current when it started, even if a newer one is published while it runs.
+ * To make several queries against the same version, use {@link #snapshot}.</p>
+ */
+public final class ConcurrentRTree implements SpatialIndex {
+
+    private RTree writer;  // guarded by this
+    private volatile RTree published;
+
+    public ConcurrentRTree() {
+        this(RTree.DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries See {@link RTree#RTree(int)}
+     *
+     * @throws IllegalArgumentException If <em>maxEntries</em> is less than 4
+     */
+    public ConcurrentRTree(final int maxEntries) {
+        this(new RTree(maxEntries));
+    }
+
+    private ConcurrentRTree(final RTree tree) {
+        writer = tree;
+        published = writer.snapshot();
+    }
+
+    /**
+     * Builds an index containing every rectangle in <em>batch</em>, using its index in the batch as its id.  See
+     * {@link RTree#bulkLoad(RectangleBatch)}.
+     *
+     * @throws IllegalArgumentException If <em>batch</em> is null
+     */
+    public static ConcurrentRTree bulkLoad(final RectangleBatch batch) {
+        return new ConcurrentRTree(RTree.bulkLoad(batch));
+    }
+
+    @Override
+    public int size() {
+        return published.size();
+    }
+
+    /**
+     * Adds an entry, and publishes the change.
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null
+     */
+    @Override
+    public synchronized void insert(final Rectangle r, final int id) {
+        writer.insert(r, id);
+        publish();
+    }
+
+    /**
+     * Removes one entry with the given rectangle and id, and publishes the change.
+     *
+     * @return <em>true</em> if an entry was removed; <em>false</em> if there was no such entry
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null
+     */
+    @Override
+    public synchronized boolean delete(final Rectangle r, final int id) {
+        final boolean deleted = writer.delete(r, id);
+
+        if(deleted) publish();
+
+        return deleted;
+    }
+
+    /**
+     * Makes a group of changes and publishes them together, so a query sees either all of them or none.  Other writers
+     * wait until <em>changes</em> returns.  The index passed to <em>changes</em> is only valid until it returns, and
+     * mustn't be used by any other thread.
+     *
+     * <p>If <em>changes</em> throws an exception, none of its changes are published, and the index is left as it was
+     * before the batch.</p>
+     *
+     * @throws IllegalArgumentException If <em>changes</em> is null
+     */
+    public synchronized void batch(final Consumer<SpatialIndex> changes) {
+        if(changes == null) throw new IllegalArgumentException("batch:  changes cannot be null");
+
+        boolean done = false;
+
+        try {
+            changes.accept(writer);
+            done = true;
+        } finally {
+            if(done) {
+                publish();
+            } else {
+                // Start again from the published version.  Its nodes are never changed, so a snapshot of it can be
+                // taken while readers use it.
+                writer = published.snapshot();
+            }
+        }
+    }
+
+    /**
+     * @return A read-only index of the entries as they are now, which later changes don't affect.  Its insert and
+     *         delete methods throw {@link UnsupportedOperationException}.
+     */
+    public SpatialIndex snapshot() {
+        return new Snapshot(published);
+    }
+
+    @Override
+    public void searchIntersecting(final Rectangle query, final IntConsumer consumer) {
+        published.searchIntersecting(query, consumer);
+    }
+
+    @Override
+    public void searchContaining(final Rectangle query, final IntConsumer consumer) {
+        published.searchContaining(query, consumer);
+    }
+
+    @Override
+    public void searchContainedBy(final Rectangle query, final IntConsumer consumer) {
+        published.searchContainedBy(query, consumer);
+    }
+
+    @Override
+    public void searchAdjacent(final Rectangle query, final IntConsumer consumer) {
+        published.searchAdjacent(query, consumer);
+    }
+
+    @Override
+    public void forEachEntry(final EntryConsumer consumer) {
+        published.forEachEntry(consumer);
+    }
+
+    // The snapshot leaves the writer with a new owner, so the nodes it hands over are never changed again
+    private void publish() {
+        published = writer.snapshot();
+    }
+
+    /** A published version of the tree, which is never changed */
+    private static final class Snapshot implements SpatialIndex {
+
+        private final RTree tree;
+
+        Snapshot(final RTree tree) {
+            this.tree = tree;
+        }
+
+        @Override
+        public int size() {
+            return tree.size();
+        }
+
+        /**
+         * @throws UnsupportedOperationException Always; a snapshot is read-only
+         */
+        @Override
+        public void insert(final Rectangle r, final int id) {
+            throw new UnsupportedOperationException("insert:  a snapshot is read-only");
+        }
+
+        /**
+         * @throws UnsupportedOperationException Always; a snapshot is read-only
+         */
+        @Override
+        public boolean delete(final Rectangle r, final int id) {
+            throw new UnsupportedOperationException("delete:  a snapshot is read-only");
+        }
+
+        @Override
+        public void searchIntersecting(final Rectangle query, final IntConsumer consumer) {
+            tree.searchIntersecting(query, consumer);
+        }
+
+        @Override
+        public void searchContaining(final Rectangle query, final IntConsumer consumer) {
+            tree.searchContaining(query, consumer);
+        }
+
+        @Override
+        public void searchContainedBy(final Rectangle query, final IntConsumer consumer) {
+            tree.searchContainedBy(query, consumer);
+        }
+
+        @Override
+        public void searchAdjacent(final Rectangle query, final IntConsumer consumer) {
+            tree.searchAdjacent(query, consumer);
+        }
+
+        @Override
+        public void forEachEntry(final EntryConsumer consumer) {
+            tree.forEachEntry(consumer);
+        }
+    }
+}
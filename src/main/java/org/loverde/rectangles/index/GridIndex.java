@@ -0,0 +1,444 @@
+package org.loverde.rectangles.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import org.loverde.rectangles.Boundaries;
+import org.loverde.rectangles.LongIntMap;
+import org.loverde.rectangles.Rectangle;
+
+/**
+ * <p>A spatial index for rectangles which move often:  the plane is cut into square cells of a fixed size, and each
+ * entry is listed in every cell its rectangle touches.  Inserting, moving and removing an entry only touch the lists of
+ * its cells, so they take constant time for rectangles no bigger than a few cells, and nothing is ever rebalanced.</p>
+ *
+ * <p>Queries look in the cells the query rectangle touches and confirm each entry found there with the same
+ * predicates as {@link Rectangle}.  An entry touching several of those cells is only reported from the first of
+ * them.  The cell size should be around the size of a typical rectangle:  much smaller, and each rectangle is listed in
+ * many cells; much larger, and each query confirms many entries which don't match.</p>
+ *
+ * <p>A rectangle spanning more than {@link #MAX_CELLS_PER_ENTRY} cells isn't listed in its cells at all, but in an
+ * overflow list which every query looks through, so that a huge rectangle doesn't take millions of cells.  Cell
+ * numbers are capped at {@link #MAX_CELL}; cells past the cap are merged into the last one, which stays correct,
+ * since entries found in a cell are always confirmed, but makes rectangles that far out slow to find.</p>
+ *
+ * <p>Unlike {@link RTree}, each id may only be in the index once, which is what lets entries be found by id to be
+ * {@link #update moved} or {@link #remove removed}.  The cells are kept in a hash map keyed by their packed
+ * coordinates, so only cells holding entries take space.  The index isn't thread safe.</p>
+ */
+public final class GridIndex implements SpatialIndex {
+
+    /** The most cells an entry is listed in; a larger entry goes in the overflow list */
+    public static final int MAX_CELLS_PER_ENTRY = 256;
+
+    /** The highest column or row number; coordinates beyond it fall in the last column or row */
+    public static final int MAX_CELL = Integer.MAX_VALUE - 1;
+
+    private final double cellSize;
+
+    // Entries are stored by slot, in columns; a removed entry's slot is reused
+    private final LongIntMap slotOfId = new LongIntMap(16);
+    private double[] left = new double[16], bottom = new double[16], right = new double[16], top = new double[16];
+    private int[] ids = new int[16];
+
+    // The range of cells each slot's rectangle touches, and its position in the list of each of those cells, in
+    // row-major order.  An entry in the overflow list has its position in that list instead.
+    private int[] minColumn = new int[16], minRow = new int[16], maxColumn = new int[16], maxRow = new int[16];
+    private int[][] positions = new int[16][];
+
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount, slotCount;
+
+    // Cells are numbered as they come into use, and their numbers are reused once they're empty
+    private final LongIntMap cellOfKey = new LongIntMap(16);
+    private int[][] cellSlots = new int[16][];
+    private int[] cellSizes = new int[16];
+    private long[] cellKeys = new long[16];
+    private int[] freeCells = new int[16];
+    private int freeCellCount, cellCount;
+
+    // The slots of the entries which span too many cells to be listed in them
+    private int[] overflowSlots = new int[16];
+    private int overflowCount;
+
+    /**
+     * @param cellSize The width and height of each cell
+     *
+     * @throws IllegalArgumentException If <em>cellSize</em> isn't a positive, finite number
+     */
+    public GridIndex(final double cellSize) {
+        if(!(cellSize > 0) || Double.isInfinite(cellSize)) throw new IllegalArgumentException("cellSize must be a positive, finite number");
+
+        this.cellSize = cellSize;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    @Override
+    public int size() {
+        return slotOfId.size();
+    }
+
+    /** @return The number of cells holding at least one entry */
+    public int getCellCount() {
+        return cellCount - freeCellCount;
+    }
+
+    /** @return The number of entries spanning too many cells to be listed in them, which every query looks through */
+    public int getOverflowCount() {
+        return overflowCount;
+    }
+
+    /** @return <em>true</em> if there's an entry with the given id */
+    public boolean contains(final int id) {
+        return slotOfId.get(id) >= 0;
+    }
+
+    /**
+     * Adds an entry.
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null, or there's already an entry with the given id
+     */
+    @Override
+    public void insert(final Rectangle r, final int id) {
+        if(r == null) throw new IllegalArgumentException("insert:  rectangle cannot be null");
+
+        insert(id, r.getLeftX(), r.getBottomY(), r.getRightX(), r.getTopY());
+    }
+
+    /**
+     * Adds an entry.
+     *
+     * @throws IllegalArgumentException If the boundaries don't describe a valid rectangle (see {@link Boundaries#validate}),
+     *                                  or there's already an entry with the given id
+     */
+    public void insert(final int id, final double l, final double b, final double r, final double t) {
+        Boundaries.validate(l, b, r, t);
+        if(slotOfId.get(id) >= 0) throw new IllegalArgumentException("insert:  id " + id + " is already in the index");
+
+        final int slot = allocateSlot();
+
+        ids[slot] = id;
+        slotOfId.put(id, slot);
+        place(slot, l, b, r, t);
+    }
+
+    /**
+     * Removes the entry with the given id, if its rectangle is <em>r</em>.
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null
+     */
+    @Override
+    public boolean delete(final Rectangle r, final int id) {
+        if(r == null) throw new IllegalArgumentException("delete:  rectangle cannot be null");
+
+        final int slot = slotOfId.get(id);
+
+        if(slot < 0 || left[slot] != r.getLeftX() || bottom[slot] != r.getBottomY() || right[slot] != r.getRightX() || top[slot] != r.getTopY()) {
+            return false;
+        }
+
+        return remove(id);
+    }
+
+    /**
+     * Removes the entry with the given id.
+     *
+     * @return <em>true</em> if an entry was removed; <em>false</em> if there was no such entry
+     */
+    public boolean remove(final int id) {
+        final int slot = slotOfId.remove(id);
+
+        if(slot < 0) return false;
+
+        unlist(slot);
+
+        if(freeSlotCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        freeSlots[freeSlotCount++] = slot;
+
+        return true;
+    }
+
+    /**
+     * Moves the entry with the given id to a new rectangle.
+     *
+     * @return <em>true</em> if the entry was moved; <em>false</em> if there was no such entry
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null
+     */
+    public boolean update(final int id, final Rectangle r) {
+        if(r == null) throw new IllegalArgumentException("update:  rectangle cannot be null");
+
+        return update(id, r.getLeftX(), r.getBottomY(), r.getRightX(), r.getTopY());
+    }
+
+    /**
+     * Moves the entry with the given id to a new rectangle.  A move which stays within the same cells doesn't touch
+     * the cells at all.
+     *
+     * @return <em>true</em> if the entry was moved; <em>false</em> if there was no such entry
+     *
+     * @throws IllegalArgumentException If the boundaries don't describe a valid rectangle (see {@link Boundaries#validate})
+     */
+    public boolean update(final int id, final double l, final double b, final double r, final double t) {
+        Boundaries.validate(l, b, r, t);
+
+        final int slot = slotOfId.get(id);
+
+        if(slot < 0) return false;
+
+        if(column(l) == minColumn[slot] && row(b) == minRow[slot] && column(r) == maxColumn[slot] && row(t) == maxRow[slot]) {
+            left[slot] = l;
+            bottom[slot] = b;
+            right[slot] = r;
+            top[slot] = t;
+        } else {
+            unlist(slot);
+            place(slot, l, b, r, t);
+        }
+
+        return true;
+    }
+
+    @Override
+    public void searchIntersecting(final Rectangle query, final IntConsumer consumer) {
+        search("searchIntersecting", RTree.Query.INTERSECTING, query, consumer);
+    }
+
+    @Override
+    public void searchContaining(final Rectangle query, final IntConsumer consumer) {
+        search("searchContaining", RTree.Query.CONTAINING, query, consumer);
+    }
+
+    @Override
+    public void searchContainedBy(final Rectangle query, final IntConsumer consumer) {
+        search("searchContainedBy", RTree.Query.CONTAINED_BY, query, consumer);
+    }
+
+    @Override
+    public void searchAdjacent(final Rectangle query, final IntConsumer consumer) {
+        search("searchAdjacent", RTree.Query.ADJACENT, query, consumer);
+    }
+
+    @Override
+    public void forEachEntry(final EntryConsumer consumer) {
+        if(consumer == null) throw new IllegalArgumentException("forEachEntry:  consumer cannot be null");
+
+        for(int slot = 0; slot < slotCount; slot++) {
+            if(positions[slot] != null) consumer.accept(ids[slot], left[slot], bottom[slot], right[slot], top[slot]);
+        }
+    }
+
+    private void search(final String method, final RTree.Query query, final Rectangle rectangle, final IntConsumer consumer) {
+        if(rectangle == null) throw new IllegalArgumentException(method + ":  rectangle cannot be null");
+        if(consumer == null) throw new IllegalArgumentException(method + ":  consumer cannot be null");
+
+        final double ql = rectangle.getLeftX(), qb = rectangle.getBottomY(), qr = rectangle.getRightX(), qt = rectangle.getTopY();
+
+        for(int i = 0; i < overflowCount; i++) {
+            final int slot = overflowSlots[i];
+
+            if(query.matches(left[slot], bottom[slot], right[slot], top[slot], ql, qb, qr, qt)) consumer.accept(ids[slot]);
+        }
+
+        // Cell ranges include the cells an edge lies on, so an entry which only touches the query shares a cell with it
+        final int c0 = column(ql), r0 = row(qb), c1 = column(qr), r1 = row(qt);
+
+        // A query covering more cells than are in use looks through the cells in use instead
+        if(cellSpan(c0, r0, c1, r1) > getCellCount()) {
+            for(int cell = 0; cell < cellCount; cell++) {
+                if(cellSizes[cell] == 0) continue;
+
+                final int column = (int) (cellKeys[cell] >> 32), row = (int) cellKeys[cell];
+
+                if(column >= c0 && column <= c1 && row >= r0 && row <= r1) searchCell(cell, column, row, c0, r0, query, ql, qb, qr, qt, consumer);
+            }
+
+            return;
+        }
+
+        // The counters are longs so that the loops end even at MAX_CELL
+        for(long row = r0; row <= r1; row++) {
+            for(long column = c0; column <= c1; column++) {
+                final int cell = cellOfKey.get(key((int) column, (int) row));
+
+                if(cell >= 0) searchCell(cell, (int) column, (int) row, c0, r0, query, ql, qb, qr, qt, consumer);
+            }
+        }
+    }
+
+    private void searchCell(final int cell, final int column, final int row, final int c0, final int r0, final RTree.Query query,
+                            final double ql, final double qb, final double qr, final double qt, final IntConsumer consumer) {
+        final int[] slots = cellSlots[cell];
+
+        for(int i = 0; i < cellSizes[cell]; i++) {
+            final int slot = slots[i];
+
+            // The first cell the entry and the query share is the one at the larger of their lowest columns and rows
+            if(Math.max(minColumn[slot], c0) != column || Math.max(minRow[slot], r0) != row) continue;
+
+            if(query.matches(left[slot], bottom[slot], right[slot], top[slot], ql, qb, qr, qt)) consumer.accept(ids[slot]);
+        }
+    }
+
+    /**
+     * Stores the rectangle in the slot and lists the slot in each cell it touches, or in the overflow list if it
+     * touches too many
+     */
+    private void place(final int slot, final double l, final double b, final double r, final double t) {
+        left[slot] = l;
+        bottom[slot] = b;
+        right[slot] = r;
+        top[slot] = t;
+
+        final int c0 = column(l), r0 = row(b), c1 = column(r), r1 = row(t);
+
+        minColumn[slot] = c0;
+        minRow[slot] = r0;
+        maxColumn[slot] = c1;
+        maxRow[slot] = r1;
+
+        if(cellSpan(c0, r0, c1, r1) > MAX_CELLS_PER_ENTRY) {
+            if(overflowCount == overflowSlots.length) overflowSlots = Arrays.copyOf(overflowSlots, overflowCount * 2);
+
+            overflowSlots[overflowCount] = slot;
+            positions[slot] = new int[] { overflowCount++ };
+
+            return;
+        }
+
+        final int[] position = new int[(int) cellSpan(c0, r0, c1, r1)];
+        int k = 0;
+
+        for(long row = r0; row <= r1; row++) {
+            for(long column = c0; column <= c1; column++) {
+                position[k++] = list(cell((int) column, (int) row), slot);
+            }
+        }
+
+        positions[slot] = position;
+    }
+
+    /** Takes the slot out of the list of each cell it touches, moving the last entry of each list into its place */
+    private void unlist(final int slot) {
+        final int[] position = positions[slot];
+
+        if(cellSpan(minColumn[slot], minRow[slot], maxColumn[slot], maxRow[slot]) > MAX_CELLS_PER_ENTRY) {
+            final int last = overflowSlots[--overflowCount];
+
+            overflowSlots[position[0]] = last;
+            positions[last][0] = position[0];
+            positions[slot] = null;
+
+            return;
+        }
+
+        int k = 0;
+
+        for(long row = minRow[slot]; row <= maxRow[slot]; row++) {
+            for(long column = minColumn[slot]; column <= maxColumn[slot]; column++) {
+                final int cell = cellOfKey.get(key((int) column, (int) row));
+                final int[] slots = cellSlots[cell];
+                final int last = slots[--cellSizes[cell]];
+                final int p = position[k++];
+
+                if(last != slot) {
+                    slots[p] = last;
+                    positions[last][(int) ((row - minRow[last]) * (maxColumn[last] - minColumn[last] + 1) + (column - minColumn[last]))] = p;
+                }
+
+                if(cellSizes[cell] == 0) releaseCell(cell);
+            }
+        }
+
+        positions[slot] = null;
+    }
+
+    /** @return The position of the slot in the cell's list */
+    private int list(final int cell, final int slot) {
+        int[] slots = cellSlots[cell];
+
+        if(cellSizes[cell] == slots.length) slots = cellSlots[cell] = Arrays.copyOf(slots, slots.length * 2);
+
+        slots[cellSizes[cell]] = slot;
+
+        return cellSizes[cell]++;
+    }
+
+    /** @return The number of the cell, bringing it into use if it isn't already */
+    private int cell(final int column, final int row) {
+        final long key = key(column, row);
+        final int existing = cellOfKey.get(key);
+
+        if(existing >= 0) return existing;
+
+        final int cell;
+
+        if(freeCellCount > 0) {
+            cell = freeCells[--freeCellCount];
+        } else {
+            if(cellCount == cellSlots.length) {
+                final int capacity = cellCount * 2;
+
+                cellSlots = Arrays.copyOf(cellSlots, capacity);
+                cellSizes = Arrays.copyOf(cellSizes, capacity);
+                cellKeys = Arrays.copyOf(cellKeys, capacity);
+                freeCells = Arrays.copyOf(freeCells, capacity);
+            }
+
+            cell = cellCount++;
+            cellSlots[cell] = new int[4];
+        }
+
+        cellKeys[cell] = key;
+        cellOfKey.put(key, cell);
+
+        return cell;
+    }
+
+    private void releaseCell(final int cell) {
+        cellOfKey.remove(cellKeys[cell]);
+        freeCells[freeCellCount++] = cell;
+    }
+
+    private int allocateSlot() {
+        if(freeSlotCount > 0) return freeSlots[--freeSlotCount];
+
+        if(slotCount == ids.length) {
+            final int capacity = slotCount * 2;
+
+            left = Arrays.copyOf(left, capacity);
+            bottom = Arrays.copyOf(bottom, capacity);
+            right = Arrays.copyOf(right, capacity);
+            top = Arrays.copyOf(top, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            minColumn = Arrays.copyOf(minColumn, capacity);
+            minRow = Arrays.copyOf(minRow, capacity);
+            maxColumn = Arrays.copyOf(maxColumn, capacity);
+            maxRow = Arrays.copyOf(maxRow, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+        }
+
+        return slotCount++;
+    }
+
+    // Coordinates aren't negative, so the cell numbers aren't either
+    private int column(final double x) {
+        return (int) Math.min(MAX_CELL, x / cellSize);
+    }
+
+    private int row(final double y) {
+        return (int) Math.min(MAX_CELL, y / cellSize);
+    }
+
+    /** @return The number of cells in a range, which may be more than an int holds */
+    private static long cellSpan(final int c0, final int r0, final int c1, final int r1) {
+        return ((long) c1 - c0 + 1) * ((long) r1 - r0 + 1);
+    }
+
+    private static long key(final int column, final int row) {
+        return (long) column << 32 | (row & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,377 @@
+package org.loverde.rectangles.index;
+
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>A read-only R-tree which lives in a memory-mapped file.  {@link #write} saves a snapshot of any
+ * {@link SpatialIndex} as a packed R-tree, one node per fixed-size page; {@link #open} maps the file and answers queries
+ * by reading the pages in place.  Opening takes the same time no matter how large the index is, and nothing is
+ * deserialized:  a query touches only the pages along its path, which the operating system loads on demand.</p>
+ *
+ * <p>The file is a sequence of {@link #PAGE_BYTES}-byte pages, all little-endian.  Page 0 is the header:</p>
+ *
+ * <pre>
+ * offset  size  field
+ *      0     4  magic, the bytes "RIDX"
+ *      4     4  version, currently 1
+ *      8     4  page size in bytes
+ *     12     4  entries per page
+ *     16     8  number of entries
+ *     24     8  root page, or 0 if the index is empty
+ *     32     4  height
+ *     40     8  number of pages
+ * </pre>
+ *
+ * <p>Every other page is a node.  It starts with an int which is 1 for a leaf and 0 otherwise, and an int count of its
+ * entries.  At offset 16 come packed columns of {@link #ENTRIES_PER_PAGE} doubles each (left, bottom, right and top of
+ * each entry) followed by a column of as many ints:  the entry's id in a leaf, or its child's page otherwise.</p>
+ *
+ * <p>The header is checked when the file is opened, and each node as a query or scan reaches it, so a damaged file
+ * fails with an exception naming the bad page rather than giving wrong answers.  Entries' boundaries aren't
+ * checked.</p>
+ *
+ * <p>Queries give the same results as {@link RTree}.  {@link #insert} and {@link #delete} throw
+ * {@link UnsupportedOperationException}; to change a snapshot, load it into an {@link RTree} with
+ * {@link #forEachEntry}, change that and write it again.  This class is safe to use from several threads.</p>
+ */
+public final class MappedRTree implements SpatialIndex {
+
+    public static final int PAGE_BYTES = 4096;
+
+    static final int NODE_HEADER_BYTES = 16;
+
+    /** As many entries as fit in a page:  four doubles and an int each */
+    public static final int ENTRIES_PER_PAGE = (PAGE_BYTES - NODE_HEADER_BYTES) / (4 * Double.BYTES + Integer.BYTES);
+
+    static final int MAGIC = 0x58444952;
+    static final int VERSION = 1;
+
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /** Far more levels than a packed tree of up to 2<sup>31</sup> entries has, even with two entries per page */
+    private static final int MAX_HEIGHT = 32;
+
+    /** The pages are mapped in pieces of this many pages (1 GB), since one mapping can't exceed 2 GB */
+    private static final int PAGES_PER_MAPPING_SHIFT = 18;
+    private static final int PAGES_PER_MAPPING = 1 << PAGES_PER_MAPPING_SHIFT;
+
+    private static final int BOTTOM_OFFSET = NODE_HEADER_BYTES + ENTRIES_PER_PAGE * Double.BYTES;
+    private static final int RIGHT_OFFSET = BOTTOM_OFFSET + ENTRIES_PER_PAGE * Double.BYTES;
+    private static final int TOP_OFFSET = RIGHT_OFFSET + ENTRIES_PER_PAGE * Double.BYTES;
+    private static final int REF_OFFSET = TOP_OFFSET + ENTRIES_PER_PAGE * Double.BYTES;
+
+    private final ByteBuffer[] mappings;
+    private final int pageCount;
+    private final int size;
+    private final int rootPage;
+    private final int height;
+
+    private MappedRTree(final ByteBuffer[] mappings, final int pageCount, final int size, final int rootPage, final int height) {
+        this.mappings = mappings;
+        this.pageCount = pageCount;
+        this.size = size;
+        this.rootPage = rootPage;
+        this.height = height;
+    }
+
+    /**
+     * Writes every entry of <em>index</em> to <em>path</em> as a packed R-tree, replacing the file if it exists.  The
+     * tree is packed with Sort-Tile-Recursive, as {@link RTree#bulkLoad} does, with full pages.
+     *
+     * <p>The snapshot is written to a temporary file in the same directory, forced to the device, and then moved over
+     * <em>path</em> atomically, so a snapshot can be written again while trees opened on the old one are still in use.
+     * Those keep reading the old file, and the next {@link #open} sees the new one; neither ever sees a partly written
+     * file.  Where open files can't be replaced, as on Windows, the move fails with an {@link IOException} and
+     * <em>path</em> is left as it was.</p>
+     *
+     * @throws IllegalArgumentException If either argument is null
+     * @throws IOException If the file can't be written
+     */
+    public static void write(final SpatialIndex index, final Path path) throws IOException {
+        if(index == null) throw new IllegalArgumentException("write:  index cannot be null");
+        if(path == null) throw new IllegalArgumentException("write:  path cannot be null");
+
+        final RectangleBatch batch = new RectangleBatch(index.size());
+        final int[] ids = new int[index.size()];
+
+        index.forEachEntry((id, left, bottom, right, top) -> ids[batch.add(left, bottom, right, top)] = id);
+
+        final RTree tree = RTree.bulkLoad(batch, ENTRIES_PER_PAGE);
+
+        final Path temporary = path.resolveSibling("." + path.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+
+        try {
+            writePages(tree, ids, temporary);
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void writePages(final RTree tree, final int[] ids, final Path path) throws IOException {
+        try(final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            final ByteBuffer page = ByteBuffer.allocate(PAGE_BYTES).order(ORDER);
+
+            // Nodes are numbered breadth first, so a node's children are numbered when it's written and written later
+            final List<RTree.Node> nodes = new ArrayList<>();
+            if(tree.root() != null) nodes.add(tree.root());
+
+            channel.position(PAGE_BYTES);
+
+            for(int n = 0; n < nodes.size(); n++) {
+                final RTree.Node node = nodes.get(n);
+
+                page.clear();
+                page.putInt(0, node.leaf ? 1 : 0);
+                page.putInt(4, node.count);
+
+                for(int i = 0; i < node.count; i++) {
+                    page.putDouble(NODE_HEADER_BYTES + i * Double.BYTES, node.left[i]);
+                    page.putDouble(BOTTOM_OFFSET + i * Double.BYTES, node.bottom[i]);
+                    page.putDouble(RIGHT_OFFSET + i * Double.BYTES, node.right[i]);
+                    page.putDouble(TOP_OFFSET + i * Double.BYTES, node.top[i]);
+
+                    if(node.leaf) {
+                        page.putInt(REF_OFFSET + i * Integer.BYTES, ids[node.ids[i]]);
+                    } else {
+                        nodes.add(node.children[i]);
+                        page.putInt(REF_OFFSET + i * Integer.BYTES, nodes.size());  // Page numbers start after the header
+                    }
+                }
+
+                writeFully(channel, page);
+            }
+
+            page.clear();
+            page.putInt(0, MAGIC);
+            page.putInt(4, VERSION);
+            page.putInt(8, PAGE_BYTES);
+            page.putInt(12, ENTRIES_PER_PAGE);
+            page.putLong(16, tree.size());
+            page.putLong(24, nodes.isEmpty() ? 0 : 1);
+            page.putInt(32, tree.height());
+            page.putLong(40, nodes.size() + 1);
+
+            channel.position(0);
+            writeFully(channel, page);
+            channel.force(true);
+        }
+    }
+
+    /** Writes a whole page and clears it; unused parts of the page are written as zeros */
+    private static void writeFully(final FileChannel channel, final ByteBuffer page) throws IOException {
+        page.clear();
+
+        while(page.hasRemaining()) {
+            channel.write(page);
+        }
+
+        page.clear();
+
+        for(int i = 0; i < PAGE_BYTES; i += Long.BYTES) {
+            page.putLong(i, 0);
+        }
+    }
+
+    /**
+     * Maps a file written by {@link #write}.  The file is closed once it's mapped; the mapping stays valid until the
+     * tree is no longer reachable.
+     *
+     * @throws IllegalArgumentException If <em>path</em> is null
+     * @throws IOException If the file can't be read, isn't an index snapshot, is of an unsupported version or a
+     *                     different page layout, has been truncated, or has a header which doesn't describe a tree
+     */
+    public static MappedRTree open(final Path path) throws IOException {
+        if(path == null) throw new IllegalArgumentException("open:  path cannot be null");
+
+        try(final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long length = channel.size();
+
+            if(length < PAGE_BYTES) throw new IOException(path + " is not an index snapshot");
+
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, PAGE_BYTES).order(ORDER);
+
+            if(header.getInt(0) != MAGIC) throw new IOException(path + " is not an index snapshot");
+
+            final int version = header.getInt(4);
+            if(version != VERSION) throw new IOException(path + " has unsupported version " + version);
+
+            if(header.getInt(8) != PAGE_BYTES || header.getInt(12) != ENTRIES_PER_PAGE) {
+                throw new IOException(path + " has an unsupported page layout");
+            }
+
+            final long pageCount = header.getLong(40);
+            if(pageCount < 1 || pageCount > Integer.MAX_VALUE || length != pageCount * PAGE_BYTES) {
+                throw new IOException(path + " has the wrong length for " + pageCount + " pages");
+            }
+
+            final long size = header.getLong(16), rootPage = header.getLong(24);
+            final int height = header.getInt(32);
+
+            if(size < 0 || size > Integer.MAX_VALUE) throw new IOException(path + " has an invalid entry count " + size);
+
+            // An empty tree has no root and no levels; any other has a root page after the header
+            if(size == 0 ? rootPage != 0 : rootPage < 1 || rootPage >= pageCount) {
+                throw new IOException(path + " has an invalid root page " + rootPage + " for " + size + " entries and " + pageCount + " pages");
+            }
+
+            if(size == 0 ? height != 0 : height < 1 || height > MAX_HEIGHT) throw new IOException(path + " has an invalid height " + height);
+
+            final ByteBuffer[] mappings = new ByteBuffer[(int) ((pageCount + PAGES_PER_MAPPING - 1) / PAGES_PER_MAPPING)];
+
+            for(int m = 0; m < mappings.length; m++) {
+                final long firstPage = (long) m * PAGES_PER_MAPPING;
+                final long pages = Math.min(PAGES_PER_MAPPING, pageCount - firstPage);
+
+                mappings[m] = channel.map(FileChannel.MapMode.READ_ONLY, firstPage * PAGE_BYTES, pages * PAGE_BYTES).order(ORDER);
+            }
+
+            return new MappedRTree(mappings, (int) pageCount, (int) size, (int) rootPage, height);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** @return The number of levels in the tree; 0 if it's empty */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * @throws UnsupportedOperationException Always; a snapshot is read-only
+     */
+    @Override
+    public void insert(final Rectangle r, final int id) {
+        throw new UnsupportedOperationException("insert:  MappedRTree is read-only");
+    }
+
+    /**
+     * @throws UnsupportedOperationException Always; a snapshot is read-only
+     */
+    @Override
+    public boolean delete(final Rectangle r, final int id) {
+        throw new UnsupportedOperationException("delete:  MappedRTree is read-only");
+    }
+
+    @Override
+    public void searchIntersecting(final Rectangle query, final IntConsumer consumer) {
+        checkQuery("searchIntersecting", query, consumer);
+        if(rootPage != 0) search(rootPage, 1, RTree.Query.INTERSECTING, query.getLeftX(), query.getBottomY(), query.getRightX(), query.getTopY(), consumer);
+    }
+
+    @Override
+    public void searchContaining(final Rectangle query, final IntConsumer consumer) {
+        checkQuery("searchContaining", query, consumer);
+        if(rootPage != 0) search(rootPage, 1, RTree.Query.CONTAINING, query.getLeftX(), query.getBottomY(), query.getRightX(), query.getTopY(), consumer);
+    }
+
+    @Override
+    public void searchContainedBy(final Rectangle query, final IntConsumer consumer) {
+        checkQuery("searchContainedBy", query, consumer);
+        if(rootPage != 0) search(rootPage, 1, RTree.Query.CONTAINED_BY, query.getLeftX(), query.getBottomY(), query.getRightX(), query.getTopY(), consumer);
+    }
+
+    @Override
+    public void searchAdjacent(final Rectangle query, final IntConsumer consumer) {
+        checkQuery("searchAdjacent", query, consumer);
+        if(rootPage != 0) search(rootPage, 1, RTree.Query.ADJACENT, query.getLeftX(), query.getBottomY(), query.getRightX(), query.getTopY(), consumer);
+    }
+
+    @Override
+    public void forEachEntry(final EntryConsumer consumer) {
+        if(consumer == null) throw new IllegalArgumentException("forEachEntry:  consumer cannot be null");
+        if(rootPage != 0) forEachEntry(rootPage, 1, consumer);
+    }
+
+    private void forEachEntry(final int pageNumber, final int depth, final EntryConsumer consumer) {
+        final ByteBuffer pages = mappings[pageNumber >>> PAGES_PER_MAPPING_SHIFT];
+        final int page = (pageNumber & (PAGES_PER_MAPPING - 1)) * PAGE_BYTES;
+        final boolean leaf = depth == height;
+        final int count = checkNode(pages, page, pageNumber, leaf);
+
+        for(int i = 0; i < count; i++) {
+            final int ref = pages.getInt(page + REF_OFFSET + i * Integer.BYTES);
+
+            if(leaf) {
+                consumer.accept(ref, pages.getDouble(page + NODE_HEADER_BYTES + i * Double.BYTES), pages.getDouble(page + BOTTOM_OFFSET + i * Double.BYTES),
+                                pages.getDouble(page + RIGHT_OFFSET + i * Double.BYTES), pages.getDouble(page + TOP_OFFSET + i * Double.BYTES));
+            } else {
+                forEachEntry(checkChild(pageNumber, ref), depth + 1, consumer);
+            }
+        }
+    }
+
+    private void search(final int pageNumber, final int depth, final RTree.Query query, final double ql, final double qb, final double qr,
+                        final double qt, final IntConsumer consumer) {
+        final ByteBuffer pages = mappings[pageNumber >>> PAGES_PER_MAPPING_SHIFT];
+        final int page = (pageNumber & (PAGES_PER_MAPPING - 1)) * PAGE_BYTES;
+        final boolean leaf = depth == height;
+        final int count = checkNode(pages, page, pageNumber, leaf);
+
+        for(int i = 0; i < count; i++) {
+            final double l = pages.getDouble(page + NODE_HEADER_BYTES + i * Double.BYTES);
+            final double b = pages.getDouble(page + BOTTOM_OFFSET + i * Double.BYTES);
+            final double r = pages.getDouble(page + RIGHT_OFFSET + i * Double.BYTES);
+            final double t = pages.getDouble(page + TOP_OFFSET + i * Double.BYTES);
+
+            if(leaf) {
+                if(query.matches(l, b, r, t, ql, qb, qr, qt)) consumer.accept(pages.getInt(page + REF_OFFSET + i * Integer.BYTES));
+            } else if(query.mayContainMatches(l, b, r, t, ql, qb, qr, qt)) {
+                search(checkChild(pageNumber, pages.getInt(page + REF_OFFSET + i * Integer.BYTES)), depth + 1, query, ql, qb, qr, qt, consumer);
+            }
+        }
+    }
+
+    /**
+     * Checks that a node is a leaf exactly when it's at the bottom level, and that its count fits in a page.  Since
+     * every leaf is at the height given in the header, which was checked when the file was opened, a damaged file
+     * can't send a search down an endless path.
+     *
+     * @return The node's count
+     *
+     * @throws IllegalStateException If the node is damaged
+     */
+    private static int checkNode(final ByteBuffer pages, final int page, final int pageNumber, final boolean leaf) {
+        final int kind = pages.getInt(page), count = pages.getInt(page + 4);
+
+        if(kind != (leaf ? 1 : 0)) throw new IllegalStateException("page " + pageNumber + " is damaged:  it should " + (leaf ? "" : "not ") + "be a leaf");
+        if(count < 1 || count > ENTRIES_PER_PAGE) throw new IllegalStateException("page " + pageNumber + " is damaged:  it has " + count + " entries");
+
+        return count;
+    }
+
+    /**
+     * @return <em>child</em>, if it's the number of a node page
+     *
+     * @throws IllegalStateException If it isn't
+     */
+    private int checkChild(final int pageNumber, final int child) {
+        if(child < 1 || child >= pageCount) {
+            throw new IllegalStateException("page " + pageNumber + " is damaged:  it refers to page " + child + " of " + pageCount);
+        }
+
+        return child;
+    }
+
+    private static void checkQuery(final String method, final Rectangle query, final IntConsumer consumer) {
+        if(query == null) throw new IllegalArgumentException(method + ":  rectangle cannot be null");
+        if(consumer == null) throw new IllegalArgumentException(method + ":  consumer cannot be null");
+    }
+}
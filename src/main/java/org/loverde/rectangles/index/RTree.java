@@ -0,0 +1,725 @@
+package org.loverde.rectangles.index;
+
+import org.loverde.rectangles.Boundaries;
+import org.loverde.rectangles.IndexSort;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>An R-tree over rectangles.  A tree can be built all at once from a {@link RectangleBatch} with
+ * {@link #bulkLoad}, which uses Sort-Tile-Recursive packing to produce nearly full nodes with little overlap, and
+ * then updated with {@link #insert} and {@link #delete}, which use Guttman's quadratic split and condense-tree
+ * algorithms.</p>
+ *
+ * <p>Each node keeps the bounds of its entries in parallel arrays, so a query tests a node's entries without
+ * dereferencing the child nodes it doesn't descend into.</p>
+ *
+ * <p>{@link #snapshot} copies a tree in constant time by sharing its nodes.  Once nodes are shared, each tree copies a
+ * node before changing it, so an update copies the path from the root to the nodes it changes; the copies belong to
+ * the tree which made them, and are changed in place by later updates until the next snapshot.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+public class RTree implements SpatialIndex {
+
+    public static final int DEFAULT_MAX_ENTRIES = 16;
+
+    private final int maxEntries;
+    private final int minEntries;
+
+    private Node root;
+    private int size;
+
+    // The nodes this tree may change in place are those whose owner is this object.  It's replaced whenever the tree's
+    // nodes become shared, and is null in a tree whose nodes have never been shared.
+    private Object edit;
+
+    public RTree() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries The maximum number of entries in a node.  Nodes other than the root are kept at least 40% full.
+     *
+     * @throws IllegalArgumentException If <em>maxEntries</em> is less than 4
+     */
+    public RTree(final int maxEntries) {
+        if(maxEntries < 4) throw new IllegalArgumentException("maxEntries must be at least 4");
+
+        this.maxEntries = maxEntries;
+        this.minEntries = Math.max(2, maxEntries * 2 / 5);
+    }
+
+    /**
+     * Builds a tree containing every rectangle in <em>batch</em>, using its index in the batch as its id.
+     *
+     * @throws IllegalArgumentException If <em>batch</em> is null
+     */
+    public static RTree bulkLoad(final RectangleBatch batch) {
+        return bulkLoad(batch, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Builds a tree containing every rectangle in <em>batch</em>, using its index in the batch as its id.
+     *
+     * @param maxEntries See {@link #RTree(int)}
+     *
+     * @throws IllegalArgumentException If <em>batch</em> is null or <em>maxEntries</em> is less than 4
+     */
+    public static RTree bulkLoad(final RectangleBatch batch, final int maxEntries) {
+        if(batch == null) throw new IllegalArgumentException("bulkLoad:  batch cannot be null");
+
+        final RTree tree = new RTree(maxEntries);
+        final int n = batch.size();
+
+        if(n == 0) return tree;
+
+        // Pack the leaves first.  Each level is then packed from the bounds of the level below, until one node remains.
+        Level level = new Level(n);
+        System.arraycopy(batch.getLeftColumn(), 0, level.left, 0, n);
+        System.arraycopy(batch.getBottomColumn(), 0, level.bottom, 0, n);
+        System.arraycopy(batch.getRightColumn(), 0, level.right, 0, n);
+        System.arraycopy(batch.getTopColumn(), 0, level.top, 0, n);
+        level.size = n;
+
+        level = tree.packLeaves(level);
+
+        while(level.size > 1) {
+            level = tree.packInternal(level);
+        }
+
+        tree.root = level.nodes[0];
+        tree.size = n;
+
+        return tree;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Makes a copy of the tree in constant time.  The two trees share their nodes, and each copies a node before
+     * changing it, so changes to one are never seen by the other.
+     *
+     * <p>A tree which is no longer changed may be read by any number of threads, as long as it's published to them
+     * safely, even while its snapshots are being changed.</p>
+     */
+    public RTree snapshot() {
+        final RTree copy = new RTree(maxEntries);
+
+        copy.root = root;
+        copy.size = size;
+        copy.edit = new Object();
+        edit = new Object();
+
+        return copy;
+    }
+
+    /** @return The number of levels in the tree; 0 if it's empty */
+    public int height() {
+        int height = 0;
+
+        for(Node node = root; node != null; node = node.leaf ? null : node.children[0]) height++;
+
+        return height;
+    }
+
+    @Override
+    public void insert(final Rectangle r, final int id) {
+        if(r == null) throw new IllegalArgumentException("insert:  rectangle cannot be null");
+
+        insert(r.getLeftX(), r.getBottomY(), r.getRightX(), r.getTopY(), id);
+    }
+
+    private void insert(final double l, final double b, final double r, final double t, final int id) {
+        root = root == null ? newNode(true) : writable(root);
+
+        final Node sibling = insert(root, l, b, r, t, id);
+
+        if(sibling != null) {
+            // The root was split, so the tree grows a level
+            final Node newRoot = newNode(false);
+            newRoot.addChild(root);
+            newRoot.addChild(sibling);
+            root = newRoot;
+        }
+
+        size++;
+    }
+
+    /**
+     * Adds an entry below <em>node</em>, which must be writable.
+     *
+     * @return The new sibling of <em>node</em> if it had to be split, otherwise null
+     */
+    private Node insert(final Node node, final double l, final double b, final double r, final double t, final int id) {
+        if(node.leaf) {
+            node.addEntry(l, b, r, t, id);
+        } else {
+            final int i = chooseSubtree(node, l, b, r, t);
+
+            node.children[i] = writable(node.children[i]);
+
+            final Node sibling = insert(node.children[i], l, b, r, t, id);
+
+            node.updateBounds(i);
+
+            if(sibling != null) node.addChild(sibling);
+        }
+
+        return node.count > maxEntries ? split(node) : null;
+    }
+
+    /** @return The child whose bounds need the least enlargement to take the rectangle; ties go to the smaller child */
+    private static int chooseSubtree(final Node node, final double l, final double b, final double r, final double t) {
+        int best = 0;
+        double bestEnlargement = Double.POSITIVE_INFINITY;
+        double bestArea = Double.POSITIVE_INFINITY;
+
+        for(int i = 0; i < node.count; i++) {
+            final double area = area(node.left[i], node.bottom[i], node.right[i], node.top[i]);
+            final double enlarged = area(Math.min(l, node.left[i]), Math.min(b, node.bottom[i]),
+                                         Math.max(r, node.right[i]), Math.max(t, node.top[i]));
+            final double enlargement = enlarged - area;
+
+            if(enlargement < bestEnlargement || (enlargement == bestEnlargement && area < bestArea)) {
+                best = i;
+                bestEnlargement = enlargement;
+                bestArea = area;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Guttman's quadratic split.  The entries of an overfull node are divided between it and a new sibling, starting
+     * from the pair which would waste the most area if they were kept together.
+     *
+     * @return The new sibling
+     */
+    private Node split(final Node node) {
+        final int n = node.count;
+        final Node copy = node.copy();
+        final Node sibling = newNode(node.leaf);
+
+        // Pick the seeds
+        int seed1 = 0, seed2 = 1;
+        double worst = Double.NEGATIVE_INFINITY;
+
+        for(int i = 0; i < n; i++) {
+            for(int j = i + 1; j < n; j++) {
+                final double waste = area(Math.min(copy.left[i], copy.left[j]), Math.min(copy.bottom[i], copy.bottom[j]),
+                                          Math.max(copy.right[i], copy.right[j]), Math.max(copy.top[i], copy.top[j]))
+                                     - copy.area(i) - copy.area(j);
+
+                if(waste > worst) {
+                    worst = waste;
+                    seed1 = i;
+                    seed2 = j;
+                }
+            }
+        }
+
+        node.count = 0;
+        node.copyEntry(copy, seed1);
+        sibling.copyEntry(copy, seed2);
+
+        final boolean[] assigned = new boolean[n];
+        assigned[seed1] = assigned[seed2] = true;
+        int remaining = n - 2;
+
+        while(remaining > 0) {
+            // If one group needs all of the remaining entries to reach the minimum, it gets them
+            final Node needy = node.count + remaining <= minEntries ? node : sibling.count + remaining <= minEntries ? sibling : null;
+
+            if(needy != null) {
+                for(int i = 0; i < n; i++) {
+                    if(!assigned[i]) needy.copyEntry(copy, i);
+                }
+
+                break;
+            }
+
+            // Otherwise assign the entry with the strongest preference for one group
+            int next = -1;
+            double nextDifference = -1, nextGrowth1 = 0, nextGrowth2 = 0;
+
+            for(int i = 0; i < n; i++) {
+                if(assigned[i]) continue;
+
+                final double growth1 = node.enlargement(copy, i);
+                final double growth2 = sibling.enlargement(copy, i);
+                final double difference = Math.abs(growth1 - growth2);
+
+                if(difference > nextDifference) {
+                    next = i;
+                    nextDifference = difference;
+                    nextGrowth1 = growth1;
+                    nextGrowth2 = growth2;
+                }
+            }
+
+            final Node target;
+
+            if(nextGrowth1 != nextGrowth2) {
+                target = nextGrowth1 < nextGrowth2 ? node : sibling;
+            } else {
+                target = node.count <= sibling.count ? node : sibling;
+            }
+
+            target.copyEntry(copy, next);
+            assigned[next] = true;
+            remaining--;
+        }
+
+        return sibling;
+    }
+
+    @Override
+    public boolean delete(final Rectangle r, final int id) {
+        if(r == null) throw new IllegalArgumentException("delete:  rectangle cannot be null");
+        if(root == null) return false;
+
+        final Orphans orphans = new Orphans();
+        final Node newRoot = delete(root, r.getLeftX(), r.getBottomY(), r.getRightX(), r.getTopY(), id, orphans);
+
+        if(newRoot == null) return false;
+
+        root = newRoot;
+        size--;
+
+        // Shorten the tree if the root has been left with a single child, then put back the entries of any nodes
+        // which were removed for being underfull
+        while(!root.leaf && root.count == 1) root = root.children[0];
+        if(root.count == 0) root = null;
+
+        size -= orphans.size;
+
+        for(int i = 0; i < orphans.size; i++) {
+            insert(orphans.left[i], orphans.bottom[i], orphans.right[i], orphans.top[i], orphans.ids[i]);
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes the entry from below <em>node</em>.  On the way back up, any child left underfull is removed and its
+     * entries gathered into <em>orphans</em>, and the bounds of the others are tightened.  Nodes are only made
+     * writable once the entry has been found, so the search doesn't copy nodes it turns back from.
+     *
+     * @return The writable node which replaces <em>node</em> if the entry was found, otherwise null
+     */
+    private Node delete(final Node node, final double l, final double b, final double r, final double t, final int id, final Orphans orphans) {
+        if(node.leaf) {
+            for(int i = 0; i < node.count; i++) {
+                if(node.ids[i] == id && node.left[i] == l && node.bottom[i] == b && node.right[i] == r && node.top[i] == t) {
+                    final Node changed = writable(node);
+                    changed.remove(i);
+                    return changed;
+                }
+            }
+
+            return null;
+        }
+
+        for(int i = 0; i < node.count; i++) {
+            // Only descend into children whose bounds cover the entry
+            if(node.left[i] <= l && node.bottom[i] <= b && r <= node.right[i] && t <= node.top[i]) {
+                final Node child = delete(node.children[i], l, b, r, t, id, orphans);
+
+                if(child != null) {
+                    final Node changed = writable(node);
+
+                    if(child.count < minEntries) {
+                        changed.remove(i);
+                        orphans.addAll(child);
+                    } else {
+                        changed.children[i] = child;
+                        changed.updateBounds(i);
+                    }
+
+                    return changed;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public void searchIntersecting(final Rectangle query, final IntConsumer consumer) {
+        checkQuery("searchIntersecting", query, consumer);
+        if(root != null) search(root, Query.INTERSECTING, query.getLeftX(), query.getBottomY(), query.getRightX(), query.getTopY(), consumer);
+    }
+
+    @Override
+    public void searchContaining(final Rectangle query, final IntConsumer consumer) {
+        checkQuery("searchContaining", query, consumer);
+        if(root != null) search(root, Query.CONTAINING, query.getLeftX(), query.getBottomY(), query.getRightX(), query.getTopY(), consumer);
+    }
+
+    @Override
+    public void searchContainedBy(final Rectangle query, final IntConsumer consumer) {
+        checkQuery("searchContainedBy", query, consumer);
+        if(root != null) search(root, Query.CONTAINED_BY, query.getLeftX(), query.getBottomY(), query.getRightX(), query.getTopY(), consumer);
+    }
+
+    @Override
+    public void searchAdjacent(final Rectangle query, final IntConsumer consumer) {
+        checkQuery("searchAdjacent", query, consumer);
+        if(root != null) search(root, Query.ADJACENT, query.getLeftX(), query.getBottomY(), query.getRightX(), query.getTopY(), consumer);
+    }
+
+    @Override
+    public void forEachEntry(final EntryConsumer consumer) {
+        if(consumer == null) throw new IllegalArgumentException("forEachEntry:  consumer cannot be null");
+        if(root != null) forEachEntry(root, consumer);
+    }
+
+    private static void forEachEntry(final Node node, final EntryConsumer consumer) {
+        for(int i = 0; i < node.count; i++) {
+            if(node.leaf) consumer.accept(node.ids[i], node.left[i], node.bottom[i], node.right[i], node.top[i]);
+            else forEachEntry(node.children[i], consumer);
+        }
+    }
+
+    private static void search(final Node node, final Query query, final double ql, final double qb, final double qr, final double qt,
+                               final IntConsumer consumer) {
+        for(int i = 0; i < node.count; i++) {
+            final double l = node.left[i], b = node.bottom[i], r = node.right[i], t = node.top[i];
+
+            if(node.leaf) {
+                if(query.matches(l, b, r, t, ql, qb, qr, qt)) consumer.accept(node.ids[i]);
+            } else if(query.mayContainMatches(l, b, r, t, ql, qb, qr, qt)) {
+                search(node.children[i], query, ql, qb, qr, qt, consumer);
+            }
+        }
+    }
+
+    private static void checkQuery(final String method, final Rectangle query, final IntConsumer consumer) {
+        if(query == null) throw new IllegalArgumentException(method + ":  rectangle cannot be null");
+        if(consumer == null) throw new IllegalArgumentException(method + ":  consumer cannot be null");
+    }
+
+    private Level packLeaves(final Level entries) {
+        final Level nodes = new Level((entries.size + maxEntries - 1) / maxEntries);
+
+        pack(entries, (node, entry) -> node.addEntry(entries.left[entry], entries.bottom[entry], entries.right[entry], entries.top[entry], entry), true, nodes);
+
+        return nodes;
+    }
+
+    private Level packInternal(final Level children) {
+        final Level nodes = new Level((children.size + maxEntries - 1) / maxEntries);
+
+        pack(children, (node, child) -> node.addChild(children.nodes[child]), false, nodes);
+
+        return nodes;
+    }
+
+    /**
+     * Sort-Tile-Recursive packing of one level.  The items are sorted by the x value of their centres and cut into
+     * vertical slices; each slice is sorted by the y value of the centres and cut into nodes.
+     */
+    private void pack(final Level items, final Packer packer, final boolean leaf, final Level nodes) {
+        final int n = items.size;
+        final int nodeCount = (n + maxEntries - 1) / maxEntries;
+        final int sliceCount = (int) Math.ceil(Math.sqrt(nodeCount));
+        final int sliceSize = sliceCount * maxEntries;
+
+        final double[] centreX = new double[n], centreY = new double[n];
+
+        for(int i = 0; i < n; i++) {
+            centreX[i] = (items.left[i] + items.right[i]) / 2;
+            centreY[i] = (items.bottom[i] + items.top[i]) / 2;
+        }
+
+        final int[] order = IndexSort.identity(n);
+        IndexSort.sort(order, 0, n, centreX);
+
+        for(int sliceStart = 0; sliceStart < n; sliceStart += sliceSize) {
+            final int sliceEnd = Math.min(n, sliceStart + sliceSize);
+
+            IndexSort.sort(order, sliceStart, sliceEnd, centreY);
+
+            for(int nodeStart = sliceStart; nodeStart < sliceEnd; nodeStart += maxEntries) {
+                final Node node = newNode(leaf);
+
+                for(int k = nodeStart; k < Math.min(sliceEnd, nodeStart + maxEntries); k++) {
+                    packer.add(node, order[k]);
+                }
+
+                nodes.add(node);
+            }
+        }
+    }
+
+    Node root() {
+        return root;
+    }
+
+    private Node newNode(final boolean leaf) {
+        final Node node = new Node(leaf, maxEntries);
+        node.owner = edit;
+        return node;
+    }
+
+    /** @return <em>node</em> if this tree may change it in place, otherwise a copy of it which this tree owns */
+    private Node writable(final Node node) {
+        if(node.owner == edit) return node;
+
+        final Node copy = node.copy();
+        copy.owner = edit;
+        return copy;
+    }
+
+    private static double area(final double l, final double b, final double r, final double t) {
+        return (r - l) * (t - b);
+    }
+
+    /** The test applied to entries for each kind of query, and the test which decides whether to descend into a node */
+    enum Query {
+        INTERSECTING {
+            @Override
+            boolean matches(double l, double b, double r, double t, double ql, double qb, double qr, double qt) {
+                return Boundaries.intersects(l, b, r, t, ql, qb, qr, qt);
+            }
+
+            @Override
+            boolean mayContainMatches(double l, double b, double r, double t, double ql, double qb, double qr, double qt) {
+                return Boundaries.intersects(l, b, r, t, ql, qb, qr, qt);
+            }
+        },
+
+        CONTAINING {
+            @Override
+            boolean matches(double l, double b, double r, double t, double ql, double qb, double qr, double qt) {
+                return Boundaries.contains(l, b, r, t, ql, qb, qr, qt);
+            }
+
+            // A node's bounds enclose its entries, so if an entry contains the query, so does the node
+            @Override
+            boolean mayContainMatches(double l, double b, double r, double t, double ql, double qb, double qr, double qt) {
+                return Boundaries.contains(l, b, r, t, ql, qb, qr, qt);
+            }
+        },
+
+        CONTAINED_BY {
+            @Override
+            boolean matches(double l, double b, double r, double t, double ql, double qb, double qr, double qt) {
+                return Boundaries.contains(ql, qb, qr, qt, l, b, r, t);
+            }
+
+            @Override
+            boolean mayContainMatches(double l, double b, double r, double t, double ql, double qb, double qr, double qt) {
+                return Boundaries.intersects(l, b, r, t, ql, qb, qr, qt);
+            }
+        },
+
+        ADJACENT {
+            @Override
+            boolean matches(double l, double b, double r, double t, double ql, double qb, double qr, double qt) {
+                return Boundaries.isAdjacent(l, b, r, t, ql, qb, qr, qt);
+            }
+
+            // An adjacent entry touches the query, so the node's bounds must at least touch it too
+            @Override
+            boolean mayContainMatches(double l, double b, double r, double t, double ql, double qb, double qr, double qt) {
+                return l <= qr && ql <= r && b <= qt && qb <= t;
+            }
+        };
+
+        abstract boolean matches(double l, double b, double r, double t, double ql, double qb, double qr, double qt);
+
+        abstract boolean mayContainMatches(double l, double b, double r, double t, double ql, double qb, double qr, double qt);
+    }
+
+    /**
+     * A node holds the bounds of up to <em>maxEntries</em> entries (one extra slot allows it to overflow before being
+     * split).  A leaf's entries are ids; an internal node's entries are child nodes.
+     */
+    static final class Node {
+        final boolean leaf;
+        final double[] left, bottom, right, top;
+        final Node[] children;
+        final int[] ids;
+        int count;
+        Object owner;  // see RTree.edit
+
+        Node(final boolean leaf, final int maxEntries) {
+            this.leaf = leaf;
+
+            left = new double[maxEntries + 1];
+            bottom = new double[maxEntries + 1];
+            right = new double[maxEntries + 1];
+            top = new double[maxEntries + 1];
+
+            children = leaf ? null : new Node[maxEntries + 1];
+            ids = leaf ? new int[maxEntries + 1] : null;
+        }
+
+        void addEntry(final double l, final double b, final double r, final double t, final int id) {
+            setBounds(count, l, b, r, t);
+            ids[count++] = id;
+        }
+
+        void addChild(final Node child) {
+            children[count] = child;
+            updateBounds(count++);
+        }
+
+        /** Recomputes the bounds of child <em>i</em> from its entries */
+        void updateBounds(final int i) {
+            final Node child = children[i];
+            double l = Double.POSITIVE_INFINITY, b = Double.POSITIVE_INFINITY;
+            double r = Double.NEGATIVE_INFINITY, t = Double.NEGATIVE_INFINITY;
+
+            for(int k = 0; k < child.count; k++) {
+                l = Math.min(l, child.left[k]);
+                b = Math.min(b, child.bottom[k]);
+                r = Math.max(r, child.right[k]);
+                t = Math.max(t, child.top[k]);
+            }
+
+            setBounds(i, l, b, r, t);
+        }
+
+        /** Removes entry <em>i</em>, moving the last entry into its place */
+        void remove(final int i) {
+            final int last = --count;
+
+            setBounds(i, left[last], bottom[last], right[last], top[last]);
+
+            if(leaf) {
+                ids[i] = ids[last];
+            } else {
+                children[i] = children[last];
+                children[last] = null;
+            }
+        }
+
+        /** Appends entry <em>i</em> of <em>from</em> to this node */
+        void copyEntry(final Node from, final int i) {
+            setBounds(count, from.left[i], from.bottom[i], from.right[i], from.top[i]);
+
+            if(leaf) {
+                ids[count] = from.ids[i];
+            } else {
+                children[count] = from.children[i];
+            }
+
+            count++;
+        }
+
+        Node copy() {
+            final Node copy = new Node(leaf, left.length - 1);
+
+            for(int i = 0; i < count; i++) copy.copyEntry(this, i);
+
+            return copy;
+        }
+
+        double area(final int i) {
+            return RTree.area(left[i], bottom[i], right[i], top[i]);
+        }
+
+        /** @return How much this node's bounds would grow if entry <em>i</em> of <em>from</em> were added */
+        double enlargement(final Node from, final int i) {
+            double l = Double.POSITIVE_INFINITY, b = Double.POSITIVE_INFINITY;
+            double r = Double.NEGATIVE_INFINITY, t = Double.NEGATIVE_INFINITY;
+
+            for(int k = 0; k < count; k++) {
+                l = Math.min(l, left[k]);
+                b = Math.min(b, bottom[k]);
+                r = Math.max(r, right[k]);
+                t = Math.max(t, top[k]);
+            }
+
+            final double enlarged = RTree.area(Math.min(l, from.left[i]), Math.min(b, from.bottom[i]),
+                                               Math.max(r, from.right[i]), Math.max(t, from.top[i]));
+
+            return count == 0 ? enlarged : enlarged - RTree.area(l, b, r, t);
+        }
+
+        private void setBounds(final int i, final double l, final double b, final double r, final double t) {
+            left[i] = l;
+            bottom[i] = b;
+            right[i] = r;
+            top[i] = t;
+        }
+    }
+
+    /** The items being packed into one level of the tree during a bulk load */
+    private static final class Level {
+        final double[] left, bottom, right, top;
+        final Node[] nodes;
+        int size;
+
+        Level(final int capacity) {
+            left = new double[capacity];
+            bottom = new double[capacity];
+            right = new double[capacity];
+            top = new double[capacity];
+            nodes = new Node[capacity];
+        }
+
+        void add(final Node node) {
+            double l = Double.POSITIVE_INFINITY, b = Double.POSITIVE_INFINITY;
+            double r = Double.NEGATIVE_INFINITY, t = Double.NEGATIVE_INFINITY;
+
+            for(int k = 0; k < node.count; k++) {
+                l = Math.min(l, node.left[k]);
+                b = Math.min(b, node.bottom[k]);
+                r = Math.max(r, node.right[k]);
+                t = Math.max(t, node.top[k]);
+            }
+
+            left[size] = l;
+            bottom[size] = b;
+            right[size] = r;
+            top[size] = t;
+            nodes[size++] = node;
+        }
+    }
+
+    /** Leaf entries gathered from underfull nodes during a delete, waiting to be reinserted */
+    private static final class Orphans {
+        double[] left = new double[16], bottom = new double[16], right = new double[16], top = new double[16];
+        int[] ids = new int[16];
+        int size;
+
+        void addAll(final Node node) {
+            if(node.leaf) {
+                for(int i = 0; i < node.count; i++) add(node.left[i], node.bottom[i], node.right[i], node.top[i], node.ids[i]);
+            } else {
+                for(int i = 0; i < node.count; i++) addAll(node.children[i]);
+            }
+        }
+
+        private void add(final double l, final double b, final double r, final double t, final int id) {
+            if(size == ids.length) {
+                left = Arrays.copyOf(left, size * 2);
+                bottom = Arrays.copyOf(bottom, size * 2);
+                right = Arrays.copyOf(right, size * 2);
+                top = Arrays.copyOf(top, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+
+            left[size] = l;
+            bottom[size] = b;
+            right[size] = r;
+            top[size] = t;
+            ids[size++] = id;
+        }
+    }
+
+    private interface Packer {
+        void add(Node node, int item);
+    }
+}
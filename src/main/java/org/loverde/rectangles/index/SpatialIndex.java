@@ -0,0 +1,77 @@
+package org.loverde.rectangles.index;
+
+import org.loverde.rectangles.Rectangle;
+
+import java.util.function.IntConsumer;
+
+/**
+ * <p>An index of rectangles, each stored with an integer id chosen by the caller (typically its position in some
+ * other collection, such as a {@link org.loverde.rectangles.RectangleBatch}).  The same rectangle may be stored
+ * more than once with different ids.</p>
+ *
+ * <p>Queries use the same definitions as {@link Rectangle}:  adjacent edges are not an intersection, and containment
+ * excludes shared edges.  Ids are passed to the consumer in no particular order.</p>
+ */
+public interface SpatialIndex {
+
+    /** Receives the entries of an index */
+    @FunctionalInterface
+    interface EntryConsumer {
+
+        void accept(int id, double left, double bottom, double right, double top);
+    }
+
+    /** @return The number of entries in the index */
+    int size();
+
+    /**
+     * Adds an entry.
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null
+     */
+    void insert(Rectangle r, int id);
+
+    /**
+     * Removes one entry with the given rectangle and id.
+     *
+     * @return <em>true</em> if an entry was removed; <em>false</em> if there was no such entry
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null
+     */
+    boolean delete(Rectangle r, int id);
+
+    /**
+     * Finds the entries whose rectangles intersect <em>query</em>, as defined by {@link Rectangle#intersects}.
+     *
+     * @throws IllegalArgumentException If <em>query</em> or <em>consumer</em> is null
+     */
+    void searchIntersecting(Rectangle query, IntConsumer consumer);
+
+    /**
+     * Finds the entries whose rectangles contain <em>query</em>, as defined by {@link Rectangle#contains}.
+     *
+     * @throws IllegalArgumentException If <em>query</em> or <em>consumer</em> is null
+     */
+    void searchContaining(Rectangle query, IntConsumer consumer);
+
+    /**
+     * Finds the entries whose rectangles are contained by <em>query</em>, as defined by {@link Rectangle#isContainedBy}.
+     *
+     * @throws IllegalArgumentException If <em>query</em> or <em>consumer</em> is null
+     */
+    void searchContainedBy(Rectangle query, IntConsumer consumer);
+
+    /**
+     * Finds the entries whose rectangles are adjacent to <em>query</em>, as defined by {@link Rectangle#isAdjacentTo}.
+     *
+     * @throws IllegalArgumentException If <em>query</em> or <em>consumer</em> is null
+     */
+    void searchAdjacent(Rectangle query, IntConsumer consumer);
+
+    /**
+     * Passes every entry to <em>consumer</em>, in no particular order.
+     *
+     * @throws IllegalArgumentException If <em>consumer</em> is null
+     */
+    void forEachEntry(EntryConsumer consumer);
+}
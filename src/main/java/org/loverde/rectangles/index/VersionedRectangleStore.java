@@ -0,0 +1,339 @@
+package org.loverde.rectangles.index;
+
+import org.loverde.rectangles.LongIntMap;
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>A set of rectangles, each with a unique id, in which every change gets a version number and readers can query
+ * the set as it was at a version while changes continue.  Versions count up from 0, the empty store, and each insert,
+ * update or delete makes the next one.</p>
+ *
+ * <p>{@link #openSnapshot} pins the current version.  The snapshot is an R-tree made with {@link RTree#snapshot}, so
+ * opening one takes constant time; after that, the store copies a node the first time it changes it, and changes the
+ * copy in place from then on.  Versions which no snapshot pins never exist as separate trees.</p>
+ *
+ * <p>The store keeps each pinned version until the last snapshot of it is closed.  The version is then dropped, and
+ * the nodes which no newer version shares are left to the garbage collector.  Snapshots should be closed promptly,
+ * since an open snapshot keeps every node changed since it was opened alive twice over:  once as it was, and once
+ * as it is now.  A snapshot which is dropped without being closed releases its version once it's garbage collected;
+ * only the latest version is held by the store itself, and only until the next change.</p>
+ *
+ * <p>Changes and opening and closing snapshots are synchronized.  Queries on an open snapshot don't lock anything and
+ * never wait for changes, and a snapshot may be queried by several threads at once.</p>
+ */
+public final class VersionedRectangleStore {
+
+    private final RTree tree;
+    private long version;
+
+    // The current rectangles by slot, so that they can be found by id; a removed rectangle's slot is reused
+    private final LongIntMap slotOfId = new LongIntMap(16);
+    private double[] bounds = new double[4 * 16];
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount, slotCount;
+
+    // The versions pinned by open snapshots, by version number.  The snapshots hold their versions; the store only
+    // holds them weakly, so that a version whose snapshots were dropped without being closed can be collected.  The
+    // latest version's pin, if there is one, is also held strongly, so that snapshots opened with no change in between
+    // share it.
+    private final TreeMap<Long, WeakReference<PinnedVersion>> pinned = new TreeMap<>();
+    private PinnedVersion latestPin;
+
+    public VersionedRectangleStore() {
+        this(RTree.DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries See {@link RTree#RTree(int)}
+     *
+     * @throws IllegalArgumentException If <em>maxEntries</em> is less than 4
+     */
+    public VersionedRectangleStore(final int maxEntries) {
+        tree = new RTree(maxEntries);
+    }
+
+    /** @return The number of the latest version */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /** @return The number of rectangles in the latest version */
+    public synchronized int size() {
+        return slotOfId.size();
+    }
+
+    /** @return <em>true</em> if the latest version has a rectangle with the given id */
+    public synchronized boolean contains(final int id) {
+        return slotOfId.get(id) >= 0;
+    }
+
+    /**
+     * @return The number of versions kept for open snapshots, including those of snapshots which were dropped without
+     *         being closed and haven't been garbage collected yet
+     */
+    public synchronized int getPinnedVersionCount() {
+        forgetCollected();
+        return pinned.size();
+    }
+
+    /**
+     * @return The number of the oldest version kept for an open snapshot, or -1 if there's none; see
+     *         {@link #getPinnedVersionCount}
+     */
+    public synchronized long getOldestPinnedVersion() {
+        forgetCollected();
+        return pinned.isEmpty() ? -1 : pinned.firstKey();
+    }
+
+    /**
+     * Adds a rectangle.
+     *
+     * @return The new version
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null, or there's already a rectangle with the given id
+     */
+    public synchronized long insert(final int id, final Rectangle r) {
+        if(r == null) throw new IllegalArgumentException("insert:  rectangle cannot be null");
+        if(slotOfId.get(id) >= 0) throw new IllegalArgumentException("insert:  id " + id + " is already in the store");
+
+        final int slot = allocateSlot();
+
+        slotOfId.put(id, slot);
+        setBounds(slot, r);
+        tree.insert(r, id);
+
+        return nextVersion();
+    }
+
+    /**
+     * Replaces the rectangle with the given id.
+     *
+     * @return The new version, or -1 if there was no such rectangle, in which case no version is made
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null
+     */
+    public synchronized long update(final int id, final Rectangle r) {
+        if(r == null) throw new IllegalArgumentException("update:  rectangle cannot be null");
+
+        final int slot = slotOfId.get(id);
+
+        if(slot < 0) return -1;
+
+        tree.delete(rectangle(slot), id);
+        setBounds(slot, r);
+        tree.insert(r, id);
+
+        return nextVersion();
+    }
+
+    /**
+     * Removes the rectangle with the given id.
+     *
+     * @return The new version, or -1 if there was no such rectangle, in which case no version is made
+     */
+    public synchronized long delete(final int id) {
+        final int slot = slotOfId.remove(id);
+
+        if(slot < 0) return -1;
+
+        tree.delete(rectangle(slot), id);
+
+        if(freeSlotCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        freeSlots[freeSlotCount++] = slot;
+
+        return nextVersion();
+    }
+
+    /**
+     * Pins the latest version, which the snapshot sees until it's closed, whatever changes are made in the meantime.
+     * Snapshots opened with no change in between share one copy of the version.
+     */
+    public synchronized Snapshot openSnapshot() {
+        forgetCollected();
+
+        if(latestPin == null) {
+            latestPin = new PinnedVersion(version, tree.snapshot());
+            pinned.put(version, new WeakReference<>(latestPin));
+        }
+
+        latestPin.openSnapshots++;
+
+        return new Snapshot(this, latestPin);
+    }
+
+    private synchronized void close(final PinnedVersion pin) {
+        if(--pin.openSnapshots == 0) {
+            pinned.remove(pin.version);
+
+            if(latestPin == pin) latestPin = null;
+        }
+    }
+
+    // The latest version's pin is no longer the latest, so the store stops holding it
+    private long nextVersion() {
+        latestPin = null;
+        return ++version;
+    }
+
+    // Drops the versions whose snapshots were all collected without being closed
+    private void forgetCollected() {
+        pinned.values().removeIf(reference -> reference.get() == null);
+    }
+
+    private int allocateSlot() {
+        if(freeSlotCount > 0) return freeSlots[--freeSlotCount];
+
+        if(4 * slotCount == bounds.length) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+
+        return slotCount++;
+    }
+
+    private void setBounds(final int slot, final Rectangle r) {
+        bounds[4 * slot] = r.getLeftX();
+        bounds[4 * slot + 1] = r.getBottomY();
+        bounds[4 * slot + 2] = r.getRightX();
+        bounds[4 * slot + 3] = r.getTopY();
+    }
+
+    private Rectangle rectangle(final int slot) {
+        return new Rectangle(new Point(bounds[4 * slot], bounds[4 * slot + 1]), new Point(bounds[4 * slot + 2], bounds[4 * slot + 3]));
+    }
+
+    /** A version kept for open snapshots, and the number of snapshots of it still open */
+    private static final class PinnedVersion {
+        final long version;
+        final RTree tree;
+        int openSnapshots;  // guarded by the store
+
+        PinnedVersion(final long version, final RTree tree) {
+            this.version = version;
+            this.tree = tree;
+        }
+    }
+
+    /**
+     * <p>The rectangles of a store as they were at one version.  Queries use the same definitions as
+     * {@link SpatialIndex}, and report the ids of the rectangles they find.  The insert and delete methods throw
+     * {@link UnsupportedOperationException}; a snapshot is read-only.</p>
+     *
+     * <p>Close a snapshot once it's no longer needed, so the store can drop its version.  One which isn't closed keeps
+     * its version until it's garbage collected.  A closed snapshot can't be queried.</p>
+     */
+    public static final class Snapshot implements SpatialIndex, AutoCloseable {
+
+        private final VersionedRectangleStore store;
+        private final long version;
+
+        // Null once the snapshot is closed, so that a closed snapshot doesn't keep its version's nodes alive
+        private volatile PinnedVersion pin;
+
+        private Snapshot(final VersionedRectangleStore store, final PinnedVersion pin) {
+            this.store = store;
+            this.pin = pin;
+
+            version = pin.version;
+        }
+
+        /** @return The number of the version this snapshot sees */
+        public long getVersion() {
+            return version;
+        }
+
+        public boolean isClosed() {
+            return pin == null;
+        }
+
+        /**
+         * Releases the snapshot's version.  Closing a snapshot more than once has no further effect.
+         */
+        @Override
+        public void close() {
+            final PinnedVersion released;
+
+            synchronized(this) {
+                released = pin;
+                pin = null;
+            }
+
+            if(released != null) store.close(released);
+        }
+
+        /**
+         * @throws IllegalStateException If the snapshot is closed
+         */
+        @Override
+        public int size() {
+            return tree("size").size();
+        }
+
+        /**
+         * @throws UnsupportedOperationException Always; a snapshot is read-only
+         */
+        @Override
+        public void insert(final Rectangle r, final int id) {
+            throw new UnsupportedOperationException("insert:  a snapshot is read-only");
+        }
+
+        /**
+         * @throws UnsupportedOperationException Always; a snapshot is read-only
+         */
+        @Override
+        public boolean delete(final Rectangle r, final int id) {
+            throw new UnsupportedOperationException("delete:  a snapshot is read-only");
+        }
+
+        /**
+         * @throws IllegalStateException If the snapshot is closed
+         */
+        @Override
+        public void searchIntersecting(final Rectangle query, final IntConsumer consumer) {
+            tree("searchIntersecting").searchIntersecting(query, consumer);
+        }
+
+        /**
+         * @throws IllegalStateException If the snapshot is closed
+         */
+        @Override
+        public void searchContaining(final Rectangle query, final IntConsumer consumer) {
+            tree("searchContaining").searchContaining(query, consumer);
+        }
+
+        /**
+         * @throws IllegalStateException If the snapshot is closed
+         */
+        @Override
+        public void searchContainedBy(final Rectangle query, final IntConsumer consumer) {
+            tree("searchContainedBy").searchContainedBy(query, consumer);
+        }
+
+        /**
+         * @throws IllegalStateException If the snapshot is closed
+         */
+        @Override
+        public void searchAdjacent(final Rectangle query, final IntConsumer consumer) {
+            tree("searchAdjacent").searchAdjacent(query, consumer);
+        }
+
+        /**
+         * @throws IllegalStateException If the snapshot is closed
+         */
+        @Override
+        public void forEachEntry(final EntryConsumer consumer) {
+            tree("forEachEntry").forEachEntry(consumer);
+        }
+
+        private RTree tree(final String method) {
+            final PinnedVersion current = pin;
+
+            if(current == null) throw new IllegalStateException(method + ":  the snapshot is closed");
+
+            return current.tree;
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package org.loverde.rectangles.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.loverde.rectangles.Boundaries;
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+/**
+ * <p>Loads rectangles from a CSV file into a {@link RectangleBatch}, parsing parts of the file in parallel.</p>
+ *
+ * <p>Each line holds four numbers separated by commas:  left, bottom, right and top.  Spaces and tabs around the
+ * numbers are ignored, as are blank lines; lines may end with <code>\n</code> or <code>\r\n</code>.  The text must be
+ * ASCII or UTF-8.</p>
+ *
+ * <p>The file is split into chunks of roughly equal size which start and end on line boundaries, and the chunks are
+ * parsed as tasks on a {@link ForkJoinPool}.  Numbers are parsed straight from the mapped bytes of the file, without
+ * creating a <code>String</code> for each field; only numbers with more than 18 significant digits, and the rare
+ * numbers whose rounding can't be settled from 128 bits, fall back to {@link Double#parseDouble}.</p>
+ *
+ * <p>Rows are validated with the same rules as {@link Point} and {@link Rectangle}.  A row which can't be parsed or
+ * isn't a valid rectangle doesn't stop the load:  it's recorded in the result as a {@link RowError}, with its line
+ * number and the reason, and skipped.  The rectangles which were loaded keep the order of their lines.</p>
+ */
+public final class CsvRectangleLoader {
+
+    public static final int DEFAULT_CHUNK_BYTES = 16 << 20;
+
+    /** The largest chunk, which keeps each chunk within one mapping */
+    public static final int MAX_CHUNK_BYTES = 1 << 30;
+
+    private static final String[] FIELDS = {"left", "bottom", "right", "top"};
+
+    private final ForkJoinPool pool;
+    private final int chunkBytes;
+
+    /**
+     * Creates a loader which parses on the common pool in chunks of {@link #DEFAULT_CHUNK_BYTES}
+     */
+    public CsvRectangleLoader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * @param pool The pool to parse on; its parallelism is the number of chunks parsed at once
+     * @param chunkBytes The size the file is split into, before each chunk is extended to the end of its last line
+     *
+     * @throws IllegalArgumentException If <em>pool</em> is null, or <em>chunkBytes</em> is less than 1 or greater than
+     *                                  {@link #MAX_CHUNK_BYTES}
+     */
+    public CsvRectangleLoader(final ForkJoinPool pool, final int chunkBytes) {
+        if(pool == null) throw new IllegalArgumentException("pool cannot be null");
+        if(chunkBytes < 1) throw new IllegalArgumentException("chunkBytes must be at least 1");
+        if(chunkBytes > MAX_CHUNK_BYTES) throw new IllegalArgumentException("chunkBytes cannot be greater than " + MAX_CHUNK_BYTES);
+
+        this.pool = pool;
+        this.chunkBytes = chunkBytes;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public int getChunkBytes() {
+        return chunkBytes;
+    }
+
+    /**
+     * Loads every line of <em>path</em> as a rectangle
+     *
+     * @throws IllegalArgumentException If <em>path</em> is null
+     * @throws IOException If the file can't be read
+     */
+    public Result load(final Path path) throws IOException {
+        return load(path, false);
+    }
+
+    /**
+     * Loads the lines of <em>path</em> as rectangles
+     *
+     * @param skipHeader If <em>true</em>, the first line is a header and is skipped
+     *
+     * @throws IllegalArgumentException If <em>path</em> is null
+     * @throws IOException If the file can't be read
+     */
+    public Result load(final Path path, final boolean skipHeader) throws IOException {
+        if(path == null) throw new IllegalArgumentException("load:  path cannot be null");
+
+        try(final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long[] starts = chunkStarts(channel);
+            final List<Callable<Chunk>> tasks = new ArrayList<>(starts.length - 1);
+
+            for(int c = 0; c < starts.length - 1; c++) {
+                final long start = starts[c], end = starts[c + 1];
+                final boolean header = skipHeader && c == 0;
+
+                tasks.add(() -> new Chunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), header).parse());
+            }
+
+            final List<Chunk> chunks = new ArrayList<>(tasks.size());
+
+            for(final Future<Chunk> future : pool.invokeAll(tasks)) {
+                chunks.add(join(future));
+            }
+
+            return Result.combine(chunks);
+        }
+    }
+
+    private static Chunk join(final Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch(final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("load:  interrupted", e);
+        } catch(final ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if(cause instanceof IOException) throw (IOException) cause;
+            if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if(cause instanceof Error) throw (Error) cause;
+
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Cuts the file every <em>chunkBytes</em> bytes, moving each cut forward to the start of the next line
+     *
+     * @return The start of each chunk, followed by the length of the file
+     */
+    private long[] chunkStarts(final FileChannel channel) throws IOException {
+        final long length = channel.size();
+        final ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long[] starts = new long[16];
+        int count = 1;
+
+        for(long cut = chunkBytes; cut < length; ) {
+            final long start = nextLineStart(channel, cut, length, buffer);
+
+            if(start >= length) break;
+
+            if(count + 1 >= starts.length) starts = Arrays.copyOf(starts, starts.length * 2);
+            starts[count++] = start;
+            cut = start + chunkBytes;
+        }
+
+        starts[count++] = length;
+
+        return Arrays.copyOf(starts, count);
+    }
+
+    /** @return The first position at or after <em>position</em> which starts a line */
+    private static long nextLineStart(final FileChannel channel, final long position, final long length, final ByteBuffer buffer) throws IOException {
+        long p = position - 1;  // If the byte before the cut ends a line, the cut is already a line start
+
+        while(p < length) {
+            buffer.clear();
+            final int read = channel.read(buffer, p);
+
+            if(read <= 0) break;
+
+            for(int i = 0; i < read; i++) {
+                if(buffer.get(i) == '\n') return p + i + 1;
+            }
+
+            p += read;
+        }
+
+        return length;
+    }
+
+    /** One part of the file, parsed by one task */
+    private static final class Chunk {
+        private final ByteBuffer bytes;
+        private final boolean skipHeader;
+
+        final RectangleBatch rectangles = new RectangleBatch();
+        long[] lines = new long[16];
+        final List<RowError> errors = new ArrayList<>();
+        long lineCount;
+
+        // The fields of the current line, and the number parser's results
+        private final double[] values = new double[4];
+        private double value;
+        private int end;
+
+        Chunk(final ByteBuffer bytes, final boolean skipHeader) {
+            this.bytes = bytes;
+            this.skipHeader = skipHeader;
+        }
+
+        Chunk parse() {
+            final int limit = bytes.limit();
+            int lineStart = 0;
+
+            while(lineStart < limit) {
+                int lineEnd = lineStart;
+                while(lineEnd < limit && bytes.get(lineEnd) != '\n') lineEnd++;
+
+                final int next = lineEnd + 1;
+                if(lineEnd > lineStart && bytes.get(lineEnd - 1) == '\r') lineEnd--;
+
+                lineCount++;
+
+                if(!(skipHeader && lineCount == 1)) parseLine(lineStart, lineEnd);
+
+                lineStart = next;
+            }
+
+            return this;
+        }
+
+        private void parseLine(final int start, final int end) {
+            int p = skipBlanks(start, end);
+
+            if(p == end) return;
+
+            for(int field = 0; field < 4; field++) {
+                if(field > 0) {
+                    if(p == end) {
+                        error("expected 4 fields but found " + field);
+                        return;
+                    }
+
+                    if(bytes.get(p) != ',') {
+                        error(FIELDS[field - 1] + " is not a number");
+                        return;
+                    }
+
+                    p = skipBlanks(p + 1, end);
+                }
+
+                if(!parseNumber(p, end)) {
+                    error(FIELDS[field] + " is not a number");
+                    return;
+                }
+
+                values[field] = value;
+                p = skipBlanks(this.end, end);
+            }
+
+            if(p != end) {
+                error(bytes.get(p) == ',' ? "expected 4 fields but found more" : "top is not a number");
+                return;
+            }
+
+            final String invalid = Boundaries.validationError(values[0], values[1], values[2], values[3]);
+
+            if(invalid != null) {
+                error(invalid);
+                return;
+            }
+
+            final int index = rectangles.add(values[0], values[1], values[2], values[3]);
+
+            if(index == lines.length) lines = Arrays.copyOf(lines, lines.length * 2);
+            lines[index] = lineCount;
+        }
+
+        private void error(final String message) {
+            errors.add(new RowError(lineCount, message));
+        }
+
+        private int skipBlanks(int p, final int end) {
+            while(p < end && (bytes.get(p) == ' ' || bytes.get(p) == '\t')) p++;
+            return p;
+        }
+
+        /**
+         * Parses a decimal number starting at <em>start</em>, leaving it in {@link #value} and the position after it
+         * in {@link #end}
+         *
+         * @return <em>false</em> if there isn't a number at <em>start</em>
+         */
+        private boolean parseNumber(final int start, final int limit) {
+            int p = start;
+            boolean negative = false;
+
+            if(p < limit && (bytes.get(p) == '-' || bytes.get(p) == '+')) negative = bytes.get(p++) == '-';
+
+            long mantissa = 0;
+            int exponent = 0;
+            int digits = 0;
+            boolean exact = true;
+
+            // Integer part, then fraction.  Digits past the 18th significant one can't be held exactly.
+            final int integerStart = p;
+
+            for(; p < limit && isDigit(bytes.get(p)); p++) {
+                if(mantissa == 0 && bytes.get(p) == '0') continue;
+
+                if(digits < 18) {
+                    mantissa = mantissa * 10 + (bytes.get(p) - '0');
+                    digits++;
+                } else {
+                    exponent++;
+                    exact = false;
+                }
+            }
+
+            boolean anyDigits = p > integerStart;
+
+            if(p < limit && bytes.get(p) == '.') {
+                final int fractionStart = ++p;
+
+                for(; p < limit && isDigit(bytes.get(p)); p++) {
+                    if(mantissa == 0 && bytes.get(p) == '0') {
+                        exponent--;
+                    } else if(digits < 18) {
+                        mantissa = mantissa * 10 + (bytes.get(p) - '0');
+                        digits++;
+                        exponent--;
+                    } else {
+                        exact = false;
+                    }
+                }
+
+                anyDigits |= p > fractionStart;
+            }
+
+            if(!anyDigits) return false;
+
+            if(p < limit && (bytes.get(p) == 'e' || bytes.get(p) == 'E')) {
+                int q = p + 1;
+                boolean negativeExponent = false;
+
+                if(q < limit && (bytes.get(q) == '-' || bytes.get(q) == '+')) negativeExponent = bytes.get(q++) == '-';
+                if(q == limit || !isDigit(bytes.get(q))) return false;
+
+                int e = 0;
+
+                for(; q < limit && isDigit(bytes.get(q)); q++) {
+                    if(e < 100_000) e = e * 10 + (bytes.get(q) - '0');
+                }
+
+                exponent += negativeExponent ? -e : e;
+                p = q;
+            }
+
+            end = p;
+
+            if(exact) {
+                value = DecimalConversion.toDouble(mantissa, exponent, negative);
+                if(!Double.isNaN(value)) return true;
+            }
+
+            final byte[] text = new byte[p - start];
+            bytes.get(start, text);
+            value = Double.parseDouble(new String(text, StandardCharsets.US_ASCII));
+
+            return true;
+        }
+
+        private static boolean isDigit(final byte b) {
+            return b >= '0' && b <= '9';
+        }
+    }
+
+    /**
+     * A line which couldn't be loaded
+     */
+    public static final class RowError {
+        private final long lineNumber;
+        private final String message;
+
+        RowError(final long lineNumber, final String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        /** @return The line's number in the file, counting from 1 */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * @return Why the line couldn't be loaded:  a field which isn't a number, the wrong number of fields, or the
+         *         message {@link Point} or {@link Rectangle} would have thrown
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ":  " + message;
+        }
+    }
+
+    /**
+     * The rectangles loaded from a file, and the lines which couldn't be
+     */
+    public static final class Result {
+        private final RectangleBatch rectangles;
+        private final long[] lineNumbers;
+        private final List<RowError> errors;
+
+        private Result(final RectangleBatch rectangles, final long[] lineNumbers, final List<RowError> errors) {
+            this.rectangles = rectangles;
+            this.lineNumbers = lineNumbers;
+            this.errors = errors;
+        }
+
+        static Result combine(final List<Chunk> chunks) {
+            int size = 0, errorCount = 0;
+
+            for(final Chunk chunk : chunks) {
+                size = Math.addExact(size, chunk.rectangles.size());
+                errorCount += chunk.errors.size();
+            }
+
+            final RectangleBatch rectangles = new RectangleBatch(size);
+            final long[] lineNumbers = new long[size];
+            final List<RowError> errors = new ArrayList<>(errorCount);
+            long firstLine = 0;  // The number of lines before the chunk
+
+            for(final Chunk chunk : chunks) {
+                final int offset = rectangles.size();
+                rectangles.addAll(chunk.rectangles);
+
+                for(int i = 0; i < chunk.rectangles.size(); i++) {
+                    lineNumbers[offset + i] = firstLine + chunk.lines[i];
+                }
+
+                for(final RowError error : chunk.errors) {
+                    errors.add(new RowError(firstLine + error.lineNumber, error.message));
+                }
+
+                firstLine += chunk.lineCount;
+            }
+
+            return new Result(rectangles, lineNumbers, Collections.unmodifiableList(errors));
+        }
+
+        /** @return The rectangles, in the order of their lines */
+        public RectangleBatch getRectangles() {
+            return rectangles;
+        }
+
+        /**
+         * @return The number of the line rectangle <em>index</em> was loaded from, counting from 1
+         *
+         * @throws IndexOutOfBoundsException If <em>index</em> is out of range
+         */
+        public long getLineNumber(final int index) {
+            if(index < 0 || index >= lineNumbers.length) throw new IndexOutOfBoundsException("index " + index + " is out of range for size " + lineNumbers.length);
+
+            return lineNumbers[index];
+        }
+
+        /** @return The lines which couldn't be loaded, in file order */
+        public List<RowError> getErrors() {
+            return errors;
+        }
+
+        public boolean hasErrors() {
+            return !errors.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.loverde.rectangles.io;
+
+import java.math.BigInteger;
+
+/**
+ * Converts a decimal number, already split into an integer mantissa and a power of ten, to the nearest double without
+ * going through a <code>String</code>.  Parsers try this first and fall back to {@link Double#parseDouble} in the rare
+ * cases it can't decide.
+ */
+final class DecimalConversion {
+
+    private static final int MIN_EXPONENT = -348;
+    private static final int MAX_EXPONENT = 347;
+
+    private static final double[] SMALL_POWERS = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * The high and low 64 bits of each power of ten from {@link #MIN_EXPONENT} to {@link #MAX_EXPONENT}, scaled by a
+     * power of two so that the top bit is set, and rounded down to 128 bits
+     */
+    private static final long[] POWERS_HIGH = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+    private static final long[] POWERS_LOW = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+
+    static {
+        final BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+        for(int q = MIN_EXPONENT; q <= MAX_EXPONENT; q++) {
+            final BigInteger power = BigInteger.TEN.pow(Math.abs(q));
+            final BigInteger scaled;
+
+            if(q >= 0) {
+                final int bits = power.bitLength();
+                scaled = bits >= 128 ? power.shiftRight(bits - 128) : power.shiftLeft(128 - bits);
+            } else {
+                // 2^k / 10^-q, with k chosen so that the quotient has exactly 128 bits
+                scaled = BigInteger.ONE.shiftLeft(127 + power.bitLength()).divide(power);
+            }
+
+            POWERS_HIGH[q - MIN_EXPONENT] = scaled.shiftRight(64).longValue();
+            POWERS_LOW[q - MIN_EXPONENT] = scaled.and(mask).longValue();
+        }
+    }
+
+    private DecimalConversion() {
+    }
+
+    /**
+     * @param mantissa The digits of the number as an integer, less than 2<sup>63</sup>
+     * @param exponent The power of ten to multiply the mantissa by
+     *
+     * @return The double nearest <code>mantissa * 10^exponent</code>, rounded as {@link Double#parseDouble} rounds, or
+     *         NaN if it can't be determined this way
+     */
+    static double toDouble(final long mantissa, final int exponent, final boolean negative) {
+        if(mantissa == 0) return negative ? -0.0 : 0.0;
+
+        // Clinger's fast path:  when the mantissa and the power of ten are both exact doubles, one multiplication or
+        // division gives the correctly rounded result
+        if(mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+            final double magnitude = exponent >= 0 ? mantissa * SMALL_POWERS[exponent] : mantissa / SMALL_POWERS[-exponent];
+            return negative ? -magnitude : magnitude;
+        }
+
+        return eiselLemire(mantissa, exponent, negative);
+    }
+
+    /**
+     * The Eisel-Lemire algorithm:  multiplies the normalized mantissa by a 128-bit approximation of the power of ten and
+     * takes the top 54 bits, giving up when the bits it can't see might change the rounding.  See Daniel Lemire,
+     * "Number Parsing at a Gigabyte per Second", Software: Practice and Experience 51(8), 2021.
+     */
+    private static double eiselLemire(long mantissa, final int exponent, final boolean negative) {
+        if(exponent < MIN_EXPONENT || exponent > MAX_EXPONENT) return Double.NaN;
+
+        final int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+        mantissa <<= leadingZeros;
+
+        long biasedExponent = (((217706L * exponent) >> 16) + 64 + 1023) - leadingZeros;
+
+        final int index = exponent - MIN_EXPONENT;
+        long high = unsignedMultiplyHigh(mantissa, POWERS_HIGH[index]);
+        long low = mantissa * POWERS_HIGH[index];
+
+        // The product's low bits are all ones, so the truncated part of the power could carry into them:  include it
+        if((high & 0x1FF) == 0x1FF && Long.compareUnsigned(low + mantissa, mantissa) < 0) {
+            final long high2 = unsignedMultiplyHigh(mantissa, POWERS_LOW[index]);
+            final long low2 = mantissa * POWERS_LOW[index];
+            long mergedHigh = high;
+            final long mergedLow = low + high2;
+
+            if(Long.compareUnsigned(mergedLow, low) < 0) mergedHigh++;
+
+            if((mergedHigh & 0x1FF) == 0x1FF && mergedLow + 1 == 0 && Long.compareUnsigned(low2 + mantissa, mantissa) < 0) return Double.NaN;
+
+            high = mergedHigh;
+            low = mergedLow;
+        }
+
+        final long topBit = high >>> 63;
+        long result = high >>> (topBit + 9);
+        biasedExponent -= 1 ^ topBit;
+
+        // Exactly half way between two doubles, as far as can be seen
+        if(low == 0 && (high & 0x1FF) == 0 && (result & 3) == 1) return Double.NaN;
+
+        result += result & 1;
+        result >>>= 1;
+
+        if(result >>> 53 > 0) {
+            result >>>= 1;
+            biasedExponent++;
+        }
+
+        // Subnormal, infinite or NaN
+        if(biasedExponent <= 0 || biasedExponent >= 0x7FF) return Double.NaN;
+
+        final long bits = biasedExponent << 52 | result & 0x000FFFFFFFFFFFFFL;
+
+        return Double.longBitsToDouble(negative ? bits | 0x8000000000000000L : bits);
+    }
+
+    private static long unsignedMultiplyHigh(final long x, final long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+}
@@ -0,0 +1,50 @@
+package org.loverde.rectangles.io;
+
+import java.nio.ByteOrder;
+
+/**
+ * <p>The layout of a rectangle file, as written by {@link RectangleFileWriter} and read by {@link RectangleFileReader}.
+ * All values are little-endian.</p>
+ *
+ * <pre>
+ * offset  size  field
+ *      0     4  magic, the bytes "RECT"
+ *      4     4  version, currently 1
+ *      8     4  block size:  the number of rectangles in every block but the last
+ *     12     4  reserved, 0
+ *     16     8  number of rectangles, or -1 if the file was never finished
+ *     24     8  reserved, 0
+ *     32        blocks
+ * </pre>
+ *
+ * <p>The rectangles are stored in blocks.  A block of <em>n</em> rectangles holds four packed columns of <em>n</em>
+ * doubles each, in the order left, bottom, right, top.  Every block holds the block size number of rectangles, except
+ * the last, which holds the rest.</p>
+ */
+final class RectangleFileFormat {
+
+    static final int MAGIC = 0x54434552;
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTES = 32;
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int BLOCK_SIZE_OFFSET = 8;
+    static final int COUNT_OFFSET = 16;
+
+    static final int COLUMNS = 4;
+    static final int RECTANGLE_BYTES = COLUMNS * Double.BYTES;
+
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private RectangleFileFormat() {
+    }
+
+    /**
+     * @return The length, in bytes, of a file of <em>count</em> rectangles.  Blocks aren't padded, so this doesn't
+     *         depend on the block size.
+     */
+    static long fileLength(final long count) {
+        return HEADER_BYTES + count * RECTANGLE_BYTES;
+    }
+}
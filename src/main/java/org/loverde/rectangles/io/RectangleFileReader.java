@@ -0,0 +1,378 @@
+package org.loverde.rectangles.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.loverde.rectangles.Boundaries;
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+import org.loverde.rectangles.join.RectangleSource;
+
+/**
+ * <p>Reads a file written by {@link RectangleFileWriter} by mapping it into memory, so that opening a file costs the
+ * same no matter how many rectangles it holds and the rectangles are read straight from the page cache.  Nothing is
+ * copied or parsed until it's asked for.</p>
+ *
+ * <p>The rectangles can be read by index, scanned with a {@link Cursor}, read a block at a time as columns, or copied
+ * into a {@link RectangleBatch}.  None of these create {@link Rectangle} objects, except {@link #get}.  The reader is
+ * also a {@link RectangleSource}, with the rectangles' indices as their ids, so a file can be given to the joins
+ * directly.</p>
+ *
+ * <p>The header is checked when the file is opened.  Rectangles copied into a batch or read with {@link #get} are
+ * checked as they're read, so a damaged file can't put an invalid rectangle in a batch; the other reads return the
+ * boundaries as they are in the file.  A reader is safe to use from several threads; a cursor isn't.</p>
+ */
+public final class RectangleFileReader implements RectangleSource, AutoCloseable {
+
+    /** The most bytes in one mapping; a larger file is mapped in several pieces, each holding whole blocks */
+    private static final long MAX_MAPPING_BYTES = 1L << 30;
+
+    private final long size;
+    private final int blockSize;
+    private final int blockCount;
+    private final int blocksPerMapping;
+    private final ByteBuffer[] mappings;
+
+    private RectangleFileReader(final long size, final int blockSize, final int blockCount, final int blocksPerMapping, final ByteBuffer[] mappings) {
+        this.size = size;
+        this.blockSize = blockSize;
+        this.blockCount = blockCount;
+        this.blocksPerMapping = blocksPerMapping;
+        this.mappings = mappings;
+    }
+
+    /**
+     * Opens and maps a rectangle file.  The file is closed once it's mapped; the mapping stays valid until the reader
+     * is no longer reachable.
+     *
+     * @throws IllegalArgumentException If <em>path</em> is null
+     * @throws IOException If the file can't be read, isn't a rectangle file, is of an unsupported version, or was
+     *                     never finished or has been truncated
+     */
+    public static RectangleFileReader open(final Path path) throws IOException {
+        if(path == null) throw new IllegalArgumentException("open:  path cannot be null");
+
+        try(final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long length = channel.size();
+
+            if(length < RectangleFileFormat.HEADER_BYTES) throw new IOException(path + " is not a rectangle file");
+
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, RectangleFileFormat.HEADER_BYTES)
+                                             .order(RectangleFileFormat.ORDER);
+
+            if(header.getInt(RectangleFileFormat.MAGIC_OFFSET) != RectangleFileFormat.MAGIC) {
+                throw new IOException(path + " is not a rectangle file");
+            }
+
+            final int version = header.getInt(RectangleFileFormat.VERSION_OFFSET);
+            if(version != RectangleFileFormat.VERSION) throw new IOException(path + " has unsupported version " + version);
+
+            final int blockSize = header.getInt(RectangleFileFormat.BLOCK_SIZE_OFFSET);
+            final long size = header.getLong(RectangleFileFormat.COUNT_OFFSET);
+
+            if(blockSize < 1 || blockSize > RectangleFileWriter.MAX_BLOCK_SIZE) throw new IOException(path + " has an invalid block size");
+            if(size < 0) throw new IOException(path + " was never finished");
+            if(size > (Long.MAX_VALUE - RectangleFileFormat.HEADER_BYTES) / RectangleFileFormat.RECTANGLE_BYTES) {
+                throw new IOException(path + " has an invalid rectangle count " + size);
+            }
+
+            final long blockCount = (size + blockSize - 1) / blockSize;
+
+            if(blockCount > Integer.MAX_VALUE) throw new IOException(path + " has too many blocks:  " + blockCount);
+            if(length != RectangleFileFormat.fileLength(size)) throw new IOException(path + " has the wrong length for " + size + " rectangles");
+
+            final long blockBytes = (long) blockSize * RectangleFileFormat.RECTANGLE_BYTES;
+            final int blocksPerMapping = (int) Math.max(1, MAX_MAPPING_BYTES / blockBytes);
+            final long bytesPerMapping = blocksPerMapping * blockBytes;
+            final long dataBytes = length - RectangleFileFormat.HEADER_BYTES;
+            final ByteBuffer[] mappings = new ByteBuffer[(int) ((dataBytes + bytesPerMapping - 1) / bytesPerMapping)];
+
+            for(int m = 0; m < mappings.length; m++) {
+                final long start = m * bytesPerMapping;
+                final MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, RectangleFileFormat.HEADER_BYTES + start,
+                                                             Math.min(bytesPerMapping, dataBytes - start));
+                mappings[m] = mapping.order(RectangleFileFormat.ORDER);
+            }
+
+            return new RectangleFileReader(size, blockSize, (int) blockCount, blocksPerMapping, mappings);
+        }
+    }
+
+    /**
+     * @return The number of rectangles in the file
+     */
+    public long size() {
+        return size;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @return The number of rectangles in <em>block</em>:  the block size, or fewer for the last block
+     *
+     * @throws IndexOutOfBoundsException If <em>block</em> is out of range
+     */
+    public int getBlockLength(final int block) {
+        if(block < 0 || block >= blockCount) throw new IndexOutOfBoundsException("block " + block + " out of bounds for block count " + blockCount);
+
+        return blockLength(block);
+    }
+
+    public double getLeftX(final long index) {
+        return read(index, 0);
+    }
+
+    public double getBottomY(final long index) {
+        return read(index, 1);
+    }
+
+    public double getRightX(final long index) {
+        return read(index, 2);
+    }
+
+    public double getTopY(final long index) {
+        return read(index, 3);
+    }
+
+    /**
+     * @return A new rectangle with the boundaries of rectangle <em>index</em>
+     *
+     * @throws IndexOutOfBoundsException If <em>index</em> is out of range
+     */
+    public Rectangle get(final long index) {
+        return new Rectangle(new Point(getLeftX(index), getBottomY(index)), new Point(getRightX(index), getTopY(index)));
+    }
+
+    /**
+     * The columns of a block are views of the mapped file; reading them reads the file.
+     *
+     * @throws IndexOutOfBoundsException If <em>block</em> is out of range
+     */
+    public DoubleBuffer getLeftColumn(final int block) {
+        return column(block, 0);
+    }
+
+    /** @see #getLeftColumn */
+    public DoubleBuffer getBottomColumn(final int block) {
+        return column(block, 1);
+    }
+
+    /** @see #getLeftColumn */
+    public DoubleBuffer getRightColumn(final int block) {
+        return column(block, 2);
+    }
+
+    /** @see #getLeftColumn */
+    public DoubleBuffer getTopColumn(final int block) {
+        return column(block, 3);
+    }
+
+    /**
+     * Copies rectangles <code>[from, from + length)</code> onto the end of <em>batch</em>
+     *
+     * @throws IllegalArgumentException If <em>batch</em> is null
+     * @throws IndexOutOfBoundsException If the range isn't within the file
+     * @throws IllegalStateException If a rectangle in the range isn't valid, which means the file has been damaged.  The
+     *                               rectangles of the range in the blocks before it are left in the batch.
+     */
+    public void copyTo(final long from, final int length, final RectangleBatch batch) {
+        if(batch == null) throw new IllegalArgumentException("copyTo:  batch cannot be null");
+        if(from < 0 || length < 0 || from + length > size) {
+            throw new IndexOutOfBoundsException("range [" + from + ", " + (from + length) + ") out of bounds for size " + size);
+        }
+
+        // Each block's part of the range is checked, so that a damaged file is reported by row, then copied in bulk
+        long index = from;
+        int remaining = length;
+
+        while(remaining > 0) {
+            final int block = (int) (index / blockSize), offset = (int) (index % blockSize);
+            final int n = Math.min(remaining, blockLength(block) - offset);
+            final DoubleBuffer left = column(block, 0), bottom = column(block, 1), right = column(block, 2), top = column(block, 3);
+
+            for(int i = offset; i < offset + n; i++) {
+                final String invalid = Boundaries.validationError(left.get(i), bottom.get(i), right.get(i), top.get(i));
+
+                if(invalid != null) throw new IllegalStateException("copyTo:  rectangle " + (index + i - offset) + " is invalid:  " + invalid);
+            }
+
+            batch.addColumns(left.position(offset).limit(offset + n), bottom.position(offset).limit(offset + n),
+                             right.position(offset).limit(offset + n), top.position(offset).limit(offset + n));
+
+            index += n;
+            remaining -= n;
+        }
+    }
+
+    /**
+     * @return A batch holding every rectangle in the file
+     *
+     * @throws IllegalStateException If the file holds more rectangles than a batch can
+     */
+    public RectangleBatch toBatch() {
+        if(size > Integer.MAX_VALUE - 8) throw new IllegalStateException("toBatch:  file is too large for a batch");
+
+        final RectangleBatch batch = new RectangleBatch((int) size);
+        copyTo(0, (int) size, batch);
+
+        return batch;
+    }
+
+    /**
+     * @return A cursor positioned at the first rectangle
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public void forEach(final Sink sink) throws IOException {
+        if(sink == null) throw new IllegalArgumentException("forEach:  sink cannot be null");
+
+        long index = 0;
+
+        for(int block = 0; block < blockCount; block++) {
+            final DoubleBuffer left = column(block, 0), bottom = column(block, 1), right = column(block, 2), top = column(block, 3);
+
+            for(int i = 0; i < left.limit(); i++) {
+                sink.accept(index++, left.get(i), bottom.get(i), right.get(i), top.get(i));
+            }
+        }
+    }
+
+    /**
+     * Has no effect; the file was closed when it was mapped, and the mapping is released when the reader is collected
+     */
+    @Override
+    public void close() {
+    }
+
+    private int blockLength(final int block) {
+        return block == blockCount - 1 ? (int) (size - (long) block * blockSize) : blockSize;
+    }
+
+    /** @return The position of a column of a block within its mapping */
+    private int columnOffset(final int block, final int column) {
+        return (block % blocksPerMapping) * blockSize * RectangleFileFormat.RECTANGLE_BYTES + column * blockLength(block) * Double.BYTES;
+    }
+
+    private double read(final long index, final int column) {
+        if(index < 0 || index >= size) throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+
+        final int block = (int) (index / blockSize);
+
+        return mappings[block / blocksPerMapping].getDouble(columnOffset(block, column) + (int) (index % blockSize) * Double.BYTES);
+    }
+
+    private DoubleBuffer column(final int block, final int column) {
+        if(block < 0 || block >= blockCount) throw new IndexOutOfBoundsException("block " + block + " out of bounds for block count " + blockCount);
+
+        final int offset = columnOffset(block, column);
+
+        return mappings[block / blocksPerMapping].duplicate()
+                                                 .position(offset)
+                                                 .limit(offset + blockLength(block) * Double.BYTES)
+                                                 .slice()
+                                                 .order(RectangleFileFormat.ORDER)
+                                                 .asDoubleBuffer()
+                                                 .asReadOnlyBuffer();
+    }
+
+    /**
+     * A movable view of one rectangle in the file.  Moving the cursor reads nothing; the getters read the file.
+     */
+    public final class Cursor {
+        private long index;
+        private ByteBuffer mapping;
+        private int offset, stride;
+
+        private Cursor() {
+            moveTo(0);
+        }
+
+        /**
+         * @return The index of the rectangle the cursor is on; equal to the file's size once the cursor has moved past
+         *         the last rectangle
+         */
+        public long getIndex() {
+            return index;
+        }
+
+        /**
+         * @return <em>true</em> if the cursor is on a rectangle
+         */
+        public boolean isValid() {
+            return index < size;
+        }
+
+        /**
+         * @throws IndexOutOfBoundsException If <em>index</em> is negative or greater than the file's size
+         */
+        public void moveTo(final long index) {
+            if(index < 0 || index > size) throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+
+            this.index = index;
+
+            if(index == size) return;
+
+            final int block = (int) (index / blockSize);
+            mapping = mappings[block / blocksPerMapping];
+            stride = blockLength(block) * Double.BYTES;
+            offset = columnOffset(block, 0) + (int) (index % blockSize) * Double.BYTES;
+        }
+
+        /**
+         * Moves to the next rectangle
+         *
+         * @return <em>true</em> if the cursor is on a rectangle afterward
+         */
+        public boolean next() {
+            if(index == size) return false;
+
+            if((index + 1) % blockSize == 0 || index + 1 == size) {
+                moveTo(index + 1);
+            } else {
+                index++;
+                offset += Double.BYTES;
+            }
+
+            return index < size;
+        }
+
+        public double getLeftX() {
+            checkValid();
+            return mapping.getDouble(offset);
+        }
+
+        public double getBottomY() {
+            checkValid();
+            return mapping.getDouble(offset + stride);
+        }
+
+        public double getRightX() {
+            checkValid();
+            return mapping.getDouble(offset + 2 * stride);
+        }
+
+        public double getTopY() {
+            checkValid();
+            return mapping.getDouble(offset + 3 * stride);
+        }
+
+        private void checkValid() {
+            if(index == size) throw new IllegalStateException("cursor is past the last rectangle");
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.loverde.rectangles.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.loverde.rectangles.Boundaries;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+/**
+ * <p>Writes rectangles to a file in the format described by {@link RectangleFileFormat}, one block at a time, so files
+ * of any size can be written with a fixed amount of memory.</p>
+ *
+ * <p>Rectangles are validated as they're written, with the same rules and messages as {@link Rectangle}, so that
+ * readers can trust the file's contents without checking them again.  The number of rectangles is written to the
+ * header by {@link #close}; a file which was never closed is rejected by {@link RectangleFileReader}.</p>
+ */
+public final class RectangleFileWriter implements AutoCloseable {
+
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    public static final int MAX_BLOCK_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final double[] left, bottom, right, top;
+    private final ByteBuffer buffer;
+    private int pending;
+    private long count;
+    private boolean closed;
+
+    /**
+     * Creates or truncates <em>path</em> and writes rectangles to it in blocks of {@link #DEFAULT_BLOCK_SIZE}
+     *
+     * @throws IllegalArgumentException If <em>path</em> is null
+     */
+    public RectangleFileWriter(final Path path) throws IOException {
+        this(path, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates or truncates <em>path</em> and writes rectangles to it in blocks of <em>blockSize</em>
+     *
+     * @throws IllegalArgumentException If <em>path</em> is null, or <em>blockSize</em> is less than 1 or greater than
+     *                                  {@link #MAX_BLOCK_SIZE}
+     */
+    public RectangleFileWriter(final Path path, final int blockSize) throws IOException {
+        if(path == null) throw new IllegalArgumentException("path cannot be null");
+        if(blockSize < 1) throw new IllegalArgumentException("blockSize must be at least 1");
+        if(blockSize > MAX_BLOCK_SIZE) throw new IllegalArgumentException("blockSize cannot be greater than " + MAX_BLOCK_SIZE);
+
+        this.blockSize = blockSize;
+        this.left = new double[blockSize];
+        this.bottom = new double[blockSize];
+        this.right = new double[blockSize];
+        this.top = new double[blockSize];
+        this.buffer = ByteBuffer.allocate(blockSize * RectangleFileFormat.RECTANGLE_BYTES).order(RectangleFileFormat.ORDER);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        try {
+            writeHeader(-1);
+            channel.position(RectangleFileFormat.HEADER_BYTES);
+        } catch(final IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return The number of rectangles written so far
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * @throws IllegalArgumentException If the boundaries don't describe a valid rectangle
+     * @throws IllegalStateException If the writer has been closed
+     */
+    public void write(final double left, final double bottom, final double right, final double top) throws IOException {
+        if(closed) throw new IllegalStateException("write:  writer is closed");
+
+        Boundaries.validate(left, bottom, right, top);
+
+        this.left[pending] = left;
+        this.bottom[pending] = bottom;
+        this.right[pending] = right;
+        this.top[pending] = top;
+        pending++;
+        count++;
+
+        if(pending == blockSize) writeBlock();
+    }
+
+    /**
+     * @throws IllegalArgumentException If <em>rectangle</em> is null
+     * @throws IllegalStateException If the writer has been closed
+     */
+    public void write(final Rectangle rectangle) throws IOException {
+        if(rectangle == null) throw new IllegalArgumentException("write:  rectangle cannot be null");
+
+        write(rectangle.getLeftX(), rectangle.getBottomY(), rectangle.getRightX(), rectangle.getTopY());
+    }
+
+    /**
+     * Writes every rectangle of <em>batch</em>, in order
+     *
+     * @throws IllegalArgumentException If <em>batch</em> is null
+     * @throws IllegalStateException If the writer has been closed
+     */
+    public void write(final RectangleBatch batch) throws IOException {
+        if(batch == null) throw new IllegalArgumentException("write:  batch cannot be null");
+
+        final double[] l = batch.getLeftColumn(), b = batch.getBottomColumn(), r = batch.getRightColumn(), t = batch.getTopColumn();
+
+        for(int i = 0; i < batch.size(); i++) {
+            write(l[i], b[i], r[i], t[i]);
+        }
+    }
+
+    /**
+     * Writes the last block and the header, and closes the file.  Closing a closed writer has no effect.
+     */
+    @Override
+    public void close() throws IOException {
+        if(closed) return;
+
+        closed = true;
+
+        try {
+            if(pending > 0) writeBlock();
+
+            channel.force(false);
+            writeHeader(count);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        buffer.clear();
+
+        for(final double[] column : new double[][] {left, bottom, right, top}) {
+            for(int i = 0; i < pending; i++) {
+                buffer.putDouble(column[i]);
+            }
+        }
+
+        buffer.flip();
+
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        pending = 0;
+    }
+
+    private void writeHeader(final long count) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(RectangleFileFormat.HEADER_BYTES).order(RectangleFileFormat.ORDER);
+
+        header.putInt(RectangleFileFormat.MAGIC_OFFSET, RectangleFileFormat.MAGIC);
+        header.putInt(RectangleFileFormat.VERSION_OFFSET, RectangleFileFormat.VERSION);
+        header.putInt(RectangleFileFormat.BLOCK_SIZE_OFFSET, blockSize);
+        header.putLong(RectangleFileFormat.COUNT_OFFSET, count);
+
+        long position = 0;
+
+        while(header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+    }
+}
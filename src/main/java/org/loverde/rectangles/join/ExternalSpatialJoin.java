@@ -0,0 +1,468 @@
+package org.loverde.rectangles.join;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import org.loverde.rectangles.Boundaries;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+/**
+ * <p>Finds every intersecting pair between two sets of rectangles which may be too large to hold in memory.</p>
+ *
+ * <p>This is a partition-based spatial merge join.  When the two inputs don't fit in the memory limit together, the
+ * plane is cut into a grid of tiles and the tiles are dealt round-robin to a number of partitions.  Each rectangle is
+ * written to a temporary file for every partition owning a tile it covers.  The partitions are then joined one at a
+ * time; a partition which still doesn't fit is partitioned again, from its files.  Partitions which fit are loaded,
+ * tiled and swept the way {@link SpatialJoin} does it.  As there, a pair found in several partitions is reported only
+ * by the partition owning the lower left corner of its overlap.</p>
+ *
+ * <p>Intersection has the same meaning as in {@link Rectangle#intersects}:  rectangles which only share an edge or a
+ * corner don't intersect.</p>
+ *
+ * <p>Partitioning only helps while it shrinks the input.  A rectangle covering tiles of several partitions is written
+ * to each of them, so when most rectangles are large or overlap heavily, partitioning makes copies without separating
+ * anything.  Each round of partitioning is therefore checked:  if its largest partition isn't much smaller than what
+ * was partitioned, or it made more copies than there were rectangles, its partitions are dropped, and what was
+ * partitioned is joined with a block nested loop instead.  That loads one input a block at a time and streams the other
+ * past each block, in blocks as well.  The same happens to a partition still too large after {@link #MAX_DEPTH} rounds.
+ * </p>
+ *
+ * <p>The memory limit covers the rectangles held while joining a partition or a pair of blocks, and the write buffers
+ * used while partitioning.</p>
+ */
+public final class ExternalSpatialJoin {
+
+    public static final long DEFAULT_MEMORY_LIMIT = 64L << 20;
+
+    public static final long MIN_MEMORY_LIMIT = 1L << 20;
+
+    /** The size of a rectangle in a partition file:  a long id and four doubles, little-endian */
+    static final int RECORD_BYTES = 40;
+
+    /** The memory used by a rectangle loaded for joining:  its boundaries, id and places in the tile lists, with slack */
+    static final int BYTES_PER_RECTANGLE = 56;
+
+    static final int MAX_PARTITIONS = 256;
+
+    /** How many times a partition may be partitioned again before it's joined with a block nested loop */
+    static final int MAX_DEPTH = 4;
+
+    /**
+     * A round of partitioning has made progress if its largest partition holds no more than this fraction of the
+     * rectangles partitioned
+     */
+    static final double MAX_PARTITION_FRACTION = 0.75;
+
+    private final Path spillDirectory;
+    private final long memoryLimit;
+
+    /**
+     * Creates a join which spills to the system's temporary directory with the default memory limit
+     */
+    public ExternalSpatialJoin() {
+        this(Paths.get(System.getProperty("java.io.tmpdir")), DEFAULT_MEMORY_LIMIT);
+    }
+
+    /**
+     * @param spillDirectory The directory to write temporary files to.  Each join makes, and removes, its own
+     *                       subdirectory.
+     * @param memoryLimit The number of bytes the join aims to stay within
+     *
+     * @throws IllegalArgumentException If <em>spillDirectory</em> is null, or <em>memoryLimit</em> is less than
+     *                                  {@link #MIN_MEMORY_LIMIT}
+     */
+    public ExternalSpatialJoin(final Path spillDirectory, final long memoryLimit) {
+        if(spillDirectory == null) throw new IllegalArgumentException("spillDirectory cannot be null");
+        if(memoryLimit < MIN_MEMORY_LIMIT) throw new IllegalArgumentException("memoryLimit must be at least " + MIN_MEMORY_LIMIT);
+
+        this.spillDirectory = spillDirectory;
+        this.memoryLimit = memoryLimit;
+    }
+
+    public Path getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    /**
+     * Reports every pair <code>(i, j)</code> where rectangle <em>i</em> of <em>first</em> intersects rectangle
+     * <em>j</em> of <em>second</em>, identified by the ids their sources gave them.  Each pair is reported exactly
+     * once, in no particular order, on the calling thread.  Each source is read at least twice.
+     *
+     * @return The number of pairs reported
+     *
+     * @throws IllegalArgumentException If any argument is null, or a source gives boundaries which don't describe a
+     *                                  valid rectangle
+     * @throws IOException If a source fails, or the temporary files can't be written or read
+     */
+    public long join(final RectangleSource first, final RectangleSource second, final LongPairConsumer consumer) throws IOException {
+        if(first == null) throw new IllegalArgumentException("join:  first cannot be null");
+        if(second == null) throw new IllegalArgumentException("join:  second cannot be null");
+        if(consumer == null) throw new IllegalArgumentException("join:  consumer cannot be null");
+
+        final Extent a = Extent.scan(first), b = Extent.scan(second);
+
+        if(a.count == 0 || b.count == 0) return 0;
+
+        final Path directory = Files.createTempDirectory(spillDirectory, "rectangles-join");
+
+        try {
+            return join(directory, first, a, second, b, SweepJoin.ReferenceFilter.ALL, 0, consumer);
+        } finally {
+            try(final Stream<Path> files = Files.list(directory)) {
+                for(final Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private long join(final Path directory, final RectangleSource first, final Extent a, final RectangleSource second,
+                      final Extent b, final SweepJoin.ReferenceFilter filter, final int depth, final LongPairConsumer consumer) throws IOException {
+        if(a.count == 0 || b.count == 0) return 0;
+
+        final long bytes = (a.count + b.count) * BYTES_PER_RECTANGLE;
+
+        if(bytes <= memoryLimit) return joinInMemory(first, a, second, b, filter, consumer);
+        if(depth == MAX_DEPTH) return joinNestedLoop(first, a, second, b, filter, consumer);
+
+        // Twice as many partitions as the size alone calls for, to leave room for rectangles written to several
+        // partitions and for uneven partitions
+        final int partitions = (int) Math.min(MAX_PARTITIONS, 2 * ((bytes + memoryLimit - 1) / memoryLimit));
+        final Layout layout = new Layout(a, b, partitions);
+        final int bufferSize = (int) Math.max(16, Math.min(1 << 11, memoryLimit / 4 / partitions / RECORD_BYTES)) * RECORD_BYTES;
+
+        try(final Partitioner pa = new Partitioner(directory, layout, bufferSize);
+            final Partitioner pb = new Partitioner(directory, layout, bufferSize)) {
+            first.forEach(pa::write);
+            second.forEach(pb::write);
+            pa.flush();
+            pb.flush();
+
+            // Partitioning makes no progress if a partition is about as large as the input, or rectangles were copied
+            // to so many partitions that the copies outnumber the input.  Partitioning again would only repeat that.
+            final long count = a.count + b.count;
+            long copies = 0, largest = 0;
+
+            for(int p = 0; p < partitions; p++) {
+                final long partitionCount = pa.extents[p].count + pb.extents[p].count;
+
+                copies += partitionCount;
+                largest = Math.max(largest, partitionCount);
+            }
+
+            if(largest > MAX_PARTITION_FRACTION * count || copies > 2 * count) {
+                return joinNestedLoop(first, a, second, b, filter, consumer);
+            }
+
+            long pairs = 0;
+
+            for(int p = 0; p < partitions; p++) {
+                final int partition = p;
+
+                pairs += join(directory, pa.source(p), pa.extents[p], pb.source(p), pb.extents[p],
+                              (x, y) -> layout.partition(x, y) == partition && filter.accept(x, y), depth + 1, consumer);
+
+                pa.delete(p);
+                pb.delete(p);
+            }
+
+            return pairs;
+        }
+    }
+
+    private static long joinInMemory(final RectangleSource first, final Extent a, final RectangleSource second,
+                                     final Extent b, final SweepJoin.ReferenceFilter filter, final LongPairConsumer consumer) throws IOException {
+        if(a.count > Integer.MAX_VALUE - 8 || b.count > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("a partition is too large to join in memory");
+        }
+
+        final RectangleBatch aBatch = new RectangleBatch((int) a.count), bBatch = new RectangleBatch((int) b.count);
+        final long[] aIds = load(first, aBatch, (int) a.count), bIds = load(second, bBatch, (int) b.count);
+
+        return joinBatches(aBatch, aIds, bBatch, bIds, filter, consumer);
+    }
+
+    /**
+     * Joins two inputs which don't fit in memory together by loading the smaller one a block at a time, and streaming
+     * the other past each block, also in blocks.  Each block is half the memory limit, so the larger input is read
+     * once for every block of the smaller one.
+     */
+    private long joinNestedLoop(final RectangleSource first, final Extent a, final RectangleSource second,
+                                final Extent b, final SweepJoin.ReferenceFilter filter, final LongPairConsumer consumer) throws IOException {
+        // Whether a pair counts depends only on its region of overlap, which is the same either way round
+        if(b.count < a.count) return joinNestedLoop(second, b, first, a, filter, (i, j) -> consumer.accept(j, i));
+
+        final int blockSize = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, memoryLimit / 2 / BYTES_PER_RECTANGLE));
+        final RectangleBatch outer = new RectangleBatch((int) Math.min(blockSize, a.count));
+        final long[] outerIds = new long[(int) Math.min(blockSize, a.count)];
+        final RectangleBatch inner = new RectangleBatch((int) Math.min(blockSize, b.count));
+        final long[] innerIds = new long[(int) Math.min(blockSize, b.count)];
+        final long[] pairs = new long[1];
+
+        final RectangleSource.Sink streamInner = (id, left, bottom, right, top) -> {
+            innerIds[inner.add(left, bottom, right, top)] = id;
+
+            if(inner.size() == innerIds.length) {
+                pairs[0] += joinBatches(outer, outerIds, inner, innerIds, filter, consumer);
+                inner.clear();
+            }
+        };
+
+        final RectangleSource.Sink loadOuter = (id, left, bottom, right, top) -> {
+            outerIds[outer.add(left, bottom, right, top)] = id;
+
+            if(outer.size() == outerIds.length) {
+                second.forEach(streamInner);
+                if(inner.size() > 0) pairs[0] += joinBatches(outer, outerIds, inner, innerIds, filter, consumer);
+
+                outer.clear();
+                inner.clear();
+            }
+        };
+
+        first.forEach(loadOuter);
+
+        if(outer.size() > 0) {
+            second.forEach(streamInner);
+            if(inner.size() > 0) pairs[0] += joinBatches(outer, outerIds, inner, innerIds, filter, consumer);
+        }
+
+        return pairs[0];
+    }
+
+    private static long joinBatches(final RectangleBatch aBatch, final long[] aIds, final RectangleBatch bBatch, final long[] bIds,
+                                    final SweepJoin.ReferenceFilter filter, final LongPairConsumer consumer) {
+        final long[] pairs = new long[1];
+
+        // A single sweep over a large partition would scan long runs of rectangles that overlap in x but not in y, so
+        // the partition is tiled the same way SpatialJoin tiles its input, and the tiles are joined one at a time
+        final SpatialJoin.Grid grid = new SpatialJoin.Grid(aBatch, bBatch, 0);
+        final SpatialJoin.Tiles aTiles = grid.assign(aBatch), bTiles = grid.assign(bBatch);
+        final int[] aRows = new int[aBatch.size()], bRows = new int[bBatch.size()];
+
+        for(int tile = 0; tile < grid.tileCount(); tile++) {
+            final int aCount = aTiles.count(tile), bCount = bTiles.count(tile);
+
+            if(aCount == 0 || bCount == 0) continue;
+
+            System.arraycopy(aTiles.rows, aTiles.offsets[tile], aRows, 0, aCount);
+            System.arraycopy(bTiles.rows, bTiles.offsets[tile], bRows, 0, bCount);
+
+            final int column = tile % grid.n, row = tile / grid.n;
+
+            SweepJoin.join(aBatch, aRows, aCount, bBatch, bRows, bCount,
+                           (x, y) -> grid.column(x) == column && grid.row(y) == row && filter.accept(x, y), (i, j) -> {
+                               consumer.accept(aIds[i], bIds[j]);
+                               pairs[0]++;
+                           });
+        }
+
+        return pairs[0];
+    }
+
+    private static long[] load(final RectangleSource source, final RectangleBatch batch, final int count) throws IOException {
+        final long[] ids = new long[count];
+
+        source.forEach((id, left, bottom, right, top) -> ids[batch.add(left, bottom, right, top)] = id);
+
+        return ids;
+    }
+
+    /** The number of rectangles in a source and their bounding box */
+    static final class Extent {
+        long count;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+        static Extent scan(final RectangleSource source) throws IOException {
+            final Extent extent = new Extent();
+
+            source.forEach((id, left, bottom, right, top) -> {
+                Boundaries.validate(left, bottom, right, top);
+                extent.add(left, bottom, right, top);
+            });
+
+            return extent;
+        }
+
+        void add(final double left, final double bottom, final double right, final double top) {
+            count++;
+            minX = Math.min(minX, left);
+            minY = Math.min(minY, bottom);
+            maxX = Math.max(maxX, right);
+            maxY = Math.max(maxY, top);
+        }
+    }
+
+    /**
+     * Cuts the bounding box of both inputs into <em>n</em> by <em>n</em> tiles and deals them round-robin to the
+     * partitions.  A coordinate belongs to the tile whose half-open range <code>[start, end)</code> holds it, except that
+     * the far edge belongs to the last tile.
+     */
+    static final class Layout {
+        final int n, partitions;
+        final double minX, minY, width, height;
+
+        Layout(final Extent a, final Extent b, final int partitions) {
+            // An odd number of tiles along each axis so that neighboring rows of tiles are dealt to different partitions
+            this.n = 2 * (int) Math.ceil(Math.sqrt(partitions)) + 1;
+            this.partitions = partitions;
+            this.minX = Math.min(a.minX, b.minX);
+            this.minY = Math.min(a.minY, b.minY);
+            this.width = (Math.max(a.maxX, b.maxX) - minX) / n;
+            this.height = (Math.max(a.maxY, b.maxY) - minY) / n;
+        }
+
+        int column(final double x) {
+            return Math.max(0, Math.min(n - 1, (int) ((x - minX) / width)));
+        }
+
+        int row(final double y) {
+            return Math.max(0, Math.min(n - 1, (int) ((y - minY) / height)));
+        }
+
+        int partition(final int column, final int row) {
+            return (row * n + column) % partitions;
+        }
+
+        int partition(final double x, final double y) {
+            return partition(column(x), row(y));
+        }
+    }
+
+    /** Writes the rectangles of one input to a file per partition, keeping each partition's extent */
+    private static final class Partitioner implements AutoCloseable {
+        private final Path directory;
+        private final Layout layout;
+        private final int bufferSize;
+        private final Path[] files;
+        private final FileChannel[] channels;
+        private final ByteBuffer[] buffers;
+        private final int[] written;
+        private int stamp;
+
+        final Extent[] extents;
+
+        Partitioner(final Path directory, final Layout layout, final int bufferSize) {
+            this.directory = directory;
+            this.layout = layout;
+            this.bufferSize = bufferSize;
+            this.files = new Path[layout.partitions];
+            this.channels = new FileChannel[layout.partitions];
+            this.buffers = new ByteBuffer[layout.partitions];
+            this.written = new int[layout.partitions];
+            this.extents = new Extent[layout.partitions];
+
+            for(int p = 0; p < layout.partitions; p++) {
+                extents[p] = new Extent();
+            }
+        }
+
+        /**
+         * Writes the rectangle to each partition owning one of the tiles it covers.  These include every tile which
+         * could hold the reference point of one of its pairs.
+         */
+        void write(final long id, final double left, final double bottom, final double right, final double top) throws IOException {
+            final int c0 = layout.column(left), c1 = layout.column(right);
+            final int r0 = layout.row(bottom), r1 = layout.row(top);
+
+            stamp++;
+
+            for(int r = r0; r <= r1; r++) {
+                for(int c = c0; c <= c1; c++) {
+                    final int p = layout.partition(c, r);
+
+                    if(written[p] == stamp) continue;
+
+                    written[p] = stamp;
+                    extents[p].add(left, bottom, right, top);
+
+                    final ByteBuffer buffer = buffer(p);
+                    if(buffer.remaining() < RECORD_BYTES) drain(p);
+
+                    buffer.putLong(id).putDouble(left).putDouble(bottom).putDouble(right).putDouble(top);
+                }
+            }
+        }
+
+        private ByteBuffer buffer(final int p) throws IOException {
+            if(buffers[p] == null) {
+                files[p] = Files.createTempFile(directory, "partition", ".bin");
+                channels[p] = FileChannel.open(files[p], StandardOpenOption.WRITE);
+                buffers[p] = ByteBuffer.allocate(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            return buffers[p];
+        }
+
+        private void drain(final int p) throws IOException {
+            final ByteBuffer buffer = buffers[p];
+            buffer.flip();
+
+            while(buffer.hasRemaining()) {
+                channels[p].write(buffer);
+            }
+
+            buffer.clear();
+        }
+
+        /** Writes out what's buffered and closes the files; the partitions can be read after this */
+        void flush() throws IOException {
+            for(int p = 0; p < layout.partitions; p++) {
+                if(channels[p] == null) continue;
+
+                drain(p);
+                channels[p].close();
+                buffers[p] = null;
+            }
+        }
+
+        RectangleSource source(final int p) {
+            final Path file = files[p];
+
+            return sink -> {
+                if(file == null) return;
+
+                try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    final ByteBuffer buffer = ByteBuffer.allocate(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+
+                    while(channel.read(buffer) >= 0) {
+                        buffer.flip();
+
+                        while(buffer.remaining() >= RECORD_BYTES) {
+                            sink.accept(buffer.getLong(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+                        }
+
+                        buffer.compact();
+                    }
+                }
+            };
+        }
+
+        void delete(final int p) throws IOException {
+            if(files[p] != null) Files.deleteIfExists(files[p]);
+        }
+
+        @Override
+        public void close() throws IOException {
+            for(int p = 0; p < layout.partitions; p++) {
+                if(channels[p] != null) channels[p].close();
+                delete(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.loverde.rectangles.join;
+
+/**
+ * Receives pairs of rectangles identified by <code>long</code> ids, for inputs too large to number with an
+ * <code>int</code>.
+ */
+@FunctionalInterface
+public interface LongPairConsumer {
+
+    void accept(long first, long second);
+}
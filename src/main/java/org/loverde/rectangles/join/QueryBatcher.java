@@ -0,0 +1,384 @@
+package org.loverde.rectangles.join;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.loverde.rectangles.IndexSort;
+import org.loverde.rectangles.PairConsumer;
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+import org.loverde.rectangles.index.SpatialIndex;
+
+/**
+ * <p>Answers single intersection queries asynchronously, by collecting the queries which arrive close together into
+ * a batch and answering the whole batch with one probe.  When the data has no index, a probe of many queries costs far
+ * less than the same queries made one at a time, since a single plane sweep over the data answers them all.  When it
+ * has one, each query is still a search of its own, and the cost of handing queries to the dispatcher and completing
+ * their futures may well outweigh what searching them in order of position saves.</p>
+ *
+ * <p>A dispatcher thread takes the first waiting query and then waits for more, until the batch holds
+ * <em>maxBatchSize</em> queries or <em>maxDelay</em> has passed since the first of them arrived, whichever comes first.
+ * It then probes, and completes each query's future with the ids the probe found for it.  A query which arrived while
+ * the dispatcher was busy may find its time already up, and is then batched with whatever else is waiting without
+ * further delay, so no query waits to be probed much longer than <em>maxDelay</em> or the time taken by the batches
+ * ahead of it, whichever is longer.  With a delay of 0 the dispatcher doesn't wait at all, and batches only the
+ * queries which arrived while it was busy with the last batch.</p>
+ *
+ * <p>Futures are completed on the dispatcher thread, so stages added with the non-async methods of
+ * {@link CompletableFuture} run there too, and hold up every batch behind them until they return.  Anything slow
+ * belongs in an async stage.  If the dispatcher is interrupted, or fails with an error outside the probe, the batcher
+ * closes itself and fails every query still waiting.</p>
+ *
+ * <p>Intersection has the same meaning as in {@link Rectangle#intersects}:  rectangles which only share an edge or a
+ * corner don't intersect.</p>
+ */
+public final class QueryBatcher implements AutoCloseable {
+
+    /** Answers a batch of intersection queries */
+    @FunctionalInterface
+    public interface BatchProbe {
+
+        /**
+         * Reports each rectangle which intersects a query as <code>(query, id)</code>, where <em>query</em> is the
+         * query's row in <em>queries</em>.  The batch is only valid during the call.
+         */
+        void probe(RectangleBatch queries, PairConsumer matches);
+    }
+
+    // Marks the end of the queue once the batcher is closed
+    private static final Request CLOSE = new Request(null);
+
+    private final BatchProbe probe;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    // Used by the dispatcher only
+    private final List<Request> pending = new ArrayList<>();
+    private final RectangleBatch queries = new RectangleBatch();
+    private int[] pairs = new int[64];
+    private int pairCount;
+
+    /**
+     * Starts a batcher and its dispatcher thread.
+     *
+     * @param probe Answers each batch
+     * @param maxBatchSize The largest number of queries in a batch
+     * @param maxDelay The longest time a batch is held open for more queries after its first query arrives
+     * @param unit The unit of <em>maxDelay</em>
+     *
+     * @throws IllegalArgumentException If <em>probe</em> or <em>unit</em> is null, <em>maxBatchSize</em> is less than 1
+     *                                  or <em>maxDelay</em> is negative
+     */
+    public QueryBatcher(final BatchProbe probe, final int maxBatchSize, final long maxDelay, final TimeUnit unit) {
+        if(probe == null) throw new IllegalArgumentException("probe cannot be null");
+        if(maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        if(maxDelay < 0) throw new IllegalArgumentException("maxDelay cannot be negative");
+        if(unit == null) throw new IllegalArgumentException("unit cannot be null");
+
+        this.probe = probe;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+
+        dispatcher = new Thread(this::dispatch, "QueryBatcher-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Makes a probe which searches <em>index</em> once per query, in order of the queries' left edges.  The index may
+     * change between batches if it's safe to query from the dispatcher thread while it does.
+     *
+     * @throws IllegalArgumentException If <em>index</em> is null
+     */
+    public static BatchProbe probeOf(final SpatialIndex index) {
+        if(index == null) throw new IllegalArgumentException("probeOf:  index cannot be null");
+
+        return (queries, matches) -> {
+            final int n = queries.size();
+            final int[] rows = IndexSort.identity(n);
+
+            IndexSort.sort(rows, 0, n, queries.getLeftColumn());
+
+            for(final int row : rows) {
+                final Rectangle query = new Rectangle(new Point(queries.getLeftX(row), queries.getBottomY(row)),
+                                                      new Point(queries.getRightX(row), queries.getTopY(row)));
+
+                index.searchIntersecting(query, id -> matches.accept(row, id));
+            }
+        };
+    }
+
+    /**
+     * Makes a probe which answers each batch with one plane sweep over <em>data</em>, reporting the rows of
+     * <em>data</em> as ids.  The rows are sorted by left edge once, here, so <em>data</em> must not change while the
+     * probe is in use.
+     *
+     * @throws IllegalArgumentException If <em>data</em> is null
+     */
+    public static BatchProbe probeOf(final RectangleBatch data) {
+        if(data == null) throw new IllegalArgumentException("probeOf:  data cannot be null");
+
+        final int n = data.size();
+        final int[] dataRows = IndexSort.identity(n);
+        final double[] left = data.getLeftColumn(), right = data.getRightColumn();
+        double widest = 0;
+
+        IndexSort.sort(dataRows, 0, n, left);
+
+        for(int i = 0; i < n; i++) widest = Math.max(widest, right[i] - left[i]);
+
+        final double maxWidth = widest;
+
+        return (queries, matches) -> {
+            final int q = queries.size();
+
+            if(q == 0) return;
+
+            final int[] queryRows = IndexSort.identity(q);
+            final double[] queryLeft = queries.getLeftColumn(), queryRight = queries.getRightColumn();
+
+            IndexSort.sort(queryRows, 0, q, queryLeft);
+
+            double maxRight = 0;
+            for(int i = 0; i < q; i++) maxRight = Math.max(maxRight, queryRight[i]);
+
+            // Only the data which starts after the leftmost query's left edge less the widest data rectangle, and
+            // before the rightmost right edge, can reach any of the queries
+            final int from = firstLeftAbove(left, dataRows, n, queryLeft[queryRows[0]] - maxWidth);
+            final int to = firstLeftAtOrAbove(left, dataRows, n, maxRight);
+
+            SweepJoin.joinSorted(data, dataRows, from, to, queries, queryRows, 0, q, SweepJoin.ReferenceFilter.ALL,
+                                 (dataRow, queryRow) -> matches.accept(queryRow, dataRow));
+        };
+    }
+
+    private static int firstLeftAbove(final double[] left, final int[] rows, final int n, final double x) {
+        int lo = 0, hi = n;
+
+        while(lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+
+            if(left[rows[mid]] <= x) lo = mid + 1;
+            else hi = mid;
+        }
+
+        return lo;
+    }
+
+    private static int firstLeftAtOrAbove(final double[] left, final int[] rows, final int n, final double x) {
+        int lo = 0, hi = n;
+
+        while(lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+
+            if(left[rows[mid]] < x) lo = mid + 1;
+            else hi = mid;
+        }
+
+        return lo;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /** @return The longest time a batch is held open, in nanoseconds */
+    public long getMaxDelayNanos() {
+        return maxDelayNanos;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Queues a query for the next batch.  The future is completed with the ids of the rectangles which intersect
+     * <em>query</em>, in no particular order, or exceptionally with whatever the probe threw if it failed, or with an
+     * {@link IllegalStateException} if the batcher stopped before answering it.
+     *
+     * @throws IllegalArgumentException If <em>query</em> is null
+     * @throws IllegalStateException If the batcher is closed
+     */
+    public CompletableFuture<int[]> searchIntersecting(final Rectangle query) {
+        if(query == null) throw new IllegalArgumentException("searchIntersecting:  rectangle cannot be null");
+        if(closed) throw new IllegalStateException("searchIntersecting:  the batcher is closed");
+
+        final Request request = new Request(query);
+
+        queue.add(request);
+
+        // The batcher may have closed since the check above.  If the dispatcher hasn't taken the query, it never will.
+        if(closed && queue.remove(request)) throw new IllegalStateException("searchIntersecting:  the batcher is closed");
+
+        return request.future;
+    }
+
+    /**
+     * Stops taking queries, and waits for the dispatcher to answer those already queued.  Closing a batcher more than
+     * once has no further effect.
+     */
+    @Override
+    public void close() {
+        if(!closed) {
+            closed = true;
+            queue.add(CLOSE);
+        }
+
+        // A stage run on the dispatcher may close the batcher, but can't wait for itself
+        if(Thread.currentThread() == dispatcher) return;
+
+        boolean interrupted = false;
+
+        while(dispatcher.isAlive()) {
+            try {
+                dispatcher.join();
+            } catch(final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if(interrupted) Thread.currentThread().interrupt();
+    }
+
+    private void dispatch() {
+        Throwable failure = null;
+
+        try {
+            boolean running = true;
+
+            while(running) {
+                try {
+                    running = collect();
+                } catch(final InterruptedException e) {
+                    // The batcher never interrupts its own dispatcher, so this came from elsewhere, such as a probe;
+                    // answer what's been taken, and stop
+                    running = false;
+                }
+
+                if(!pending.isEmpty()) answer();
+            }
+        } catch(final Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            stop(failure);
+        }
+    }
+
+    /**
+     * Closes the batcher once the dispatcher has stopped, for whatever reason, and fails every query it will now never
+     * answer, so that no future is left waiting forever
+     */
+    private void stop(final Throwable failure) {
+        closed = true;
+
+        // Queries taken for a batch are only left here if the dispatcher failed while answering them
+        for(final Request request : pending) request.future.completeExceptionally(failure);
+
+        pending.clear();
+
+        for(Request request = queue.poll(); request != null; request = queue.poll()) {
+            if(request != CLOSE) request.future.completeExceptionally(new IllegalStateException("searchIntersecting:  the batcher is closed", failure));
+        }
+    }
+
+    /**
+     * Takes the next batch into <em>pending</em>.
+     *
+     * @return <em>false</em> once the end of the queue has been reached
+     */
+    private boolean collect() throws InterruptedException {
+        Request request = queue.take();
+
+        if(request == CLOSE) return false;
+
+        pending.add(request);
+
+        final long deadline = request.arrived + maxDelayNanos;
+
+        while(pending.size() < maxBatchSize) {
+            request = queue.poll();
+
+            if(request == null) {
+                final long remaining = deadline - System.nanoTime();
+
+                if(remaining <= 0) break;
+
+                request = queue.poll(remaining, TimeUnit.NANOSECONDS);
+
+                if(request == null) break;
+            }
+
+            if(request == CLOSE) return false;
+
+            pending.add(request);
+        }
+
+        return true;
+    }
+
+    private void answer() {
+        final int n = pending.size();
+
+        queries.clear();
+        pairCount = 0;
+
+        for(final Request request : pending) queries.add(request.query);
+
+        try {
+            probe.probe(queries, this::addPair);
+        } catch(final Throwable t) {
+            for(final Request request : pending) request.future.completeExceptionally(t);
+
+            pending.clear();
+            return;
+        }
+
+        // Count the matches of each query, then place each query's ids in its own array
+        final int[][] results = new int[n][];
+        final int[] counts = new int[n];
+
+        for(int p = 0; p < pairCount; p += 2) counts[pairs[p]]++;
+        for(int i = 0; i < n; i++) results[i] = new int[counts[i]];
+
+        Arrays.fill(counts, 0);
+
+        for(int p = 0; p < pairCount; p += 2) {
+            final int query = pairs[p];
+            results[query][counts[query]++] = pairs[p + 1];
+        }
+
+        for(int i = 0; i < n; i++) pending.get(i).future.complete(results[i]);
+
+        pending.clear();
+    }
+
+    private void addPair(final int query, final int id) {
+        if(query < 0 || query >= pending.size()) throw new IllegalStateException("probe:  there is no query " + query + " in the batch");
+        if(pairCount == pairs.length) pairs = Arrays.copyOf(pairs, pairs.length * 2);
+
+        pairs[pairCount++] = query;
+        pairs[pairCount++] = id;
+    }
+
+    /** A query waiting for its batch */
+    private static final class Request {
+        final Rectangle query;
+        final long arrived = System.nanoTime();
+        final CompletableFuture<int[]> future = new CompletableFuture<>();
+
+        Request(final Rectangle query) {
+            this.query = query;
+        }
+    }
+}
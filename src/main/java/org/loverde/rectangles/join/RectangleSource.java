@@ -0,0 +1,42 @@
+package org.loverde.rectangles.join;
+
+import java.io.IOException;
+
+import org.loverde.rectangles.RectangleBatch;
+
+/**
+ * A sequence of rectangles, each with an id, which can be read more than once.  Sources let the joins which work from
+ * disk read inputs too large to hold in memory, one rectangle at a time.
+ */
+@FunctionalInterface
+public interface RectangleSource {
+
+    /** Receives the rectangles of a source */
+    @FunctionalInterface
+    interface Sink {
+
+        void accept(long id, double left, double bottom, double right, double top) throws IOException;
+    }
+
+    /**
+     * Passes every rectangle to <em>sink</em>, in order.  Each call must produce the same rectangles.
+     */
+    void forEach(Sink sink) throws IOException;
+
+    /**
+     * @return A source over the rectangles of <em>batch</em>, with their indices as ids
+     *
+     * @throws IllegalArgumentException If <em>batch</em> is null
+     */
+    static RectangleSource of(final RectangleBatch batch) {
+        if(batch == null) throw new IllegalArgumentException("of:  batch cannot be null");
+
+        return sink -> {
+            final double[] left = batch.getLeftColumn(), bottom = batch.getBottomColumn(), right = batch.getRightColumn(), top = batch.getTopColumn();
+
+            for(int i = 0; i < batch.size(); i++) {
+                sink.accept(i, left[i], bottom[i], right[i], top[i]);
+            }
+        };
+    }
+}
@@ -0,0 +1,273 @@
+package org.loverde.rectangles.join;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.loverde.rectangles.PairConsumer;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+/**
+ * <p>Finds every intersecting pair between two sets of rectangles, in parallel.</p>
+ *
+ * <p>The plane covered by both sets is cut into a grid of equal tiles, and each rectangle is assigned to every tile it
+ * covers.  The tiles are then joined independently as tasks on a {@link ForkJoinPool}, each with a plane sweep.  A pair
+ * which overlaps in several tiles is found in all of them, but is reported only by the tile holding the lower left
+ * corner of the pair's region of overlap (the reference point), so every pair is reported exactly once and without any
+ * shared state between tasks.</p>
+ *
+ * <p>Intersection has the same meaning as in {@link Rectangle#intersects}:  rectangles which only share an edge or a
+ * corner don't intersect.</p>
+ */
+public final class SpatialJoin {
+
+    /** The number of rectangles per tile aimed for when the grid size is chosen automatically */
+    static final int TARGET_TILE_SIZE = 512;
+
+    /** The largest number of tiles along each axis */
+    public static final int MAX_TILES_PER_AXIS = 1024;
+
+    private final ForkJoinPool pool;
+    private final int tilesPerAxis;
+
+    /**
+     * Creates a join which runs on the common pool and sizes its grid automatically
+     */
+    public SpatialJoin() {
+        this(ForkJoinPool.commonPool(), 0);
+    }
+
+    /**
+     * Creates a join which runs on <em>pool</em> and sizes its grid automatically.  The pool's parallelism is the
+     * join's parallelism.
+     *
+     * @throws IllegalArgumentException If <em>pool</em> is null
+     */
+    public SpatialJoin(final ForkJoinPool pool) {
+        this(pool, 0);
+    }
+
+    /**
+     * @param pool The pool to run on
+     * @param tilesPerAxis The number of tiles along each axis of the grid, or 0 to choose it from the size of the input
+     *
+     * @throws IllegalArgumentException If <em>pool</em> is null, or <em>tilesPerAxis</em> is negative or greater than
+     *                                  {@link #MAX_TILES_PER_AXIS}
+     */
+    public SpatialJoin(final ForkJoinPool pool, final int tilesPerAxis) {
+        if(pool == null) throw new IllegalArgumentException("pool cannot be null");
+        if(tilesPerAxis < 0) throw new IllegalArgumentException("tilesPerAxis cannot be negative");
+        if(tilesPerAxis > MAX_TILES_PER_AXIS) throw new IllegalArgumentException("tilesPerAxis cannot be greater than " + MAX_TILES_PER_AXIS);
+
+        this.pool = pool;
+        this.tilesPerAxis = tilesPerAxis;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * @return The configured number of tiles along each axis, or 0 if it's chosen automatically
+     */
+    public int getTilesPerAxis() {
+        return tilesPerAxis;
+    }
+
+    /**
+     * Reports every pair <code>(i, j)</code> where rectangle <em>i</em> of <em>first</em> intersects rectangle
+     * <em>j</em> of <em>second</em>.  Each pair is reported exactly once, in no particular order.
+     *
+     * <p><em>consumer</em> is called from the pool's threads concurrently, so it must be thread-safe.  This method
+     * returns once every pair has been reported.  Neither batch may be modified while the join is running.</p>
+     *
+     * @throws IllegalArgumentException If any argument is null
+     */
+    public void join(final RectangleBatch first, final RectangleBatch second, final PairConsumer consumer) {
+        if(first == null) throw new IllegalArgumentException("join:  first cannot be null");
+        if(second == null) throw new IllegalArgumentException("join:  second cannot be null");
+        if(consumer == null) throw new IllegalArgumentException("join:  consumer cannot be null");
+
+        run(first, second, consumer);
+    }
+
+    /**
+     * @return The number of intersecting pairs between <em>first</em> and <em>second</em>; the number of pairs
+     *         {@link #join} would report
+     *
+     * @throws IllegalArgumentException If either batch is null
+     */
+    public long count(final RectangleBatch first, final RectangleBatch second) {
+        if(first == null) throw new IllegalArgumentException("count:  first cannot be null");
+        if(second == null) throw new IllegalArgumentException("count:  second cannot be null");
+
+        final LongAdder pairs = new LongAdder();
+        run(first, second, (i, j) -> pairs.increment());
+        return pairs.sum();
+    }
+
+    private void run(final RectangleBatch first, final RectangleBatch second, final PairConsumer consumer) {
+        if(first.size() == 0 || second.size() == 0) return;
+
+        final Grid grid = new Grid(first, second, tilesPerAxis);
+        final Tiles a = grid.assign(first);
+        final Tiles b = grid.assign(second);
+
+        pool.invoke(new TileTask(grid, first, a, second, b, 0, grid.tileCount(), consumer));
+    }
+
+    /**
+     * Divides the bounding box of both inputs into <em>n</em> by <em>n</em> tiles.  A coordinate belongs to the tile
+     * whose half-open range <code>[start, end)</code> holds it, except that the far edge belongs to the last tile.
+     */
+    static final class Grid {
+        final int n;
+        final double minX, minY, width, height;
+
+        Grid(final RectangleBatch first, final RectangleBatch second, final int tilesPerAxis) {
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+            for(final RectangleBatch batch : new RectangleBatch[] {first, second}) {
+                final double[] left = batch.getLeftColumn(), bottom = batch.getBottomColumn(), right = batch.getRightColumn(), top = batch.getTopColumn();
+
+                for(int i = 0; i < batch.size(); i++) {
+                    minX = Math.min(minX, left[i]);
+                    minY = Math.min(minY, bottom[i]);
+                    maxX = Math.max(maxX, right[i]);
+                    maxY = Math.max(maxY, top[i]);
+                }
+            }
+
+            if(tilesPerAxis > 0) {
+                n = tilesPerAxis;
+            } else {
+                final long total = (long) first.size() + second.size();
+                n = (int) Math.max(1, Math.min(MAX_TILES_PER_AXIS, Math.ceil(Math.sqrt((double) total / TARGET_TILE_SIZE))));
+            }
+
+            this.minX = minX;
+            this.minY = minY;
+            this.width = (maxX - minX) / n;
+            this.height = (maxY - minY) / n;
+        }
+
+        int tileCount() {
+            return n * n;
+        }
+
+        int column(final double x) {
+            return Math.min(n - 1, (int) ((x - minX) / width));
+        }
+
+        int row(final double y) {
+            return Math.min(n - 1, (int) ((y - minY) / height));
+        }
+
+        /**
+         * Lists the rows of <em>batch</em> by tile.  A rectangle goes to every tile from the one holding its lower
+         * left corner to the one holding its upper right corner, which includes every tile that could hold the
+         * reference point of one of its pairs.
+         */
+        Tiles assign(final RectangleBatch batch) {
+            final double[] left = batch.getLeftColumn(), bottom = batch.getBottomColumn(), right = batch.getRightColumn(), top = batch.getTopColumn();
+            final int[] offsets = new int[tileCount() + 1];
+
+            for(int i = 0; i < batch.size(); i++) {
+                final int c0 = column(left[i]), c1 = column(right[i]);
+                final int r0 = row(bottom[i]), r1 = row(top[i]);
+
+                for(int r = r0; r <= r1; r++) {
+                    for(int c = c0; c <= c1; c++) {
+                        offsets[r * n + c + 1]++;
+                    }
+                }
+            }
+
+            for(int t = 0; t < tileCount(); t++) {
+                offsets[t + 1] += offsets[t];
+            }
+
+            final int[] rows = new int[offsets[tileCount()]];
+            final int[] next = new int[tileCount()];
+            System.arraycopy(offsets, 0, next, 0, tileCount());
+
+            for(int i = 0; i < batch.size(); i++) {
+                final int c0 = column(left[i]), c1 = column(right[i]);
+                final int r0 = row(bottom[i]), r1 = row(top[i]);
+
+                for(int r = r0; r <= r1; r++) {
+                    for(int c = c0; c <= c1; c++) {
+                        rows[next[r * n + c]++] = i;
+                    }
+                }
+            }
+
+            return new Tiles(offsets, rows);
+        }
+    }
+
+    /** The rows of one input grouped by tile:  tile <em>t</em> holds <code>rows[offsets[t], offsets[t + 1])</code> */
+    static final class Tiles {
+        final int[] offsets;
+        final int[] rows;
+
+        Tiles(final int[] offsets, final int[] rows) {
+            this.offsets = offsets;
+            this.rows = rows;
+        }
+
+        int count(final int tile) {
+            return offsets[tile + 1] - offsets[tile];
+        }
+    }
+
+    /** Joins the tiles in <code>[from, to)</code>, splitting the range in half until one tile is left */
+    private static final class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Grid grid;
+        private final RectangleBatch first, second;
+        private final Tiles a, b;
+        private final int from, to;
+        private final PairConsumer consumer;
+
+        TileTask(final Grid grid, final RectangleBatch first, final Tiles a, final RectangleBatch second, final Tiles b,
+                 final int from, final int to, final PairConsumer consumer) {
+            this.grid = grid;
+            this.first = first;
+            this.second = second;
+            this.a = a;
+            this.b = b;
+            this.from = from;
+            this.to = to;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from > 1) {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new TileTask(grid, first, a, second, b, from, mid, consumer),
+                          new TileTask(grid, first, a, second, b, mid, to, consumer));
+                return;
+            }
+
+            final int tile = from;
+            final int aCount = a.count(tile), bCount = b.count(tile);
+
+            if(aCount == 0 || bCount == 0) return;
+
+            // The sweep sorts its row lists, so it gets copies
+            final int[] aRows = new int[aCount], bRows = new int[bCount];
+            System.arraycopy(a.rows, a.offsets[tile], aRows, 0, aCount);
+            System.arraycopy(b.rows, b.offsets[tile], bRows, 0, bCount);
+
+            final int column = tile % grid.n, row = tile / grid.n;
+
+            SweepJoin.join(first, aRows, aCount, second, bRows, bCount,
+                           (x, y) -> grid.column(x) == column && grid.row(y) == row, consumer);
+        }
+    }
+}
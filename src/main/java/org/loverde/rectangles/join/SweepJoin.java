@@ -0,0 +1,75 @@
+package org.loverde.rectangles.join;
+
+import org.loverde.rectangles.IndexSort;
+import org.loverde.rectangles.PairConsumer;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+/**
+ * The in-memory join used on each partition:  a forward-scan plane sweep between two lists of rows, which finds the
+ * pairs (one row from each list) that intersect as defined by {@link Rectangle#intersects}.
+ */
+final class SweepJoin {
+
+    /** Decides whether a pair is reported from the current partition, given the pair's reference point */
+    @FunctionalInterface
+    interface ReferenceFilter {
+        ReferenceFilter ALL = (x, y) -> true;
+
+        boolean accept(double x, double y);
+    }
+
+    private SweepJoin() {
+    }
+
+    /**
+     * Reports each intersecting pair between <code>aRows[0, aCount)</code> of <em>a</em> and
+     * <code>bRows[0, bCount)</code> of <em>b</em> as <code>(aRow, bRow)</code>, provided <em>filter</em> accepts the
+     * lower left corner of the pair's region of overlap.  The row arrays are sorted in place by left edge.
+     */
+    static void join(final RectangleBatch a, final int[] aRows, final int aCount,
+                     final RectangleBatch b, final int[] bRows, final int bCount,
+                     final ReferenceFilter filter, final PairConsumer consumer) {
+        IndexSort.sort(aRows, 0, aCount, a.getLeftColumn());
+        IndexSort.sort(bRows, 0, bCount, b.getLeftColumn());
+
+        joinSorted(a, aRows, 0, aCount, b, bRows, 0, bCount, filter, consumer);
+    }
+
+    /**
+     * The same as {@link #join}, between <code>aRows[aFrom, aTo)</code> and <code>bRows[bFrom, bTo)</code>, which are
+     * already sorted by left edge.  A list which is joined many times need only be sorted once.
+     */
+    static void joinSorted(final RectangleBatch a, final int[] aRows, final int aFrom, final int aTo,
+                           final RectangleBatch b, final int[] bRows, final int bFrom, final int bTo,
+                           final ReferenceFilter filter, final PairConsumer consumer) {
+        final double[] aLeft = a.getLeftColumn(), aBottom = a.getBottomColumn(), aRight = a.getRightColumn(), aTop = a.getTopColumn();
+        final double[] bLeft = b.getLeftColumn(), bBottom = b.getBottomColumn(), bRight = b.getRightColumn(), bTop = b.getTopColumn();
+
+        int i = aFrom, j = bFrom;
+
+        // Take whichever list's next rectangle starts first, and scan forward through the other list for the
+        // rectangles which start before it ends.  Those overlap it in x; the y test decides the rest.
+        while(i < aTo && j < bTo) {
+            if(aLeft[aRows[i]] <= bLeft[bRows[j]]) {
+                final int ar = aRows[i++];
+
+                for(int k = j; k < bTo && bLeft[bRows[k]] < aRight[ar]; k++) {
+                    final int br = bRows[k];
+
+                    if(aBottom[ar] < bTop[br] && bBottom[br] < aTop[ar] &&
+                       filter.accept(bLeft[br], Math.max(aBottom[ar], bBottom[br]))) consumer.accept(ar, br);
+                }
+            } else {
+                final int br = bRows[j++];
+
+                for(int k = i; k < aTo && aLeft[aRows[k]] < bRight[br]; k++) {
+                    final int ar = aRows[k];
+
+                    if(aBottom[ar] < bTop[br] && bBottom[br] < aTop[ar] &&
+                       filter.accept(aLeft[ar], Math.max(aBottom[ar], bBottom[br]))) consumer.accept(ar, br);
+                }
+            }
+        }
+    }
+}
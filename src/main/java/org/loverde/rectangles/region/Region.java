@@ -0,0 +1,459 @@
+package org.loverde.rectangles.region;
+
+import java.util.Arrays;
+
+import org.loverde.rectangles.Boundaries;
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+/**
+ * <p>An immutable region of the plane made of rectangles, with set operations between regions:  union, intersection,
+ * difference and symmetric difference.</p>
+ *
+ * <p>A region is stored as horizontal bands.  Each band spans a range of y and holds the x intervals the region covers
+ * across it, sorted and separated by gaps.  The bands are sorted, don't overlap, and two bands which touch never hold
+ * the same intervals, since they would have been merged into one.  This form is unique, so two regions covering the
+ * same area are {@link #equals equal}, and each operation is a single merge of the two regions' bands in time linear in
+ * their size.</p>
+ *
+ * <p>Regions have area.  As with {@link Rectangle#intersects}, rectangles which only share an edge don't intersect, so
+ * the intersection of two adjacent regions is empty; their union is one region, with the shared edge gone.</p>
+ */
+public final class Region {
+
+    /**
+     * Receives the rectangles a region is made of
+     */
+    @FunctionalInterface
+    public interface RectangleConsumer {
+        void accept(double left, double bottom, double right, double top);
+    }
+
+    public static final Region EMPTY = new Region(new double[0], new int[] { 0 }, new double[0]);
+
+    private enum Operation {
+        UNION {
+            @Override boolean apply(final boolean a, final boolean b) { return a | b; }
+        },
+        INTERSECTION {
+            @Override boolean apply(final boolean a, final boolean b) { return a & b; }
+        },
+        DIFFERENCE {
+            @Override boolean apply(final boolean a, final boolean b) { return a & !b; }
+        },
+        SYMMETRIC_DIFFERENCE {
+            @Override boolean apply(final boolean a, final boolean b) { return a ^ b; }
+        };
+
+        abstract boolean apply(boolean a, boolean b);
+    }
+
+    // Band i spans y from bands[2i] to bands[2i+1], and holds the intervals xs[offsets[i]] to xs[offsets[i+1]], two
+    // numbers to an interval
+    private final double[] bands;
+    private final int[] offsets;
+    private final double[] xs;
+
+    private Region(final double[] bands, final int[] offsets, final double[] xs) {
+        this.bands = bands;
+        this.offsets = offsets;
+        this.xs = xs;
+    }
+
+    /**
+     * @return The region covered by one rectangle
+     *
+     * @throws IllegalArgumentException If the boundaries don't describe a valid rectangle (see {@link Boundaries#validate})
+     */
+    public static Region of(final double left, final double bottom, final double right, final double top) {
+        Boundaries.validate(left, bottom, right, top);
+
+        return new Region(new double[] { bottom, top }, new int[] { 0, 2 }, new double[] { left, right });
+    }
+
+    /**
+     * @return The region covered by <em>r</em>
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null
+     */
+    public static Region of(final Rectangle r) {
+        if(r == null) throw new IllegalArgumentException("of:  rectangle cannot be null");
+
+        return of(r.getLeftX(), r.getBottomY(), r.getRightX(), r.getTopY());
+    }
+
+    /**
+     * @return The region covered by the rectangles in <em>batch</em>, however they overlap
+     *
+     * @throws IllegalArgumentException If <em>batch</em> is null
+     */
+    public static Region of(final RectangleBatch batch) {
+        if(batch == null) throw new IllegalArgumentException("of:  batch cannot be null");
+
+        return batch.size() == 0 ? EMPTY : unionOf(batch, 0, batch.size());
+    }
+
+    /** Unites the rectangles in halves, so that each rectangle takes part in O(log n) merges rather than n */
+    private static Region unionOf(final RectangleBatch batch, final int from, final int to) {
+        if(to - from == 1) {
+            return new Region(new double[] { batch.getBottomY(from), batch.getTopY(from) }, new int[] { 0, 2 },
+                              new double[] { batch.getLeftX(from), batch.getRightX(from) });
+        }
+
+        final int mid = (from + to) >>> 1;
+
+        return unionOf(batch, from, mid).union(unionOf(batch, mid, to));
+    }
+
+    /**
+     * @return The region covered by this region, <em>other</em> or both
+     *
+     * @throws IllegalArgumentException If <em>other</em> is null
+     */
+    public Region union(final Region other) {
+        if(other == null) throw new IllegalArgumentException("union:  region cannot be null");
+
+        if(other.isEmpty()) return this;
+        if(isEmpty()) return other;
+
+        return combine(this, other, Operation.UNION);
+    }
+
+    /**
+     * @return The region covered by both this region and <em>other</em>
+     *
+     * @throws IllegalArgumentException If <em>other</em> is null
+     */
+    public Region intersect(final Region other) {
+        if(other == null) throw new IllegalArgumentException("intersect:  region cannot be null");
+
+        if(isEmpty() || other.isEmpty()) return EMPTY;
+
+        return combine(this, other, Operation.INTERSECTION);
+    }
+
+    /**
+     * @return The region covered by this region but not by <em>other</em>
+     *
+     * @throws IllegalArgumentException If <em>other</em> is null
+     */
+    public Region subtract(final Region other) {
+        if(other == null) throw new IllegalArgumentException("subtract:  region cannot be null");
+
+        if(isEmpty() || other.isEmpty()) return this;
+
+        return combine(this, other, Operation.DIFFERENCE);
+    }
+
+    /**
+     * @return The region covered by exactly one of this region and <em>other</em>
+     *
+     * @throws IllegalArgumentException If <em>other</em> is null
+     */
+    public Region xor(final Region other) {
+        if(other == null) throw new IllegalArgumentException("xor:  region cannot be null");
+
+        if(other.isEmpty()) return this;
+        if(isEmpty()) return other;
+
+        return combine(this, other, Operation.SYMMETRIC_DIFFERENCE);
+    }
+
+    /**
+     * @return <em>true</em> if this region and <em>other</em> have an area in common; shared edges don't count
+     *
+     * @throws IllegalArgumentException If <em>other</em> is null
+     */
+    public boolean intersects(final Region other) {
+        if(other == null) throw new IllegalArgumentException("intersects:  region cannot be null");
+
+        return !intersect(other).isEmpty();
+    }
+
+    /**
+     * @return <em>true</em> if all of <em>other</em> is within this region, edges included
+     *
+     * @throws IllegalArgumentException If <em>other</em> is null
+     */
+    public boolean covers(final Region other) {
+        if(other == null) throw new IllegalArgumentException("covers:  region cannot be null");
+
+        return other.subtract(this).isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return bands.length == 0;
+    }
+
+    public double getArea() {
+        double area = 0;
+
+        for(int band = 0; band < getBandCount(); band++) {
+            double width = 0;
+
+            for(int i = offsets[band]; i < offsets[band + 1]; i += 2) width += xs[i + 1] - xs[i];
+
+            area += width * (bands[2 * band + 1] - bands[2 * band]);
+        }
+
+        return area;
+    }
+
+    /**
+     * @return The smallest rectangle containing the region, or null if it's empty
+     */
+    public Rectangle getBounds() {
+        if(isEmpty()) return null;
+
+        double left = Double.POSITIVE_INFINITY, right = 0;
+
+        for(int band = 0; band < getBandCount(); band++) {
+            left = Math.min(left, xs[offsets[band]]);
+            right = Math.max(right, xs[offsets[band + 1] - 1]);
+        }
+
+        return new Rectangle(new Point(left, bands[0]), new Point(right, bands[bands.length - 1]));
+    }
+
+    /** @return The number of horizontal bands the region is stored as */
+    public int getBandCount() {
+        return bands.length / 2;
+    }
+
+    /** @return The number of rectangles {@link #forEachRectangle} gives:  one for each interval of each band */
+    public int getRectangleCount() {
+        return xs.length / 2;
+    }
+
+    /**
+     * Gives the rectangles of each band in turn, from the bottom up and from left to right.  They don't overlap, and
+     * they cover the region exactly.
+     *
+     * @throws IllegalArgumentException If <em>consumer</em> is null
+     */
+    public void forEachRectangle(final RectangleConsumer consumer) {
+        if(consumer == null) throw new IllegalArgumentException("forEachRectangle:  consumer cannot be null");
+
+        for(int band = 0; band < getBandCount(); band++) {
+            for(int i = offsets[band]; i < offsets[band + 1]; i += 2) {
+                consumer.accept(xs[i], bands[2 * band], xs[i + 1], bands[2 * band + 1]);
+            }
+        }
+    }
+
+    /**
+     * <p>Gives the region as few rectangles as the bands allow.  An interval which appears in several bands stacked on
+     * top of each other becomes one tall rectangle instead of one per band, so there are usually fewer rectangles than
+     * {@link #getRectangleCount()}.  Like those of {@link #forEachRectangle}, they don't overlap and they cover the
+     * region exactly.</p>
+     *
+     * @return A new batch holding the rectangles, ordered by their top edges
+     */
+    public RectangleBatch toBatch() {
+        final RectangleBatch batch = new RectangleBatch(getRectangleCount());
+
+        // The intervals of the band below, each with the bottom of the rectangle it's the top of.  An interval which
+        // is also in the next band, if the bands touch, carries its rectangle up; the others end their rectangles.
+        double[] open = new double[0], openBottom = new double[0];
+        double openTop = 0;
+
+        for(int band = 0; band < getBandCount(); band++) {
+            final double bottom = bands[2 * band];
+            final int from = offsets[band], to = offsets[band + 1];
+
+            final double[] next = new double[to - from], nextBottom = new double[(to - from) / 2];
+            int o = 0;
+
+            if(openTop != bottom) {
+                for(; o < openBottom.length; o++) batch.add(open[2 * o], openBottom[o], open[2 * o + 1], openTop);
+            }
+
+            for(int i = from, k = 0; i < to; i += 2, k++) {
+                final double left = xs[i], right = xs[i + 1];
+
+                // Both lists are sorted, so the intervals below which start before this one can't continue
+                while(o < openBottom.length && (open[2 * o] < left || (open[2 * o] == left && open[2 * o + 1] != right))) {
+                    batch.add(open[2 * o], openBottom[o], open[2 * o + 1], openTop);
+                    o++;
+                }
+
+                next[2 * k] = left;
+                next[2 * k + 1] = right;
+                nextBottom[k] = o < openBottom.length && open[2 * o] == left ? openBottom[o++] : bottom;
+            }
+
+            for(; o < openBottom.length; o++) batch.add(open[2 * o], openBottom[o], open[2 * o + 1], openTop);
+
+            open = next;
+            openBottom = nextBottom;
+            openTop = bands[2 * band + 1];
+        }
+
+        for(int o = 0; o < openBottom.length; o++) batch.add(open[2 * o], openBottom[o], open[2 * o + 1], openTop);
+
+        return batch;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if(this == o) return true;
+        if(o == null || getClass() != o.getClass()) return false;
+
+        final Region that = (Region) o;
+
+        // The banded form is unique, so regions covering the same area store the same numbers
+        return Arrays.equals(bands, that.bands) && Arrays.equals(offsets, that.offsets) && Arrays.equals(xs, that.xs);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(bands) + Arrays.hashCode(offsets)) + Arrays.hashCode(xs);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder s = new StringBuilder("Region[");
+
+        for(int band = 0; band < getBandCount(); band++) {
+            if(band > 0) s.append(", ");
+
+            s.append("y ").append(bands[2 * band]).append('-').append(bands[2 * band + 1]).append(':');
+
+            for(int i = offsets[band]; i < offsets[band + 1]; i += 2) {
+                s.append(" x ").append(xs[i]).append('-').append(xs[i + 1]);
+            }
+        }
+
+        return s.append(']').toString();
+    }
+
+    /**
+     * Merges the bands of <em>a</em> and <em>b</em>.  The y axis is cut wherever a band of either starts or ends, and
+     * each piece gets the intervals <em>operation</em> makes of the two regions' intervals there.
+     */
+    private static Region combine(final Region a, final Region b, final Operation operation) {
+        final Builder builder = new Builder(a.xs.length + b.xs.length);
+        final int na = a.getBandCount(), nb = b.getBandCount();
+        final double[] none = new double[0];
+
+        double y = Math.min(a.bands[0], b.bands[0]);
+        int ia = 0, ib = 0;
+
+        while(ia < na || ib < nb) {
+            final double aBottom = ia < na ? Math.max(a.bands[2 * ia], y) : Double.POSITIVE_INFINITY;
+            final double bBottom = ib < nb ? Math.max(b.bands[2 * ib], y) : Double.POSITIVE_INFINITY;
+            final double aTop = ia < na ? a.bands[2 * ia + 1] : Double.POSITIVE_INFINITY;
+            final double bTop = ib < nb ? b.bands[2 * ib + 1] : Double.POSITIVE_INFINITY;
+
+            final double bottom = Math.min(aBottom, bBottom);
+            final double top;
+
+            if(aBottom < bBottom) {
+                top = Math.min(aTop, bBottom);
+                builder.band(bottom, top, a.xs, a.offsets[ia], a.offsets[ia + 1], none, 0, 0, operation);
+            } else if(bBottom < aBottom) {
+                top = Math.min(bTop, aBottom);
+                builder.band(bottom, top, none, 0, 0, b.xs, b.offsets[ib], b.offsets[ib + 1], operation);
+            } else {
+                top = Math.min(aTop, bTop);
+                builder.band(bottom, top, a.xs, a.offsets[ia], a.offsets[ia + 1], b.xs, b.offsets[ib], b.offsets[ib + 1], operation);
+            }
+
+            y = top;
+
+            if(aTop <= top) ia++;
+            if(bTop <= top) ib++;
+        }
+
+        return builder.build();
+    }
+
+    /** Collects bands in order, merging each into the one below when they touch and hold the same intervals */
+    private static final class Builder {
+        private double[] bands = new double[16];
+        private int[] offsets = new int[9];
+        private double[] xs;
+        private int bandCount, xCount;
+
+        Builder(final int expectedXs) {
+            xs = new double[Math.max(16, expectedXs)];
+        }
+
+        /**
+         * Adds the band from <em>bottom</em> to <em>top</em> holding the intervals where <em>operation</em> is true of
+         * <code>a[aFrom, aTo)</code> and <code>b[bFrom, bTo)</code>
+         */
+        void band(final double bottom, final double top,
+                  final double[] a, final int aFrom, final int aTo, final double[] b, final int bFrom, final int bTo,
+                  final Operation operation) {
+            final int start = xCount;
+            boolean inA = false, inB = false, inside = false;
+            int i = aFrom, j = bFrom;
+
+            while(i < aTo || j < bTo) {
+                final double x = Math.min(i < aTo ? a[i] : Double.POSITIVE_INFINITY, j < bTo ? b[j] : Double.POSITIVE_INFINITY);
+
+                // Intervals in a band never touch, so each list has at most one boundary at x
+                if(i < aTo && a[i] == x) {
+                    inA = !inA;
+                    i++;
+                }
+
+                if(j < bTo && b[j] == x) {
+                    inB = !inB;
+                    j++;
+                }
+
+                final boolean now = operation.apply(inA, inB);
+
+                if(now != inside) {
+                    // An interval which would start where the last one ended continues it instead
+                    if(now && xCount > start && xs[xCount - 1] == x) xCount--;
+                    else append(x);
+
+                    inside = now;
+                }
+            }
+
+            if(xCount == start) return;
+
+            // The same intervals as the band below, which it touches:  grow that band rather than adding one
+            if(bandCount > 0 && bands[2 * bandCount - 1] == bottom && sameIntervals(offsets[bandCount - 1], start, xCount)) {
+                bands[2 * bandCount - 1] = top;
+                xCount = start;
+                return;
+            }
+
+            if(2 * bandCount + 2 > bands.length) bands = Arrays.copyOf(bands, bands.length * 2);
+            if(bandCount + 2 > offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+
+            bands[2 * bandCount] = bottom;
+            bands[2 * bandCount + 1] = top;
+            offsets[bandCount + 1] = xCount;
+            bandCount++;
+        }
+
+        private boolean sameIntervals(final int previous, final int start, final int end) {
+            if(start - previous != end - start) return false;
+
+            for(int i = 0; i < end - start; i++) {
+                if(xs[previous + i] != xs[start + i]) return false;
+            }
+
+            return true;
+        }
+
+        private void append(final double x) {
+            if(xCount == xs.length) xs = Arrays.copyOf(xs, xs.length * 2);
+
+            xs[xCount++] = x;
+        }
+
+        Region build() {
+            if(bandCount == 0) return EMPTY;
+
+            return new Region(Arrays.copyOf(bands, 2 * bandCount), Arrays.copyOf(offsets, bandCount + 1), Arrays.copyOf(xs, xCount));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.loverde.rectangles.sweep;
+
+/**
+ * A segment tree over a fixed, sorted set of y coordinates which tracks how much of the y axis is covered by the
+ * intervals added to it, and optionally how many separate pieces the covered part falls into.
+ *
+ * <p>Each node holds a count of the intervals which cover its whole range and aren't stored higher up.  Intervals are
+ * only ever removed after being added, so the counts never go negative and no lazy propagation is needed:  a node's
+ * covered length is its full length if its count is positive, and the sum of its children's otherwise.</p>
+ */
+final class CoverageTree {
+
+    private final double[] ys;
+    private final boolean trackPieces;
+
+    // Node 1 is the root, and node i's children are 2i and 2i+1.  The numbers an update reads and writes for a node
+    // sit together, three to a node:  the count, the covered length and the node's full length.
+    private final double[] nodes;
+    private final int[] pieces;
+    private final boolean[] coversLow, coversHigh;
+
+    /**
+     * @param ys The coordinates the intervals start and end at, sorted ascending, without duplicates
+     * @param trackPieces If <em>true</em>, {@link #pieces()} is kept up to date
+     */
+    CoverageTree(final double[] ys, final boolean trackPieces) {
+        this.ys = ys;
+        this.trackPieces = trackPieces;
+
+        final int size = 4 * Math.max(1, ys.length - 1);
+
+        nodes = new double[3 * size];
+        pieces = trackPieces ? new int[size] : null;
+        coversLow = trackPieces ? new boolean[size] : null;
+        coversHigh = trackPieces ? new boolean[size] : null;
+
+        if(ys.length > 1) build(1, 0, ys.length - 1);
+    }
+
+    private void build(final int node, final int lo, final int hi) {
+        nodes[3 * node + 2] = ys[hi] - ys[lo];
+
+        if(hi - lo > 1) {
+            final int mid = (lo + hi) >>> 1;
+
+            build(2 * node, lo, mid);
+            build(2 * node + 1, mid, hi);
+        }
+    }
+
+    /**
+     * Adds <em>delta</em> to the number of intervals covering <code>[ys[from], ys[to]]</code>
+     */
+    void add(final int from, final int to, final int delta) {
+        if(from < to) update(1, 0, ys.length - 1, from, to, delta);
+    }
+
+    /** @return The total length of the y axis covered by at least one interval */
+    double covered() {
+        return nodes[3 + 1];
+    }
+
+    /** @return The number of separate pieces the covered part of the y axis falls into; intervals which touch are one piece */
+    int pieces() {
+        return pieces[1];
+    }
+
+    // A node covers the elementary intervals [lo, hi), which run from ys[lo] to ys[hi]
+    private void update(final int node, final int lo, final int hi, final int from, final int to, final int delta) {
+        if(from <= lo && hi <= to) {
+            nodes[3 * node] += delta;
+        } else {
+            final int mid = (lo + hi) >>> 1;
+
+            if(from < mid) update(2 * node, lo, mid, from, to, delta);
+            if(to > mid) update(2 * node + 1, mid, hi, from, to, delta);
+        }
+
+        pull(node, lo, hi);
+    }
+
+    private void pull(final int node, final int lo, final int hi) {
+        final int at = 3 * node;
+
+        if(nodes[at] > 0) {
+            nodes[at + 1] = nodes[at + 2];
+
+            if(trackPieces) {
+                pieces[node] = 1;
+                coversLow[node] = coversHigh[node] = true;
+            }
+        } else if(hi - lo == 1) {
+            nodes[at + 1] = 0;
+
+            if(trackPieces) {
+                pieces[node] = 0;
+                coversLow[node] = coversHigh[node] = false;
+            }
+        } else {
+            final int low = 2 * node, high = 2 * node + 1;
+
+            nodes[at + 1] = nodes[3 * low + 1] + nodes[3 * high + 1];
+
+            if(trackPieces) {
+                // A piece which runs across the middle is counted by both children
+                pieces[node] = pieces[low] + pieces[high] - (coversHigh[low] && coversLow[high] ? 1 : 0);
+                coversLow[node] = coversLow[low];
+                coversHigh[node] = coversHigh[high];
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.loverde.rectangles.sweep;
+
+/**
+ * A segment tree over <em>n</em> slots which adds a value to a range of slots and finds the largest value, both in
+ * O(log n) time.
+ *
+ * <p>An addition to a range is stored lazily, in the nodes which cover parts of the range.  Rather than being pushed
+ * down to the children later, it stays in the node:  a node's maximum is its own addition plus the larger of its
+ * children's maximums.</p>
+ */
+final class DepthTree {
+
+    private final int n;
+
+    // Indexed by node; node 1 is the root, and node i's children are 2i and 2i+1
+    private final int[] added;
+    private final int[] max;
+
+    DepthTree(final int n) {
+        this.n = n;
+
+        added = new int[4 * Math.max(1, n)];
+        max = new int[4 * Math.max(1, n)];
+    }
+
+    /** Adds <em>delta</em> to the slots <code>[from, to)</code> */
+    void add(final int from, final int to, final int delta) {
+        if(from < to) add(1, 0, n, from, to, delta);
+    }
+
+    /** @return The largest value in any slot */
+    int max() {
+        return max[1];
+    }
+
+    /** @return The first slot holding the largest value */
+    int firstMax() {
+        int node = 1, lo = 0, hi = n;
+        int target = max[1];
+
+        while(hi - lo > 1) {
+            target -= added[node];
+
+            final int mid = (lo + hi) >>> 1;
+
+            if(max[2 * node] == target) {
+                node = 2 * node;
+                hi = mid;
+            } else {
+                node = 2 * node + 1;
+                lo = mid;
+            }
+        }
+
+        return lo;
+    }
+
+    private void add(final int node, final int lo, final int hi, final int from, final int to, final int delta) {
+        if(from <= lo && hi <= to) {
+            added[node] += delta;
+            max[node] += delta;
+            return;
+        }
+
+        final int mid = (lo + hi) >>> 1;
+
+        if(from < mid) add(2 * node, lo, mid, from, to, delta);
+        if(to > mid) add(2 * node + 1, mid, hi, from, to, delta);
+
+        max[node] = added[node] + Math.max(max[2 * node], max[2 * node + 1]);
+    }
+}
@@ -0,0 +1,125 @@
+package org.loverde.rectangles.sweep;
+
+import org.loverde.rectangles.IndexSort;
+import org.loverde.rectangles.IntersectionPoints;
+import org.loverde.rectangles.PairConsumer;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+/**
+ * <p>Finds every intersecting pair in a set of rectangles with a plane sweep, instead of testing every pair.</p>
+ *
+ * <p>A vertical line sweeps from left to right.  The rectangles it's currently crossing are kept in an interval tree
+ * on y; when the line reaches a rectangle's left edge, the tree reports the active rectangles whose y ranges overlap
+ * it, and the rectangle joins the active set.  It leaves when the line reaches its right edge.  This takes
+ * O((N + K) log N) time for N rectangles and K intersecting pairs.</p>
+ *
+ * <p>Intersection has the same meaning as in {@link Rectangle#intersects}:  rectangles which only share an edge or a
+ * corner don't intersect.  Identical rectangles do.</p>
+ */
+public final class IntersectionSweep {
+
+    /**
+     * Receives an intersecting pair along with the region of overlap and its points of intersection.
+     */
+    @FunctionalInterface
+    public interface IntersectionConsumer {
+
+        /**
+         * @param first The index of the first rectangle of the pair; always less than <em>second</em>
+         * @param second The index of the second rectangle of the pair
+         * @param left The bounds of the region of overlap, as returned by {@link Rectangle#getIntersection}
+         * @param intersectingPoints The points of intersection, as a mask of the overlap region's vertices; see
+         *                           {@link IntersectionPoints#getMask()}
+         */
+        void accept(int first, int second, double left, double bottom, double right, double top, int intersectingPoints);
+    }
+
+    private IntersectionSweep() {
+    }
+
+    /**
+     * Reports every pair of intersecting rectangles in <em>batch</em>.  Each pair is reported once, as
+     * <code>(i, j)</code> with <code>i &lt; j</code>, where <em>i</em> and <em>j</em> are indices in the batch.
+     *
+     * @throws IllegalArgumentException If <em>batch</em> or <em>consumer</em> is null
+     */
+    public static void forEachIntersectingPair(final RectangleBatch batch, final PairConsumer consumer) {
+        if(batch == null) throw new IllegalArgumentException("forEachIntersectingPair:  batch cannot be null");
+        if(consumer == null) throw new IllegalArgumentException("forEachIntersectingPair:  consumer cannot be null");
+
+        sweep(batch, (a, b) -> {
+            if(a < b) consumer.accept(a, b);
+            else consumer.accept(b, a);
+        });
+    }
+
+    /**
+     * Reports every pair of intersecting rectangles in <em>batch</em>, along with their region of overlap and points of
+     * intersection.  These are the same as {@link Rectangle#getIntersection} and
+     * {@link Rectangle#computeIntersectingPoints} would give for the pair.
+     *
+     * @throws IllegalArgumentException If <em>batch</em> or <em>consumer</em> is null
+     */
+    public static void forEachIntersection(final RectangleBatch batch, final IntersectionConsumer consumer) {
+        if(batch == null) throw new IllegalArgumentException("forEachIntersection:  batch cannot be null");
+        if(consumer == null) throw new IllegalArgumentException("forEachIntersection:  consumer cannot be null");
+
+        final double[] left = batch.getLeftColumn(), bottom = batch.getBottomColumn(), right = batch.getRightColumn(), top = batch.getTopColumn();
+
+        sweep(batch, (a, b) -> {
+            final int first = Math.min(a, b), second = Math.max(a, b);
+
+            final double iLeft   = Math.max(left[first], left[second]);
+            final double iBottom = Math.max(bottom[first], bottom[second]);
+            final double iRight  = Math.min(right[first], right[second]);
+            final double iTop    = Math.min(top[first], top[second]);
+
+            final int mask = IntersectionPoints.cornerMask(iLeft, iBottom, iRight, iTop,
+                                                           left[first], bottom[first], right[first], top[first],
+                                                           left[second], bottom[second], right[second], top[second]);
+
+            consumer.accept(first, second, iLeft, iBottom, iRight, iTop, mask);
+        });
+    }
+
+    /**
+     * @return The number of intersecting pairs in <em>batch</em>
+     *
+     * @throws IllegalArgumentException If <em>batch</em> is null
+     */
+    public static long countIntersectingPairs(final RectangleBatch batch) {
+        if(batch == null) throw new IllegalArgumentException("countIntersectingPairs:  batch cannot be null");
+
+        final long[] count = { 0 };
+        sweep(batch, (a, b) -> count[0]++);
+
+        return count[0];
+    }
+
+    /** Reports each intersecting pair once, in no particular order within the pair */
+    private static void sweep(final RectangleBatch batch, final PairConsumer consumer) {
+        final int n = batch.size();
+        final double[] left = batch.getLeftColumn(), right = batch.getRightColumn();
+
+        final int[] starts = IndexSort.identity(n);
+        final int[] ends = IndexSort.identity(n);
+
+        IndexSort.sort(starts, 0, n, left);
+        IndexSort.sort(ends, 0, n, right);
+
+        final IntervalTreap active = new IntervalTreap(batch.getBottomColumn(), batch.getTopColumn(), n);
+        final double[] bottom = batch.getBottomColumn(), top = batch.getTopColumn();
+
+        for(int s = 0, e = 0; s < n; s++) {
+            final int row = starts[s];
+
+            // Retire the rectangles whose right edge the line has reached.  A right edge at the same x as this left edge
+            // is only a shared edge, so it's retired first.
+            while(right[ends[e]] <= left[row]) active.remove(ends[e++]);
+
+            active.forEachOverlap(bottom[row], top[row], row, consumer);
+            active.insert(row);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.loverde.rectangles.sweep;
+
+import org.loverde.rectangles.PairConsumer;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <p>The set of y intervals which are active during a plane sweep, kept as a treap ordered by the lower end of each
+ * interval and augmented with the greatest upper end in each subtree.  The intervals belong to the rows of a set of
+ * coordinate columns; a row's index doubles as its node, so the tree allocates nothing after construction.</p>
+ *
+ * <p>Finding the active intervals which overlap a query takes O(log N) per interval found.</p>
+ */
+final class IntervalTreap {
+
+    private static final int NIL = -1;
+
+    private final double[] bottom;
+    private final double[] top;
+
+    private final int[] leftChild;
+    private final int[] rightChild;
+    private final int[] priority;
+    private final double[] maxTop;
+
+    private int root = NIL;
+    private int size;
+
+    // The two halves produced by split()
+    private int splitBefore;
+    private int splitAfter;
+
+    /**
+     * @param bottom The lower end of each row's interval
+     * @param top The upper end of each row's interval
+     */
+    IntervalTreap(final double[] bottom, final double[] top, final int rows) {
+        this.bottom = bottom;
+        this.top = top;
+
+        leftChild = new int[rows];
+        rightChild = new int[rows];
+        priority = new int[rows];
+        maxTop = new double[rows];
+
+        Arrays.fill(leftChild, NIL);
+        Arrays.fill(rightChild, NIL);
+
+        final Random random = new Random(rows);
+
+        for(int i = 0; i < rows; i++) priority[i] = random.nextInt();
+    }
+
+    int size() {
+        return size;
+    }
+
+    void insert(final int row) {
+        leftChild[row] = rightChild[row] = NIL;
+        maxTop[row] = top[row];
+
+        split(root, row);
+        root = merge(merge(splitBefore, row), splitAfter);
+        size++;
+    }
+
+    void remove(final int row) {
+        root = remove(root, row);
+        size--;
+    }
+
+    /**
+     * Reports each active row whose interval overlaps <code>(queryBottom, queryTop)</code> with a positive length,
+     * that is, <code>bottom &lt; queryTop &amp;&amp; queryBottom &lt; top</code>.
+     *
+     * @param queryRow Passed to <em>consumer</em> as the first value of each pair
+     */
+    void forEachOverlap(final double queryBottom, final double queryTop, final int queryRow, final PairConsumer consumer) {
+        forEachOverlap(root, queryBottom, queryTop, queryRow, consumer);
+    }
+
+    private void forEachOverlap(final int node, final double queryBottom, final double queryTop, final int queryRow, final PairConsumer consumer) {
+        // Nothing in this subtree reaches above the query's lower end
+        if(node == NIL || maxTop[node] <= queryBottom) return;
+
+        forEachOverlap(leftChild[node], queryBottom, queryTop, queryRow, consumer);
+
+        // Everything from here rightwards starts at or above the query's upper end
+        if(bottom[node] >= queryTop) return;
+
+        if(queryBottom < top[node]) consumer.accept(queryRow, node);
+
+        forEachOverlap(rightChild[node], queryBottom, queryTop, queryRow, consumer);
+    }
+
+    /** Orders rows by the lower end of their interval, then by row */
+    private boolean before(final int a, final int b) {
+        return bottom[a] < bottom[b] || (bottom[a] == bottom[b] && a < b);
+    }
+
+    /** Splits the subtree at <em>node</em> into the rows ordered before <em>row</em> and those after it */
+    private void split(final int node, final int row) {
+        if(node == NIL) {
+            splitBefore = splitAfter = NIL;
+            return;
+        }
+
+        if(before(node, row)) {
+            split(rightChild[node], row);
+            rightChild[node] = splitBefore;
+            update(node);
+            splitBefore = node;
+        } else {
+            split(leftChild[node], row);
+            leftChild[node] = splitAfter;
+            update(node);
+            splitAfter = node;
+        }
+    }
+
+    /** Joins two treaps where every row of <em>a</em> is ordered before every row of <em>b</em> */
+    private int merge(final int a, final int b) {
+        if(a == NIL) return b;
+        if(b == NIL) return a;
+
+        if(priority[a] > priority[b]) {
+            rightChild[a] = merge(rightChild[a], b);
+            update(a);
+            return a;
+        } else {
+            leftChild[b] = merge(a, leftChild[b]);
+            update(b);
+            return b;
+        }
+    }
+
+    private int remove(final int node, final int row) {
+        if(node == NIL) return NIL;
+
+        if(node == row) return merge(leftChild[node], rightChild[node]);
+
+        if(before(row, node)) {
+            leftChild[node] = remove(leftChild[node], row);
+        } else {
+            rightChild[node] = remove(rightChild[node], row);
+        }
+
+        update(node);
+
+        return node;
+    }
+
+    private void update(final int node) {
+        double max = top[node];
+
+        if(leftChild[node] != NIL) max = Math.max(max, maxTop[leftChild[node]]);
+        if(rightChild[node] != NIL) max = Math.max(max, maxTop[rightChild[node]]);
+
+        maxTop[node] = max;
+    }
+}
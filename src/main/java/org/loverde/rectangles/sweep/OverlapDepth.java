@@ -0,0 +1,202 @@
+package org.loverde.rectangles.sweep;
+
+import java.util.Arrays;
+
+import org.loverde.rectangles.IndexSort;
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+/**
+ * <p>Finds where the most rectangles of a set overlap:  the largest number of rectangles with a point in common, and a
+ * region where that many overlap.</p>
+ *
+ * <p>The rectangles' y coordinates are sorted and numbered, which cuts the y axis into slots.  A vertical line sweeps
+ * from left to right, and a {@link DepthTree} over the slots holds the number of rectangles the line is crossing in
+ * each; the largest value the tree ever holds is the answer.  This takes O(N log N) time for N rectangles.</p>
+ *
+ * <p>Overlap has the same meaning as in {@link Rectangle#intersects}:  rectangles which only share an edge or a corner
+ * don't overlap, so a rectangle ending at an x coordinate leaves the sweep before one starting there joins it, and
+ * rectangles meeting at a y coordinate fall into different slots.  Identical rectangles do overlap.</p>
+ */
+public final class OverlapDepth {
+
+    /**
+     * The deepest overlap in a set of rectangles
+     */
+    public static final class Hotspot {
+        private final int depth;
+        private final Rectangle region;
+        private final int[] rows;
+
+        private Hotspot(final int depth, final Rectangle region, final int[] rows) {
+            this.depth = depth;
+            this.region = region;
+            this.rows = rows;
+        }
+
+        /** @return The largest number of rectangles which overlap at any point; 0 if there are no rectangles */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * @return The region where the rectangles in {@link #getRows()} all overlap, which is covered by
+         *         {@link #getDepth()} rectangles at every point; null if there are no rectangles.  Where the deepest
+         *         overlap is in several places, it's the one reached first by a sweep from left to right, then the
+         *         lowest.
+         */
+        public Rectangle getRegion() {
+            return region;
+        }
+
+        /** @return The indices of the {@link #getDepth()} rectangles which overlap in the region, in ascending order */
+        public int[] getRows() {
+            return rows.clone();
+        }
+    }
+
+    private OverlapDepth() {
+    }
+
+    /**
+     * @return The largest number of rectangles in <em>batch</em> with a point in common; 0 if it's empty
+     *
+     * @throws IllegalArgumentException If <em>batch</em> is null
+     */
+    public static int maxDepth(final RectangleBatch batch) {
+        if(batch == null) throw new IllegalArgumentException("maxDepth:  batch cannot be null");
+
+        return batch.size() == 0 ? 0 : new Sweep(batch).run(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return The deepest overlap in <em>batch</em>
+     *
+     * @throws IllegalArgumentException If <em>batch</em> is null
+     */
+    public static Hotspot find(final RectangleBatch batch) {
+        if(batch == null) throw new IllegalArgumentException("find:  batch cannot be null");
+
+        if(batch.size() == 0) return new Hotspot(0, null, new int[0]);
+
+        final Sweep sweep = new Sweep(batch);
+        final int depth = sweep.run(Integer.MAX_VALUE);
+
+        // The tree only keeps the current column, so sweep again up to the first x where the depth was reached and
+        // read the region there
+        return sweep.hotspot(depth);
+    }
+
+    private static final class Sweep {
+        final double[] left, bottom, right, top;
+        final int n;
+        final int[] starts, ends;
+        final double[] ys;
+        final int[] bottomSlot, topSlot;
+
+        // Where the last call to run stopped:  the x it was at, and the positions in starts and ends
+        DepthTree tree;
+        double x;
+        int s, e;
+
+        Sweep(final RectangleBatch batch) {
+            n = batch.size();
+            left = batch.getLeftColumn();
+            bottom = batch.getBottomColumn();
+            right = batch.getRightColumn();
+            top = batch.getTopColumn();
+
+            starts = IndexSort.identity(n);
+            ends = IndexSort.identity(n);
+            IndexSort.sort(starts, 0, n, left);
+            IndexSort.sort(ends, 0, n, right);
+
+            final double[] all = new double[2 * n];
+            System.arraycopy(bottom, 0, all, 0, n);
+            System.arraycopy(top, 0, all, n, n);
+            Arrays.sort(all);
+
+            int distinct = 0;
+
+            for(int i = 0; i < all.length; i++) {
+                if(distinct == 0 || all[i] != all[distinct - 1]) all[distinct++] = all[i];
+            }
+
+            ys = Arrays.copyOf(all, distinct);
+
+            bottomSlot = new int[n];
+            topSlot = new int[n];
+
+            for(int i = 0; i < n; i++) {
+                bottomSlot[i] = Arrays.binarySearch(ys, bottom[i]);
+                topSlot[i] = Arrays.binarySearch(ys, top[i]);
+            }
+        }
+
+        /**
+         * Sweeps from the first left edge until the tree reaches <em>stopAt</em>, or to the end
+         *
+         * @return The largest value the tree held
+         */
+        int run(final int stopAt) {
+            tree = new DepthTree(ys.length - 1);
+            s = 0;
+            e = 0;
+
+            int best = 0;
+
+            while(s < n) {
+                x = left[starts[s]];
+
+                // A rectangle ending where another starts only shares an edge with it, so it leaves first
+                while(right[ends[e]] <= x) {
+                    final int row = ends[e++];
+                    tree.add(bottomSlot[row], topSlot[row], -1);
+                }
+
+                while(s < n && left[starts[s]] == x) {
+                    final int row = starts[s++];
+                    tree.add(bottomSlot[row], topSlot[row], 1);
+                }
+
+                // The depth can only grow when rectangles join, so it's enough to look after each x's starts
+                best = Math.max(best, tree.max());
+
+                if(best >= stopAt) break;
+            }
+
+            return best;
+        }
+
+        Hotspot hotspot(final int depth) {
+            run(depth);
+
+            // A cell as deep as any:  the first deepest slot, from this x to the next one where a rectangle starts or
+            // ends.  The same rectangles cover all of it.
+            final int slot = tree.firstMax();
+            final double cellBottom = ys[slot], cellTop = ys[slot + 1];
+
+            double cellRight = right[ends[e]];
+            if(s < n) cellRight = Math.min(cellRight, left[starts[s]]);
+
+            final int[] rows = new int[depth];
+            int count = 0;
+            double l = 0, b = 0, r = Double.POSITIVE_INFINITY, t = Double.POSITIVE_INFINITY;
+
+            for(int i = 0; i < n && count < depth; i++) {
+                if(left[i] <= x && right[i] >= cellRight && bottom[i] <= cellBottom && top[i] >= cellTop) {
+                    rows[count++] = i;
+
+                    l = Math.max(l, left[i]);
+                    b = Math.max(b, bottom[i]);
+                    r = Math.min(r, right[i]);
+                    t = Math.min(t, top[i]);
+                }
+            }
+
+            // Their overlap is covered by all of them, so it's as deep as any point can be
+            return new Hotspot(depth, new Rectangle(new Point(l, b), new Point(r, t)), rows);
+        }
+    }
+}
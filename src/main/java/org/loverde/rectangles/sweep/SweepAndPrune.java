@@ -0,0 +1,417 @@
+package org.loverde.rectangles.sweep;
+
+import java.util.Arrays;
+
+import org.loverde.rectangles.Boundaries;
+import org.loverde.rectangles.LongIntMap;
+import org.loverde.rectangles.PairConsumer;
+import org.loverde.rectangles.Rectangle;
+
+/**
+ * <p>Keeps track of which pairs in a set of moving rectangles overlap, doing work in proportion to how much changes
+ * between updates rather than to the size of the set.  This is the broad phase of a collision detector:  between
+ * frames most rectangles move a little or not at all, so most pairs which overlapped still do.</p>
+ *
+ * <p>The left and right edges of every rectangle are kept in one list sorted by x, and the bottom and top edges in
+ * another sorted by y.  When a rectangle moves, each of its edges is moved along its list by insertion sort.  Two
+ * rectangles can only start or stop overlapping when an edge of one passes an edge of the other, so only those passes
+ * are checked:  a lower edge passing below another rectangle's upper edge may start an overlap, and an upper edge
+ * passing below another's lower edge ends one.  When little moves, the edges only pass their neighbours, and an update
+ * takes close to constant time.</p>
+ *
+ * <p>Overlap has the same meaning as in {@link Rectangle#intersects}:  rectangles which only share an edge or a corner
+ * don't overlap.  If adjacency is included, rectangles which touch as in {@link Rectangle#isAdjacentTo} are paired as
+ * well.  The pairs which began or stopped overlapping since the last call to {@link #flush} are reported by it, so a
+ * pair which starts and stops between two flushes is never reported.  Rectangles are identified by ids chosen by the
+ * caller, and pairs are always reported with the smaller id first.  This class isn't thread safe.</p>
+ */
+public final class SweepAndPrune {
+
+    /**
+     * Receives the changes in the set of overlapping pairs.  Each pair is given with the smaller id first.
+     */
+    public interface PairListener {
+
+        void began(int first, int second);
+
+        void ended(int first, int second);
+    }
+
+    private static final int BEGAN = 1, ENDED = 0;
+
+    private final boolean includeAdjacent;
+
+    // Rectangles are stored by slot, and a removed rectangle's slot is reused.  A slot's boundaries sit together, four
+    // to a slot, since edges passing each other look up both rectangles' boundaries at once.
+    private final LongIntMap slotOfId = new LongIntMap(16);
+    private double[] bounds = new double[4 * 16];
+    private int[] ids = new int[16];
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount, slotCount;
+
+    private final Axis xAxis = new Axis(), yAxis = new Axis();
+
+    // The overlapping pairs, keyed by their packed ids, and the changes to them since the last flush
+    private final LongIntMap pairs = new LongIntMap(16);
+    private final LongIntMap changes = new LongIntMap(16);
+
+    /**
+     * Creates an empty set in which only overlapping rectangles are paired
+     */
+    public SweepAndPrune() {
+        this(false);
+    }
+
+    /**
+     * @param includeAdjacent If <em>true</em>, rectangles which only touch are paired as well as those which overlap
+     */
+    public SweepAndPrune(final boolean includeAdjacent) {
+        this.includeAdjacent = includeAdjacent;
+    }
+
+    public boolean isIncludeAdjacent() {
+        return includeAdjacent;
+    }
+
+    /** @return The number of rectangles in the set */
+    public int size() {
+        return slotOfId.size();
+    }
+
+    /** @return The number of pairs which currently overlap */
+    public int getPairCount() {
+        return pairs.size();
+    }
+
+    /** @return <em>true</em> if there's a rectangle with the given id */
+    public boolean contains(final int id) {
+        return slotOfId.get(id) >= 0;
+    }
+
+    /** @return <em>true</em> if the rectangles with the given ids currently overlap */
+    public boolean isPaired(final int first, final int second) {
+        return pairs.get(key(first, second)) >= 0;
+    }
+
+    /**
+     * Adds a rectangle.
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null, or there's already a rectangle with the given id
+     */
+    public void insert(final int id, final Rectangle r) {
+        if(r == null) throw new IllegalArgumentException("insert:  rectangle cannot be null");
+
+        insert(id, r.getLeftX(), r.getBottomY(), r.getRightX(), r.getTopY());
+    }
+
+    /**
+     * Adds a rectangle.  Its edges start at the ends of the lists and are sorted into place, which takes time in
+     * proportion to the number of edges they pass.
+     *
+     * @throws IllegalArgumentException If the boundaries don't describe a valid rectangle (see {@link Boundaries#validate}),
+     *                                  or there's already a rectangle with the given id
+     */
+    public void insert(final int id, final double l, final double b, final double r, final double t) {
+        Boundaries.validate(l, b, r, t);
+        if(slotOfId.get(id) >= 0) throw new IllegalArgumentException("insert:  id " + id + " is already in the set");
+
+        final int slot = allocateSlot();
+
+        ids[slot] = id;
+        slotOfId.put(id, slot);
+        setBounds(slot, l, b, r, t);
+
+        xAxis.sortDown(xAxis.append(lower(slot), l));
+        xAxis.sortDown(xAxis.append(upper(slot), r));
+        yAxis.sortDown(yAxis.append(lower(slot), b));
+        yAxis.sortDown(yAxis.append(upper(slot), t));
+    }
+
+    /**
+     * Moves the rectangle with the given id.
+     *
+     * @return <em>true</em> if the rectangle was moved; <em>false</em> if there was no such rectangle
+     *
+     * @throws IllegalArgumentException If <em>r</em> is null
+     */
+    public boolean update(final int id, final Rectangle r) {
+        if(r == null) throw new IllegalArgumentException("update:  rectangle cannot be null");
+
+        return update(id, r.getLeftX(), r.getBottomY(), r.getRightX(), r.getTopY());
+    }
+
+    /**
+     * Moves the rectangle with the given id.  This takes time in proportion to the number of edges its edges pass.
+     *
+     * @return <em>true</em> if the rectangle was moved; <em>false</em> if there was no such rectangle
+     *
+     * @throws IllegalArgumentException If the boundaries don't describe a valid rectangle (see {@link Boundaries#validate})
+     */
+    public boolean update(final int id, final double l, final double b, final double r, final double t) {
+        Boundaries.validate(l, b, r, t);
+
+        final int slot = slotOfId.get(id);
+
+        if(slot < 0) return false;
+
+        final double oldRight = bounds[4 * slot + 2], oldTop = bounds[4 * slot + 3];
+
+        setBounds(slot, l, b, r, t);
+
+        xAxis.move(slot, l, r, r > oldRight);
+        yAxis.move(slot, b, t, t > oldTop);
+
+        return true;
+    }
+
+    /**
+     * Removes the rectangle with the given id.  Every pair it was in is reported as ended by the next flush, unless
+     * it began since the last one.
+     *
+     * @return <em>true</em> if a rectangle was removed; <em>false</em> if there was no such rectangle
+     */
+    public boolean remove(final int id) {
+        final int slot = slotOfId.get(id);
+
+        if(slot < 0) return false;
+
+        xAxis.drop(slot);
+        yAxis.drop(slot);
+
+        slotOfId.remove(id);
+
+        if(freeSlotCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        freeSlots[freeSlotCount++] = slot;
+
+        return true;
+    }
+
+    /**
+     * Reports the pairs which began or stopped overlapping since the last flush, then forgets them.  A pair which did
+     * both is only reported if its final state differs from the one it was in at the last flush.  The order of the
+     * reports is undefined.
+     *
+     * @throws IllegalArgumentException If <em>listener</em> is null
+     */
+    public void flush(final PairListener listener) {
+        if(listener == null) throw new IllegalArgumentException("flush:  listener cannot be null");
+
+        changes.forEach((key, change) -> {
+            final int first = (int) (key >> 32), second = (int) key;
+
+            if(change == BEGAN) listener.began(first, second);
+            else listener.ended(first, second);
+        });
+
+        changes.clear();
+    }
+
+    /**
+     * Passes every pair which currently overlaps to <em>consumer</em>, with the smaller id first, in no particular
+     * order.  The set mustn't be changed while this runs.
+     *
+     * @throws IllegalArgumentException If <em>consumer</em> is null
+     */
+    public void forEachPair(final PairConsumer consumer) {
+        if(consumer == null) throw new IllegalArgumentException("forEachPair:  consumer cannot be null");
+
+        pairs.forEach((key, unused) -> consumer.accept((int) (key >> 32), (int) key));
+    }
+
+    private int allocateSlot() {
+        if(freeSlotCount > 0) return freeSlots[--freeSlotCount];
+
+        if(slotCount == ids.length) {
+            final int capacity = ids.length * 2;
+
+            bounds = Arrays.copyOf(bounds, 4 * capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+
+        return slotCount++;
+    }
+
+    private void setBounds(final int slot, final double l, final double b, final double r, final double t) {
+        bounds[4 * slot] = l;
+        bounds[4 * slot + 1] = b;
+        bounds[4 * slot + 2] = r;
+        bounds[4 * slot + 3] = t;
+    }
+
+    // The two edges of a slot on an axis are numbered 2 * slot for the lower one and 2 * slot + 1 for the upper one
+    private static int lower(final int slot) {
+        return 2 * slot;
+    }
+
+    private static int upper(final int slot) {
+        return 2 * slot + 1;
+    }
+
+    private static boolean isUpper(final int edge) {
+        return (edge & 1) != 0;
+    }
+
+    // Called when the lower edge of one rectangle has just passed below the upper edge of the other on one axis
+    private void mayBegin(final int a, final int b) {
+        // Rectangles which overlap or touch are exactly those whose closed ranges meet on both axes
+        final int p = 4 * a, q = 4 * b;
+        final boolean overlap = includeAdjacent
+                ? bounds[p] <= bounds[q + 2] && bounds[q] <= bounds[p + 2] && bounds[p + 1] <= bounds[q + 3] && bounds[q + 1] <= bounds[p + 3]
+                : Boundaries.intersects(bounds[p], bounds[p + 1], bounds[p + 2], bounds[p + 3], bounds[q], bounds[q + 1], bounds[q + 2], bounds[q + 3]);
+
+        if(overlap) {
+            final long key = key(ids[a], ids[b]);
+            if(pairs.put(key, 0) < 0) changed(key, BEGAN);
+        }
+    }
+
+    // Called when the upper edge of one rectangle has just passed below the lower edge of the other on one axis
+    private void end(final int a, final int b) {
+        final long key = key(ids[a], ids[b]);
+        if(pairs.remove(key) >= 0) changed(key, ENDED);
+    }
+
+    private void changed(final long key, final int change) {
+        // A change which undoes one made since the last flush cancels it
+        if(changes.remove(key) < 0) changes.put(key, change);
+    }
+
+    private static long key(final int a, final int b) {
+        final int first = Math.min(a, b), second = Math.max(a, b);
+        return (long) first << 32 | (second & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The edges of every rectangle on one axis, sorted by coordinate
+     */
+    private final class Axis {
+
+        private double[] values = new double[32];
+        private int[] edges = new int[32];
+        private int[] positions = new int[32];  // indexed by edge
+        private int count;
+
+        int append(final int edge, final double value) {
+            if(count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+                edges = Arrays.copyOf(edges, count * 2);
+            }
+
+            if(edge >= positions.length) positions = Arrays.copyOf(positions, Math.max(positions.length * 2, edge + 1));
+
+            values[count] = value;
+            edges[count] = edge;
+            positions[edge] = count;
+
+            return count++;
+        }
+
+        /**
+         * Gives a slot's edges new coordinates and sorts them into place.  If its upper edge is moving up, it goes first
+         * and the lower edge follows it; otherwise the lower edge goes first.  Either way, neither edge is stopped by
+         * the other before reaching its place.
+         */
+        void move(final int slot, final double lower, final double upper, final boolean upperFirst) {
+            final int lowerAt = positions[lower(slot)], upperAt = positions[upper(slot)];
+
+            values[lowerAt] = lower;
+            values[upperAt] = upper;
+
+            if(upperFirst) {
+                sort(upperAt);
+                sort(positions[lower(slot)]);
+            } else {
+                sort(lowerAt);
+                sort(positions[upper(slot)]);
+            }
+        }
+
+        /**
+         * Ends every pair the slot is in, and takes its edges out of the list.  The rest of the list is shifted down
+         * over them by position rather than by coordinate, since other rectangles' edges may be infinite too.
+         */
+        void drop(final int slot) {
+            final int from = positions[lower(slot)];
+            int to = from;
+
+            // Every rectangle overlapping this one has its upper edge after this one's lower edge
+            for(int at = from + 1; at < count; at++) {
+                final int edge = edges[at];
+
+                if(edge == upper(slot)) continue;
+                if(isUpper(edge)) end(slot, edge >>> 1);
+
+                values[to] = values[at];
+                edges[to] = edge;
+                positions[edge] = to++;
+            }
+
+            count -= 2;
+        }
+
+        private void sort(final int at) {
+            if(at > 0 && before(at, at - 1)) sortDown(at);
+            else sortUp(at);
+        }
+
+        void sortDown(int at) {
+            final double value = values[at];
+            final int edge = edges[at];
+
+            for(; at > 0 && before(value, edge, values[at - 1], edges[at - 1]); at--) {
+                final int passed = edges[at - 1];
+
+                if(edge >>> 1 != passed >>> 1) {
+                    if(!isUpper(edge) && isUpper(passed)) mayBegin(edge >>> 1, passed >>> 1);
+                    else if(isUpper(edge) && !isUpper(passed)) end(edge >>> 1, passed >>> 1);
+                }
+
+                values[at] = values[at - 1];
+                edges[at] = passed;
+                positions[passed] = at;
+            }
+
+            values[at] = value;
+            edges[at] = edge;
+            positions[edge] = at;
+        }
+
+        private void sortUp(int at) {
+            final double value = values[at];
+            final int edge = edges[at];
+
+            for(; at < count - 1 && before(values[at + 1], edges[at + 1], value, edge); at++) {
+                final int passed = edges[at + 1];
+
+                if(edge >>> 1 != passed >>> 1) {
+                    if(isUpper(edge) && !isUpper(passed)) mayBegin(edge >>> 1, passed >>> 1);
+                    else if(!isUpper(edge) && isUpper(passed)) end(edge >>> 1, passed >>> 1);
+                }
+
+                values[at] = values[at + 1];
+                edges[at] = passed;
+                positions[passed] = at;
+            }
+
+            values[at] = value;
+            edges[at] = edge;
+            positions[edge] = at;
+        }
+
+        private boolean before(final int i, final int j) {
+            return before(values[i], edges[i], values[j], edges[j]);
+        }
+
+        /**
+         * Edges are ordered by coordinate.  Where an upper and a lower edge have the same coordinate, their rectangles
+         * only touch, so the upper edge comes first unless touching counts:  that way the order alone says whether two
+         * rectangles' ranges on this axis overlap.
+         */
+        private boolean before(final double value, final int edge, final double otherValue, final int otherEdge) {
+            if(value != otherValue) return value < otherValue;
+            if(isUpper(edge) == isUpper(otherEdge)) return false;
+
+            return isUpper(edge) != includeAdjacent;
+        }
+    }
+}
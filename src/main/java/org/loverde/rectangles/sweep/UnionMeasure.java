@@ -0,0 +1,328 @@
+package org.loverde.rectangles.sweep;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.loverde.rectangles.IndexSort;
+import org.loverde.rectangles.RectangleBatch;
+
+/**
+ * <p>Measures the union of a set of rectangles:  the area they cover and the length of its outline, with overlapping
+ * parts counted once.  This is Klee's measure problem in two dimensions.</p>
+ *
+ * <p>A vertical line sweeps from left to right.  A {@link CoverageTree} over the rectangles' y coordinates holds the
+ * rectangles the line is crossing; between two consecutive x coordinates, the covered area grows by the tree's covered
+ * length times the distance moved.  The perimeter is the change in covered length at each event, for the vertical
+ * edges, plus twice the number of covered pieces times the distance moved, for the horizontal ones.  This takes
+ * O(N log N) time for N rectangles.</p>
+ *
+ * <p>The parallel variants cut the x axis into slabs holding roughly equal numbers of left edges, and sweep the slabs
+ * as tasks on a {@link ForkJoinPool}.  Each slab starts with the rectangles crossing its left edge already in its tree,
+ * so the slabs' measures add up to the whole.  The sum is taken in a fixed order, but rounding may still make it
+ * differ from the sequential result in the last bits.</p>
+ *
+ * <p>Rectangles which only share an edge are one region, so the shared edge isn't part of the perimeter.</p>
+ */
+public final class UnionMeasure {
+
+    /** The number of slabs per thread, so that a slab which runs long doesn't hold up the others */
+    private static final int SLABS_PER_THREAD = 4;
+
+    private UnionMeasure() {
+    }
+
+    /**
+     * @return The area covered by the rectangles in <em>batch</em>
+     *
+     * @throws IllegalArgumentException If <em>batch</em> is null
+     */
+    public static double area(final RectangleBatch batch) {
+        if(batch == null) throw new IllegalArgumentException("area:  batch cannot be null");
+
+        return new Sweep(batch, false).measure(null)[0];
+    }
+
+    /**
+     * @return The area covered by the rectangles in <em>batch</em>, measured in parallel on <em>pool</em>
+     *
+     * @throws IllegalArgumentException If <em>batch</em> or <em>pool</em> is null
+     */
+    public static double area(final RectangleBatch batch, final ForkJoinPool pool) {
+        if(batch == null) throw new IllegalArgumentException("area:  batch cannot be null");
+        if(pool == null) throw new IllegalArgumentException("area:  pool cannot be null");
+
+        return new Sweep(batch, false).measure(pool)[0];
+    }
+
+    /**
+     * @return The length of the outline of the region covered by the rectangles in <em>batch</em>, including the
+     *         outlines of any holes in it
+     *
+     * @throws IllegalArgumentException If <em>batch</em> is null
+     */
+    public static double perimeter(final RectangleBatch batch) {
+        if(batch == null) throw new IllegalArgumentException("perimeter:  batch cannot be null");
+
+        return new Sweep(batch, true).measure(null)[1];
+    }
+
+    /**
+     * @return The length of the outline of the region covered by the rectangles in <em>batch</em>, measured in
+     *         parallel on <em>pool</em>
+     *
+     * @throws IllegalArgumentException If <em>batch</em> or <em>pool</em> is null
+     */
+    public static double perimeter(final RectangleBatch batch, final ForkJoinPool pool) {
+        if(batch == null) throw new IllegalArgumentException("perimeter:  batch cannot be null");
+        if(pool == null) throw new IllegalArgumentException("perimeter:  pool cannot be null");
+
+        return new Sweep(batch, true).measure(pool)[1];
+    }
+
+    /** The rows of a batch sorted by left and by right edge, cut into slabs */
+    private static final class Sweep {
+        final double[] left, bottom, right, top;
+        final int n;
+        final boolean perimeter;
+        final int[] starts, ends;
+
+        // The sorted, distinct y coordinates, and the position of each rectangle's bottom and top among them
+        final double[] ys;
+        final int[] bottomSlot, topSlot;
+
+        Sweep(final RectangleBatch batch, final boolean perimeter) {
+            n = batch.size();
+            left = batch.getLeftColumn();
+            bottom = batch.getBottomColumn();
+            right = batch.getRightColumn();
+            top = batch.getTopColumn();
+            this.perimeter = perimeter;
+
+            starts = IndexSort.identity(n);
+            ends = IndexSort.identity(n);
+            IndexSort.sort(starts, 0, n, left);
+            IndexSort.sort(ends, 0, n, right);
+
+            // Numbering the coordinates once, in order, saves searching for them on every event
+            final double[] values = new double[2 * n];
+            System.arraycopy(bottom, 0, values, 0, n);
+            System.arraycopy(top, 0, values, n, n);
+
+            final int[] order = IndexSort.identity(2 * n);
+            IndexSort.sort(order, 0, 2 * n, values);
+
+            final double[] distinct = new double[2 * n];
+            int count = 0;
+
+            bottomSlot = new int[n];
+            topSlot = new int[n];
+
+            for(final int i : order) {
+                if(count == 0 || values[i] != distinct[count - 1]) distinct[count++] = values[i];
+
+                if(i < n) bottomSlot[i] = count - 1;
+                else topSlot[i - n] = count - 1;
+            }
+
+            ys = Arrays.copyOf(distinct, count);
+        }
+
+        /**
+         * @param pool The pool to sweep the slabs on, or null to sweep the whole axis on this thread
+         *
+         * @return The area and the perimeter; the perimeter is only measured if it was asked for
+         */
+        double[] measure(final ForkJoinPool pool) {
+            if(n == 0) return new double[2];
+
+            final double[] cuts = pool == null ? new double[] { left[starts[0]] } : cuts(pool.getParallelism() * SLABS_PER_THREAD);
+
+            return pool == null ? slab(cuts, 0) : pool.invoke(new SlabTask(this, cuts, 0, cuts.length));
+        }
+
+        /** @return The left edges of up to <em>slabs</em> slabs, each starting at a rectangle's left edge */
+        private double[] cuts(final int slabs) {
+            final int count = Math.max(1, Math.min(slabs, n));
+            final double[] cuts = new double[count];
+            int distinct = 0;
+
+            for(int k = 0; k < count; k++) {
+                final double x = left[starts[(int) ((long) k * n / count)]];
+
+                if(distinct == 0 || x > cuts[distinct - 1]) cuts[distinct++] = x;
+            }
+
+            return Arrays.copyOf(cuts, distinct);
+        }
+
+        /** Sweeps from <code>cuts[k]</code> up to the next cut, or to the end if it's the last slab */
+        double[] slab(final double[] cuts, final int k) {
+            final double x0 = cuts[k];
+            final double limit = k + 1 < cuts.length ? cuts[k + 1] : Double.POSITIVE_INFINITY;
+
+            final int sFrom = lowerBound(starts, left, x0), sTo = lowerBound(starts, left, limit);
+            final int eFrom = lowerBound(ends, right, x0), eTo = lowerBound(ends, right, limit);
+
+            // The rectangles already crossing the slab's left edge:  those which started before it and haven't ended.
+            // Ones ending exactly at the edge are removed with the edge's events, as the sequential sweep would.
+            final int[] crossing = crossing(x0, sFrom, eFrom);
+
+            // A slab which doesn't see every rectangle gets a tree over just the coordinates it sees, which is smaller
+            final int[] slots = sFrom == 0 && sTo == n ? null : slots(crossing, sFrom, sTo);
+            final CoverageTree tree = new CoverageTree(slots == null ? ys : coordinates(slots), perimeter);
+
+            for(final int row : crossing) add(tree, slots, row, 1);
+
+            double area = 0, outline = 0;
+            double previous = tree.covered();
+            double x = x0;
+            int s = sFrom, e = eFrom;
+
+            while(true) {
+                // A rectangle starting where another ends shares its edge, so starts go first and the shared part never
+                // shows.  The outline is measured after every event rather than once per x:  one rectangle ending where
+                // another starts leaves the covered length unchanged, but both edges are part of the outline.
+                while(s < sTo && left[starts[s]] == x) {
+                    add(tree, slots, starts[s++], 1);
+
+                    if(perimeter) {
+                        outline += tree.covered() - previous;
+                        previous = tree.covered();
+                    }
+                }
+
+                while(e < eTo && right[ends[e]] == x) {
+                    add(tree, slots, ends[e++], -1);
+
+                    if(perimeter) {
+                        outline += previous - tree.covered();
+                        previous = tree.covered();
+                    }
+                }
+
+                final double covered = tree.covered();
+
+                double next = limit;
+
+                if(s < sTo) next = Math.min(next, left[starts[s]]);
+                if(e < eTo) next = Math.min(next, right[ends[e]]);
+
+                if(next == Double.POSITIVE_INFINITY) break;
+
+                area += covered * (next - x);
+                if(perimeter) outline += 2 * tree.pieces() * (next - x);
+
+                if(next == limit) break;
+
+                x = next;
+            }
+
+            return new double[] { area, outline };
+        }
+
+        private void add(final CoverageTree tree, final int[] slots, final int row, final int delta) {
+            if(slots == null) tree.add(bottomSlot[row], topSlot[row], delta);
+            else tree.add(Arrays.binarySearch(slots, bottomSlot[row]), Arrays.binarySearch(slots, topSlot[row]), delta);
+        }
+
+        /** @return The sorted, distinct slots of the y coordinates of the rectangles a slab sees */
+        private int[] slots(final int[] crossing, final int sFrom, final int sTo) {
+            final int[] slots = new int[2 * (crossing.length + sTo - sFrom)];
+            int count = 0;
+
+            for(final int row : crossing) {
+                slots[count++] = bottomSlot[row];
+                slots[count++] = topSlot[row];
+            }
+
+            for(int s = sFrom; s < sTo; s++) {
+                slots[count++] = bottomSlot[starts[s]];
+                slots[count++] = topSlot[starts[s]];
+            }
+
+            Arrays.sort(slots);
+
+            int distinct = 0;
+
+            for(int i = 0; i < count; i++) {
+                if(distinct == 0 || slots[i] != slots[distinct - 1]) slots[distinct++] = slots[i];
+            }
+
+            return Arrays.copyOf(slots, distinct);
+        }
+
+        private double[] coordinates(final int[] slots) {
+            final double[] coordinates = new double[slots.length];
+
+            for(int i = 0; i < slots.length; i++) coordinates[i] = ys[slots[i]];
+
+            return coordinates;
+        }
+
+        /**
+         * @return The rectangles with their left edge before <em>x0</em> and their right edge at or after it, found by
+         *         scanning whichever of the two sorted lists is shorter
+         */
+        private int[] crossing(final double x0, final int sFrom, final int eFrom) {
+            final int[] rows = new int[Math.min(sFrom, n - eFrom)];
+            int count = 0;
+
+            if(sFrom <= n - eFrom) {
+                for(int s = 0; s < sFrom; s++) {
+                    if(right[starts[s]] >= x0) rows[count++] = starts[s];
+                }
+            } else {
+                for(int e = eFrom; e < n; e++) {
+                    if(left[ends[e]] < x0) rows[count++] = ends[e];
+                }
+            }
+
+            return Arrays.copyOf(rows, count);
+        }
+
+        /** @return The first position in <em>rows</em>, sorted by <em>keys</em>, whose key isn't less than <em>x</em> */
+        private static int lowerBound(final int[] rows, final double[] keys, final double x) {
+            int lo = 0, hi = rows.length;
+
+            while(lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+
+                if(keys[rows[mid]] < x) lo = mid + 1;
+                else hi = mid;
+            }
+
+            return lo;
+        }
+    }
+
+    private static final class SlabTask extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final Sweep sweep;
+        private final double[] cuts;
+        private final int from, to;
+
+        SlabTask(final Sweep sweep, final double[] cuts, final int from, final int to) {
+            this.sweep = sweep;
+            this.cuts = cuts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[] compute() {
+            if(to - from == 1) return sweep.slab(cuts, from);
+
+            final int mid = (from + to) >>> 1;
+            final SlabTask low = new SlabTask(sweep, cuts, from, mid);
+            final SlabTask high = new SlabTask(sweep, cuts, mid, to);
+
+            high.fork();
+
+            final double[] a = low.compute(), b = high.join();
+
+            return new double[] { a[0] + b[0], a[1] + b[1] };
+        }
+    }
+}
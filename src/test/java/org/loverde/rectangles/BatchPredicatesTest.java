@@ -0,0 +1,38 @@
+package org.loverde.rectangles;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+public class BatchPredicatesTest {
+
+    // The vector jar isn't on the main test class path, so this has to fall back to the scalar loops
+    @Test
+    public void fastest_fallsBackToScalar() {
+        assertSame(BatchPredicates.scalar(), BatchPredicates.fastest());
+    }
+
+    @Test
+    public void scalar_delegatesToBatch() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(1, 11, 7, 17);
+        batch.add(5, 0, 8, 1);
+
+        final boolean[] result = new boolean[2];
+        BatchPredicates.scalar().intersects(batch, new Rectangle(new Point(4, 2), new Point(17, 14)), result);
+
+        assertArrayEquals(new boolean[] { true, false }, result);
+    }
+
+    @Test
+    public void scalar_nullBatch() {
+        final Exception e = assertThrows(IllegalArgumentException.class,
+            () -> BatchPredicates.scalar().contains(null, new Rectangle(new Point(0, 0), new Point(1, 1)), new boolean[0]));
+
+        assertEquals("contains:  batch cannot be null", e.getMessage());
+    }
+}
@@ -0,0 +1,70 @@
+package org.loverde.rectangles;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+public class BoundariesTest {
+
+    @Test
+    public void validate_success() {
+        assertNull(Boundaries.validationError(0, 0, 1, 1));
+        Boundaries.validate(0, 0, 1, 1);
+    }
+
+    // The messages must match those thrown when the same values are passed to Point and Rectangle
+    @Test
+    public void validate_sameMessagesAsConstructors() {
+        final double[][] invalid = {
+            { -1, 0, 1, 1 },
+            { 0, -1, 1, 1 },
+            { 0, 0, -1, 1 },
+            { 0, 0, 1, -1 },
+            { 1, 0, 1, 1 },
+            { 2, 0, 1, 1 },
+            { 0, 1, 1, 1 },
+            { 0, 2, 1, 1 },
+            { 1, -1, -1, 1 }
+        };
+
+        for(final double[] b : invalid) {
+            final Exception expected = assertThrows(IllegalArgumentException.class,
+                () -> new Rectangle(new Point(b[0], b[1]), new Point(b[2], b[3])));
+
+            final Exception actual = assertThrows(IllegalArgumentException.class, () -> Boundaries.validate(b[0], b[1], b[2], b[3]));
+
+            assertEquals(expected.getMessage(), actual.getMessage());
+            assertEquals(expected.getMessage(), Boundaries.validationError(b[0], b[1], b[2], b[3]));
+        }
+    }
+
+    // Every pair of rectangles on a small grid must get the same answers as from Rectangle
+    @Test
+    public void predicates_agreeWithRectangle() {
+        final List<Rectangle> rectangles = new ArrayList<>();
+
+        for(int x1 = 0; x1 < 4; x1++)
+            for(int x2 = x1 + 1; x2 <= 4; x2++)
+                for(int y1 = 0; y1 < 4; y1++)
+                    for(int y2 = y1 + 1; y2 <= 4; y2++)
+                        rectangles.add(new Rectangle(new Point(x1, y1), new Point(x2, y2)));
+
+        for(final Rectangle a : rectangles) {
+            for(final Rectangle b : rectangles) {
+                final double l1 = a.getLeftX(), b1 = a.getBottomY(), r1 = a.getRightX(), t1 = a.getTopY();
+                final double l2 = b.getLeftX(), b2 = b.getBottomY(), r2 = b.getRightX(), t2 = b.getTopY();
+
+                assertEquals(a.getIntersection(b) != null, Boundaries.intersects(l1, b1, r1, t1, l2, b2, r2, t2));
+                assertEquals(a.contains(b), Boundaries.contains(l1, b1, r1, t1, l2, b2, r2, t2));
+                assertEquals(a.isAdjacentTo(b), Boundaries.isAdjacent(l1, b1, r1, t1, l2, b2, r2, t2));
+                assertEquals(a.relate(b), Boundaries.relate(l1, b1, r1, t1, l2, b2, r2, t2));
+            }
+        }
+    }
+}
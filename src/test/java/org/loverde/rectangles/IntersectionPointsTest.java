@@ -0,0 +1,124 @@
+package org.loverde.rectangles;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class IntersectionPointsTest {
+
+    private final Rectangle r1 = new Rectangle(
+        new Point(4, 2),
+        new Point(17, 14)
+    );
+
+    @Test
+    public void computeIntersectingPoints_nullRectangle() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> r1.computeIntersectingPoints(null));
+        assertEquals("computeIntersectingPoints:  rectangle cannot be null", e.getMessage());
+    }
+
+    // See intersections.png #1
+    @Test
+    public void twoPoints() {
+        final IntersectionPoints points = r1.computeIntersectingPoints(new Rectangle(new Point(1, 11), new Point(7, 17)));
+
+        assertEquals(IntersectionPoints.LOWER_LEFT | IntersectionPoints.UPPER_RIGHT, points.getMask());
+        assertEquals(2, points.size());
+        assertTrue(points.has(IntersectionPoints.LOWER_LEFT));
+        assertFalse(points.has(IntersectionPoints.UPPER_LEFT));
+        assertEquals(new Rectangle(new Point(4, 11), new Point(7, 14)), points.getOverlap());
+
+        final Set<Point> set = points.asSet();
+
+        assertEquals(2, set.size());
+        assertTrue(set.contains(new Point(4, 11)));
+        assertTrue(set.contains(new Point(7, 14)));
+        assertFalse(set.contains(new Point(4, 14)));
+    }
+
+    // See intersections.png #5
+    @Test
+    public void fourPoints() {
+        final IntersectionPoints points = r1.computeIntersectingPoints(new Rectangle(new Point(9, 1), new Point(11, 15)));
+
+        assertEquals(4, points.size());
+        assertEquals(0b1111, points.getMask());
+    }
+
+    // See intersections.png #8
+    @Test
+    public void noIntersection() {
+        final IntersectionPoints points = r1.computeIntersectingPoints(new Rectangle(new Point(5, 0), new Point(8, 1)));
+
+        assertTrue(points.isEmpty());
+        assertTrue(points.asSet().isEmpty());
+        assertNull(points.getOverlap());
+    }
+
+    // Containment produces an overlap region, but none of its vertices are on an edge of the container
+    @Test
+    public void containment() {
+        final Rectangle inner = new Rectangle(new Point(5, 3), new Point(6, 4));
+        final IntersectionPoints points = r1.computeIntersectingPoints(inner);
+
+        assertTrue(points.isEmpty());
+        assertEquals(inner, points.getOverlap());
+    }
+
+    @Test
+    public void asSet_unmodifiable() {
+        final Set<Point> set = r1.computeIntersectingPoints(new Rectangle(new Point(1, 11), new Point(7, 17))).asSet();
+
+        assertThrows(UnsupportedOperationException.class, () -> set.add(new Point(1, 1)));
+        assertThrows(UnsupportedOperationException.class, () -> set.iterator().remove());
+    }
+
+    // Every pair of rectangles on a small grid must give the same points as the vertex-by-vertex check
+    @Test
+    public void agreesWithVertexCheck() {
+        final List<Rectangle> rectangles = new ArrayList<>();
+
+        for(int x1 = 0; x1 < 4; x1++)
+            for(int x2 = x1 + 1; x2 <= 4; x2++)
+                for(int y1 = 0; y1 < 4; y1++)
+                    for(int y2 = y1 + 1; y2 <= 4; y2++)
+                        rectangles.add(new Rectangle(new Point(x1, y1), new Point(x2, y2)));
+
+        for(final Rectangle a : rectangles) {
+            for(final Rectangle b : rectangles) {
+                final Set<Point> actual = a.getIntersectingPoints(b);
+                final Set<Point> expected = vertexCheck(a, b);
+
+                assertEquals(expected, actual);
+                assertEquals(expected.hashCode(), actual.hashCode());
+            }
+        }
+    }
+
+    private static Set<Point> vertexCheck(final Rectangle a, final Rectangle b) {
+        final Set<Point> points = new HashSet<>();
+        final Rectangle overlap = a.getIntersection(b);
+
+        if(overlap != null) {
+            for(final Point p : new Point[] { overlap.getLowerLeft(), overlap.getUpperLeft(), overlap.getUpperRight(), overlap.getLowerRight() }) {
+                if(isOnEdge(p, a) && isOnEdge(p, b)) points.add(p);
+            }
+        }
+
+        return points;
+    }
+
+    private static boolean isOnEdge(final Point p, final Rectangle r) {
+        return p.getX() == r.getLeftX() || p.getX() == r.getRightX() || p.getY() == r.getBottomY() || p.getY() == r.getTopY();
+    }
+}
@@ -0,0 +1,70 @@
+package org.loverde.rectangles;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+public class LongIntMapTest {
+
+    @Test
+    public void matchesHashMap() {
+        final Random random = new Random(4);
+        final LongIntMap map = new LongIntMap(4);
+        final Map<Long, Integer> expected = new HashMap<>();
+
+        // Few distinct keys, so puts, overwrites and removes all collide often
+        for(int i = 0; i < 200_000; i++) {
+            final long key = (long) random.nextInt(64) << 32 | random.nextInt(64);
+
+            if(random.nextInt(3) == 0) {
+                assertEquals(expected.getOrDefault(key, -1), map.remove(key));
+                expected.remove(key);
+            } else {
+                final int value = random.nextInt(1000);
+                assertEquals(expected.getOrDefault(key, -1), map.put(key, value));
+                expected.put(key, value);
+            }
+
+            assertEquals(expected.size(), map.size());
+        }
+
+        for(int column = 0; column < 64; column++) {
+            for(int row = 0; row < 64; row++) {
+                final long key = (long) column << 32 | row;
+                assertEquals(expected.getOrDefault(key, -1), map.get(key));
+            }
+        }
+    }
+
+    @Test
+    public void forEachVisitsEveryEntry() {
+        final LongIntMap map = new LongIntMap(4);
+        final Map<Long, Integer> expected = new HashMap<>();
+
+        for(int i = 0; i < 1000; i++) {
+            map.put(i * 31L, i);
+            expected.put(i * 31L, i);
+        }
+
+        for(int i = 0; i < 1000; i += 3) {
+            map.remove(i * 31L);
+            expected.remove(i * 31L);
+        }
+
+        final Map<Long, Integer> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(-1, map.get(31L));
+
+        map.forEach((key, value) -> visited.remove(key));
+        assertEquals(expected, visited);
+    }
+}
@@ -0,0 +1,170 @@
+package org.loverde.rectangles;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+public class RectangleBatchTest {
+
+    private final Rectangle query = new Rectangle(new Point(4, 2), new Point(17, 14));
+
+    private RectangleBatch batch;
+
+    @BeforeEach
+    public void setUp() {
+        // Starts small so that the batch has to grow
+        batch = new RectangleBatch(1);
+
+        batch.add(new Rectangle(new Point(1, 11), new Point(7, 17)));   // intersection.png #1
+        batch.add(new Rectangle(new Point(5, 1), new Point(8, 2)));     // intersection.png #7:  adjacent
+        batch.add(new Rectangle(new Point(5, 0), new Point(8, 1)));     // intersection.png #8:  disjoint
+        batch.add(new Rectangle(new Point(5, 3), new Point(6, 4)));     // contained by the query
+        batch.add(new Rectangle(new Point(3, 1), new Point(18, 15)));   // contains the query
+        batch.add(4, 2, 17, 14);                                        // equal to the query
+    }
+
+    @Test
+    public void add_returnsIndex() {
+        assertEquals(6, batch.add(0, 0, 1, 1));
+        assertEquals(7, batch.size());
+    }
+
+    @Test
+    public void add_invalid() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> batch.add(4, 2, 4, 10));
+        assertEquals("upperRight.x must be greater than lowerLeft.x", e.getMessage());
+        assertEquals(6, batch.size());
+    }
+
+    @Test
+    public void get() {
+        assertEquals(new Rectangle(new Point(5, 3), new Point(6, 4)), batch.get(3));
+        assertEquals(5, batch.getLeftX(3));
+        assertEquals(3, batch.getBottomY(3));
+        assertEquals(6, batch.getRightX(3));
+        assertEquals(4, batch.getTopY(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> batch.get(6));
+    }
+
+    @Test
+    public void addAll() {
+        final RectangleBatch copy = new RectangleBatch(0);
+        copy.add(9, 9, 10, 10);
+        copy.addAll(batch);
+        copy.addAll(new RectangleBatch());
+
+        assertEquals(batch.size() + 1, copy.size());
+
+        for(int i = 0; i < batch.size(); i++) {
+            assertEquals(batch.get(i), copy.get(i + 1));
+        }
+
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> copy.addAll(null));
+        assertEquals("addAll:  batch cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void addColumns() {
+        final RectangleBatch copy = new RectangleBatch(0);
+        copy.add(9, 9, 10, 10);
+
+        final DoubleBuffer left = DoubleBuffer.wrap(batch.getLeftColumn(), 0, batch.size()), bottom = DoubleBuffer.wrap(batch.getBottomColumn(), 0, batch.size());
+        final DoubleBuffer right = DoubleBuffer.wrap(batch.getRightColumn(), 0, batch.size()), top = DoubleBuffer.wrap(batch.getTopColumn(), 0, batch.size());
+
+        copy.addColumns(left, bottom, right, top);
+
+        assertEquals(batch.size() + 1, copy.size());
+        assertEquals(0, left.remaining());
+
+        for(int i = 0; i < batch.size(); i++) {
+            assertEquals(batch.get(i), copy.get(i + 1));
+        }
+
+        final Exception e = assertThrows(IllegalArgumentException.class,
+            () -> copy.addColumns(DoubleBuffer.allocate(2), DoubleBuffer.allocate(2), DoubleBuffer.allocate(1), DoubleBuffer.allocate(2)));
+        assertEquals("addColumns:  columns must be the same length", e.getMessage());
+    }
+
+    @Test
+    public void addColumns_invalidRow() {
+        final RectangleBatch copy = new RectangleBatch(0);
+        copy.add(9, 9, 10, 10);
+
+        final Exception e = assertThrows(IllegalArgumentException.class,
+            () -> copy.addColumns(DoubleBuffer.wrap(new double[] { 0, 5, 0 }), DoubleBuffer.wrap(new double[] { 0, 0, 0 }),
+                                  DoubleBuffer.wrap(new double[] { 1, 4, 1 }), DoubleBuffer.wrap(new double[] { 1, 1, 1 })));
+        assertEquals("addColumns:  row 1 is invalid:  upperRight.x must be greater than lowerLeft.x", e.getMessage());
+
+        // None of the rows were added
+        assertEquals(1, copy.size());
+        assertEquals(1, copy.add(2, 2, 3, 3));
+    }
+
+    @Test
+    public void clear() {
+        batch.clear();
+        assertEquals(0, batch.size());
+    }
+
+    @Test
+    public void intersects() {
+        final boolean[] result = new boolean[batch.size()];
+        batch.intersects(query, result);
+        assertArrayEquals(new boolean[] { true, false, false, true, true, true }, result);
+    }
+
+    @Test
+    public void contains() {
+        final boolean[] result = new boolean[batch.size()];
+        batch.contains(query, result);
+        assertArrayEquals(new boolean[] { false, false, false, false, true, false }, result);
+    }
+
+    @Test
+    public void isContainedBy() {
+        final boolean[] result = new boolean[batch.size()];
+        batch.isContainedBy(query, result);
+        assertArrayEquals(new boolean[] { false, false, false, true, false, false }, result);
+    }
+
+    @Test
+    public void isAdjacentTo() {
+        final boolean[] result = new boolean[batch.size()];
+        batch.isAdjacentTo(query, result);
+        assertArrayEquals(new boolean[] { false, true, false, false, false, false }, result);
+    }
+
+    @Test
+    public void getIntersection() {
+        final int[] indices = new int[batch.size()];
+        final RectangleBatch overlaps = new RectangleBatch();
+
+        assertEquals(4, batch.getIntersection(query, indices, overlaps));
+        assertEquals(4, overlaps.size());
+
+        final int[] expectedIndices = { 0, 3, 4, 5 };
+
+        for(int i = 0; i < 4; i++) {
+            assertEquals(expectedIndices[i], indices[i]);
+            assertEquals(batch.get(indices[i]).getIntersection(query), overlaps.get(i));
+        }
+    }
+
+    @Test
+    public void resultTooSmall() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> batch.intersects(query, new boolean[5]));
+        assertEquals("intersects:  result must hold at least 6 elements", e.getMessage());
+    }
+
+    @Test
+    public void nullQuery() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> batch.contains(null, new boolean[6]));
+        assertEquals("contains:  rectangle cannot be null", e.getMessage());
+    }
+}
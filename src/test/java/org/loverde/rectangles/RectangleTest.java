@@ -2,7 +2,10 @@ package org.loverde.rectangles;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Objects;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -122,4 +125,22 @@ public class RectangleTest {
     public void getTopY() {
         assertEquals(30, r.getTopY());
     }
+
+    @Test
+    public void getVertices_newInstanceEachCall() {
+        assertEquals(r.getLowerLeft(), r.getLowerLeft());
+        assertNotSame(r.getLowerLeft(), r.getLowerLeft());
+    }
+
+    @Test
+    public void equals() {
+        assertEquals(r, new Rectangle(new Point(5, 20), new Point(10, 30)));
+        assertNotEquals(r, new Rectangle(new Point(5, 20), new Point(10, 31)));
+        assertNotEquals(r, new Rectangle(new Point(6, 20), new Point(10, 30)));
+    }
+
+    @Test
+    public void hashCode_sameAsVertexHash() {
+        assertEquals(Objects.hash(r.getLowerLeft(), r.getUpperRight()), r.hashCode());
+    }
 }
@@ -0,0 +1,73 @@
+package org.loverde.rectangles;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class RectangleTest_intersects {
+
+    private final Rectangle r1 = new Rectangle(
+        new Point(4, 2),
+        new Point(17, 14)
+    );
+
+    @Test
+    public void intersects_nullRectangle() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> r1.intersects(null));
+        assertEquals("intersects:  rectangle cannot be null", e.getMessage());
+    }
+
+    // See intersection.png, rectangles #1 - #6
+    @Test
+    public void intersects_overlapping() {
+        assertIntersects(r1, new Rectangle(new Point(1, 11), new Point(7, 17)));
+        assertIntersects(r1, new Rectangle(new Point(13, 11), new Point(19, 17)));
+        assertIntersects(r1, new Rectangle(new Point(1, 3), new Point(7, 8)));
+        assertIntersects(r1, new Rectangle(new Point(13, 3), new Point(19, 8)));
+        assertIntersects(r1, new Rectangle(new Point(9, 1), new Point(11, 15)));
+        assertIntersects(r1, new Rectangle(new Point(4, 9), new Point(17, 10)));
+    }
+
+    // See intersection.png, rectangle #7.  A shared edge is not an intersection.
+    @Test
+    public void intersects_adjacentEdge() {
+        assertDoesNotIntersect(r1, new Rectangle(new Point(5, 1), new Point(8, 2)));
+    }
+
+    // See intersection.png, rectangle #8
+    @Test
+    public void intersects_disjoint() {
+        assertDoesNotIntersect(r1, new Rectangle(new Point(5, 0), new Point(8, 1)));
+    }
+
+    @Test
+    public void intersects_sharedCornerOnly() {
+        assertDoesNotIntersect(r1, new Rectangle(new Point(17, 14), new Point(20, 16)));
+    }
+
+    @Test
+    public void intersects_perfectlyOverlapped() {
+        assertIntersects(r1, new Rectangle(new Point(4, 2), new Point(17, 14)));
+    }
+
+    @Test
+    public void intersects_containment() {
+        assertIntersects(r1, new Rectangle(new Point(5, 3), new Point(6, 4)));
+    }
+
+    private static void assertIntersects(final Rectangle a, final Rectangle b) {
+        assertTrue(a.intersects(b));
+        assertTrue(b.intersects(a));
+        assertEquals(a.getIntersection(b) != null, a.intersects(b));
+    }
+
+    private static void assertDoesNotIntersect(final Rectangle a, final Rectangle b) {
+        assertFalse(a.intersects(b));
+        assertFalse(b.intersects(a));
+        assertEquals(a.getIntersection(b) != null, a.intersects(b));
+    }
+}
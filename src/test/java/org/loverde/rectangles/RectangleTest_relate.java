@@ -0,0 +1,121 @@
+package org.loverde.rectangles;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+public class RectangleTest_relate {
+
+    private final Rectangle r1 = new Rectangle(new Point(4, 2), new Point(17, 14));
+
+    @Test
+    public void relate_nullRectangle() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> r1.relate(null));
+        assertEquals("relate:  rectangle cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void relate_equal() {
+        assertRelationship(Relationship.EQUAL, Relationship.EQUAL, r1, new Rectangle(new Point(4, 2), new Point(17, 14)));
+    }
+
+    // See containment.png #1
+    @Test
+    public void relate_contains() {
+        final Rectangle black = new Rectangle(new Point(2, 17), new Point(10, 22));
+        final Rectangle red = new Rectangle(new Point(3, 18), new Point(9, 21));
+
+        assertRelationship(Relationship.CONTAINS, Relationship.CONTAINED_BY, black, red);
+    }
+
+    // See containment.png #3.  A shared edge means there's no containment, only intersection.
+    @Test
+    public void relate_containmentWithSharedEdge() {
+        final Rectangle black = new Rectangle(new Point(20, 17), new Point(24, 22));
+        final Rectangle red = new Rectangle(new Point(20, 18), new Point(23, 21));
+
+        assertRelationship(Relationship.INTERSECTS, Relationship.INTERSECTS, black, red);
+    }
+
+    // See intersection.png #1
+    @Test
+    public void relate_intersects() {
+        assertRelationship(Relationship.INTERSECTS, Relationship.INTERSECTS, r1, new Rectangle(new Point(1, 11), new Point(7, 17)));
+    }
+
+    // See adjacency.png #5
+    @Test
+    public void relate_adjacentProper() {
+        final Rectangle a = new Rectangle(new Point(20, 19), new Point(22, 23));
+        final Rectangle b = new Rectangle(new Point(22, 19), new Point(24, 23));
+
+        assertRelationship(Relationship.ADJACENT_PROPER, Relationship.ADJACENT_PROPER, a, b);
+    }
+
+    // See adjacency.png #1
+    @Test
+    public void relate_adjacentSubLine() {
+        final Rectangle a = new Rectangle(new Point(0, 19), new Point(3, 23));
+        final Rectangle b = new Rectangle(new Point(3, 20), new Point(4, 22));
+
+        assertRelationship(Relationship.ADJACENT_SUB_LINE, Relationship.ADJACENT_SUB_LINE, a, b);
+    }
+
+    // See adjacency.png #7
+    @Test
+    public void relate_adjacentPartial() {
+        final Rectangle a = new Rectangle(new Point(0, 14), new Point(2, 17));
+        final Rectangle b = new Rectangle(new Point(2, 15), new Point(4, 18));
+
+        assertRelationship(Relationship.ADJACENT_PARTIAL, Relationship.ADJACENT_PARTIAL, a, b);
+    }
+
+    @Test
+    public void relate_adjacentCornerOnly() {
+        assertRelationship(Relationship.ADJACENT_PARTIAL, Relationship.ADJACENT_PARTIAL, r1, new Rectangle(new Point(17, 14), new Point(20, 16)));
+    }
+
+    // See adjacency.png #13
+    @Test
+    public void relate_disjoint() {
+        final Rectangle a = new Rectangle(new Point(0, 9), new Point(2, 13));
+        final Rectangle b = new Rectangle(new Point(3, 10), new Point(4, 12));
+
+        assertRelationship(Relationship.DISJOINT, Relationship.DISJOINT, a, b);
+    }
+
+    // Every pair of rectangles on a small grid must get the same answer from relate() as from the individual methods
+    @Test
+    public void relate_agreesWithIndividualMethods() {
+        final List<Rectangle> rectangles = new ArrayList<>();
+
+        for(int x1 = 0; x1 < 4; x1++)
+            for(int x2 = x1 + 1; x2 <= 4; x2++)
+                for(int y1 = 0; y1 < 4; y1++)
+                    for(int y2 = y1 + 1; y2 <= 4; y2++)
+                        rectangles.add(new Rectangle(new Point(x1, y1), new Point(x2, y2)));
+
+        for(final Rectangle a : rectangles) {
+            for(final Rectangle b : rectangles) {
+                final Relationship rel = a.relate(b);
+
+                assertEquals(a.equals(b), rel == Relationship.EQUAL);
+                assertEquals(a.contains(b), rel == Relationship.CONTAINS);
+                assertEquals(a.isContainedBy(b), rel == Relationship.CONTAINED_BY);
+                assertEquals(a.hasContainmentWith(b), rel.hasContainment());
+                assertEquals(a.intersects(b), rel.isIntersecting());
+                assertEquals(a.isAdjacentTo(b), rel.isAdjacent());
+            }
+        }
+    }
+
+    private static void assertRelationship(final Relationship expectedAB, final Relationship expectedBA, final Rectangle a, final Rectangle b) {
+        assertEquals(expectedAB, a.relate(b));
+        assertEquals(expectedBA, b.relate(a));
+    }
+}
@@ -0,0 +1,40 @@
+package org.loverde.rectangles;
+
+import java.util.Random;
+
+/**
+ * Rectangles for the tests.  The random ones have integer coordinates on a small grid, so shared edges and duplicates
+ * are common.
+ */
+public final class TestRectangles {
+
+    private TestRectangles() {
+    }
+
+    public static Rectangle rect(final double l, final double b, final double r, final double t) {
+        return new Rectangle(new Point(l, b), new Point(r, t));
+    }
+
+    /** @return A rectangle with its lower left corner in [0, 100) and sides of 1 to 10 */
+    public static Rectangle randomRectangle(final Random random) {
+        return randomRectangle(random, 100, 10);
+    }
+
+    /** @return A rectangle with its lower left corner in [0, <em>extent</em>) and sides of 1 to <em>maxSide</em> */
+    public static Rectangle randomRectangle(final Random random, final int extent, final int maxSide) {
+        final int x = random.nextInt(extent), y = random.nextInt(extent);
+        return rect(x, y, x + 1 + random.nextInt(maxSide), y + 1 + random.nextInt(maxSide));
+    }
+
+    /** @return A batch of <em>size</em> rectangles made as by {@link #randomRectangle(Random, int, int)} */
+    public static RectangleBatch randomBatch(final Random random, final int size, final int extent, final int maxSide) {
+        final RectangleBatch batch = new RectangleBatch(size);
+
+        for(int i = 0; i < size; i++) {
+            final int x = random.nextInt(extent), y = random.nextInt(extent);
+            batch.add(x, y, x + 1 + random.nextInt(maxSide), y + 1 + random.nextInt(maxSide));
+        }
+
+        return batch;
+    }
+}
@@ -0,0 +1,99 @@
+package org.loverde.rectangles.graph;
+
+import org.junit.jupiter.api.Test;
+import org.loverde.rectangles.RectangleBatch;
+import org.loverde.rectangles.Relationship;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+public class AdjacencyGraphTest {
+
+    @Test
+    public void nullBatch() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> AdjacencyGraph.build(null));
+        assertEquals("build:  batch cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void empty() {
+        final AdjacencyGraph graph = AdjacencyGraph.build(new RectangleBatch());
+
+        assertEquals(0, graph.vertexCount());
+        assertEquals(0, graph.edgeCount());
+    }
+
+    // adjacency.png #1 (sub-line), #5 (proper) and #7 (partial), laid out side by side, plus a corner-only contact
+    @Test
+    public void kinds() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(0, 19, 3, 23);
+        batch.add(3, 20, 4, 22);
+        batch.add(20, 19, 22, 23);
+        batch.add(22, 19, 24, 23);
+        batch.add(0, 14, 2, 17);
+        batch.add(2, 15, 4, 18);
+        batch.add(30, 30, 31, 31);
+        batch.add(31, 31, 32, 32);
+
+        final AdjacencyGraph graph = AdjacencyGraph.build(batch);
+
+        assertEquals(4, graph.edgeCount());
+        assertEdge(graph, 0, 1, Relationship.ADJACENT_SUB_LINE);
+        assertEdge(graph, 2, 3, Relationship.ADJACENT_PROPER);
+        assertEdge(graph, 4, 5, Relationship.ADJACENT_PARTIAL);
+        assertEdge(graph, 6, 7, Relationship.ADJACENT_PARTIAL);
+    }
+
+    @Test
+    public void matchesRelate() {
+        final Random random = new Random(9);
+
+        for(int trial = 0; trial < 20; trial++) {
+            final RectangleBatch batch = new RectangleBatch();
+
+            // A coarse grid makes shared sides and corners common
+            for(int i = 0; i < 200; i++) {
+                final int x = random.nextInt(20), y = random.nextInt(20);
+                batch.add(x, y, x + 1 + random.nextInt(4), y + 1 + random.nextInt(4));
+            }
+
+            final AdjacencyGraph graph = AdjacencyGraph.build(batch);
+            final List<String> expected = new ArrayList<>(), actual = new ArrayList<>();
+
+            for(int i = 0; i < batch.size(); i++) {
+                for(int j = 0; j < batch.size(); j++) {
+                    final Relationship rel = batch.get(i).relate(batch.get(j));
+
+                    if(rel.isAdjacent()) expected.add(i + "," + j + "," + rel);
+                }
+
+                for(int k = 0; k < graph.degree(i); k++) {
+                    actual.add(i + "," + graph.neighbor(i, k) + "," + graph.kind(i, k));
+                }
+            }
+
+            Collections.sort(expected);
+            Collections.sort(actual);
+
+            assertEquals(expected, actual);
+            assertEquals(expected.size(), 2 * graph.edgeCount());
+        }
+    }
+
+    private static void assertEdge(final AdjacencyGraph graph, final int a, final int b, final Relationship kind) {
+        assertEquals(1, graph.degree(a));
+        assertEquals(b, graph.neighbor(a, 0));
+        assertEquals(kind, graph.kind(a, 0));
+
+        assertEquals(1, graph.degree(b));
+        assertEquals(a, graph.neighbor(b, 0));
+        assertEquals(kind, graph.kind(b, 0));
+    }
+}
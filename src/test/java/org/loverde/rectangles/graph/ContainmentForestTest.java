@@ -0,0 +1,153 @@
+package org.loverde.rectangles.graph;
+
+import org.junit.jupiter.api.Test;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class ContainmentForestTest {
+
+    @Test
+    public void nullBatch() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> ContainmentForest.build(null));
+        assertEquals("build:  batch cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void nested() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(0, 0, 100, 100);   // 0
+        batch.add(10, 10, 50, 50);   // 1, inside 0
+        batch.add(20, 20, 30, 30);   // 2, inside 1
+        batch.add(60, 60, 70, 70);   // 3, inside 0
+        batch.add(10, 60, 20, 70);   // 4, inside 0
+        batch.add(200, 0, 300, 100); // 5, a root
+        batch.add(200, 0, 210, 10);  // 6, shares edges with 5 so it isn't contained (containment.png #3)
+
+        final ContainmentForest forest = ContainmentForest.build(batch);
+
+        assertArrayEquals(new int[] { -1, 0, 1, 0, 0, -1, -1 }, forest.getParentArray());
+        assertArrayEquals(new int[] { 0, 5, 6 }, forest.getRoots());
+
+        assertEquals(0, forest.depth(0));
+        assertEquals(2, forest.depth(2));
+        assertEquals(3, forest.childCount(0));
+        assertEquals(2, forest.child(1, 0));
+
+        assertTrue(forest.isAncestor(0, 2));
+        assertTrue(forest.isAncestor(1, 2));
+        assertFalse(forest.isAncestor(2, 2));
+        assertFalse(forest.isAncestor(3, 2));
+        assertFalse(forest.isAncestor(5, 6));
+
+        final List<Integer> ancestors = new ArrayList<>();
+        forest.forEachAncestor(2, ancestors::add);
+        assertEquals(Arrays.asList(1, 0), ancestors);
+
+        final List<Integer> subtree = new ArrayList<>();
+        forest.forEachInSubtree(1, subtree::add);
+        assertEquals(Arrays.asList(1, 2), subtree);
+        assertEquals(5, forest.subtreeSize(0));
+    }
+
+    @Test
+    public void equalContainers_lowestIndexWins() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(2, 2, 3, 3);     // 0
+        batch.add(1, 1, 10, 10);   // 1
+        batch.add(1, 1, 10, 10);   // 2, the same as 1
+        batch.add(0, 0, 20, 20);   // 3
+
+        assertArrayEquals(new int[] { 1, 3, 3, -1 }, ContainmentForest.build(batch).getParentArray());
+    }
+
+    /**
+     * Each rectangle's containers include every larger one in the chain, so listing them all for each rectangle would
+     * take quadratic time.
+     */
+    @Test
+    public void deeplyNestedChain() {
+        final int n = 50_000;
+        final RectangleBatch batch = new RectangleBatch(n);
+
+        // Shuffled, so that index order says nothing about nesting
+        final int[] rank = new int[n];
+        for(int i = 0; i < n; i++) rank[i] = i;
+
+        final Random random = new Random(11);
+
+        for(int i = n - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1), swap = rank[i];
+            rank[i] = rank[j];
+            rank[j] = swap;
+        }
+
+        final int[] rowOfRank = new int[n];
+
+        for(int i = 0; i < n; i++) {
+            batch.add(rank[i], rank[i], 2 * n - rank[i], 2 * n - rank[i]);
+            rowOfRank[rank[i]] = i;
+        }
+
+        final ContainmentForest forest = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> ContainmentForest.build(batch));
+
+        for(int i = 0; i < n; i++) {
+            assertEquals(rank[i] == 0 ? -1 : rowOfRank[rank[i] - 1], forest.parent(i));
+            assertEquals(rank[i], forest.depth(i));
+        }
+
+        assertArrayEquals(new int[] { rowOfRank[0] }, forest.getRoots());
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        final Random random = new Random(13);
+        final RectangleBatch batch = new RectangleBatch();
+
+        for(int i = 0; i < 500; i++) {
+            final int x = random.nextInt(100), y = random.nextInt(100);
+            batch.add(x, y, x + 1 + random.nextInt(30), y + 1 + random.nextInt(30));
+        }
+
+        final ContainmentForest forest = ContainmentForest.build(batch);
+
+        for(int v = 0; v < batch.size(); v++) {
+            final Rectangle r = batch.get(v);
+            int expected = -1;
+
+            for(int c = 0; c < batch.size(); c++) {
+                final Rectangle container = batch.get(c);
+
+                if(container.contains(r) && (expected == -1 || area(container) < area(batch.get(expected)))) expected = c;
+            }
+
+            assertEquals(expected, forest.parent(v));
+
+            int depth = 0;
+
+            for(int a = forest.parent(v); a != -1; a = forest.parent(a)) {
+                assertTrue(forest.isAncestor(a, v));
+                depth++;
+            }
+
+            assertEquals(depth, forest.depth(v));
+        }
+    }
+
+    private static double area(final Rectangle r) {
+        return r.getWidth() * r.getHeight();
+    }
+}
@@ -0,0 +1,231 @@
+package org.loverde.rectangles.index;
+
+import org.junit.jupiter.api.Test;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.loverde.rectangles.TestRectangles.randomRectangle;
+import static org.loverde.rectangles.TestRectangles.rect;
+import static org.loverde.rectangles.index.SpatialIndexAssertions.bruteForce;
+import static org.loverde.rectangles.index.SpatialIndexAssertions.query;
+
+
+public class ConcurrentRTreeTest {
+
+    private static final int READERS = 4;
+
+    private final Random random = new Random(23);
+
+    @Test
+    public void batch_nullChanges() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> new ConcurrentRTree().batch(null));
+        assertEquals("batch:  changes cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void snapshot_isReadOnly() {
+        final SpatialIndex snapshot = new ConcurrentRTree().snapshot();
+
+        Exception e = assertThrows(UnsupportedOperationException.class, () -> snapshot.insert(rect(0, 0, 1, 1), 1));
+        assertEquals("insert:  a snapshot is read-only", e.getMessage());
+
+        e = assertThrows(UnsupportedOperationException.class, () -> snapshot.delete(rect(0, 0, 1, 1), 1));
+        assertEquals("delete:  a snapshot is read-only", e.getMessage());
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        final List<Rectangle> rectangles = new ArrayList<>();
+        final RectangleBatch batch = new RectangleBatch();
+
+        for(int i = 0; i < 1000; i++) {
+            rectangles.add(randomRectangle(random));
+            batch.add(rectangles.get(i));
+        }
+
+        final ConcurrentRTree index = ConcurrentRTree.bulkLoad(batch);
+        final SpatialIndex before = index.snapshot();
+        final List<Rectangle> original = new ArrayList<>(rectangles);
+
+        for(int i = 0; i < 1000; i += 2) {
+            assertTrue(index.delete(rectangles.get(i), i));
+            rectangles.set(i, null);
+        }
+
+        index.batch(changes -> {
+            for(int i = 0; i < 300; i++) {
+                final Rectangle r = randomRectangle(random);
+                changes.insert(r, rectangles.size());
+                rectangles.add(r);
+            }
+        });
+
+        assertEquals(800, index.size());
+        assertEquals(1000, before.size());
+
+        for(int q = 0; q < 200; q++) {
+            final Rectangle query = randomRectangle(random);
+
+            assertEquals(bruteForce(rectangles, Rectangle::intersects, query), query(index::searchIntersecting, query));
+            assertEquals(bruteForce(original, Rectangle::intersects, query), query(before::searchIntersecting, query));
+        }
+    }
+
+    @Test
+    public void failedBatchIsNotPublished() {
+        final ConcurrentRTree index = new ConcurrentRTree();
+        index.insert(rect(0, 0, 1, 1), 1);
+
+        assertThrows(IllegalStateException.class, () -> index.batch(changes -> {
+            changes.insert(rect(2, 2, 3, 3), 2);
+            changes.delete(rect(0, 0, 1, 1), 1);
+            throw new IllegalStateException();
+        }));
+
+        assertEquals(List.of(1), query(index::searchIntersecting, rect(0, 0, 5, 5)));
+
+        // The writer starts again from the published version
+        index.insert(rect(3, 3, 4, 4), 3);
+        assertEquals(List.of(1, 3), query(index::searchIntersecting, rect(0, 0, 5, 5)));
+    }
+
+    /**
+     * A writer moves a group of rectangles from one side of the plane to the other and back in batches, while readers
+     * look at both sides.  Every reader must see the whole group on exactly one side:  seeing part of a batch would
+     * mean a change was visible before it was published.
+     */
+    @Test
+    public void stress_batchesAreAtomic() throws InterruptedException {
+        final int groupSize = 64, moves = 1000;
+        final ConcurrentRTree index = new ConcurrentRTree(8);
+        final Rectangle left = rect(0, 0, 100, 100), right = rect(200, 0, 300, 100);
+
+        for(int i = 0; i < groupSize; i++) index.insert(rect(i, i, i + 10, i + 10), i);
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+
+        // How often each outcome was seen, as JCStress reports them:  the whole group on the left, on the right, or
+        // anything else
+        final AtomicIntegerArray outcomes = new AtomicIntegerArray(3);
+
+        final List<Thread> readers = new ArrayList<>();
+
+        for(int t = 0; t < READERS; t++) {
+            readers.add(new Thread(() -> {
+                while(!done.get()) {
+                    final SpatialIndex snapshot = index.snapshot();
+                    final int[] counts = new int[2];
+
+                    snapshot.searchIntersecting(left, id -> counts[0]++);
+                    snapshot.searchIntersecting(right, id -> counts[1]++);
+
+                    if(counts[0] == groupSize && counts[1] == 0) {
+                        outcomes.incrementAndGet(0);
+                    } else if(counts[0] == 0 && counts[1] == groupSize) {
+                        outcomes.incrementAndGet(1);
+                    } else {
+                        outcomes.incrementAndGet(2);
+                        failures.add(counts[0] + " on the left and " + counts[1] + " on the right");
+                        return;
+                    }
+
+                    // A query against the index itself sees a single version too
+                    final int[] direct = new int[1];
+                    index.searchIntersecting(left, id -> direct[0]++);
+                    if(direct[0] != 0 && direct[0] != groupSize) {
+                        failures.add(direct[0] + " on the left");
+                        return;
+                    }
+                }
+            }));
+        }
+
+        readers.forEach(Thread::start);
+
+        for(int move = 0; move < moves; move++) {
+            final double from = move % 2 == 0 ? 0 : 200, to = 200 - from;
+
+            index.batch(changes -> {
+                for(int i = 0; i < groupSize; i++) {
+                    assertTrue(changes.delete(rect(from + i, i, from + i + 10, i + 10), i));
+                    changes.insert(rect(to + i, i, to + i + 10, i + 10), i);
+                }
+            });
+        }
+
+        done.set(true);
+        for(final Thread reader : readers) reader.join();
+
+        assertEquals(List.of(), new ArrayList<>(failures));
+        assertEquals(0, outcomes.get(2));
+        assertTrue(outcomes.get(0) + outcomes.get(1) > 0);
+        assertEquals(groupSize, index.size());
+    }
+
+    /**
+     * A writer inserts ids in ascending order, one at a time, while readers look at everything.  Each insert is
+     * published before the next is made, so a reader which sees an id must see every id before it.
+     */
+    @Test
+    public void stress_insertsArePublishedInOrder() throws InterruptedException {
+        final int n = 5000;
+        final ConcurrentRTree index = new ConcurrentRTree();
+        final AtomicBoolean done = new AtomicBoolean();
+        final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+        final Rectangle everything = rect(0, 0, 1000, 1000);
+
+        final List<Thread> readers = new ArrayList<>();
+
+        for(int t = 0; t < READERS; t++) {
+            readers.add(new Thread(() -> {
+                while(!done.get()) {
+                    final List<Integer> ids = new ArrayList<>();
+                    index.searchIntersecting(everything, ids::add);
+                    Collections.sort(ids);
+
+                    for(int i = 0; i < ids.size(); i++) {
+                        if(ids.get(i) != i) {
+                            failures.add("saw " + ids.size() + " ids, but id " + i + " was missing");
+                            return;
+                        }
+                    }
+                }
+            }));
+        }
+
+        readers.forEach(Thread::start);
+
+        for(int i = 0; i < n; i++) {
+            final int x = random.nextInt(990), y = random.nextInt(990);
+            index.insert(rect(x, y, x + 1 + random.nextInt(10), y + 1 + random.nextInt(10)), i);
+        }
+
+        done.set(true);
+        for(final Thread reader : readers) reader.join();
+
+        assertEquals(List.of(), new ArrayList<>(failures));
+        assertEquals(n, index.size());
+    }
+
+    @Test
+    public void deleteOfMissingEntryChangesNothing() {
+        final ConcurrentRTree index = new ConcurrentRTree();
+        index.insert(rect(0, 0, 1, 1), 1);
+
+        assertFalse(index.delete(rect(0, 0, 1, 1), 2));
+        assertEquals(1, index.size());
+    }
+}
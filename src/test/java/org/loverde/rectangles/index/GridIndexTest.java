@@ -0,0 +1,261 @@
+package org.loverde.rectangles.index;
+
+import org.junit.jupiter.api.Test;
+import org.loverde.rectangles.Rectangle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.loverde.rectangles.TestRectangles.randomRectangle;
+import static org.loverde.rectangles.TestRectangles.rect;
+import static org.loverde.rectangles.index.SpatialIndexAssertions.assertMatchesBruteForce;
+import static org.loverde.rectangles.index.SpatialIndexAssertions.query;
+
+
+public class GridIndexTest {
+
+    private final Random random = new Random(21);
+
+    @Test
+    public void constructor_invalidCellSize() {
+        Exception e = assertThrows(IllegalArgumentException.class, () -> new GridIndex(0));
+        assertEquals("cellSize must be a positive, finite number", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> new GridIndex(Double.NaN));
+        assertEquals("cellSize must be a positive, finite number", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> new GridIndex(Double.POSITIVE_INFINITY));
+        assertEquals("cellSize must be a positive, finite number", e.getMessage());
+    }
+
+    @Test
+    public void insert_duplicateId() {
+        final GridIndex index = new GridIndex(4);
+        index.insert(rect(1, 1, 2, 2), 5);
+
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> index.insert(rect(3, 3, 4, 4), 5));
+        assertEquals("insert:  id 5 is already in the index", e.getMessage());
+    }
+
+    @Test
+    public void update_invalidRectangle() {
+        final GridIndex index = new GridIndex(4);
+        index.insert(rect(1, 1, 2, 2), 5);
+
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> index.update(5, 1, 3, 2, 3));
+        assertEquals("upperRight.y must be greater than lowerLeft.y", e.getMessage());
+    }
+
+    @Test
+    public void searchIntersecting_nullQuery() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> new GridIndex(1).searchIntersecting(null, id -> {}));
+        assertEquals("searchIntersecting:  rectangle cannot be null", e.getMessage());
+    }
+
+    // intersection.png #7 shares an edge with the black rectangle, which is adjacency, not intersection.  With a cell
+    // size of 2, the shared edge at y=2 is also the boundary between two rows of cells.
+    @Test
+    public void adjacentIsNotIntersecting() {
+        final GridIndex index = new GridIndex(2);
+        index.insert(rect(5, 1, 8, 2), 7);
+
+        final Rectangle black = rect(4, 2, 17, 14);
+
+        assertEquals(Collections.emptyList(), query(index::searchIntersecting, black));
+        assertEquals(Collections.singletonList(7), query(index::searchAdjacent, black));
+    }
+
+    @Test
+    public void entrySpanningManyCellsIsReportedOnce() {
+        final GridIndex index = new GridIndex(1);
+        index.insert(rect(1, 1, 10, 10), 1);
+
+        assertEquals(100, index.getCellCount());
+        assertEquals(Collections.singletonList(1), query(index::searchIntersecting, rect(2, 2, 8, 8)));
+        assertEquals(Collections.singletonList(1), query(index::searchContaining, rect(2, 2, 8, 8)));
+        assertEquals(Collections.singletonList(1), query(index::searchContainedBy, rect(0.5, 0.5, 11, 11)));
+        assertEquals(Collections.singletonList(1), query(index::searchAdjacent, rect(10, 2, 12, 3)));
+    }
+
+    @Test
+    public void updateAndRemove() {
+        final GridIndex index = new GridIndex(4);
+        index.insert(rect(1, 1, 2, 2), 1);
+        index.insert(rect(1, 1, 3, 3), 2);
+
+        // Within the same cell, then into other cells
+        assertTrue(index.update(1, 1.5, 1.5, 2.5, 2.5));
+        assertTrue(index.update(2, rect(10, 10, 11, 11)));
+        assertFalse(index.update(3, rect(10, 10, 11, 11)));
+
+        assertEquals(Collections.singletonList(1), query(index::searchIntersecting, rect(0, 0, 4, 4)));
+        assertEquals(Collections.singletonList(2), query(index::searchIntersecting, rect(9, 9, 12, 12)));
+
+        assertFalse(index.delete(rect(1, 1, 2, 2), 1));
+        assertTrue(index.delete(rect(1.5, 1.5, 2.5, 2.5), 1));
+        assertTrue(index.remove(2));
+        assertFalse(index.remove(2));
+
+        assertEquals(0, index.size());
+        assertEquals(0, index.getCellCount());
+        assertFalse(index.contains(1));
+    }
+
+    @Test
+    public void matchesBruteForceAsEntriesMove() {
+        final GridIndex index = new GridIndex(5);
+        final List<Rectangle> rectangles = new ArrayList<>();
+
+        for(int i = 0; i < 1000; i++) {
+            rectangles.add(randomRectangle(random));
+            index.insert(rectangles.get(i), i);
+        }
+
+        for(int round = 0; round < 5; round++) {
+            for(int i = 0; i < rectangles.size(); i++) {
+                final int action = random.nextInt(10);
+
+                if(action == 0 && rectangles.get(i) != null) {
+                    assertTrue(index.remove(i));
+                    rectangles.set(i, null);
+                } else if(action == 1 && rectangles.get(i) == null) {
+                    rectangles.set(i, randomRectangle(random));
+                    index.insert(rectangles.get(i), i);
+                } else if(action < 6 && rectangles.get(i) != null) {
+                    // Mostly small moves, which usually stay in the same cells
+                    final Rectangle r = rectangles.get(i);
+                    final double dx = random.nextInt(3), dy = random.nextInt(3);
+                    rectangles.set(i, rect(r.getLeftX() + dx, r.getBottomY() + dy, r.getRightX() + dx, r.getTopY() + dy));
+                    assertTrue(index.update(i, rectangles.get(i)));
+                }
+            }
+
+            assertEquals(rectangles.stream().filter(r -> r != null).count(), index.size());
+            assertMatchesBruteForce(index, rectangles, random);
+        }
+
+        final List<Integer> entries = new ArrayList<>();
+        index.forEachEntry((id, l, b, r, t) -> {
+            assertEquals(rectangles.get(id), rect(l, b, r, t));
+            entries.add(id);
+        });
+
+        assertEquals(index.size(), entries.size());
+    }
+
+    @Test
+    public void largeQueryLooksThroughCellsInUse() {
+        final GridIndex index = new GridIndex(0.5);
+        index.insert(rect(1, 1, 2, 2), 1);
+        index.insert(rect(5000, 5000, 5001, 5001), 2);
+
+        assertEquals(List.of(1, 2), query(index::searchIntersecting, rect(0, 0, 10000, 10000)));
+    }
+
+    /**
+     * Cell numbers past the largest int are capped, so the loops over a far-away rectangle's cells must still end.
+     */
+    @Test
+    public void farAwayRectangles() {
+        final GridIndex index = new GridIndex(1);
+        final double far = 3e9;
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            index.insert(rect(far, 0, far + 1, 1), 1);
+            index.insert(rect(far + 5, 0, far + 6, 1), 2);
+            index.insert(rect(1, 1, 2, 2), 3);
+
+            assertEquals(List.of(1), query(index::searchIntersecting, rect(far, 0, far + 1, 1)));
+            assertEquals(List.of(1), query(index::searchAdjacent, rect(far + 1, 0, far + 2, 1)));
+            assertEquals(List.of(1, 2, 3), query(index::searchIntersecting, rect(0, 0, far + 10, far)));
+
+            assertTrue(index.update(1, rect(far * 2, far * 2, far * 2 + 1, far * 2 + 1)));
+            assertEquals(List.of(2), query(index::searchIntersecting, rect(far, 0, far + 10, 1)));
+            assertEquals(List.of(1), query(index::searchIntersecting, rect(far * 2, far * 2, far * 2 + 1, far * 2 + 1)));
+
+            assertTrue(index.remove(1));
+            assertTrue(index.remove(2));
+        });
+
+        assertEquals(1, index.size());
+        assertEquals(4, index.getCellCount());  // Edges lie on the cells next door too
+    }
+
+    /**
+     * A rectangle spanning more than MAX_CELLS_PER_ENTRY cells goes in the overflow list rather than in each of its
+     * cells, including one stretching to infinity.
+     */
+    @Test
+    public void hugeRectanglesOverflow() {
+        final GridIndex index = new GridIndex(1);
+
+        index.insert(rect(1, 1, 100001, 100001), 1);
+        index.insert(rect(5, 5, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY), 2);
+        index.insert(rect(1, 1, 2, 2), 3);
+
+        assertEquals(2, index.getOverflowCount());
+        assertEquals(4, index.getCellCount());  // Edges lie on the cells next door too
+
+        assertEquals(List.of(1, 3), query(index::searchIntersecting, rect(1.5, 1.5, 3, 3)));
+        assertEquals(List.of(1, 2), query(index::searchIntersecting, rect(50, 50, 60, 60)));
+        assertEquals(List.of(1, 2), query(index::searchContaining, rect(50, 50, 60, 60)));
+        assertEquals(List.of(1, 3), query(index::searchContainedBy, rect(0.5, 0.5, 100002, 100002)));
+        assertEquals(List.of(2), query(index::searchAdjacent, rect(0, 5, 5, 6)));
+
+        // Out of the overflow list and back again
+        assertTrue(index.update(1, rect(10, 10, 11, 11)));
+        assertEquals(1, index.getOverflowCount());
+        assertTrue(index.update(3, rect(0, 0, 1000, 1000)));
+        assertEquals(2, index.getOverflowCount());
+
+        assertTrue(index.remove(2));
+        assertEquals(List.of(1, 3), query(index::searchIntersecting, rect(10, 10, 11, 11)));
+
+        assertTrue(index.remove(3));
+        assertEquals(0, index.getOverflowCount());
+        assertEquals(List.of(1), query(index::searchIntersecting, rect(0, 0, 1000, 1000)));
+    }
+
+    @Test
+    public void matchesBruteForceWithHugeEntries() {
+        final GridIndex index = new GridIndex(1);
+        final List<Rectangle> rectangles = new ArrayList<>();
+
+        for(int i = 0; i < 500; i++) {
+            rectangles.add(i % 10 == 0 ? hugeRectangle() : randomRectangle(random));
+            index.insert(rectangles.get(i), i);
+        }
+
+        for(int round = 0; round < 3; round++) {
+            for(int i = 0; i < rectangles.size(); i++) {
+                if(random.nextInt(4) != 0) continue;
+
+                if(rectangles.get(i) == null) {
+                    rectangles.set(i, random.nextBoolean() ? hugeRectangle() : randomRectangle(random));
+                    index.insert(rectangles.get(i), i);
+                } else if(random.nextBoolean()) {
+                    assertTrue(index.remove(i));
+                    rectangles.set(i, null);
+                } else {
+                    rectangles.set(i, random.nextBoolean() ? hugeRectangle() : randomRectangle(random));
+                    assertTrue(index.update(i, rectangles.get(i)));
+                }
+            }
+
+            assertMatchesBruteForce(index, rectangles, random);
+        }
+    }
+
+    private Rectangle hugeRectangle() {
+        final int x = random.nextInt(100), y = random.nextInt(100);
+        return rect(x, y, x + 20 + random.nextInt(100), y + 20 + random.nextInt(100));
+    }
+}
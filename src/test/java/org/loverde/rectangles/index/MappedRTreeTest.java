@@ -0,0 +1,285 @@
+package org.loverde.rectangles.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.loverde.rectangles.TestRectangles.randomRectangle;
+import static org.loverde.rectangles.TestRectangles.rect;
+import static org.loverde.rectangles.index.SpatialIndexAssertions.bruteForce;
+import static org.loverde.rectangles.index.SpatialIndexAssertions.query;
+
+
+public class MappedRTreeTest {
+
+    private final Random random = new Random(16);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void nullArguments() {
+        Exception e = assertThrows(IllegalArgumentException.class, () -> MappedRTree.write(null, directory.resolve("a")));
+        assertEquals("write:  index cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> MappedRTree.write(new RTree(), null));
+        assertEquals("write:  path cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> MappedRTree.open(null));
+        assertEquals("open:  path cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void empty() throws IOException {
+        final MappedRTree tree = snapshot(new RTree());
+
+        assertEquals(0, tree.size());
+        assertEquals(0, tree.height());
+        assertEquals(Collections.emptyList(), query(tree::searchIntersecting, rect(0, 0, 10, 10)));
+        assertEquals(MappedRTree.PAGE_BYTES, Files.size(directory.resolve("index")));
+    }
+
+    @Test
+    public void readOnly() throws IOException {
+        final MappedRTree tree = snapshot(new RTree());
+
+        Exception e = assertThrows(UnsupportedOperationException.class, () -> tree.insert(rect(0, 0, 1, 1), 0));
+        assertEquals("insert:  MappedRTree is read-only", e.getMessage());
+
+        e = assertThrows(UnsupportedOperationException.class, () -> tree.delete(rect(0, 0, 1, 1), 0));
+        assertEquals("delete:  MappedRTree is read-only", e.getMessage());
+    }
+
+    @Test
+    public void nullQuery() throws IOException {
+        final MappedRTree tree = snapshot(new RTree());
+
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> tree.searchContaining(null, id -> {}));
+        assertEquals("searchContaining:  rectangle cannot be null", e.getMessage());
+    }
+
+    // The snapshot of an updated tree, with ids which aren't positions, answers every query as the tree does
+    @Test
+    public void matchesSourceIndex() throws IOException {
+        final RTree source = new RTree();
+
+        for(int i = 0; i < 5000; i++) source.insert(randomRectangle(random, 300, 10), 1000 + i * 7);
+        for(int i = 0; i < 5000; i += 3) source.delete(rectangleOf(source, 1000 + i * 7), 1000 + i * 7);
+
+        final MappedRTree tree = snapshot(source);
+
+        assertEquals(source.size(), tree.size());
+        assertEquals(2, tree.height());
+
+        for(int q = 0; q < 200; q++) {
+            final Rectangle query = randomRectangle(random, 300, 10);
+
+            assertEquals(query(source::searchIntersecting, query), query(tree::searchIntersecting, query));
+            assertEquals(query(source::searchContaining, query), query(tree::searchContaining, query));
+            assertEquals(query(source::searchContainedBy, query), query(tree::searchContainedBy, query));
+            assertEquals(query(source::searchAdjacent, query), query(tree::searchAdjacent, query));
+        }
+
+        assertEquals(entries(source), entries(tree));
+    }
+
+    // Enough entries for three levels of pages
+    @Test
+    public void threeLevels() throws IOException {
+        final RectangleBatch batch = new RectangleBatch();
+        final List<Rectangle> rectangles = new ArrayList<>();
+
+        for(int i = 0; i < 20000; i++) {
+            final Rectangle r = randomRectangle(random, 300, 10);
+            rectangles.add(r);
+            batch.add(r);
+        }
+
+        final MappedRTree tree = snapshot(RTree.bulkLoad(batch));
+
+        assertEquals(3, tree.height());
+
+        for(int q = 0; q < 100; q++) {
+            final Rectangle query = randomRectangle(random, 300, 10);
+
+            assertEquals(bruteForce(rectangles, Rectangle::intersects, query), query(tree::searchIntersecting, query));
+        }
+    }
+
+    @Test
+    public void notASnapshot() throws IOException {
+        final Path file = directory.resolve("other");
+        Files.write(file, new byte[MappedRTree.PAGE_BYTES]);
+
+        final Exception e = assertThrows(IOException.class, () -> MappedRTree.open(file));
+        assertEquals(file + " is not an index snapshot", e.getMessage());
+    }
+
+    @Test
+    public void unsupportedVersion() throws IOException {
+        snapshot(new RTree());
+        final Path file = directory.resolve("index");
+
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 2), 4);
+        }
+
+        final Exception e = assertThrows(IOException.class, () -> MappedRTree.open(file));
+        assertEquals(file + " has unsupported version 2", e.getMessage());
+    }
+
+    @Test
+    public void truncated() throws IOException {
+        final RTree source = new RTree();
+        for(int i = 0; i < 500; i++) source.insert(randomRectangle(random, 300, 10), i);
+
+        snapshot(source);
+        final Path file = directory.resolve("index");
+
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - MappedRTree.PAGE_BYTES);
+        }
+
+        final Exception e = assertThrows(IOException.class, () -> MappedRTree.open(file));
+        assertEquals(file + " has the wrong length for 7 pages", e.getMessage());
+    }
+
+    @Test
+    public void damagedHeader() throws IOException {
+        final Path file = snapshotOf500();
+
+        patchLong(file, 24, 99);
+        Exception e = assertThrows(IOException.class, () -> MappedRTree.open(file));
+        assertEquals(file + " has an invalid root page 99 for 500 entries and 7 pages", e.getMessage());
+
+        patchLong(file, 24, 1);
+        patchInt(file, 32, 1000);
+        e = assertThrows(IOException.class, () -> MappedRTree.open(file));
+        assertEquals(file + " has an invalid height 1000", e.getMessage());
+
+        patchInt(file, 32, 2);
+        patchLong(file, 16, -5);
+        e = assertThrows(IOException.class, () -> MappedRTree.open(file));
+        assertEquals(file + " has an invalid entry count -5", e.getMessage());
+    }
+
+    @Test
+    public void damagedNodes() throws IOException {
+        final Path file = snapshotOf500();
+        final int root = MappedRTree.PAGE_BYTES, firstChild = root + MappedRTree.NODE_HEADER_BYTES + 4 * MappedRTree.ENTRIES_PER_PAGE * Double.BYTES;
+
+        patchInt(file, root + 4, 500);
+        assertDamaged(file, "page 1 is damaged:  it has 500 entries");
+
+        patchInt(file, root + 4, 5);
+        patchInt(file, firstChild, 99);
+        assertDamaged(file, "page 1 is damaged:  it refers to page 99 of 7");
+
+        // A root which is its own child would otherwise be searched forever
+        patchInt(file, firstChild, 1);
+        assertDamaged(file, "page 1 is damaged:  it should be a leaf");
+
+        patchInt(file, firstChild, 2);
+        patchInt(file, 2 * MappedRTree.PAGE_BYTES, 0);
+        assertDamaged(file, "page 2 is damaged:  it should be a leaf");
+    }
+
+    private Path snapshotOf500() throws IOException {
+        final RTree source = new RTree();
+        for(int i = 0; i < 500; i++) source.insert(randomRectangle(random, 300, 10), i);
+
+        final MappedRTree tree = snapshot(source);
+        assertEquals(2, tree.height());
+
+        return directory.resolve("index");
+    }
+
+    private static void assertDamaged(final Path file, final String message) throws IOException {
+        final MappedRTree tree = MappedRTree.open(file);
+
+        Exception e = assertThrows(IllegalStateException.class, () -> tree.searchIntersecting(rect(0, 0, 320, 320), id -> {}));
+        assertEquals(message, e.getMessage());
+
+        e = assertThrows(IllegalStateException.class, () -> tree.forEachEntry((id, l, b, r, t) -> {}));
+        assertEquals(message, e.getMessage());
+    }
+
+    private static void patchInt(final Path file, final int offset, final int value) throws IOException {
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, value), offset);
+        }
+    }
+
+    private static void patchLong(final Path file, final int offset, final long value) throws IOException {
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, value), offset);
+        }
+    }
+
+    /**
+     * Writing a snapshot again must replace the file rather than overwrite it, so that a tree opened on the old
+     * snapshot keeps seeing it whole.
+     */
+    @Test
+    public void rewriteWhileOpen() throws IOException {
+        final RTree source = new RTree();
+        for(int i = 0; i < 20000; i++) source.insert(randomRectangle(random, 300, 10), i);
+
+        final MappedRTree old = snapshot(source);
+        final List<String> before = entries(old);
+
+        final RTree replacement = new RTree();
+        replacement.insert(rect(1, 1, 2, 2), 7);
+
+        final MappedRTree current = snapshot(replacement);
+
+        assertEquals(20000, old.size());
+        assertEquals(before, entries(old));
+        assertEquals(20000, query(old::searchIntersecting, rect(0, 0, 320, 320)).size());
+
+        assertEquals(List.of(7), query(current::searchIntersecting, rect(0, 0, 320, 320)));
+
+        // Nothing is left behind but the snapshot
+        try(final Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(directory.resolve("index")), files.collect(Collectors.toList()));
+        }
+    }
+
+    private MappedRTree snapshot(final SpatialIndex index) throws IOException {
+        final Path file = directory.resolve("index");
+        MappedRTree.write(index, file);
+        return MappedRTree.open(file);
+    }
+
+    private static Rectangle rectangleOf(final SpatialIndex index, final int id) {
+        final Rectangle[] found = new Rectangle[1];
+        index.forEachEntry((entryId, l, b, r, t) -> {
+            if(entryId == id) found[0] = rect(l, b, r, t);
+        });
+        return found[0];
+    }
+
+    private static List<String> entries(final SpatialIndex index) {
+        final List<String> entries = new ArrayList<>();
+        index.forEachEntry((id, l, b, r, t) -> entries.add(id + ":" + l + "," + b + "," + r + "," + t));
+        Collections.sort(entries);
+        return entries;
+    }
+}
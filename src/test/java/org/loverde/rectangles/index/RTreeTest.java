@@ -0,0 +1,226 @@
+package org.loverde.rectangles.index;
+
+import org.junit.jupiter.api.Test;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.loverde.rectangles.TestRectangles.randomRectangle;
+import static org.loverde.rectangles.TestRectangles.rect;
+import static org.loverde.rectangles.index.SpatialIndexAssertions.assertMatchesBruteForce;
+import static org.loverde.rectangles.index.SpatialIndexAssertions.query;
+
+
+public class RTreeTest {
+
+    private final Random random = new Random(11);
+
+    @Test
+    public void empty() {
+        final RTree tree = new RTree();
+
+        assertEquals(0, tree.size());
+        assertEquals(0, tree.height());
+        assertEquals(Collections.emptyList(), query(tree::searchIntersecting, rect(0, 0, 10, 10)));
+        assertFalse(tree.delete(rect(0, 0, 1, 1), 0));
+    }
+
+    @Test
+    public void constructor_maxEntriesTooSmall() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> new RTree(3));
+        assertEquals("maxEntries must be at least 4", e.getMessage());
+    }
+
+    @Test
+    public void searchIntersecting_nullQuery() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> new RTree().searchIntersecting(null, id -> {}));
+        assertEquals("searchIntersecting:  rectangle cannot be null", e.getMessage());
+    }
+
+    // intersection.png #7 shares an edge with the black rectangle, which is adjacency, not intersection
+    @Test
+    public void adjacentIsNotIntersecting() {
+        final RTree tree = new RTree();
+        tree.insert(rect(5, 1, 8, 2), 7);
+
+        final Rectangle black = rect(4, 2, 17, 14);
+
+        assertEquals(Collections.emptyList(), query(tree::searchIntersecting, black));
+        assertEquals(Collections.singletonList(7), query(tree::searchAdjacent, black));
+    }
+
+    // containment.png #3 shares an edge, so it isn't containment
+    @Test
+    public void sharedEdgeIsNotContainment() {
+        final RTree tree = new RTree();
+        tree.insert(rect(20, 18, 23, 21), 1);
+
+        assertEquals(Collections.emptyList(), query(tree::searchContainedBy, rect(20, 17, 24, 22)));
+    }
+
+    @Test
+    public void bulkLoad_matchesBruteForce() {
+        final List<Rectangle> rectangles = randomRectangles(2000);
+        final RectangleBatch batch = new RectangleBatch();
+
+        rectangles.forEach(batch::add);
+
+        final RTree tree = RTree.bulkLoad(batch, 8);
+
+        assertEquals(2000, tree.size());
+        assertValid(tree, 8);
+        assertMatchesBruteForce(tree, rectangles, random);
+    }
+
+    @Test
+    public void insert_matchesBruteForce() {
+        final List<Rectangle> rectangles = randomRectangles(2000);
+        final RTree tree = new RTree(6);
+
+        for(int i = 0; i < rectangles.size(); i++) tree.insert(rectangles.get(i), i);
+
+        assertEquals(2000, tree.size());
+        assertValid(tree, 6);
+        assertMatchesBruteForce(tree, rectangles, random);
+    }
+
+    @Test
+    public void delete_matchesBruteForce() {
+        final List<Rectangle> rectangles = randomRectangles(1500);
+        final RectangleBatch batch = new RectangleBatch();
+
+        rectangles.forEach(batch::add);
+
+        final RTree tree = RTree.bulkLoad(batch, 8);
+
+        // Delete every other rectangle, and replace deleted entries with null so brute force skips them
+        for(int i = 0; i < rectangles.size(); i += 2) {
+            assertTrue(tree.delete(rectangles.get(i), i));
+            assertFalse(tree.delete(rectangles.get(i), i));
+            rectangles.set(i, null);
+        }
+
+        assertEquals(750, tree.size());
+        assertValid(tree, 8);
+        assertMatchesBruteForce(tree, rectangles, random);
+
+        for(int i = 1; i < rectangles.size(); i += 2) assertTrue(tree.delete(rectangles.get(i), i));
+
+        assertEquals(0, tree.size());
+        assertEquals(0, tree.height());
+    }
+
+    @Test
+    public void snapshot_isIndependent() {
+        final List<Rectangle> rectangles = randomRectangles(1500);
+        final RectangleBatch batch = new RectangleBatch();
+
+        rectangles.forEach(batch::add);
+
+        final RTree tree = RTree.bulkLoad(batch, 6);
+        final RTree snapshot = tree.snapshot();
+        final List<Rectangle> original = new ArrayList<>(rectangles);
+
+        // Change the tree, then the snapshot, and check that neither change shows up in the other
+        for(int i = 0; i < rectangles.size(); i += 3) {
+            assertTrue(tree.delete(rectangles.get(i), i));
+            rectangles.set(i, null);
+        }
+
+        for(int i = 0; i < 500; i++) {
+            final Rectangle r = randomRectangle(random);
+            tree.insert(r, rectangles.size());
+            rectangles.add(r);
+        }
+
+        final List<Rectangle> changedSnapshot = new ArrayList<>(original);
+
+        for(int i = 1; i < original.size(); i += 4) {
+            assertTrue(snapshot.delete(original.get(i), i));
+            changedSnapshot.set(i, null);
+        }
+
+        assertValid(tree, 6);
+        assertValid(snapshot, 6);
+        assertMatchesBruteForce(tree, rectangles, random);
+        assertMatchesBruteForce(snapshot, changedSnapshot, random);
+        assertEquals(1125, snapshot.size());
+    }
+
+    @Test
+    public void delete_wrongIdIsNotRemoved() {
+        final RTree tree = new RTree();
+        tree.insert(rect(1, 1, 2, 2), 1);
+
+        assertFalse(tree.delete(rect(1, 1, 2, 2), 2));
+        assertEquals(1, tree.size());
+    }
+
+    @Test
+    public void forEachEntry() {
+        final RTree tree = new RTree(4);
+
+        for(int i = 0; i < 50; i++) tree.insert(rect(i, i, i + 1, i + 2), i * 3);
+
+        tree.delete(rect(7, 7, 8, 9), 21);
+
+        final List<String> entries = new ArrayList<>();
+        tree.forEachEntry((id, l, b, r, t) -> entries.add(id + ":" + l + "," + b + "," + r + "," + t));
+
+        final List<String> expected = new ArrayList<>();
+        for(int i = 0; i < 50; i++) if(i != 7) expected.add(i * 3 + ":" + (double) i + "," + (double) i + "," + (double) (i + 1) + "," + (double) (i + 2));
+
+        Collections.sort(entries);
+        Collections.sort(expected);
+        assertEquals(expected, entries);
+    }
+
+    /** Checks that every leaf is at the same depth, every node's bounds are exact and non-root nodes aren't too full */
+    private static void assertValid(final RTree tree, final int maxEntries) {
+        assertValid(tree.root(), maxEntries, tree.height(), 1);
+    }
+
+    private static void assertValid(final RTree.Node node, final int maxEntries, final int height, final int depth) {
+        assertTrue(node.count <= maxEntries);
+
+        if(node.leaf) {
+            assertEquals(height, depth);
+            return;
+        }
+
+        for(int i = 0; i < node.count; i++) {
+            final RTree.Node child = node.children[i];
+            double l = Double.MAX_VALUE, b = Double.MAX_VALUE, r = -1, t = -1;
+
+            for(int k = 0; k < child.count; k++) {
+                l = Math.min(l, child.left[k]);
+                b = Math.min(b, child.bottom[k]);
+                r = Math.max(r, child.right[k]);
+                t = Math.max(t, child.top[k]);
+            }
+
+            assertEquals(l, node.left[i]);
+            assertEquals(b, node.bottom[i]);
+            assertEquals(r, node.right[i]);
+            assertEquals(t, node.top[i]);
+
+            assertValid(child, maxEntries, height, depth + 1);
+        }
+    }
+
+    private List<Rectangle> randomRectangles(final int n) {
+        final List<Rectangle> rectangles = new ArrayList<>();
+
+        for(int i = 0; i < n; i++) rectangles.add(randomRectangle(random));
+
+        return rectangles;
+    }
+}
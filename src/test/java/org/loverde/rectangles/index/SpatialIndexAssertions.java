@@ -0,0 +1,62 @@
+package org.loverde.rectangles.index;
+
+import org.loverde.rectangles.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiPredicate;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.loverde.rectangles.TestRectangles.randomRectangle;
+
+/**
+ * Checks the answers of a {@link SpatialIndex} against a brute-force scan of the rectangles it should hold.  The id
+ * of each rectangle is its position in the list, and a null element stands for a rectangle which has been removed.
+ */
+final class SpatialIndexAssertions {
+
+    /** One of an index's searches, such as <code>index::searchContaining</code> */
+    interface Search {
+        void run(Rectangle query, IntConsumer consumer);
+    }
+
+    private SpatialIndexAssertions() {
+    }
+
+    /**
+     * Makes 200 random queries of each kind, made as by {@link org.loverde.rectangles.TestRectangles#randomRectangle(Random)},
+     * and checks that the index finds the same rectangles as the scan
+     */
+    static void assertMatchesBruteForce(final SpatialIndex index, final List<Rectangle> rectangles, final Random random) {
+        for(int q = 0; q < 200; q++) {
+            final Rectangle query = randomRectangle(random);
+
+            assertEquals(bruteForce(rectangles, Rectangle::intersects, query), query(index::searchIntersecting, query));
+            assertEquals(bruteForce(rectangles, Rectangle::contains, query), query(index::searchContaining, query));
+            assertEquals(bruteForce(rectangles, Rectangle::isContainedBy, query), query(index::searchContainedBy, query));
+            assertEquals(bruteForce(rectangles, Rectangle::isAdjacentTo, query), query(index::searchAdjacent, query));
+        }
+    }
+
+    /** @return The ids of the rectangles for which <code>predicate.test(rectangle, query)</code> holds, in order */
+    static List<Integer> bruteForce(final List<Rectangle> rectangles, final BiPredicate<Rectangle, Rectangle> predicate, final Rectangle query) {
+        final List<Integer> ids = new ArrayList<>();
+
+        for(int i = 0; i < rectangles.size(); i++) {
+            if(rectangles.get(i) != null && predicate.test(rectangles.get(i), query)) ids.add(i);
+        }
+
+        return ids;
+    }
+
+    /** @return The ids the search finds, in order */
+    static List<Integer> query(final Search search, final Rectangle query) {
+        final List<Integer> ids = new ArrayList<>();
+        search.run(query, ids::add);
+        Collections.sort(ids);
+        return ids;
+    }
+}
@@ -0,0 +1,250 @@
+package org.loverde.rectangles.index;
+
+import org.junit.jupiter.api.Test;
+import org.loverde.rectangles.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.loverde.rectangles.TestRectangles.randomRectangle;
+import static org.loverde.rectangles.TestRectangles.rect;
+import static org.loverde.rectangles.index.SpatialIndexAssertions.assertMatchesBruteForce;
+import static org.loverde.rectangles.index.SpatialIndexAssertions.bruteForce;
+import static org.loverde.rectangles.index.SpatialIndexAssertions.query;
+
+
+public class VersionedRectangleStoreTest {
+
+    private final Random random = new Random(24);
+
+    @Test
+    public void insert_duplicateId() {
+        final VersionedRectangleStore store = new VersionedRectangleStore();
+        store.insert(5, rect(1, 1, 2, 2));
+
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> store.insert(5, rect(3, 3, 4, 4)));
+        assertEquals("insert:  id 5 is already in the store", e.getMessage());
+    }
+
+    @Test
+    public void update_nullRectangle() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> new VersionedRectangleStore().update(1, null));
+        assertEquals("update:  rectangle cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void eachChangeMakesAVersion() {
+        final VersionedRectangleStore store = new VersionedRectangleStore();
+
+        assertEquals(0, store.getVersion());
+        assertEquals(1, store.insert(1, rect(0, 0, 1, 1)));
+        assertEquals(2, store.insert(2, rect(1, 1, 2, 2)));
+        assertEquals(3, store.update(1, rect(5, 5, 6, 6)));
+        assertEquals(4, store.delete(2));
+
+        // Changes to missing ids make no version
+        assertEquals(-1, store.update(2, rect(0, 0, 1, 1)));
+        assertEquals(-1, store.delete(2));
+        assertEquals(4, store.getVersion());
+
+        assertEquals(1, store.size());
+        assertTrue(store.contains(1));
+        assertFalse(store.contains(2));
+    }
+
+    @Test
+    public void closedSnapshot() {
+        final VersionedRectangleStore store = new VersionedRectangleStore();
+        final VersionedRectangleStore.Snapshot snapshot = store.openSnapshot();
+
+        snapshot.close();
+        snapshot.close();
+
+        assertTrue(snapshot.isClosed());
+        assertEquals(0, store.getPinnedVersionCount());
+
+        final Exception e = assertThrows(IllegalStateException.class, () -> snapshot.searchIntersecting(rect(0, 0, 1, 1), id -> {}));
+        assertEquals("searchIntersecting:  the snapshot is closed", e.getMessage());
+    }
+
+    @Test
+    public void snapshot_isReadOnly() {
+        try(VersionedRectangleStore.Snapshot snapshot = new VersionedRectangleStore().openSnapshot()) {
+            final Exception e = assertThrows(UnsupportedOperationException.class, () -> snapshot.insert(rect(0, 0, 1, 1), 1));
+            assertEquals("insert:  a snapshot is read-only", e.getMessage());
+        }
+    }
+
+    @Test
+    public void versionsArePinnedUntilTheirLastSnapshotCloses() {
+        final VersionedRectangleStore store = new VersionedRectangleStore();
+        store.insert(1, rect(0, 0, 1, 1));
+
+        final VersionedRectangleStore.Snapshot first = store.openSnapshot();
+        final VersionedRectangleStore.Snapshot second = store.openSnapshot();  // same version, so shares it
+
+        store.insert(2, rect(2, 2, 3, 3));
+
+        final VersionedRectangleStore.Snapshot third = store.openSnapshot();
+
+        assertEquals(1, first.getVersion());
+        assertEquals(1, second.getVersion());
+        assertEquals(2, third.getVersion());
+        assertEquals(2, store.getPinnedVersionCount());
+        assertEquals(1, store.getOldestPinnedVersion());
+
+        first.close();
+        assertEquals(2, store.getPinnedVersionCount());
+
+        second.close();
+        assertEquals(1, store.getPinnedVersionCount());
+        assertEquals(2, store.getOldestPinnedVersion());
+
+        third.close();
+        assertEquals(0, store.getPinnedVersionCount());
+        assertEquals(-1, store.getOldestPinnedVersion());
+    }
+
+    @Test
+    public void droppedSnapshotsReleaseTheirVersions() throws InterruptedException {
+        final VersionedRectangleStore store = new VersionedRectangleStore();
+        store.insert(1, rect(0, 0, 1, 1));
+
+        final VersionedRectangleStore.Snapshot kept = store.openSnapshot();
+        openAndDrop(store);
+
+        store.insert(2, rect(2, 2, 3, 3));
+        openAndDrop(store);
+        openAndDrop(store);
+
+        // The latest version is held by the store until the next change, so that later snapshots can share it
+        awaitCollection(store, 2);
+        assertEquals(1, store.getOldestPinnedVersion());
+
+        store.insert(3, rect(4, 4, 5, 5));
+        awaitCollection(store, 1);
+        assertEquals(1, store.getOldestPinnedVersion());
+        assertEquals(1, kept.size());
+
+        // Version 1 was shared with a dropped snapshot, which never closed, so it goes once that's collected
+        kept.close();
+        awaitCollection(store, 0);
+    }
+
+    // Kept out of line, so that nothing in the caller's frame still refers to the snapshot
+    private static void openAndDrop(final VersionedRectangleStore store) {
+        store.openSnapshot().size();
+    }
+
+    private static void awaitCollection(final VersionedRectangleStore store, final int expected) throws InterruptedException {
+        for(int attempt = 0; attempt < 200 && store.getPinnedVersionCount() > expected; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertEquals(expected, store.getPinnedVersionCount());
+    }
+
+    @Test
+    public void snapshotsMatchBruteForceAtTheirVersions() {
+        final VersionedRectangleStore store = new VersionedRectangleStore(6);
+        final List<Rectangle> current = new ArrayList<>(Collections.nCopies(400, null));
+        final List<VersionedRectangleStore.Snapshot> snapshots = new ArrayList<>();
+        final List<List<Rectangle>> expected = new ArrayList<>();
+        int size = 0;
+
+        for(int step = 0; step < 3000; step++) {
+            final int id = random.nextInt(400);
+
+            if(current.get(id) == null) {
+                current.set(id, randomRectangle(random));
+                store.insert(id, current.get(id));
+                size++;
+            } else if(random.nextBoolean()) {
+                current.set(id, randomRectangle(random));
+                store.update(id, current.get(id));
+            } else {
+                current.set(id, null);
+                store.delete(id);
+                size--;
+            }
+
+            if(step % 300 == 0) {
+                snapshots.add(store.openSnapshot());
+                expected.add(new ArrayList<>(current));
+                assertEquals(size, snapshots.get(snapshots.size() - 1).size());
+            }
+        }
+
+        for(int s = 0; s < snapshots.size(); s++) {
+            assertMatchesBruteForce(snapshots.get(s), expected.get(s), random);
+            snapshots.get(s).close();
+        }
+
+        assertEquals(0, store.getPinnedVersionCount());
+
+        try(VersionedRectangleStore.Snapshot latest = store.openSnapshot()) {
+            final Rectangle query = rect(0, 0, 200, 200);
+            assertEquals(bruteForce(current, Rectangle::intersects, query), query(latest::searchIntersecting, query));
+        }
+    }
+
+    /**
+     * A scan of a snapshot must see the same entries from start to finish, however many changes are made meanwhile.
+     */
+    @Test
+    public void stress_scansSeeOneVersion() throws InterruptedException {
+        final VersionedRectangleStore store = new VersionedRectangleStore(8);
+        final AtomicBoolean done = new AtomicBoolean();
+        final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+
+        for(int id = 0; id < 500; id++) store.insert(id, randomRectangle(random));
+
+        final Thread reader = new Thread(() -> {
+            while(!done.get()) {
+                try(VersionedRectangleStore.Snapshot snapshot = store.openSnapshot()) {
+                    final List<String> first = entries(snapshot), second = entries(snapshot);
+
+                    if(!first.equals(second) || first.size() != snapshot.size()) {
+                        failures.add("version " + snapshot.getVersion() + " changed during a scan");
+                        return;
+                    }
+                }
+            }
+        });
+
+        reader.start();
+
+        final Random writerRandom = new Random(7);
+
+        for(int step = 0; step < 20_000; step++) {
+            final int id = writerRandom.nextInt(600);
+            final int x = writerRandom.nextInt(100), y = writerRandom.nextInt(100);
+            final Rectangle r = rect(x, y, x + 1 + writerRandom.nextInt(10), y + 1 + writerRandom.nextInt(10));
+
+            if(store.update(id, r) < 0) store.insert(id, r);
+            if(writerRandom.nextInt(4) == 0) store.delete(writerRandom.nextInt(600));
+        }
+
+        done.set(true);
+        reader.join();
+
+        assertEquals(List.of(), new ArrayList<>(failures));
+        assertEquals(0, store.getPinnedVersionCount());
+    }
+
+    private static List<String> entries(final SpatialIndex index) {
+        final List<String> entries = new ArrayList<>();
+        index.forEachEntry((id, l, b, r, t) -> entries.add(id + ":" + l + "," + b + "," + r + "," + t));
+        Collections.sort(entries);
+        return entries;
+    }
+}
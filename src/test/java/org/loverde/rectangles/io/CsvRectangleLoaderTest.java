@@ -0,0 +1,243 @@
+package org.loverde.rectangles.io;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.loverde.rectangles.Boundaries;
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.loverde.rectangles.TestRectangles.rect;
+
+
+public class CsvRectangleLoaderTest {
+
+    private static ForkJoinPool pool;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    public static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    public static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void constructorArguments() {
+        Exception e = assertThrows(IllegalArgumentException.class, () -> new CsvRectangleLoader(null, 100));
+        assertEquals("pool cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> new CsvRectangleLoader(pool, 0));
+        assertEquals("chunkBytes must be at least 1", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> new CsvRectangleLoader(pool, CsvRectangleLoader.MAX_CHUNK_BYTES + 1));
+        assertEquals("chunkBytes cannot be greater than " + CsvRectangleLoader.MAX_CHUNK_BYTES, e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> new CsvRectangleLoader().load(null));
+        assertEquals("load:  path cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void empty() throws IOException {
+        final CsvRectangleLoader.Result result = new CsvRectangleLoader().load(write(""));
+
+        assertEquals(0, result.getRectangles().size());
+        assertFalse(result.hasErrors());
+    }
+
+    @Test
+    public void formats() throws IOException {
+        final CsvRectangleLoader.Result result = new CsvRectangleLoader().load(write(
+            "1,2,3,4\n" +
+            "  0.5 ,\t1.25, 3e1 ,+4.0E+1\r\n" +
+            "\n" +
+            "   \n" +
+            "0,0,.5,7.\n" +
+            "0.000000000000000000000000001,1e-30,123456789012345678901234567890,1e300"));
+
+        assertFalse(result.hasErrors());
+
+        final RectangleBatch rectangles = result.getRectangles();
+        assertEquals(4, rectangles.size());
+        assertEquals(rect(1, 2, 3, 4), rectangles.get(0));
+        assertEquals(rect(0.5, 1.25, 30, 40), rectangles.get(1));
+        assertEquals(rect(0, 0, 0.5, 7), rectangles.get(2));
+        assertEquals(rect(1e-27, 1e-30, 123456789012345678901234567890.0, 1e300), rectangles.get(3));
+
+        assertEquals(1, result.getLineNumber(0));
+        assertEquals(2, result.getLineNumber(1));
+        assertEquals(5, result.getLineNumber(2));
+        assertEquals(6, result.getLineNumber(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> result.getLineNumber(4));
+    }
+
+    @Test
+    public void header() throws IOException {
+        final CsvRectangleLoader.Result result = new CsvRectangleLoader().load(write("left,bottom,right,top\n1,1,2,2\n"), true);
+
+        assertFalse(result.hasErrors());
+        assertEquals(1, result.getRectangles().size());
+        assertEquals(2, result.getLineNumber(0));
+    }
+
+    @Test
+    public void errorsAreReportedPerRow() throws IOException {
+        final CsvRectangleLoader.Result result = new CsvRectangleLoader().load(write(
+            "-1,0,1,1\n" +
+            "0,-1,1,1\n" +
+            "2,0,1,1\n" +
+            "0,2,1,1\n" +
+            "0,0,1\n" +
+            "0,0,1,1,1\n" +
+            "0,zero,1,1\n" +
+            "0,0,1,1x\n" +
+            "0,0,1e,1\n" +
+            "NaN,0,1,1\n" +
+            "0,0,1,1\n"));
+
+        assertEquals(1, result.getRectangles().size());
+        assertEquals(11, result.getLineNumber(0));
+
+        final List<String> errors = new ArrayList<>();
+        result.getErrors().forEach(error -> errors.add(error.toString()));
+
+        assertEquals(List.of("line 1:  x must be greater than or equal to 0",
+                             "line 2:  y must be greater than or equal to 0",
+                             "line 3:  upperRight.x must be greater than lowerLeft.x",
+                             "line 4:  upperRight.y must be greater than lowerLeft.y",
+                             "line 5:  expected 4 fields but found 3",
+                             "line 6:  expected 4 fields but found more",
+                             "line 7:  bottom is not a number",
+                             "line 8:  top is not a number",
+                             "line 9:  right is not a number",
+                             "line 10:  left is not a number"), errors);
+    }
+
+    // The same messages Point and Rectangle throw
+    @Test
+    public void errorsMatchRectangle() throws IOException {
+        final CsvRectangleLoader.Result result = new CsvRectangleLoader().load(write("3,1,2,5\n"));
+
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> rect(3, 1, 2, 5));
+        assertEquals(e.getMessage(), result.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    public void numbersMatchParseDouble() throws IOException {
+        final Random random = new Random(17);
+        final StringBuilder text = new StringBuilder();
+        final List<Double> expected = new ArrayList<>();
+
+        for(int i = 0; i < 20000; i++) {
+            final String number;
+
+            switch(i % 4) {
+                case 0:  number = Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20)); break;
+                case 1:  number = Long.toString(random.nextLong() >>> 1) + "." + Long.toString(random.nextLong() >>> 1); break;
+                case 2:  number = random.nextInt(1_000_000) + "." + String.format("%06d", random.nextInt(1_000_000)); break;
+                default: number = random.nextInt(100_000) + "e" + (random.nextInt(60) - 30); break;
+            }
+
+            final double value = Double.parseDouble(number);
+            expected.add(value);
+            text.append(number).append(",0,").append(value * 2 + 1).append(",1\n");
+        }
+
+        final RectangleBatch rectangles = new CsvRectangleLoader(pool, 4096).load(write(text.toString())).getRectangles();
+
+        assertEquals(expected.size(), rectangles.size());
+
+        for(int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), rectangles.getLeftX(i), "line " + (i + 1));
+        }
+    }
+
+    // Whatever the chunk size, the result is the same as loading line by line
+    @Test
+    public void chunkingDoesNotChangeTheResult() throws IOException {
+        final Random random = new Random(18);
+        final StringBuilder text = new StringBuilder();
+
+        for(int i = 0; i < 3000; i++) {
+            final int x = random.nextInt(100) - 5, y = random.nextInt(100);
+
+            if(random.nextInt(50) == 0) text.append("\n");
+            else if(random.nextInt(50) == 0) text.append("bad line\n");
+            else text.append(x).append(',').append(y).append(',').append(x + random.nextInt(10)).append(',').append(y + 1 + random.nextDouble()).append(random.nextBoolean() ? "\n" : "\r\n");
+        }
+
+        final Path file = write(text.toString());
+        final List<String> expected = lineByLine(Files.readAllLines(file));
+
+        assertTrue(expected.stream().anyMatch(s -> s.startsWith("error")));
+
+        for(final int chunkBytes : new int[] {1, 7, 100, 4096, CsvRectangleLoader.DEFAULT_CHUNK_BYTES}) {
+            assertEquals(expected, describe(new CsvRectangleLoader(pool, chunkBytes).load(file)), "chunkBytes " + chunkBytes);
+        }
+    }
+
+    /** The expected result, in the same form as describe() */
+    private static List<String> lineByLine(final List<String> lines) {
+        final List<String> loaded = new ArrayList<>(), errors = new ArrayList<>();
+
+        for(int i = 0; i < lines.size(); i++) {
+            final String line = lines.get(i).trim();
+
+            if(line.isEmpty()) continue;
+
+            final String[] fields = line.split(",");
+
+            if(fields.length != 4) {
+                errors.add("error " + (i + 1));
+                continue;
+            }
+
+            final double l = Double.parseDouble(fields[0]), b = Double.parseDouble(fields[1]);
+            final double r = Double.parseDouble(fields[2]), t = Double.parseDouble(fields[3]);
+
+            if(Boundaries.validationError(l, b, r, t) != null) errors.add("error " + (i + 1));
+            else loaded.add((i + 1) + ":" + l + "," + b + "," + r + "," + t);
+        }
+
+        loaded.addAll(errors);
+        return loaded;
+    }
+
+    private static List<String> describe(final CsvRectangleLoader.Result result) {
+        final List<String> described = new ArrayList<>();
+        final RectangleBatch rectangles = result.getRectangles();
+
+        for(int i = 0; i < rectangles.size(); i++) {
+            described.add(result.getLineNumber(i) + ":" + rectangles.getLeftX(i) + "," + rectangles.getBottomY(i) + "," +
+                          rectangles.getRightX(i) + "," + rectangles.getTopY(i));
+        }
+
+        result.getErrors().forEach(error -> described.add("error " + error.getLineNumber()));
+        return described;
+    }
+
+    private Path write(final String text) throws IOException {
+        final Path file = Files.createTempFile(directory, "rectangles", ".csv");
+        Files.writeString(file, text);
+        return file;
+    }
+}
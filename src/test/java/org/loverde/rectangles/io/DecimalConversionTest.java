@@ -0,0 +1,83 @@
+package org.loverde.rectangles.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class DecimalConversionTest {
+
+    @Test
+    public void zero() {
+        assertEquals(Double.doubleToRawLongBits(0.0), Double.doubleToRawLongBits(DecimalConversion.toDouble(0, 5, false)));
+        assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(DecimalConversion.toDouble(0, 5, true)));
+    }
+
+    @Test
+    public void matchesParseDouble_shortestRepresentation() {
+        final Random random = new Random(11);
+        int decided = 0, tried = 0;
+
+        for(int i = 0; i < 200_000; i++) {
+            final double expected = Double.longBitsToDouble(random.nextLong() & 0x7FEFFFFFFFFFFFFFL);
+
+            if(expected == 0 || Math.abs(expected) < Double.MIN_NORMAL) continue;
+
+            tried++;
+            if(check(Double.toString(expected))) decided++;
+        }
+
+        assertTrue(decided > tried * 0.99, decided + " of " + tried);
+    }
+
+    @Test
+    public void matchesParseDouble_manyDigits() {
+        final Random random = new Random(12);
+        int decided = 0;
+
+        for(int i = 0; i < 200_000; i++) {
+            final long mantissa = Math.floorMod(random.nextLong(), 1_000_000_000_000_000_000L);
+            final int exponent = random.nextInt(560) - 290;
+
+            if(check(mantissa + "e" + exponent)) decided++;
+        }
+
+        assertTrue(decided > 199_000, decided + " of 200000");
+    }
+
+    @Test
+    public void matchesParseDouble_halfWay() {
+        // Exactly between two doubles, which must round to even
+        for(long m = (1L << 53) + 1; m < (1L << 53) + 2000; m += 2) {
+            check(Long.toString(m));
+        }
+
+        check("9007199254740993");
+        check("9007199254740995");
+        check("1.7976931348623157e308");
+        check("2.2250738585072014e-308");
+    }
+
+    @Test
+    public void givesUpWhenItCannotDecide() {
+        // Out of range and subnormal results are left to Double.parseDouble
+        assertTrue(Double.isNaN(DecimalConversion.toDouble(1, 400, false)));
+        assertTrue(Double.isNaN(DecimalConversion.toDouble(1, -320, false)));
+    }
+
+    /** @return <em>true</em> if the conversion decided, rather than leaving the number to Double.parseDouble */
+    private static boolean check(final String text) {
+        final BigDecimal decimal = new BigDecimal(text);
+        final long mantissa = decimal.unscaledValue().longValueExact();
+        final double actual = DecimalConversion.toDouble(mantissa, -decimal.scale(), false);
+
+        if(Double.isNaN(actual)) return false;
+
+        assertEquals(Double.doubleToRawLongBits(Double.parseDouble(text)), Double.doubleToRawLongBits(actual), text);
+        return true;
+    }
+}
@@ -0,0 +1,290 @@
+package org.loverde.rectangles.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.loverde.rectangles.RectangleBatch;
+import org.loverde.rectangles.join.ExternalSpatialJoin;
+import org.loverde.rectangles.join.RectangleSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class RectangleFileReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void nullPath() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> RectangleFileReader.open(null));
+        assertEquals("open:  path cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void empty() throws IOException {
+        final RectangleFileReader reader = RectangleFileReader.open(write(new RectangleBatch(), 8));
+
+        assertEquals(0, reader.size());
+        assertEquals(0, reader.getBlockCount());
+        assertEquals(0, reader.toBatch().size());
+        assertFalse(reader.cursor().isValid());
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.getLeftX(0));
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        final Random random = new Random(14);
+
+        for(final int size : new int[] {1, 7, 8, 9, 16, 100}) {
+            final RectangleBatch batch = randomBatch(random, size);
+            final RectangleFileReader reader = RectangleFileReader.open(write(batch, 8));
+
+            assertEquals(size, reader.size());
+            assertEquals((size + 7) / 8, reader.getBlockCount());
+            assertEquals(8, reader.getBlockSize());
+
+            for(int i = 0; i < size; i++) {
+                assertEquals(batch.getLeftX(i), reader.getLeftX(i));
+                assertEquals(batch.getBottomY(i), reader.getBottomY(i));
+                assertEquals(batch.getRightX(i), reader.getRightX(i));
+                assertEquals(batch.getTopY(i), reader.getTopY(i));
+                assertEquals(batch.get(i), reader.get(i));
+            }
+
+            assertBatchEquals(batch, reader.toBatch());
+        }
+    }
+
+    @Test
+    public void columns() throws IOException {
+        final RectangleBatch batch = randomBatch(new Random(15), 20);
+        final RectangleFileReader reader = RectangleFileReader.open(write(batch, 8));
+
+        assertEquals(8, reader.getBlockLength(0));
+        assertEquals(4, reader.getBlockLength(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.getBlockLength(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.getTopColumn(-1));
+
+        int index = 0;
+
+        for(int block = 0; block < reader.getBlockCount(); block++) {
+            final DoubleBuffer left = reader.getLeftColumn(block), bottom = reader.getBottomColumn(block);
+            final DoubleBuffer right = reader.getRightColumn(block), top = reader.getTopColumn(block);
+
+            assertEquals(reader.getBlockLength(block), left.remaining());
+            assertTrue(left.isReadOnly());
+
+            for(int i = 0; i < left.limit(); i++, index++) {
+                assertEquals(batch.getLeftX(index), left.get(i));
+                assertEquals(batch.getBottomY(index), bottom.get(i));
+                assertEquals(batch.getRightX(index), right.get(i));
+                assertEquals(batch.getTopY(index), top.get(i));
+            }
+        }
+
+        assertEquals(20, index);
+    }
+
+    @Test
+    public void cursor() throws IOException {
+        final RectangleBatch batch = randomBatch(new Random(16), 19);
+        final RectangleFileReader reader = RectangleFileReader.open(write(batch, 4));
+        final RectangleFileReader.Cursor cursor = reader.cursor();
+
+        int index = 0;
+
+        for(; cursor.isValid(); cursor.next(), index++) {
+            assertEquals(index, cursor.getIndex());
+            assertEquals(batch.getLeftX(index), cursor.getLeftX());
+            assertEquals(batch.getBottomY(index), cursor.getBottomY());
+            assertEquals(batch.getRightX(index), cursor.getRightX());
+            assertEquals(batch.getTopY(index), cursor.getTopY());
+        }
+
+        assertEquals(19, index);
+        assertFalse(cursor.next());
+        assertThrows(IllegalStateException.class, cursor::getLeftX);
+
+        cursor.moveTo(13);
+        assertEquals(batch.getTopY(13), cursor.getTopY());
+        assertThrows(IndexOutOfBoundsException.class, () -> cursor.moveTo(20));
+    }
+
+    @Test
+    public void copyTo() throws IOException {
+        final RectangleBatch batch = randomBatch(new Random(17), 30);
+        final RectangleFileReader reader = RectangleFileReader.open(write(batch, 8));
+        final RectangleBatch copy = new RectangleBatch();
+
+        reader.copyTo(5, 12, copy);
+
+        assertEquals(12, copy.size());
+
+        for(int i = 0; i < 12; i++) {
+            assertEquals(batch.get(i + 5), copy.get(i));
+        }
+
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.copyTo(25, 6, copy));
+    }
+
+    @Test
+    public void copyTo_damagedRectangle() throws IOException {
+        final RectangleBatch batch = randomBatch(new Random(19), 30);
+        final Path file = write(batch, 8);
+
+        // Rectangle 19 is the fourth of the third block; its left edge is moved past its right one
+        patchLong(file, 32 + 2 * 8 * 32 + 3 * 8, Double.doubleToLongBits(1e9));
+
+        final RectangleFileReader reader = RectangleFileReader.open(file);
+
+        Exception e = assertThrows(IllegalStateException.class, reader::toBatch);
+        assertEquals("copyTo:  rectangle 19 is invalid:  upperRight.x must be greater than lowerLeft.x", e.getMessage());
+
+        e = assertThrows(IllegalStateException.class, () -> reader.copyTo(18, 5, new RectangleBatch()));
+        assertEquals("copyTo:  rectangle 19 is invalid:  upperRight.x must be greater than lowerLeft.x", e.getMessage());
+
+        // The rest of the file can still be read
+        final RectangleBatch copy = new RectangleBatch();
+        reader.copyTo(0, 19, copy);
+        reader.copyTo(20, 10, copy);
+
+        assertEquals(29, copy.size());
+        assertEquals(batch.get(20), copy.get(19));
+    }
+
+    @Test
+    public void joinsFromTheFile() throws IOException {
+        final Random random = new Random(18);
+        final RectangleBatch first = randomBatch(random, 500), second = randomBatch(random, 500);
+        final ExternalSpatialJoin join = new ExternalSpatialJoin(directory, ExternalSpatialJoin.MIN_MEMORY_LIMIT);
+
+        final long expected = join.join(RectangleSource.of(first), RectangleSource.of(second), (i, j) -> {});
+        final long actual = join.join(RectangleFileReader.open(write(first, 64)), RectangleFileReader.open(write(second, 100)), (i, j) -> {});
+
+        assertTrue(expected > 0);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void notARectangleFile() throws IOException {
+        final Path file = directory.resolve("text");
+        Files.writeString(file, "0,0,1,1\n");
+
+        Exception e = assertThrows(IOException.class, () -> RectangleFileReader.open(file));
+        assertEquals(file + " is not a rectangle file", e.getMessage());
+
+        Files.write(file, new byte[40]);
+
+        e = assertThrows(IOException.class, () -> RectangleFileReader.open(file));
+        assertEquals(file + " is not a rectangle file", e.getMessage());
+    }
+
+    @Test
+    public void unsupportedVersion() throws IOException {
+        final Path file = write(randomBatch(new Random(19), 3), 8);
+        patchInt(file, 4, 99);
+
+        final Exception e = assertThrows(IOException.class, () -> RectangleFileReader.open(file));
+        assertEquals(file + " has unsupported version 99", e.getMessage());
+    }
+
+    @Test
+    public void truncated() throws IOException {
+        final Path file = write(randomBatch(new Random(20), 3), 8);
+
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 8);
+        }
+
+        final Exception e = assertThrows(IOException.class, () -> RectangleFileReader.open(file));
+        assertEquals(file + " has the wrong length for 3 rectangles", e.getMessage());
+    }
+
+    @Test
+    public void invalidCount() throws IOException {
+        final Path file = write(randomBatch(new Random(21), 3), 8);
+        patchLong(file, 16, Long.MAX_VALUE);
+
+        final Exception e = assertThrows(IOException.class, () -> RectangleFileReader.open(file));
+        assertEquals(file + " has an invalid rectangle count " + Long.MAX_VALUE, e.getMessage());
+    }
+
+    @Test
+    public void tooManyBlocks() throws IOException {
+        final Path file = write(randomBatch(new Random(22), 3), 1);
+        patchLong(file, 16, 3_000_000_000L);
+
+        final Exception e = assertThrows(IOException.class, () -> RectangleFileReader.open(file));
+        assertEquals(file + " has too many blocks:  3000000000", e.getMessage());
+    }
+
+    @Test
+    public void neverFinished() throws IOException {
+        final Path file = directory.resolve("unfinished");
+        final RectangleFileWriter writer = new RectangleFileWriter(file, 2);
+        writer.write(0, 0, 1, 1);
+        writer.write(0, 0, 1, 1);
+
+        final Exception e = assertThrows(IOException.class, () -> RectangleFileReader.open(file));
+        assertEquals(file + " was never finished", e.getMessage());
+
+        writer.close();
+        assertEquals(2, RectangleFileReader.open(file).size());
+    }
+
+    private Path write(final RectangleBatch batch, final int blockSize) throws IOException {
+        final Path file = Files.createTempFile(directory, "rectangles", ".bin");
+
+        try(final RectangleFileWriter writer = new RectangleFileWriter(file, blockSize)) {
+            writer.write(batch);
+        }
+
+        return file;
+    }
+
+    private static void patchInt(final Path file, final int offset, final int value) throws IOException {
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, value);
+            channel.write(buffer, offset);
+        }
+    }
+
+    private static void patchLong(final Path file, final int offset, final long value) throws IOException {
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, value);
+            channel.write(buffer, offset);
+        }
+    }
+
+    private static void assertBatchEquals(final RectangleBatch expected, final RectangleBatch actual) {
+        assertEquals(expected.size(), actual.size());
+
+        for(int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static RectangleBatch randomBatch(final Random random, final int size) {
+        final RectangleBatch batch = new RectangleBatch(size);
+
+        for(int i = 0; i < size; i++) {
+            final double x = random.nextDouble() * 100, y = random.nextDouble() * 100;
+            batch.add(x, y, x + 0.5 + random.nextDouble() * 10, y + 0.5 + random.nextDouble() * 10);
+        }
+
+        return batch;
+    }
+}
@@ -0,0 +1,91 @@
+package org.loverde.rectangles.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+public class RectangleFileWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void constructorArguments() {
+        Exception e = assertThrows(IllegalArgumentException.class, () -> new RectangleFileWriter(null));
+        assertEquals("path cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> new RectangleFileWriter(directory.resolve("a"), 0));
+        assertEquals("blockSize must be at least 1", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> new RectangleFileWriter(directory.resolve("a"), RectangleFileWriter.MAX_BLOCK_SIZE + 1));
+        assertEquals("blockSize cannot be greater than " + RectangleFileWriter.MAX_BLOCK_SIZE, e.getMessage());
+    }
+
+    @Test
+    public void validatesLikeRectangle() throws IOException {
+        try(final RectangleFileWriter writer = new RectangleFileWriter(directory.resolve("a"))) {
+            Exception e = assertThrows(IllegalArgumentException.class, () -> writer.write(-1, 0, 1, 1));
+            assertEquals("x must be greater than or equal to 0", e.getMessage());
+
+            e = assertThrows(IllegalArgumentException.class, () -> writer.write(0, 2, 1, 1));
+            assertEquals("upperRight.y must be greater than lowerLeft.y", e.getMessage());
+
+            e = assertThrows(IllegalArgumentException.class, () -> writer.write((Rectangle) null));
+            assertEquals("write:  rectangle cannot be null", e.getMessage());
+
+            assertEquals(0, writer.size());
+        }
+    }
+
+    @Test
+    public void writeAfterClose() throws IOException {
+        final RectangleFileWriter writer = new RectangleFileWriter(directory.resolve("a"));
+        writer.close();
+        writer.close();
+
+        final Exception e = assertThrows(IllegalStateException.class, () -> writer.write(0, 0, 1, 1));
+        assertEquals("write:  writer is closed", e.getMessage());
+    }
+
+    // Pins the layout down byte for byte, so a change to it can't go unnoticed
+    @Test
+    public void layout() throws IOException {
+        final Path file = directory.resolve("a");
+
+        try(final RectangleFileWriter writer = new RectangleFileWriter(file, 2)) {
+            writer.write(1, 2, 3, 4);
+            writer.write(new Rectangle(new Point(5, 6), new Point(7, 8)));
+            writer.write(9, 10, 11, 12);
+        }
+
+        final ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+
+        assertEquals(32 + 3 * 32, bytes.limit());
+        assertEquals('R', bytes.get(0));
+        assertEquals('E', bytes.get(1));
+        assertEquals('C', bytes.get(2));
+        assertEquals('T', bytes.get(3));
+        assertEquals(1, bytes.getInt(4));
+        assertEquals(2, bytes.getInt(8));
+        assertEquals(3, bytes.getLong(16));
+
+        bytes.position(32);
+        final double[] expected = {1, 5, 2, 6, 3, 7, 4, 8,     // first block, column by column
+                                   9, 10, 11, 12};             // last block, one rectangle
+
+        for(final double value : expected) {
+            assertEquals(value, bytes.getDouble());
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package org.loverde.rectangles.join;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.loverde.rectangles.TestRectangles.randomBatch;
+
+
+public class ExternalSpatialJoinTest {
+
+    @TempDir
+    Path spill;
+
+    @Test
+    public void nullArguments() {
+        final ExternalSpatialJoin join = new ExternalSpatialJoin(spill, ExternalSpatialJoin.MIN_MEMORY_LIMIT);
+        final RectangleSource empty = RectangleSource.of(new RectangleBatch());
+
+        Exception e = assertThrows(IllegalArgumentException.class, () -> join.join(null, empty, (i, j) -> {}));
+        assertEquals("join:  first cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> join.join(empty, null, (i, j) -> {}));
+        assertEquals("join:  second cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> join.join(empty, empty, null));
+        assertEquals("join:  consumer cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> RectangleSource.of(null));
+        assertEquals("of:  batch cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void constructorArguments() {
+        Exception e = assertThrows(IllegalArgumentException.class, () -> new ExternalSpatialJoin(null, ExternalSpatialJoin.DEFAULT_MEMORY_LIMIT));
+        assertEquals("spillDirectory cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> new ExternalSpatialJoin(spill, ExternalSpatialJoin.MIN_MEMORY_LIMIT - 1));
+        assertEquals("memoryLimit must be at least " + ExternalSpatialJoin.MIN_MEMORY_LIMIT, e.getMessage());
+    }
+
+    @Test
+    public void invalidRectangle() {
+        final RectangleSource bad = sink -> sink.accept(0, 5, 5, 4, 6);
+        final RectangleSource good = sink -> sink.accept(0, 0, 0, 1, 1);
+
+        final Exception e = assertThrows(IllegalArgumentException.class,
+            () -> new ExternalSpatialJoin(spill, ExternalSpatialJoin.MIN_MEMORY_LIMIT).join(good, bad, (i, j) -> {}));
+        assertEquals("upperRight.x must be greater than lowerLeft.x", e.getMessage());
+    }
+
+    @Test
+    public void fitsInMemory() throws IOException {
+        final Random random = new Random(13);
+        final RectangleBatch first = randomBatch(random, 300, 40, 8), second = randomBatch(random, 300, 40, 8);
+
+        assertEquals(pairsBruteForce(first, second), pairs(first, second, ExternalSpatialJoin.DEFAULT_MEMORY_LIMIT));
+        assertSpillRemoved();
+    }
+
+    @Test
+    public void spillsToDisk() throws IOException {
+        final Random random = new Random(14);
+
+        // About 4 MB of rectangles against a 1 MB limit
+        final RectangleBatch first = randomBatch(random, 40000, 2000, 30), second = randomBatch(random, 45000, 2000, 30);
+
+        assertEquals(pairsInMemory(first, second), pairs(first, second, ExternalSpatialJoin.MIN_MEMORY_LIMIT));
+        assertSpillRemoved();
+    }
+
+    // Half of each input is bunched into a corner, so that corner's partition has to be partitioned again
+    @Test
+    public void skewedInputIsPartitionedAgain() throws IOException {
+        final Random random = new Random(15);
+        final RectangleBatch first = new RectangleBatch(), second = new RectangleBatch();
+
+        for(final RectangleBatch batch : List.of(first, second)) {
+            for(int i = 0; i < 30000; i++) {
+                final int extent = i % 2 == 0 ? 100 : 5000;
+                final int x = random.nextInt(extent), y = random.nextInt(extent);
+                batch.add(x, y, x + 1 + random.nextInt(4), y + 1 + random.nextInt(4));
+            }
+        }
+
+        assertEquals(pairsInMemory(first, second), pairs(first, second, ExternalSpatialJoin.MIN_MEMORY_LIMIT));
+        assertSpillRemoved();
+    }
+
+    // Identical rectangles can never be separated, so partitioning stops at the depth limit and joins them anyway
+    @Test
+    public void inseparableInput() throws IOException {
+        final RectangleBatch first = new RectangleBatch(), second = new RectangleBatch();
+
+        for(int i = 0; i < 25000; i++) {
+            first.add(10, 10, 20, 20);
+        }
+
+        for(int i = 0; i < 10; i++) {
+            second.add(15, 15, 25, 25);
+        }
+
+        second.add(0, 0, 1, 1);
+
+        final Set<Long> found = new HashSet<>();
+        final long count = new ExternalSpatialJoin(spill, ExternalSpatialJoin.MIN_MEMORY_LIMIT).join(
+            RectangleSource.of(first), RectangleSource.of(second), (i, j) -> assertTrue(found.add(i * 100 + j)));
+
+        assertEquals(250000, count);
+        assertEquals(250000, found.size());
+        assertSpillRemoved();
+    }
+
+    /**
+     * Every strip spans the whole width, so it covers a tile of every partition, and partitioning copies the whole
+     * input to each partition without separating anything.  Repartitioning those partitions to the depth limit would
+     * make hundreds of copies of the input; the join must notice that partitioning isn't helping and fall back.
+     */
+    @Test
+    public void heavilyOverlappingInput() throws IOException {
+        final RectangleBatch first = new RectangleBatch(), second = new RectangleBatch();
+
+        // Each strip intersects only the strip of the other input at the same height, and a few squares which are all
+        // but identical intersect each other
+        for(final RectangleBatch batch : List.of(first, second)) {
+            for(int i = 0; i < 12000; i++) {
+                batch.add(0, i, 10000, i + 1);
+            }
+
+            for(int i = 0; i < 100; i++) {
+                batch.add(5000 + i * 1e-3, 5000.25, 5010 + i * 1e-3, 5000.75);
+            }
+        }
+
+        final long[] expected = new long[2];
+        new SpatialJoin().join(first, second, (i, j) -> {
+            synchronized(expected) {
+                expected[0]++;
+                expected[1] += mix(i, j);
+            }
+        });
+
+        final long[] actual = new long[2];
+        final long count = assertTimeoutPreemptively(Duration.ofSeconds(20), () -> new ExternalSpatialJoin(spill, ExternalSpatialJoin.MIN_MEMORY_LIMIT).join(
+            RectangleSource.of(first), RectangleSource.of(second), (i, j) -> {
+                actual[0]++;
+                actual[1] += mix(i, j);
+            }));
+
+        assertEquals(12000 + 100 * 100 + 2 * 100, expected[0]);
+        assertEquals(expected[0], count);
+        assertArrayEquals(expected, actual);
+        assertSpillRemoved();
+    }
+
+    // An order-independent checksum of the pairs, for inputs with too many pairs to list
+    private static long mix(final long i, final long j) {
+        long h = i * 0x9E3779B97F4A7C15L + j;
+        h ^= h >>> 31;
+        return h * 0xBF58476D1CE4E5B9L;
+    }
+
+    @Test
+    public void idsComeFromTheSource() throws IOException {
+        final RectangleSource first = sink -> {
+            sink.accept(10_000_000_000L, 0, 0, 2, 2);
+            sink.accept(-7, 5, 5, 6, 6);
+        };
+        final RectangleSource second = sink -> sink.accept(42, 1, 1, 3, 3);
+
+        final List<String> found = new ArrayList<>();
+        new ExternalSpatialJoin(spill, ExternalSpatialJoin.MIN_MEMORY_LIMIT).join(first, second, (i, j) -> found.add(i + "," + j));
+
+        assertEquals(List.of("10000000000,42"), found);
+    }
+
+    private void assertSpillRemoved() throws IOException {
+        try(final Stream<Path> files = Files.list(spill)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private List<String> pairs(final RectangleBatch first, final RectangleBatch second, final long memoryLimit) throws IOException {
+        final List<String> pairs = new ArrayList<>();
+        final long count = new ExternalSpatialJoin(spill, memoryLimit).join(RectangleSource.of(first), RectangleSource.of(second),
+                                                                              (i, j) -> pairs.add(i + "," + j));
+
+        assertEquals(pairs.size(), count);
+        Collections.sort(pairs);
+        return pairs;
+    }
+
+    private static List<String> pairsInMemory(final RectangleBatch first, final RectangleBatch second) {
+        final List<String> pairs = new ArrayList<>();
+        new SpatialJoin().join(first, second, (i, j) -> {
+            synchronized(pairs) {
+                pairs.add(i + "," + j);
+            }
+        });
+
+        Collections.sort(pairs);
+        return pairs;
+    }
+
+    private static List<String> pairsBruteForce(final RectangleBatch first, final RectangleBatch second) {
+        final List<String> pairs = new ArrayList<>();
+
+        for(int i = 0; i < first.size(); i++) {
+            for(int j = 0; j < second.size(); j++) {
+                if(first.get(i).intersects(second.get(j))) pairs.add(i + "," + j);
+            }
+        }
+
+        Collections.sort(pairs);
+        return pairs;
+    }
+}
@@ -0,0 +1,272 @@
+package org.loverde.rectangles.join;
+
+import org.junit.jupiter.api.Test;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+import org.loverde.rectangles.index.RTree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.loverde.rectangles.TestRectangles.randomBatch;
+import static org.loverde.rectangles.TestRectangles.randomRectangle;
+import static org.loverde.rectangles.TestRectangles.rect;
+
+
+public class QueryBatcherTest {
+
+    private static final QueryBatcher.BatchProbe NOTHING = (queries, matches) -> {};
+
+    private final Random random = new Random(25);
+
+    @Test
+    public void constructor_badArguments() {
+        Exception e = assertThrows(IllegalArgumentException.class, () -> new QueryBatcher(null, 1, 0, TimeUnit.MILLISECONDS));
+        assertEquals("probe cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> new QueryBatcher(NOTHING, 0, 0, TimeUnit.MILLISECONDS));
+        assertEquals("maxBatchSize must be at least 1", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> new QueryBatcher(NOTHING, 1, -1, TimeUnit.MILLISECONDS));
+        assertEquals("maxDelay cannot be negative", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> new QueryBatcher(NOTHING, 1, 0, null));
+        assertEquals("unit cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void searchIntersecting_nullRectangle() {
+        try(QueryBatcher batcher = new QueryBatcher(NOTHING, 1, 0, TimeUnit.MILLISECONDS)) {
+            final Exception e = assertThrows(IllegalArgumentException.class, () -> batcher.searchIntersecting(null));
+            assertEquals("searchIntersecting:  rectangle cannot be null", e.getMessage());
+        }
+    }
+
+    @Test
+    public void searchIntersecting_closed() {
+        final QueryBatcher batcher = new QueryBatcher(NOTHING, 1, 0, TimeUnit.MILLISECONDS);
+
+        batcher.close();
+        batcher.close();
+
+        assertTrue(batcher.isClosed());
+
+        final Exception e = assertThrows(IllegalStateException.class, () -> batcher.searchIntersecting(rect(0, 0, 1, 1)));
+        assertEquals("searchIntersecting:  the batcher is closed", e.getMessage());
+    }
+
+    @Test
+    public void matchesBruteForce_columnar() throws Exception {
+        final RectangleBatch data = randomBatch(random, 2000, 200, 15);
+
+        try(QueryBatcher batcher = new QueryBatcher(QueryBatcher.probeOf(data), 64, 1, TimeUnit.MILLISECONDS)) {
+            checkAgainstBruteForce(batcher, data);
+        }
+    }
+
+    @Test
+    public void matchesBruteForce_index() throws Exception {
+        final RectangleBatch data = randomBatch(random, 2000, 200, 15);
+
+        try(QueryBatcher batcher = new QueryBatcher(QueryBatcher.probeOf(RTree.bulkLoad(data)), 64, 1, TimeUnit.MILLISECONDS)) {
+            checkAgainstBruteForce(batcher, data);
+        }
+    }
+
+    /**
+     * Several threads query at once, so that batches mix their queries; each must still get its own answers.
+     */
+    private void checkAgainstBruteForce(final QueryBatcher batcher, final RectangleBatch data) throws Exception {
+        final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+        final List<Thread> callers = new ArrayList<>();
+
+        for(int t = 0; t < 4; t++) {
+            final Random callerRandom = new Random(t);
+
+            callers.add(new Thread(() -> {
+                final List<Rectangle> queries = new ArrayList<>();
+                final List<CompletableFuture<int[]>> futures = new ArrayList<>();
+
+                for(int q = 0; q < 300; q++) {
+                    queries.add(randomRectangle(callerRandom, 200, 15));
+                    futures.add(batcher.searchIntersecting(queries.get(q)));
+                }
+
+                for(int q = 0; q < queries.size(); q++) {
+                    final List<Integer> expected = bruteForce(data, queries.get(q));
+                    final List<Integer> actual = sorted(futures.get(q).join());
+
+                    if(!expected.equals(actual)) failures.add(queries.get(q) + ":  expected " + expected + " but got " + actual);
+                }
+            }));
+        }
+
+        callers.forEach(Thread::start);
+        for(final Thread caller : callers) caller.join();
+
+        assertEquals(List.of(), new ArrayList<>(failures));
+    }
+
+    @Test
+    public void columnarProbe_edgesAndCornersDontIntersect() {
+        final RectangleBatch data = new RectangleBatch();
+        data.add(0, 0, 10, 10);
+        data.add(10, 0, 20, 10);
+        data.add(10, 10, 20, 20);
+        data.add(2, 2, 8, 8);
+
+        final RectangleBatch queries = new RectangleBatch();
+        queries.add(20, 0, 30, 30);  // touches rows 1 and 2
+        queries.add(5, 5, 15, 15);   // overlaps everything
+        queries.add(0, 10, 10, 20);  // touches rows 0 and 2
+
+        final List<String> pairs = new ArrayList<>();
+        QueryBatcher.probeOf(data).probe(queries, (query, id) -> pairs.add(query + ":" + id));
+        Collections.sort(pairs);
+
+        assertEquals(List.of("1:0", "1:1", "1:2", "1:3"), pairs);
+    }
+
+    @Test
+    public void batchesAreNoLargerThanMaxBatchSize() {
+        final ConcurrentLinkedQueue<Integer> sizes = new ConcurrentLinkedQueue<>();
+        final List<CompletableFuture<int[]>> futures = new ArrayList<>();
+
+        // With a long delay, every batch waits until it's full
+        try(QueryBatcher batcher = new QueryBatcher((queries, matches) -> sizes.add(queries.size()), 10, 1, TimeUnit.MINUTES)) {
+            for(int q = 0; q < 100; q++) futures.add(batcher.searchIntersecting(randomRectangle(random, 200, 15)));
+
+            for(final CompletableFuture<int[]> future : futures) assertEquals(0, future.join().length);
+        }
+
+        assertEquals(Collections.nCopies(10, 10), new ArrayList<>(sizes));
+    }
+
+    @Test
+    public void partialBatchIsProbedOnceMaxDelayPasses() {
+        final ConcurrentLinkedQueue<Integer> sizes = new ConcurrentLinkedQueue<>();
+
+        try(QueryBatcher batcher = new QueryBatcher((queries, matches) -> sizes.add(queries.size()), 1000, 20, TimeUnit.MILLISECONDS)) {
+            final long start = System.nanoTime();
+
+            batcher.searchIntersecting(rect(0, 0, 1, 1)).join();
+
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        }
+
+        assertEquals(List.of(1), new ArrayList<>(sizes));
+    }
+
+    @Test
+    public void failedProbeFailsItsBatchOnly() throws Exception {
+        final RuntimeException failure = new IllegalStateException("probe failed");
+        final int[] calls = { 0 };
+
+        final QueryBatcher.BatchProbe probe = (queries, matches) -> {
+            if(calls[0]++ == 0) throw failure;
+
+            for(int q = 0; q < queries.size(); q++) matches.accept(q, 7);
+        };
+
+        try(QueryBatcher batcher = new QueryBatcher(probe, 1, 0, TimeUnit.MILLISECONDS)) {
+            final ExecutionException e = assertThrows(ExecutionException.class, () -> batcher.searchIntersecting(rect(0, 0, 1, 1)).get());
+            assertSame(failure, e.getCause());
+
+            assertEquals(List.of(7), sorted(batcher.searchIntersecting(rect(0, 0, 1, 1)).get()));
+        }
+    }
+
+    @Test
+    public void interruptedDispatcherClosesTheBatcher() throws Exception {
+        final CountDownLatch queued = new CountDownLatch(1);
+
+        // The probe runs on the dispatcher, so it can interrupt it; it waits until more queries are queued behind it
+        final QueryBatcher.BatchProbe probe = (queries, matches) -> {
+            try {
+                queued.await();
+            } catch(final InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+
+            Thread.currentThread().interrupt();
+            matches.accept(0, 7);
+        };
+
+        final QueryBatcher batcher = new QueryBatcher(probe, 1, 0, TimeUnit.MILLISECONDS);
+        final CompletableFuture<int[]> first = batcher.searchIntersecting(rect(0, 0, 1, 1));
+        final List<CompletableFuture<int[]>> waiting = new ArrayList<>();
+
+        for(int q = 0; q < 3; q++) waiting.add(batcher.searchIntersecting(rect(0, 0, 1, 1)));
+
+        queued.countDown();
+
+        // The batch being probed is still answered; the queries behind it fail instead of waiting forever
+        assertEquals(List.of(7), sorted(first.get(10, TimeUnit.SECONDS)));
+
+        for(final CompletableFuture<int[]> future : waiting) {
+            final ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+            assertEquals("searchIntersecting:  the batcher is closed", e.getCause().getMessage());
+        }
+
+        assertTrue(batcher.isClosed());
+        assertThrows(IllegalStateException.class, () -> batcher.searchIntersecting(rect(0, 0, 1, 1)));
+
+        batcher.close();
+    }
+
+    @Test
+    public void close_answersQueuedQueries() {
+        final List<CompletableFuture<int[]>> futures = new ArrayList<>();
+        final QueryBatcher batcher = new QueryBatcher((queries, matches) -> {
+            for(int q = 0; q < queries.size(); q++) matches.accept(q, q);
+        }, 1000, 1, TimeUnit.MINUTES);
+
+        for(int q = 0; q < 50; q++) futures.add(batcher.searchIntersecting(rect(0, 0, 1, 1)));
+
+        // The batch would otherwise be held open for a minute
+        batcher.close();
+
+        for(final CompletableFuture<int[]> future : futures) {
+            assertTrue(future.isDone());
+            assertEquals(1, future.join().length);
+        }
+    }
+
+    @Test
+    public void close_fromADependentStage() {
+        final QueryBatcher batcher = new QueryBatcher(NOTHING, 1, 0, TimeUnit.MILLISECONDS);
+
+        batcher.searchIntersecting(rect(0, 0, 1, 1)).thenRun(batcher::close).join();
+        batcher.close();
+
+        assertTrue(batcher.isClosed());
+    }
+
+    private static List<Integer> bruteForce(final RectangleBatch data, final Rectangle query) {
+        final List<Integer> ids = new ArrayList<>();
+
+        for(int i = 0; i < data.size(); i++) {
+            if(data.get(i).intersects(query)) ids.add(i);
+        }
+
+        return ids;
+    }
+
+    private static List<Integer> sorted(final int[] ids) {
+        final List<Integer> list = new ArrayList<>();
+        for(final int id : ids) list.add(id);
+        Collections.sort(list);
+        return list;
+    }
+}
@@ -0,0 +1,159 @@
+package org.loverde.rectangles.join;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.loverde.rectangles.TestRectangles.randomBatch;
+
+
+public class SpatialJoinTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    public static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    public static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void nullArguments() {
+        final SpatialJoin join = new SpatialJoin(pool);
+
+        Exception e = assertThrows(IllegalArgumentException.class, () -> join.join(null, new RectangleBatch(), (i, j) -> {}));
+        assertEquals("join:  first cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> join.join(new RectangleBatch(), null, (i, j) -> {}));
+        assertEquals("join:  second cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> join.join(new RectangleBatch(), new RectangleBatch(), null));
+        assertEquals("join:  consumer cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> new SpatialJoin(null));
+        assertEquals("pool cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void tilesPerAxisOutOfRange() {
+        Exception e = assertThrows(IllegalArgumentException.class, () -> new SpatialJoin(pool, -1));
+        assertEquals("tilesPerAxis cannot be negative", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> new SpatialJoin(pool, SpatialJoin.MAX_TILES_PER_AXIS + 1));
+        assertEquals("tilesPerAxis cannot be greater than " + SpatialJoin.MAX_TILES_PER_AXIS, e.getMessage());
+    }
+
+    @Test
+    public void empty() {
+        final RectangleBatch some = new RectangleBatch();
+        some.add(0, 0, 1, 1);
+
+        assertEquals(0, new SpatialJoin(pool).count(new RectangleBatch(), some));
+        assertEquals(0, new SpatialJoin(pool).count(some, new RectangleBatch()));
+    }
+
+    @Test
+    public void edgesAndCornersDontIntersect() {
+        final RectangleBatch first = new RectangleBatch();
+        first.add(2, 2, 4, 4);
+
+        final RectangleBatch second = new RectangleBatch();
+        second.add(4, 2, 6, 4);    // shares the right edge
+        second.add(4, 4, 6, 6);    // shares the upper right corner
+        second.add(2, 2, 4, 4);    // identical
+        second.add(3, 3, 5, 5);    // overlaps
+
+        assertEquals(List.of("0,2", "0,3"), pairs(new SpatialJoin(pool, 4), first, second));
+    }
+
+    // A large rectangle covers every tile, so it's found in all of them but must be reported once
+    @Test
+    public void pairSpanningManyTilesReportedOnce() {
+        final RectangleBatch first = new RectangleBatch();
+        first.add(0, 0, 100, 100);
+
+        final RectangleBatch second = new RectangleBatch();
+        second.add(1, 1, 99, 99);
+        second.add(50, 50, 51, 51);
+        second.add(25, 0, 75, 100);
+
+        assertEquals(List.of("0,0", "0,1", "0,2"), pairs(new SpatialJoin(pool, 10), first, second));
+    }
+
+    // Reference points lying exactly on tile boundaries
+    @Test
+    public void referencePointOnTileBoundary() {
+        final RectangleBatch first = new RectangleBatch();
+        first.add(0, 0, 10, 10);
+        first.add(5, 5, 10, 10);
+
+        final RectangleBatch second = new RectangleBatch();
+        second.add(5, 5, 15, 15);
+        second.add(10, 10, 20, 20);
+        second.add(0, 5, 20, 6);
+
+        assertEquals(pairsBruteForce(first, second), pairs(new SpatialJoin(pool, 4), first, second));
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        final Random random = new Random(12);
+
+        for(int trial = 0; trial < 20; trial++) {
+            // Integer coordinates on a small grid, so shared edges, shared corners and duplicates are common
+            final RectangleBatch first = randomBatch(random, 200, 40, 8);
+            final RectangleBatch second = randomBatch(random, 250, 40, 12);
+            final List<String> expected = pairsBruteForce(first, second);
+
+            for(final int tiles : new int[] {0, 1, 3, 7, 16}) {
+                assertEquals(expected, pairs(new SpatialJoin(pool, tiles), first, second), "trial " + trial + ", tiles " + tiles);
+                assertEquals(expected.size(), new SpatialJoin(pool, tiles).count(first, second));
+            }
+        }
+    }
+
+    @Test
+    public void commonPool() {
+        final Random random = new Random(5);
+        final RectangleBatch first = randomBatch(random, 2000, 500, 20);
+        final RectangleBatch second = randomBatch(random, 2000, 500, 20);
+
+        assertEquals(pairsBruteForce(first, second), pairs(new SpatialJoin(), first, second));
+    }
+
+    private static List<String> pairs(final SpatialJoin join, final RectangleBatch first, final RectangleBatch second) {
+        final ConcurrentLinkedQueue<String> found = new ConcurrentLinkedQueue<>();
+        join.join(first, second, (i, j) -> found.add(i + "," + j));
+
+        final List<String> pairs = new ArrayList<>(found);
+        Collections.sort(pairs);
+        return pairs;
+    }
+
+    private static List<String> pairsBruteForce(final RectangleBatch first, final RectangleBatch second) {
+        final List<String> pairs = new ArrayList<>();
+
+        for(int i = 0; i < first.size(); i++) {
+            for(int j = 0; j < second.size(); j++) {
+                if(first.get(i).intersects(second.get(j))) pairs.add(i + "," + j);
+            }
+        }
+
+        Collections.sort(pairs);
+        return pairs;
+    }
+}
@@ -0,0 +1,208 @@
+package org.loverde.rectangles.region;
+
+import org.junit.jupiter.api.Test;
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class RegionTest {
+
+    private static final int GRID = 30;
+
+    @Test
+    public void nullArguments() {
+        Exception e = assertThrows(IllegalArgumentException.class, () -> Region.of((Rectangle) null));
+        assertEquals("of:  rectangle cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> Region.of((RectangleBatch) null));
+        assertEquals("of:  batch cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> Region.EMPTY.union(null));
+        assertEquals("union:  region cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> Region.EMPTY.subtract(null));
+        assertEquals("subtract:  region cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> Region.EMPTY.forEachRectangle(null));
+        assertEquals("forEachRectangle:  consumer cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void invalidRectangle() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> Region.of(2, 0, 1, 1));
+        assertEquals("upperRight.x must be greater than lowerLeft.x", e.getMessage());
+    }
+
+    @Test
+    public void empty() {
+        assertTrue(Region.EMPTY.isEmpty());
+        assertEquals(0, Region.EMPTY.getArea());
+        assertNull(Region.EMPTY.getBounds());
+        assertEquals(0, Region.EMPTY.toBatch().size());
+        assertSame(Region.EMPTY, Region.of(new RectangleBatch()));
+    }
+
+    @Test
+    public void subtractLeavesAFrame() {
+        final Region frame = Region.of(0, 0, 4, 4).subtract(Region.of(1, 1, 3, 3));
+
+        assertEquals(12, frame.getArea());
+        assertEquals(3, frame.getBandCount());
+        assertEquals(4, frame.getRectangleCount());
+        assertEquals(new Rectangle(new Point(0, 0), new Point(4, 4)), frame.getBounds());
+        assertEquals("Region[y 0.0-1.0: x 0.0-4.0, y 1.0-3.0: x 0.0-1.0 x 3.0-4.0, y 3.0-4.0: x 0.0-4.0]", frame.toString());
+    }
+
+    @Test
+    public void adjacentRegionsMerge() {
+        final Region left = Region.of(0, 0, 1, 2), right = Region.of(1, 0, 2, 2), above = Region.of(0, 2, 2, 3);
+
+        // Shared edges aren't area in common
+        assertFalse(left.intersects(right));
+        assertTrue(left.intersect(right).isEmpty());
+
+        // Touching intervals, then touching bands with the same intervals, become one
+        assertEquals(Region.of(0, 0, 2, 3), left.union(right).union(above));
+        assertEquals(1, left.union(right).union(above).getRectangleCount());
+    }
+
+    @Test
+    public void equalRegionsFromDifferentRectangles() {
+        final RectangleBatch horizontal = new RectangleBatch(), vertical = new RectangleBatch();
+        horizontal.add(0, 0, 2, 1);
+        horizontal.add(0, 1, 2, 2);
+        vertical.add(1, 0, 2, 2);
+        vertical.add(0, 0, 1, 2);
+        vertical.add(0.5, 0.5, 1.5, 1.5);
+
+        assertEquals(Region.of(horizontal), Region.of(vertical));
+        assertEquals(Region.of(horizontal).hashCode(), Region.of(vertical).hashCode());
+        assertNotEquals(Region.of(horizontal), Region.of(0, 0, 2, 3));
+    }
+
+    @Test
+    public void coversAndXor() {
+        final Region big = Region.of(0, 0, 10, 10), small = Region.of(2, 2, 5, 5);
+
+        assertTrue(big.covers(small));
+        assertTrue(big.covers(big));
+        assertFalse(small.covers(big));
+        assertEquals(big.subtract(small), big.xor(small));
+        assertEquals(Region.EMPTY, big.xor(big));
+    }
+
+    @Test
+    public void toBatchStacksIntervalsAcrossBands() {
+        // Two columns and a square beside them, which cuts the columns into three bands:  seven band rectangles, but
+        // the columns run through all three bands
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(0, 0, 1, 5);
+        batch.add(3, 0, 4, 5);
+        batch.add(6, 2, 7, 3);
+
+        final Region region = Region.of(batch);
+        final RectangleBatch rectangles = region.toBatch();
+
+        assertEquals(3, region.getBandCount());
+        assertEquals(7, region.getRectangleCount());
+        assertEquals(3, rectangles.size());
+        assertEquals(region, Region.of(rectangles));
+    }
+
+    @Test
+    public void matchesPaintedCells() {
+        final Random random = new Random(20);
+
+        for(int trial = 0; trial < 200; trial++) {
+            final RectangleBatch a = randomBatch(random), b = randomBatch(random);
+            final Region ra = Region.of(a), rb = Region.of(b);
+            final boolean[][] pa = paint(a), pb = paint(b);
+
+            check(ra.union(rb), pa, pb, (x, y) -> x | y);
+            check(ra.intersect(rb), pa, pb, (x, y) -> x & y);
+            check(ra.subtract(rb), pa, pb, (x, y) -> x & !y);
+            check(ra.xor(rb), pa, pb, (x, y) -> x ^ y);
+        }
+    }
+
+    private interface CellOperation {
+        boolean apply(boolean a, boolean b);
+    }
+
+    private static void check(final Region region, final boolean[][] pa, final boolean[][] pb, final CellOperation operation) {
+        final boolean[][] expected = new boolean[GRID][GRID];
+        int area = 0;
+
+        for(int x = 0; x < GRID; x++) {
+            for(int y = 0; y < GRID; y++) {
+                expected[x][y] = operation.apply(pa[x][y], pb[x][y]);
+                if(expected[x][y]) area++;
+            }
+        }
+
+        assertEquals(area, region.getArea());
+
+        // Both ways of listing the rectangles cover exactly the expected cells, once each
+        final List<RectangleBatch> listings = new ArrayList<>();
+        final RectangleBatch banded = new RectangleBatch();
+        region.forEachRectangle((l, b, r, t) -> banded.add(l, b, r, t));
+        listings.add(banded);
+        listings.add(region.toBatch());
+
+        for(final RectangleBatch listing : listings) {
+            final int[][] counts = new int[GRID][GRID];
+
+            for(int i = 0; i < listing.size(); i++) {
+                for(int x = (int) listing.getLeftX(i); x < (int) listing.getRightX(i); x++) {
+                    for(int y = (int) listing.getBottomY(i); y < (int) listing.getTopY(i); y++) counts[x][y]++;
+                }
+            }
+
+            for(int x = 0; x < GRID; x++) {
+                for(int y = 0; y < GRID; y++) assertEquals(expected[x][y] ? 1 : 0, counts[x][y]);
+            }
+        }
+
+        assertTrue(region.toBatch().size() <= region.getRectangleCount());
+
+        // The banded form is canonical, so building the region again from its own rectangles gives the same region
+        assertEquals(region, Region.of(region.toBatch()));
+    }
+
+    private static RectangleBatch randomBatch(final Random random) {
+        final RectangleBatch batch = new RectangleBatch();
+        final int size = 1 + random.nextInt(12);
+
+        for(int i = 0; i < size; i++) {
+            final int x = random.nextInt(GRID - 1), y = random.nextInt(GRID - 1);
+            batch.add(x, y, x + 1 + random.nextInt(GRID - 1 - x), y + 1 + random.nextInt(GRID - 1 - y));
+        }
+
+        return batch;
+    }
+
+    private static boolean[][] paint(final RectangleBatch batch) {
+        final boolean[][] painted = new boolean[GRID][GRID];
+
+        for(int i = 0; i < batch.size(); i++) {
+            for(int x = (int) batch.getLeftX(i); x < (int) batch.getRightX(i); x++) {
+                for(int y = (int) batch.getBottomY(i); y < (int) batch.getTopY(i); y++) painted[x][y] = true;
+            }
+        }
+
+        return painted;
+    }
+}
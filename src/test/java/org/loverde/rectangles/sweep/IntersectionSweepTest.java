@@ -0,0 +1,117 @@
+package org.loverde.rectangles.sweep;
+
+import org.junit.jupiter.api.Test;
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class IntersectionSweepTest {
+
+    @Test
+    public void nullBatch() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> IntersectionSweep.forEachIntersectingPair(null, (a, b) -> {}));
+        assertEquals("forEachIntersectingPair:  batch cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void empty() {
+        assertEquals(0, IntersectionSweep.countIntersectingPairs(new RectangleBatch()));
+    }
+
+    // intersection.png:  #1 overlaps the black rectangle, #7 shares an edge with it and #8 is clear of it
+    @Test
+    public void diagram() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(4, 2, 17, 14);
+        batch.add(1, 11, 7, 17);
+        batch.add(5, 1, 8, 2);
+        batch.add(5, 0, 8, 1);
+
+        assertEquals(Collections.singletonList("0,1"), pairs(batch));
+    }
+
+    @Test
+    public void identicalRectanglesIntersect() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(1, 1, 2, 2);
+        batch.add(1, 1, 2, 2);
+
+        assertEquals(Collections.singletonList("0,1"), pairs(batch));
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        final Random random = new Random(3);
+
+        for(int trial = 0; trial < 20; trial++) {
+            final RectangleBatch batch = new RectangleBatch();
+
+            // Integer coordinates on a small grid, so shared edges, shared corners and duplicates are common
+            for(int i = 0; i < 300; i++) {
+                final int x = random.nextInt(50), y = random.nextInt(50);
+                batch.add(x, y, x + 1 + random.nextInt(8), y + 1 + random.nextInt(8));
+            }
+
+            final List<String> expected = new ArrayList<>();
+
+            for(int i = 0; i < batch.size(); i++) {
+                for(int j = i + 1; j < batch.size(); j++) {
+                    if(batch.get(i).intersects(batch.get(j))) expected.add(i + "," + j);
+                }
+            }
+
+            Collections.sort(expected);
+
+            assertEquals(expected, pairs(batch));
+            assertEquals(expected.size(), IntersectionSweep.countIntersectingPairs(batch));
+        }
+    }
+
+    @Test
+    public void forEachIntersection_matchesRectangle() {
+        final Random random = new Random(5);
+        final RectangleBatch batch = new RectangleBatch();
+
+        for(int i = 0; i < 300; i++) {
+            final int x = random.nextInt(50), y = random.nextInt(50);
+            batch.add(x, y, x + 1 + random.nextInt(8), y + 1 + random.nextInt(8));
+        }
+
+        final int[] count = { 0 };
+
+        IntersectionSweep.forEachIntersection(batch, (first, second, left, bottom, right, top, mask) -> {
+            final Rectangle a = batch.get(first), b = batch.get(second);
+
+            assertTrue(first < second);
+            assertEquals(a.getIntersection(b), new Rectangle(new Point(left, bottom), new Point(right, top)));
+            assertEquals(a.computeIntersectingPoints(b).getMask(), mask);
+
+            count[0]++;
+        });
+
+        assertEquals(IntersectionSweep.countIntersectingPairs(batch), count[0]);
+    }
+
+    private static List<String> pairs(final RectangleBatch batch) {
+        final List<String> pairs = new ArrayList<>();
+
+        IntersectionSweep.forEachIntersectingPair(batch, (a, b) -> {
+            assertTrue(a < b);
+            pairs.add(a + "," + b);
+        });
+
+        Collections.sort(pairs);
+
+        return pairs;
+    }
+}
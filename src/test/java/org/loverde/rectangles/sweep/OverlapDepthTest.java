@@ -0,0 +1,151 @@
+package org.loverde.rectangles.sweep;
+
+import org.junit.jupiter.api.Test;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class OverlapDepthTest {
+
+    @Test
+    public void nullBatch() {
+        Exception e = assertThrows(IllegalArgumentException.class, () -> OverlapDepth.maxDepth(null));
+        assertEquals("maxDepth:  batch cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> OverlapDepth.find(null));
+        assertEquals("find:  batch cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void empty() {
+        final OverlapDepth.Hotspot hotspot = OverlapDepth.find(new RectangleBatch());
+
+        assertEquals(0, OverlapDepth.maxDepth(new RectangleBatch()));
+        assertEquals(0, hotspot.getDepth());
+        assertNull(hotspot.getRegion());
+        assertEquals(0, hotspot.getRows().length);
+    }
+
+    @Test
+    public void single() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(1, 2, 3, 4);
+
+        final OverlapDepth.Hotspot hotspot = OverlapDepth.find(batch);
+
+        assertEquals(1, hotspot.getDepth());
+        assertRegion(1, 2, 3, 4, hotspot.getRegion());
+        assertArrayEquals(new int[] { 0 }, hotspot.getRows());
+    }
+
+    @Test
+    public void deepestOverlap() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(0, 0, 10, 10);
+        batch.add(20, 20, 30, 30);
+        batch.add(5, 5, 15, 15);
+        batch.add(22, 22, 28, 28);
+        batch.add(8, 2, 12, 9);
+
+        final OverlapDepth.Hotspot hotspot = OverlapDepth.find(batch);
+
+        assertEquals(3, hotspot.getDepth());
+        assertRegion(8, 5, 10, 9, hotspot.getRegion());
+        assertArrayEquals(new int[] { 0, 2, 4 }, hotspot.getRows());
+    }
+
+    // Adjacency isn't intersection:  rectangles sharing an edge or a corner don't overlap there
+    @Test
+    public void sharedEdgesAndCornersDontOverlap() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(0, 0, 1, 1);
+        batch.add(1, 0, 2, 1);
+        batch.add(0, 1, 1, 2);
+        batch.add(1, 1, 2, 2);
+
+        assertEquals(1, OverlapDepth.maxDepth(batch));
+    }
+
+    @Test
+    public void identicalRectanglesOverlap() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(1, 1, 2, 2);
+        batch.add(1, 1, 2, 2);
+        batch.add(2, 1, 3, 2);
+
+        final OverlapDepth.Hotspot hotspot = OverlapDepth.find(batch);
+
+        assertEquals(2, hotspot.getDepth());
+        assertRegion(1, 1, 2, 2, hotspot.getRegion());
+        assertArrayEquals(new int[] { 0, 1 }, hotspot.getRows());
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        final Random random = new Random(8);
+
+        for(int trial = 0; trial < 30; trial++) {
+            final RectangleBatch batch = new RectangleBatch();
+
+            // Integer coordinates on a small grid, so shared edges, shared corners and duplicates are common
+            for(int i = 0; i < 200; i++) {
+                final int x = random.nextInt(40), y = random.nextInt(40);
+                batch.add(x, y, x + 1 + random.nextInt(10), y + 1 + random.nextInt(10));
+            }
+
+            // Every unit cell's centre is inside the rectangles covering the cell
+            int expected = 0;
+
+            for(int x = 0; x < 50; x++) {
+                for(int y = 0; y < 50; y++) {
+                    expected = Math.max(expected, depthAt(batch, x + 0.5, y + 0.5));
+                }
+            }
+
+            final OverlapDepth.Hotspot hotspot = OverlapDepth.find(batch);
+            final Rectangle region = hotspot.getRegion();
+
+            assertEquals(expected, OverlapDepth.maxDepth(batch));
+            assertEquals(expected, hotspot.getDepth());
+            assertEquals(expected, hotspot.getRows().length);
+
+            // Every chosen rectangle covers the region
+            for(final int row : hotspot.getRows()) {
+                final Rectangle r = batch.get(row);
+
+                assertTrue(r.getLowerLeft().getX() <= region.getLowerLeft().getX() && r.getLowerLeft().getY() <= region.getLowerLeft().getY()
+                           && r.getUpperRight().getX() >= region.getUpperRight().getX() && r.getUpperRight().getY() >= region.getUpperRight().getY());
+            }
+
+            final double cx = (region.getLowerLeft().getX() + region.getUpperRight().getX()) / 2;
+            final double cy = (region.getLowerLeft().getY() + region.getUpperRight().getY()) / 2;
+
+            assertEquals(expected, depthAt(batch, cx, cy));
+        }
+    }
+
+    private static int depthAt(final RectangleBatch batch, final double x, final double y) {
+        int depth = 0;
+
+        for(int i = 0; i < batch.size(); i++) {
+            if(batch.getLeftX(i) < x && x < batch.getRightX(i) && batch.getBottomY(i) < y && y < batch.getTopY(i)) depth++;
+        }
+
+        return depth;
+    }
+
+    private static void assertRegion(final double left, final double bottom, final double right, final double top, final Rectangle region) {
+        assertEquals(left, region.getLowerLeft().getX());
+        assertEquals(bottom, region.getLowerLeft().getY());
+        assertEquals(right, region.getUpperRight().getX());
+        assertEquals(top, region.getUpperRight().getY());
+    }
+}
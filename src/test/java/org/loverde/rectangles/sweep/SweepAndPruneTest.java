@@ -0,0 +1,275 @@
+package org.loverde.rectangles.sweep;
+
+import org.junit.jupiter.api.Test;
+import org.loverde.rectangles.Boundaries;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.loverde.rectangles.TestRectangles.rect;
+
+
+public class SweepAndPruneTest {
+
+    private final Random random = new Random(22);
+
+    @Test
+    public void insert_duplicateId() {
+        final SweepAndPrune sap = new SweepAndPrune();
+        sap.insert(5, rect(1, 1, 2, 2));
+
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> sap.insert(5, rect(3, 3, 4, 4)));
+        assertEquals("insert:  id 5 is already in the set", e.getMessage());
+    }
+
+    @Test
+    public void insert_nullRectangle() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> new SweepAndPrune().insert(1, null));
+        assertEquals("insert:  rectangle cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void update_invalidRectangle() {
+        final SweepAndPrune sap = new SweepAndPrune();
+        sap.insert(5, rect(1, 1, 2, 2));
+
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> sap.update(5, 1, 3, 2, 3));
+        assertEquals("upperRight.y must be greater than lowerLeft.y", e.getMessage());
+    }
+
+    @Test
+    public void flush_nullListener() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> new SweepAndPrune().flush(null));
+        assertEquals("flush:  listener cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void update_missingId() {
+        assertFalse(new SweepAndPrune().update(3, rect(0, 0, 1, 1)));
+        assertFalse(new SweepAndPrune().remove(3));
+    }
+
+    @Test
+    public void touchingRectanglesArePairedOnlyWithAdjacency() {
+        final SweepAndPrune overlap = new SweepAndPrune();
+        final SweepAndPrune touch = new SweepAndPrune(true);
+
+        for(final SweepAndPrune sap : new SweepAndPrune[] { overlap, touch }) {
+            sap.insert(1, rect(0, 0, 2, 2));
+            sap.insert(2, rect(2, 1, 4, 3));  // shares part of an edge with 1
+            sap.insert(3, rect(4, 3, 5, 4));  // meets 2 at a corner
+        }
+
+        assertEquals(0, overlap.getPairCount());
+        assertEquals(2, touch.getPairCount());
+        assertTrue(touch.isPaired(2, 1));
+        assertTrue(touch.isPaired(2, 3));
+
+        // Sliding 2 left by a little makes it overlap 1, and leaves it short of 3's corner
+        overlap.update(2, rect(1.5, 1, 3.5, 3));
+        touch.update(2, rect(1.5, 1, 3.5, 3));
+
+        assertTrue(overlap.isPaired(1, 2));
+        assertEquals(1, overlap.getPairCount());
+        assertTrue(touch.isPaired(1, 2));
+        assertEquals(1, touch.getPairCount());
+    }
+
+    @Test
+    public void flushReportsOnlyNetChanges() {
+        final SweepAndPrune sap = new SweepAndPrune();
+        final Map<Long, Boolean> reported = new HashMap<>();
+
+        sap.insert(1, rect(0, 0, 2, 2));
+        sap.insert(2, rect(5, 0, 7, 2));
+        sap.insert(3, rect(1, 1, 3, 3));  // overlaps 1
+
+        flush(sap, reported);
+        assertEquals(Map.of(pair(1, 3), true), reported);
+
+        // 2 passes over 1 and back, and 3 moves away from 1 and back, between flushes
+        sap.update(2, rect(1, 0, 3, 2));
+        sap.update(2, rect(5, 0, 7, 2));
+        sap.update(3, rect(10, 10, 11, 11));
+        sap.update(3, rect(1, 1, 3, 3));
+
+        flush(sap, reported);
+        assertEquals(Map.of(), reported);
+
+        sap.remove(3);
+        sap.insert(4, rect(6, 1, 8, 3));  // overlaps 2
+
+        flush(sap, reported);
+        assertEquals(Map.of(pair(1, 3), false, pair(2, 4), true), reported);
+    }
+
+    @Test
+    public void negativeIds() {
+        final SweepAndPrune sap = new SweepAndPrune();
+        final Map<Long, Boolean> reported = new HashMap<>();
+
+        sap.insert(-7, rect(0, 0, 2, 2));
+        sap.insert(3, rect(1, 1, 3, 3));
+
+        flush(sap, reported);
+        assertEquals(Map.of(pair(-7, 3), true), reported);
+
+        final Set<Long> pairs = new HashSet<>();
+        sap.forEachPair((first, second) -> pairs.add(pair(first, second)));
+        assertEquals(Set.of(pair(-7, 3)), pairs);
+    }
+
+    /**
+     * Removing a rectangle mustn't depend on its edges sorting past every other edge, since those may be infinite too.
+     */
+    @Test
+    public void removeBesideInfiniteRectangle() {
+        for(final boolean includeAdjacent : new boolean[] { false, true }) {
+            final SweepAndPrune sap = new SweepAndPrune(includeAdjacent);
+            final Map<Long, Boolean> reported = new HashMap<>();
+
+            sap.insert(1, rect(0, 0, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY));
+            sap.insert(2, rect(0, 0, 1, 1));
+            sap.insert(4, rect(3, 3, Double.POSITIVE_INFINITY, 4));
+            flush(sap, reported);
+
+            assertTrue(sap.remove(2));
+            flush(sap, reported);
+            assertEquals(Map.of(pair(1, 2), false), reported);
+
+            sap.insert(3, rect(5, 5, 6, 6));
+            assertTrue(sap.isPaired(1, 3));
+
+            assertTrue(sap.update(3, rect(0.5, 0.5, 0.7, 0.7)));
+            assertTrue(sap.isPaired(1, 3));
+            assertFalse(sap.isPaired(3, 4));
+            flush(sap, reported);
+
+            assertTrue(sap.remove(1));
+            flush(sap, reported);
+            assertEquals(Map.of(pair(1, 3), false, pair(1, 4), false), reported);
+            assertEquals(0, sap.getPairCount());
+
+            assertTrue(sap.update(3, rect(10, 3.5, 11, 5)));
+            assertTrue(sap.isPaired(3, 4));
+            assertEquals(1, sap.getPairCount());
+        }
+    }
+
+    @Test
+    public void matchesBruteForceUnderSmallMoves() {
+        for(final boolean includeAdjacent : new boolean[] { false, true }) {
+            final SweepAndPrune sap = new SweepAndPrune(includeAdjacent);
+            final Map<Integer, double[]> rects = new HashMap<>();
+            final Set<Long> mirror = new HashSet<>();
+
+            // Small integer coordinates and moves, so edges meet and pass each other often
+            for(int id = 0; id < 150; id++) {
+                final double[] r = randomRect(40);
+                rects.put(id, r);
+                sap.insert(id, r[0], r[1], r[2], r[3]);
+            }
+
+            for(int step = 0; step < 300; step++) {
+                for(int change = 0; change < 20; change++) {
+                    final int id = random.nextInt(170);
+                    final double[] old = rects.get(id);
+
+                    if(old == null) {
+                        final double[] r = randomRect(40);
+                        rects.put(id, r);
+                        sap.insert(id, r[0], r[1], r[2], r[3]);
+                    } else if(random.nextInt(10) == 0) {
+                        rects.remove(id);
+                        assertTrue(sap.remove(id));
+                    } else {
+                        // Coordinates can't be negative, so moves which would cross zero go the other way
+                        final double dx = Math.abs(old[0] + random.nextInt(5) - 2) - old[0];
+                        final double dy = Math.abs(old[1] + random.nextInt(5) - 2) - old[1];
+                        final double grow = random.nextInt(3) - 1;
+                        final double[] r = { old[0] + dx, old[1] + dy, Math.max(old[0] + dx + 1, old[2] + dx + grow), old[3] + dy };
+                        rects.put(id, r);
+                        assertTrue(sap.update(id, r[0], r[1], r[2], r[3]));
+                    }
+                }
+
+                final Set<Long> began = new HashSet<>(), ended = new HashSet<>();
+
+                sap.flush(new SweepAndPrune.PairListener() {
+                    @Override
+                    public void began(final int first, final int second) {
+                        assertTrue(first < second);
+                        began.add(pair(first, second));
+                    }
+
+                    @Override
+                    public void ended(final int first, final int second) {
+                        assertTrue(first < second);
+                        ended.add(pair(first, second));
+                    }
+                });
+
+                final Set<Long> expected = bruteForce(rects, includeAdjacent);
+
+                // Only real changes are reported:  a pair which began wasn't paired before, and one which ended was
+                for(final long p : began) assertTrue(mirror.add(p));
+                for(final long p : ended) assertTrue(mirror.remove(p));
+
+                assertEquals(expected, mirror);
+                assertEquals(expected.size(), sap.getPairCount());
+                assertEquals(rects.size(), sap.size());
+            }
+        }
+    }
+
+    private Set<Long> bruteForce(final Map<Integer, double[]> rects, final boolean includeAdjacent) {
+        final Set<Long> pairs = new HashSet<>();
+
+        for(final Map.Entry<Integer, double[]> a : rects.entrySet()) {
+            for(final Map.Entry<Integer, double[]> b : rects.entrySet()) {
+                if(a.getKey() >= b.getKey()) continue;
+
+                final double[] p = a.getValue(), q = b.getValue();
+
+                if(Boundaries.intersects(p[0], p[1], p[2], p[3], q[0], q[1], q[2], q[3]) ||
+                   includeAdjacent && Boundaries.isAdjacent(p[0], p[1], p[2], p[3], q[0], q[1], q[2], q[3])) {
+                    pairs.add(pair(a.getKey(), b.getKey()));
+                }
+            }
+        }
+
+        return pairs;
+    }
+
+    private static void flush(final SweepAndPrune sap, final Map<Long, Boolean> reported) {
+        reported.clear();
+
+        sap.flush(new SweepAndPrune.PairListener() {
+            @Override
+            public void began(final int first, final int second) {
+                reported.put(pair(first, second), true);
+            }
+
+            @Override
+            public void ended(final int first, final int second) {
+                reported.put(pair(first, second), false);
+            }
+        });
+    }
+
+    private double[] randomRect(final int extent) {
+        final int l = random.nextInt(extent), b = random.nextInt(extent);
+        return new double[] { l, b, l + 1 + random.nextInt(6), b + 1 + random.nextInt(6) };
+    }
+
+    private static long pair(final int first, final int second) {
+        return (long) first << 32 | (second & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,159 @@
+package org.loverde.rectangles.sweep;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.loverde.rectangles.TestRectangles.randomBatch;
+
+
+public class UnionMeasureTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    public static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    public static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void nullArguments() {
+        Exception e = assertThrows(IllegalArgumentException.class, () -> UnionMeasure.area(null));
+        assertEquals("area:  batch cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> UnionMeasure.area(new RectangleBatch(), null));
+        assertEquals("area:  pool cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> UnionMeasure.perimeter(null));
+        assertEquals("perimeter:  batch cannot be null", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> UnionMeasure.perimeter(new RectangleBatch(), null));
+        assertEquals("perimeter:  pool cannot be null", e.getMessage());
+    }
+
+    @Test
+    public void empty() {
+        assertEquals(0, UnionMeasure.area(new RectangleBatch()));
+        assertEquals(0, UnionMeasure.perimeter(new RectangleBatch(), pool));
+    }
+
+    @Test
+    public void overlapsAreCountedOnce() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(0, 0, 4, 4);
+        batch.add(2, 2, 6, 6);
+        batch.add(3, 3, 5, 5);  // Inside the union of the other two
+
+        assertEquals(28, UnionMeasure.area(batch));
+        assertEquals(24, UnionMeasure.perimeter(batch));
+    }
+
+    @Test
+    public void identicalRectangles() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(1, 1, 3, 2);
+        batch.add(1, 1, 3, 2);
+
+        assertEquals(2, UnionMeasure.area(batch));
+        assertEquals(6, UnionMeasure.perimeter(batch));
+    }
+
+    @Test
+    public void sharedEdgeIsNotPartOfThePerimeter() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(0, 0, 1, 1);
+        batch.add(1, 0, 2, 1);
+        batch.add(0, 1, 2, 2);
+
+        assertEquals(4, UnionMeasure.area(batch));
+        assertEquals(8, UnionMeasure.perimeter(batch));
+    }
+
+    @Test
+    public void holeIsPartOfThePerimeter() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(0, 0, 3, 1);
+        batch.add(0, 2, 3, 3);
+        batch.add(0, 1, 1, 2);
+        batch.add(2, 1, 3, 2);
+
+        assertEquals(8, UnionMeasure.area(batch));
+        assertEquals(12 + 4, UnionMeasure.perimeter(batch));
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        final Random random = new Random(5);
+
+        for(int trial = 0; trial < 30; trial++) {
+            final RectangleBatch batch = randomBatch(random, 200, 40, 10);
+            final double[] expected = bruteForce(batch, 40 + 10);
+
+            assertEquals(expected[0], UnionMeasure.area(batch), "trial " + trial);
+            assertEquals(expected[1], UnionMeasure.perimeter(batch), "trial " + trial);
+        }
+    }
+
+    @Test
+    public void parallelMatchesSequential() {
+        final Random random = new Random(6);
+
+        for(int trial = 0; trial < 10; trial++) {
+            final RectangleBatch batch = randomBatch(random, 2000, 200, 10);
+
+            // Integer coordinates keep every partial sum exact, so the results are identical
+            assertEquals(UnionMeasure.area(batch), UnionMeasure.area(batch, pool));
+            assertEquals(UnionMeasure.perimeter(batch), UnionMeasure.perimeter(batch, pool));
+        }
+    }
+
+    @Test
+    public void parallelWithMoreSlabsThanRectangles() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(0, 0, 2, 2);
+        batch.add(1, 1, 3, 3);
+
+        assertEquals(7, UnionMeasure.area(batch, pool));
+        assertEquals(12, UnionMeasure.perimeter(batch, pool));
+    }
+
+    /** Paints the rectangles onto a grid of unit cells, then counts the painted cells and the sides between painted and unpainted ones */
+    private static double[] bruteForce(final RectangleBatch batch, final int extent) {
+        final boolean[][] painted = new boolean[extent + 2][extent + 2];
+
+        for(int i = 0; i < batch.size(); i++) {
+            for(int x = (int) batch.getLeftX(i); x < (int) batch.getRightX(i); x++) {
+                for(int y = (int) batch.getBottomY(i); y < (int) batch.getTopY(i); y++) {
+                    painted[x + 1][y + 1] = true;
+                }
+            }
+        }
+
+        double area = 0, perimeter = 0;
+
+        for(int x = 1; x <= extent; x++) {
+            for(int y = 1; y <= extent; y++) {
+                if(!painted[x][y]) continue;
+
+                area++;
+                if(!painted[x - 1][y]) perimeter++;
+                if(!painted[x + 1][y]) perimeter++;
+                if(!painted[x][y - 1]) perimeter++;
+                if(!painted[x][y + 1]) perimeter++;
+            }
+        }
+
+        return new double[] { area, perimeter };
+    }
+}
@@ -0,0 +1,136 @@
+package org.loverde.rectangles.vector;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.loverde.rectangles.BatchPredicates;
+import org.loverde.rectangles.Boundaries;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+/**
+ * <p>A {@link BatchPredicates} implementation which uses the incubating Java Vector API to compare one query rectangle
+ * with as many batch rectangles per instruction as the hardware allows (4 doubles with AVX2, 8 with AVX-512).  The
+ * comparisons are the same ones {@link Boundaries} makes, so the answers are identical to the scalar loops; whatever
+ * is left over after the last full vector is handled by {@link Boundaries} directly.</p>
+ *
+ * <p>The JVM must be started with <code>--add-modules jdk.incubator.vector</code>.  Normally this class isn't used
+ * directly:  {@link BatchPredicates#fastest()} finds it through {@link java.util.ServiceLoader}.</p>
+ */
+public final class VectorBatchPredicates implements BatchPredicates {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void intersects(final RectangleBatch batch, final Rectangle query, final boolean[] result) {
+        checkArguments("intersects", batch, query, result);
+
+        final int size = batch.size();
+        final double[] left = batch.getLeftColumn(), bottom = batch.getBottomColumn(), right = batch.getRightColumn(), top = batch.getTopColumn();
+        final double ql = query.getLeftX(), qb = query.getBottomY(), qr = query.getRightX(), qt = query.getTopY();
+        final int bound = SPECIES.loopBound(size);
+        int i = 0;
+
+        for(; i < bound; i += SPECIES.length()) {
+            final VectorMask<Double> hit =
+                DoubleVector.fromArray(SPECIES, left, i).compare(VectorOperators.LT, qr)
+                    .and(DoubleVector.fromArray(SPECIES, right, i).compare(VectorOperators.GT, ql))
+                    .and(DoubleVector.fromArray(SPECIES, bottom, i).compare(VectorOperators.LT, qt))
+                    .and(DoubleVector.fromArray(SPECIES, top, i).compare(VectorOperators.GT, qb));
+
+            hit.intoArray(result, i);
+        }
+
+        for(; i < size; i++) {
+            result[i] = Boundaries.intersects(left[i], bottom[i], right[i], top[i], ql, qb, qr, qt);
+        }
+    }
+
+    @Override
+    public void contains(final RectangleBatch batch, final Rectangle query, final boolean[] result) {
+        checkArguments("contains", batch, query, result);
+
+        final int size = batch.size();
+        final double[] left = batch.getLeftColumn(), bottom = batch.getBottomColumn(), right = batch.getRightColumn(), top = batch.getTopColumn();
+        final double ql = query.getLeftX(), qb = query.getBottomY(), qr = query.getRightX(), qt = query.getTopY();
+        final int bound = SPECIES.loopBound(size);
+        int i = 0;
+
+        for(; i < bound; i += SPECIES.length()) {
+            final VectorMask<Double> hit =
+                DoubleVector.fromArray(SPECIES, left, i).compare(VectorOperators.LT, ql)
+                    .and(DoubleVector.fromArray(SPECIES, right, i).compare(VectorOperators.GT, qr))
+                    .and(DoubleVector.fromArray(SPECIES, bottom, i).compare(VectorOperators.LT, qb))
+                    .and(DoubleVector.fromArray(SPECIES, top, i).compare(VectorOperators.GT, qt));
+
+            hit.intoArray(result, i);
+        }
+
+        for(; i < size; i++) {
+            result[i] = Boundaries.contains(left[i], bottom[i], right[i], top[i], ql, qb, qr, qt);
+        }
+    }
+
+    @Override
+    public void isContainedBy(final RectangleBatch batch, final Rectangle query, final boolean[] result) {
+        checkArguments("isContainedBy", batch, query, result);
+
+        final int size = batch.size();
+        final double[] left = batch.getLeftColumn(), bottom = batch.getBottomColumn(), right = batch.getRightColumn(), top = batch.getTopColumn();
+        final double ql = query.getLeftX(), qb = query.getBottomY(), qr = query.getRightX(), qt = query.getTopY();
+        final int bound = SPECIES.loopBound(size);
+        int i = 0;
+
+        for(; i < bound; i += SPECIES.length()) {
+            final VectorMask<Double> hit =
+                DoubleVector.fromArray(SPECIES, left, i).compare(VectorOperators.GT, ql)
+                    .and(DoubleVector.fromArray(SPECIES, right, i).compare(VectorOperators.LT, qr))
+                    .and(DoubleVector.fromArray(SPECIES, bottom, i).compare(VectorOperators.GT, qb))
+                    .and(DoubleVector.fromArray(SPECIES, top, i).compare(VectorOperators.LT, qt));
+
+            hit.intoArray(result, i);
+        }
+
+        for(; i < size; i++) {
+            result[i] = Boundaries.contains(ql, qb, qr, qt, left[i], bottom[i], right[i], top[i]);
+        }
+    }
+
+    @Override
+    public void isAdjacentTo(final RectangleBatch batch, final Rectangle query, final boolean[] result) {
+        checkArguments("isAdjacentTo", batch, query, result);
+
+        final int size = batch.size();
+        final double[] left = batch.getLeftColumn(), bottom = batch.getBottomColumn(), right = batch.getRightColumn(), top = batch.getTopColumn();
+        final double ql = query.getLeftX(), qb = query.getBottomY(), qr = query.getRightX(), qt = query.getTopY();
+        final int bound = SPECIES.loopBound(size);
+        int i = 0;
+
+        for(; i < bound; i += SPECIES.length()) {
+            final DoubleVector l = DoubleVector.fromArray(SPECIES, left, i);
+            final DoubleVector b = DoubleVector.fromArray(SPECIES, bottom, i);
+            final DoubleVector r = DoubleVector.fromArray(SPECIES, right, i);
+            final DoubleVector t = DoubleVector.fromArray(SPECIES, top, i);
+
+            // See Boundaries.isAdjacent
+            final VectorMask<Double> xRangesMeet = l.compare(VectorOperators.LE, qr).and(r.compare(VectorOperators.GE, ql));
+            final VectorMask<Double> yRangesMeet = b.compare(VectorOperators.LE, qt).and(t.compare(VectorOperators.GE, qb));
+            final VectorMask<Double> xTouch = l.compare(VectorOperators.EQ, qr).or(r.compare(VectorOperators.EQ, ql));
+            final VectorMask<Double> yTouch = t.compare(VectorOperators.EQ, qb).or(b.compare(VectorOperators.EQ, qt));
+
+            yTouch.and(xRangesMeet).or(xTouch.and(yRangesMeet)).intoArray(result, i);
+        }
+
+        for(; i < size; i++) {
+            result[i] = Boundaries.isAdjacent(left[i], bottom[i], right[i], top[i], ql, qb, qr, qt);
+        }
+    }
+
+    private static void checkArguments(final String method, final RectangleBatch batch, final Rectangle query, final boolean[] result) {
+        if(batch == null) throw new IllegalArgumentException(method + ":  batch cannot be null");
+        if(query == null) throw new IllegalArgumentException(method + ":  rectangle cannot be null");
+        if(result == null) throw new IllegalArgumentException(method + ":  result cannot be null");
+        if(result.length < batch.size()) throw new IllegalArgumentException(method + ":  result must hold at least " + batch.size() + " elements");
+    }
+}
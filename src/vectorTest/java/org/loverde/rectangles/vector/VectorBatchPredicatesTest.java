@@ -0,0 +1,78 @@
+package org.loverde.rectangles.vector;
+
+import org.junit.jupiter.api.Test;
+import org.loverde.rectangles.BatchPredicates;
+import org.loverde.rectangles.Point;
+import org.loverde.rectangles.Rectangle;
+import org.loverde.rectangles.RectangleBatch;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class VectorBatchPredicatesTest {
+
+    private final BatchPredicates vector = new VectorBatchPredicates();
+    private final BatchPredicates scalar = BatchPredicates.scalar();
+
+    @Test
+    public void fastest_isVector() {
+        assertTrue(BatchPredicates.fastest() instanceof VectorBatchPredicates);
+    }
+
+    // Small integer coordinates make shared edges and corners common, so every comparison gets exercised.  The sizes
+    // aren't multiples of the vector length, so the scalar tail is exercised too.
+    @Test
+    public void agreesWithScalar() {
+        final Random random = new Random(7);
+
+        for(final int size : new int[] { 0, 1, 3, 17, 1001 }) {
+            final RectangleBatch batch = new RectangleBatch();
+
+            for(int i = 0; i < size; i++) batch.add(randomRectangle(random));
+
+            for(int q = 0; q < 50; q++) {
+                final Rectangle query = randomRectangle(random);
+
+                assertSame(batch, query, BatchPredicates::intersects);
+                assertSame(batch, query, BatchPredicates::contains);
+                assertSame(batch, query, BatchPredicates::isContainedBy);
+                assertSame(batch, query, BatchPredicates::isAdjacentTo);
+            }
+        }
+    }
+
+    @Test
+    public void resultTooSmall() {
+        final RectangleBatch batch = new RectangleBatch();
+        batch.add(0, 0, 1, 1);
+
+        final Exception e = assertThrows(IllegalArgumentException.class,
+            () -> vector.intersects(batch, new Rectangle(new Point(0, 0), new Point(1, 1)), new boolean[0]));
+
+        assertEquals("intersects:  result must hold at least 1 elements", e.getMessage());
+    }
+
+    private void assertSame(final RectangleBatch batch, final Rectangle query, final Operation op) {
+        final boolean[] expected = new boolean[batch.size()];
+        final boolean[] actual = new boolean[batch.size()];
+
+        op.apply(scalar, batch, query, expected);
+        op.apply(vector, batch, query, actual);
+
+        assertArrayEquals(expected, actual);
+    }
+
+    private static Rectangle randomRectangle(final Random random) {
+        final int x = random.nextInt(10), y = random.nextInt(10);
+        return new Rectangle(new Point(x, y), new Point(x + 1 + random.nextInt(5), y + 1 + random.nextInt(5)));
+    }
+
+    private interface Operation {
+        void apply(BatchPredicates predicates, RectangleBatch batch, Rectangle query, boolean[] result);
+    }
+}